@@ -0,0 +1,90 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.access.hierarchicalroles;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+/**
+ * Compares the expansion of the authorities of a user by {@link RoleHierarchyImpl} and
+ * {@link BitSetRoleHierarchy}. The hierarchy is a chain of {@code roles} roles, each of
+ * which also includes a role of its own, and the user holds the top and a middle role.
+ *
+ * @since 4.2
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RoleHierarchyBenchmark {
+
+	@Param({ "impl", "bitset" })
+	public String implementation;
+
+	@Param({ "10", "100" })
+	public int roles;
+
+	private RoleHierarchy roleHierarchy;
+
+	private List<GrantedAuthority> authorities;
+
+	@Setup
+	public void setup() {
+		StringBuilder hierarchy = new StringBuilder();
+		for (int i = 0; i < this.roles - 1; i++) {
+			hierarchy.append("ROLE_").append(i).append(" > ROLE_").append(i + 1)
+					.append('\n');
+			hierarchy.append("ROLE_").append(i).append(" > ROLE_LEAF_").append(i)
+					.append('\n');
+		}
+
+		if ("impl".equals(this.implementation)) {
+			RoleHierarchyImpl roleHierarchy = new RoleHierarchyImpl();
+			roleHierarchy.setHierarchy(hierarchy.toString());
+			this.roleHierarchy = roleHierarchy;
+		}
+		else {
+			BitSetRoleHierarchy roleHierarchy = new BitSetRoleHierarchy();
+			roleHierarchy.setHierarchy(hierarchy.toString());
+			this.roleHierarchy = roleHierarchy;
+		}
+
+		this.authorities = AuthorityUtils.createAuthorityList("ROLE_0", "ROLE_"
+				+ (this.roles / 2), "ROLE_UNRELATED");
+	}
+
+	@Benchmark
+	public Collection<? extends GrantedAuthority> getReachableGrantedAuthorities() {
+		return this.roleHierarchy.getReachableGrantedAuthorities(this.authorities);
+	}
+}
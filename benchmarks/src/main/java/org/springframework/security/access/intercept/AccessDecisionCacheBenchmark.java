@@ -0,0 +1,149 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.access.intercept;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.access.AccessDecisionVoter;
+import org.springframework.security.access.ConfigAttribute;
+import org.springframework.security.access.SecurityConfig;
+import org.springframework.security.access.SecurityMetadataSource;
+import org.springframework.security.access.vote.AffirmativeBased;
+import org.springframework.security.access.vote.AuthenticatedVoter;
+import org.springframework.security.access.vote.RoleVoter;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * Measures {@link AbstractSecurityInterceptor#beforeInvocation(Object)} for an
+ * authenticated user, with and without the authorization decision cache.
+ * <p>
+ * The state is per thread because the {@code Authentication} is obtained from the
+ * thread bound {@code SecurityContext}.
+ *
+ * @since 4.2
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AccessDecisionCacheBenchmark {
+
+	@Param({ "0", "1000" })
+	public int accessDecisionCacheSize;
+
+	@Param({ "5", "50" })
+	public int authorities;
+
+	private BenchmarkSecurityInterceptor interceptor;
+
+	private final Object secureObject = new Object();
+
+	@Setup
+	public void setup() throws Exception {
+		List<GrantedAuthority> granted = new ArrayList<GrantedAuthority>();
+		for (int i = 0; i < this.authorities; i++) {
+			granted.add(new SimpleGrantedAuthority("ROLE_" + i));
+		}
+		TestingAuthenticationToken authentication = new TestingAuthenticationToken(
+				"user", "password", granted);
+		SecurityContextHolder.getContext().setAuthentication(authentication);
+
+		List<AccessDecisionVoter<? extends Object>> voters = new ArrayList<AccessDecisionVoter<? extends Object>>();
+		voters.add(new RoleVoter());
+		voters.add(new AuthenticatedVoter());
+
+		this.interceptor = new BenchmarkSecurityInterceptor(SecurityConfig.createList(
+				"ROLE_" + (this.authorities - 1), "IS_AUTHENTICATED_FULLY"));
+		this.interceptor.setAccessDecisionManager(new AffirmativeBased(voters));
+		this.interceptor.setAuthenticationManager(new NoOpAuthenticationManager());
+		this.interceptor.setAccessDecisionCacheSize(this.accessDecisionCacheSize);
+		this.interceptor.afterPropertiesSet();
+	}
+
+	@TearDown
+	public void tearDown() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Benchmark
+	public InterceptorStatusToken beforeInvocation() {
+		InterceptorStatusToken token = this.interceptor.beforeInvocation(this.secureObject);
+		this.interceptor.finallyInvocation(token);
+		return token;
+	}
+
+	private static final class BenchmarkSecurityInterceptor extends
+			AbstractSecurityInterceptor {
+		private final SecurityMetadataSource metadataSource;
+
+		private BenchmarkSecurityInterceptor(final Collection<ConfigAttribute> attributes) {
+			this.metadataSource = new SecurityMetadataSource() {
+				public Collection<ConfigAttribute> getAttributes(Object object) {
+					return attributes;
+				}
+
+				public Collection<ConfigAttribute> getAllConfigAttributes() {
+					return attributes;
+				}
+
+				public boolean supports(Class<?> clazz) {
+					return true;
+				}
+			};
+		}
+
+		@Override
+		public Class<?> getSecureObjectClass() {
+			return Object.class;
+		}
+
+		@Override
+		public SecurityMetadataSource obtainSecurityMetadataSource() {
+			return this.metadataSource;
+		}
+	}
+
+	private static final class NoOpAuthenticationManager implements
+			AuthenticationManager {
+		public Authentication authenticate(Authentication authentication)
+				throws AuthenticationException {
+			return authentication;
+		}
+	}
+}
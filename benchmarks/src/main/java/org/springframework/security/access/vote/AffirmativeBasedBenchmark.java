@@ -0,0 +1,90 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.access.vote;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.access.AccessDecisionVoter;
+import org.springframework.security.access.ConfigAttribute;
+import org.springframework.security.access.SecurityConfig;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+/**
+ * Measures a granting {@link AffirmativeBased#decide} with a {@link RoleVoter} and an
+ * {@link AuthenticatedVoter}, for users holding a varying number of authorities.
+ *
+ * @since 4.2
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AffirmativeBasedBenchmark {
+
+	@Param({ "1", "10", "100" })
+	public int authorities;
+
+	private AffirmativeBased accessDecisionManager;
+
+	private Authentication authentication;
+
+	private Collection<ConfigAttribute> attributes;
+
+	private final Object secureObject = new Object();
+
+	@Setup
+	public void setup() {
+		List<AccessDecisionVoter<? extends Object>> voters = new ArrayList<AccessDecisionVoter<? extends Object>>();
+		voters.add(new AuthenticatedVoter());
+		voters.add(new RoleVoter());
+		this.accessDecisionManager = new AffirmativeBased(voters);
+
+		List<GrantedAuthority> granted = new ArrayList<GrantedAuthority>();
+		for (int i = 0; i < this.authorities; i++) {
+			granted.add(new SimpleGrantedAuthority("ROLE_" + i));
+		}
+		this.authentication = new TestingAuthenticationToken("user", "password",
+				granted);
+		this.attributes = SecurityConfig.createList("ROLE_ADMIN", "ROLE_"
+				+ (this.authorities - 1));
+	}
+
+	@Benchmark
+	public Authentication decide() {
+		this.accessDecisionManager.decide(this.authentication, this.secureObject,
+				this.attributes);
+		return this.authentication;
+	}
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.acls.jdbc;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.security.acls.domain.AclAuthorizationStrategyImpl;
+import org.springframework.security.acls.domain.ConsoleAuditLogger;
+import org.springframework.security.acls.domain.DefaultPermissionGrantingStrategy;
+import org.springframework.security.acls.domain.ObjectIdentityImpl;
+import org.springframework.security.acls.model.Acl;
+import org.springframework.security.acls.model.AclCache;
+import org.springframework.security.acls.model.MutableAcl;
+import org.springframework.security.acls.model.ObjectIdentity;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.util.FileCopyUtils;
+
+/**
+ * Measures reading ACLs from an in-memory HSQLDB database with
+ * {@link BasicLookupStrategy}. Each object identity has a parent, both of which have
+ * {@code entries} ACL entries. The ACL cache never returns an ACL, so that every lookup
+ * executes the SQL queries and assembles the ACLs.
+ *
+ * @since 4.2
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BasicLookupStrategyBenchmark {
+
+	private static final String TARGET_CLASS = "org.springframework.security.acls.TargetObject";
+
+	private static final int OBJECTS = 200;
+
+	@Param({ "1", "10", "50" })
+	public int objectIdentities;
+
+	@Param({ "5" })
+	public int entries;
+
+	private SingleConnectionDataSource dataSource;
+
+	private BasicLookupStrategy strategy;
+
+	private List<ObjectIdentity> lookup;
+
+	@Setup
+	public void setup() throws Exception {
+		this.dataSource = new SingleConnectionDataSource(
+				"jdbc:hsqldb:mem:basiclookupstrategybenchmark", "sa", "", true);
+		this.dataSource.setDriverClassName("org.hsqldb.jdbcDriver");
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(this.dataSource);
+		jdbcTemplate.execute(new String(FileCopyUtils
+				.copyToByteArray(new ClassPathResource("createAclSchema.sql")
+						.getInputStream()), "UTF-8"));
+
+		jdbcTemplate.update("INSERT INTO acl_sid(ID,PRINCIPAL,SID) VALUES (1,1,'owner')");
+		jdbcTemplate.update("INSERT INTO acl_class(ID,CLASS) VALUES (1,?)", TARGET_CLASS);
+		int entryId = 1;
+		// ids 1 to OBJECTS are parents, the ids above are their children
+		for (int id = 1; id <= 2 * OBJECTS; id++) {
+			Long parent = id > OBJECTS ? Long.valueOf(id - OBJECTS) : null;
+			jdbcTemplate.update(
+					"INSERT INTO acl_object_identity(ID,OBJECT_ID_CLASS,OBJECT_ID_IDENTITY,PARENT_OBJECT,OWNER_SID,ENTRIES_INHERITING) VALUES (?,1,?,?,1,1)",
+					id, id, parent);
+			for (int order = 0; order < this.entries; order++) {
+				jdbcTemplate.update(
+						"INSERT INTO acl_entry(ID,ACL_OBJECT_IDENTITY,ACE_ORDER,SID,MASK,GRANTING,AUDIT_SUCCESS,AUDIT_FAILURE) VALUES (?,?,?,1,?,1,0,0)",
+						entryId++, id, order, 1 << (order % 5));
+			}
+		}
+
+		this.strategy = new BasicLookupStrategy(this.dataSource, new NoOpAclCache(),
+				new AclAuthorizationStrategyImpl(new SimpleGrantedAuthority(
+						"ROLE_ADMINISTRATOR")), new DefaultPermissionGrantingStrategy(
+						new ConsoleAuditLogger()));
+
+		this.lookup = new ArrayList<ObjectIdentity>();
+		for (int i = 0; i < this.objectIdentities; i++) {
+			this.lookup.add(new ObjectIdentityImpl(TARGET_CLASS, Long.valueOf(OBJECTS
+					+ 1 + i)));
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.dataSource.destroy();
+	}
+
+	@Benchmark
+	public Map<ObjectIdentity, Acl> readAclsById() {
+		return this.strategy.readAclsById(this.lookup, null);
+	}
+
+	private static final class NoOpAclCache implements AclCache {
+		public void evictFromCache(Serializable pk) {
+		}
+
+		public void evictFromCache(ObjectIdentity objectIdentity) {
+		}
+
+		public MutableAcl getFromCache(ObjectIdentity objectIdentity) {
+			return null;
+		}
+
+		public MutableAcl getFromCache(Serializable pk) {
+			return null;
+		}
+
+		public void putInCache(MutableAcl acl) {
+		}
+
+		public void clearCache() {
+		}
+	}
+}
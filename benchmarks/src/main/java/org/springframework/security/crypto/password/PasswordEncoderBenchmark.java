@@ -0,0 +1,86 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.crypto.password;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.scrypt.SCryptPasswordEncoder;
+
+/**
+ * Measures encoding and matching a password with the adaptive {@link PasswordEncoder}s
+ * using their default parameters.
+ *
+ * @since 4.2
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PasswordEncoderBenchmark {
+
+	@Param({ "bcrypt", "pbkdf2", "pbkdf2-sha256", "scrypt" })
+	public String encoder;
+
+	private final String rawPassword = "correct horse battery staple";
+
+	private PasswordEncoder passwordEncoder;
+
+	private String encodedPassword;
+
+	@Setup
+	public void setup() {
+		if ("bcrypt".equals(this.encoder)) {
+			this.passwordEncoder = new BCryptPasswordEncoder();
+		}
+		else if ("pbkdf2".equals(this.encoder)) {
+			this.passwordEncoder = new Pbkdf2PasswordEncoder();
+		}
+		else if ("pbkdf2-sha256".equals(this.encoder)) {
+			Pbkdf2PasswordEncoder passwordEncoder = new Pbkdf2PasswordEncoder();
+			passwordEncoder.setAlgorithm(
+					Pbkdf2PasswordEncoder.SecretKeyFactoryAlgorithm.PBKDF2WithHmacSHA256);
+			this.passwordEncoder = passwordEncoder;
+		}
+		else {
+			this.passwordEncoder = new SCryptPasswordEncoder();
+		}
+		this.encodedPassword = this.passwordEncoder.encode(this.rawPassword);
+	}
+
+	@Benchmark
+	public String encode() {
+		return this.passwordEncoder.encode(this.rawPassword);
+	}
+
+	@Benchmark
+	public boolean matches() {
+		return this.passwordEncoder.matches(this.rawPassword, this.encodedPassword);
+	}
+}
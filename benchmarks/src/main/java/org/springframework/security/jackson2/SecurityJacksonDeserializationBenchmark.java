@@ -0,0 +1,246 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.jackson2;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.Cookie;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.web.PortResolverImpl;
+import org.springframework.security.web.authentication.WebAuthenticationDetails;
+import org.springframework.security.web.savedrequest.DefaultSavedRequest;
+
+/**
+ * Compares reading the JSON stored by the security Jackson modules, using the streaming
+ * deserializers of the modules and deserializers which first read every object as a
+ * {@link JsonNode} tree. The context is the one of a form login with
+ * {@code authorities} authorities, the cookies are those of the saved request. The
+ * {@link DefaultSavedRequest} is read through creators by both mappers, and serves as a
+ * reference. The JSON is 11957 characters long for the context with 50 authorities,
+ * 46057 characters for the context with 200 authorities, 1567 characters for the saved
+ * request and 894 characters for the cookies.
+ *
+ * @since 4.2
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SecurityJacksonDeserializationBenchmark {
+
+	@Param({ "50", "200" })
+	public int authorities;
+
+	@Param({ "context", "savedRequest", "cookies" })
+	public String payload;
+
+	private ObjectMapper streamingMapper;
+
+	private ObjectMapper treeMapper;
+
+	private String json;
+
+	private Class<?> type;
+
+	@Setup
+	public void setup() throws IOException {
+		ClassLoader loader = getClass().getClassLoader();
+		this.streamingMapper = new ObjectMapper();
+		this.streamingMapper.registerModules(SecurityJacksonModules.getModules(loader));
+		this.treeMapper = new ObjectMapper();
+		this.treeMapper.registerModules(SecurityJacksonModules.getModules(loader));
+		this.treeMapper.addMixInAnnotations(User.class, TreeUserMixin.class);
+		this.treeMapper.addMixInAnnotations(UsernamePasswordAuthenticationToken.class,
+				TreeUsernamePasswordAuthenticationTokenMixin.class);
+		this.treeMapper.addMixInAnnotations(Cookie.class, TreeCookieMixin.class);
+
+		MockHttpServletRequest request = new MockHttpServletRequest("GET",
+				"/app/orders/42");
+		request.setQueryString("page=2&sort=date");
+		request.setParameter("page", "2");
+		request.setParameter("sort", "date");
+		request.addHeader("Accept", "text/html,application/xhtml+xml");
+		request.addHeader("User-Agent", "Mozilla/5.0 (X11; Linux x86_64)");
+		Cookie[] cookies = new Cookie[5];
+		for (int i = 0; i < cookies.length; i++) {
+			cookies[i] = new Cookie("cookie" + i, "value" + i);
+		}
+		request.setCookies(cookies);
+		request.getSession();
+
+		if ("context".equals(this.payload)) {
+			List<GrantedAuthority> authorities = new ArrayList<GrantedAuthority>();
+			for (int i = 0; i < this.authorities; i++) {
+				authorities.add(new SimpleGrantedAuthority("ROLE_PERMISSION_" + i));
+			}
+			User user = new User("user@example.com", "password", authorities);
+			UsernamePasswordAuthenticationToken token = new UsernamePasswordAuthenticationToken(
+					user, "password", user.getAuthorities());
+			token.setDetails(new WebAuthenticationDetails(request));
+			token.eraseCredentials();
+			SecurityContext context = new SecurityContextImpl();
+			context.setAuthentication(token);
+			this.json = this.streamingMapper.writeValueAsString(context);
+			this.type = SecurityContext.class;
+		}
+		else if ("cookies".equals(this.payload)) {
+			this.json = this.streamingMapper.writeValueAsString(cookies);
+			this.type = Cookie[].class;
+		}
+		else {
+			this.json = this.streamingMapper.writeValueAsString(new DefaultSavedRequest(
+					request, new PortResolverImpl()));
+			this.type = DefaultSavedRequest.class;
+		}
+	}
+
+	@Benchmark
+	public Object streamingRead() throws IOException {
+		return this.streamingMapper.readValue(this.json, this.type);
+	}
+
+	@Benchmark
+	public Object treeRead() throws IOException {
+		return this.treeMapper.readValue(this.json, this.type);
+	}
+
+	@JsonTypeInfo(use = JsonTypeInfo.Id.CLASS, include = JsonTypeInfo.As.PROPERTY)
+	@JsonDeserialize(using = TreeUserDeserializer.class)
+	@JsonAutoDetect(fieldVisibility = JsonAutoDetect.Visibility.ANY, getterVisibility = JsonAutoDetect.Visibility.NONE, isGetterVisibility = JsonAutoDetect.Visibility.NONE)
+	@JsonIgnoreProperties(ignoreUnknown = true)
+	abstract static class TreeUserMixin {
+	}
+
+	@JsonTypeInfo(use = JsonTypeInfo.Id.CLASS, include = JsonTypeInfo.As.PROPERTY, property = "@class")
+	@JsonAutoDetect(fieldVisibility = JsonAutoDetect.Visibility.ANY, getterVisibility = JsonAutoDetect.Visibility.NONE, isGetterVisibility = JsonAutoDetect.Visibility.NONE)
+	@JsonDeserialize(using = TreeUsernamePasswordAuthenticationTokenDeserializer.class)
+	abstract static class TreeUsernamePasswordAuthenticationTokenMixin {
+	}
+
+	@JsonTypeInfo(use = JsonTypeInfo.Id.CLASS, include = JsonTypeInfo.As.PROPERTY)
+	@JsonDeserialize(using = TreeCookieDeserializer.class)
+	@JsonAutoDetect(fieldVisibility = JsonAutoDetect.Visibility.ANY, isGetterVisibility = JsonAutoDetect.Visibility.NONE)
+	abstract static class TreeCookieMixin {
+	}
+
+	static class TreeUserDeserializer extends JsonDeserializer<User> {
+
+		@Override
+		public User deserialize(JsonParser jp, DeserializationContext ctxt)
+				throws IOException {
+			ObjectMapper mapper = (ObjectMapper) jp.getCodec();
+			JsonNode node = mapper.readTree(jp);
+			Set<SimpleGrantedAuthority> authorities = mapper.convertValue(
+					node.get("authorities"),
+					new TypeReference<Set<SimpleGrantedAuthority>>() {
+					});
+			JsonNode password = field(node, "password");
+			User user = new User(field(node, "username").asText(), password.asText(""),
+					field(node, "enabled").asBoolean(),
+					field(node, "accountNonExpired").asBoolean(),
+					field(node, "credentialsNonExpired").asBoolean(),
+					field(node, "accountNonLocked").asBoolean(), authorities);
+			if (password.asText(null) == null) {
+				user.eraseCredentials();
+			}
+			return user;
+		}
+	}
+
+	static class TreeUsernamePasswordAuthenticationTokenDeserializer extends
+			JsonDeserializer<UsernamePasswordAuthenticationToken> {
+
+		@Override
+		public UsernamePasswordAuthenticationToken deserialize(JsonParser jp,
+				DeserializationContext ctxt) throws IOException {
+			ObjectMapper mapper = (ObjectMapper) jp.getCodec();
+			JsonNode node = mapper.readTree(jp);
+			JsonNode principalNode = field(node, "principal");
+			Object principal = principalNode.isObject() ? mapper.readValue(
+					principalNode.toString(), User.class) : principalNode.asText();
+			Object credentials = field(node, "credentials").asText();
+			List<GrantedAuthority> authorities = mapper.readValue(
+					field(node, "authorities").toString(),
+					new TypeReference<List<GrantedAuthority>>() {
+					});
+			UsernamePasswordAuthenticationToken token = field(node, "authenticated")
+					.asBoolean() ? new UsernamePasswordAuthenticationToken(principal,
+					credentials, authorities) : new UsernamePasswordAuthenticationToken(
+					principal, credentials);
+			token.setDetails(field(node, "details"));
+			return token;
+		}
+	}
+
+	static class TreeCookieDeserializer extends JsonDeserializer<Cookie> {
+
+		@Override
+		public Cookie deserialize(JsonParser jp, DeserializationContext ctxt)
+				throws IOException {
+			JsonNode node = ((ObjectMapper) jp.getCodec()).readTree(jp);
+			Cookie cookie = new Cookie(field(node, "name").asText(), field(node, "value")
+					.asText());
+			cookie.setComment(field(node, "comment").asText());
+			cookie.setDomain(field(node, "domain").asText());
+			cookie.setMaxAge(field(node, "maxAge").asInt(-1));
+			cookie.setSecure(field(node, "secure").asBoolean());
+			cookie.setVersion(field(node, "version").asInt());
+			cookie.setPath(field(node, "path").asText());
+			cookie.setHttpOnly(field(node, "httpOnly").asBoolean());
+			return cookie;
+		}
+	}
+
+	private static JsonNode field(JsonNode node, String name) {
+		JsonNode field = node.get(name);
+		return field == null || field.isNull() ? MissingNode.getInstance() : field;
+	}
+}
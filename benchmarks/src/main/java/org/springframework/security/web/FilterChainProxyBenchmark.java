@@ -0,0 +1,127 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.web;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.authentication.logout.LogoutFilter;
+import org.springframework.security.web.authentication.logout.SecurityContextLogoutHandler;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+
+/**
+ * Measures the dispatch of a request through {@link FilterChainProxy}, with a varying
+ * number of filter chains, with and without compiled dispatch and skipping of
+ * inapplicable filters. The request matches the last chain, which is the worst case for
+ * the sequential dispatch.
+ *
+ * @since 4.2
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FilterChainProxyBenchmark {
+
+	@Param({ "1", "10", "50" })
+	public int chains;
+
+	@Param({ "false", "true" })
+	public boolean compiledDispatch;
+
+	@Param({ "false", "true" })
+	public boolean skipInapplicableFilters;
+
+	private FilterChainProxy filterChainProxy;
+
+	private MockHttpServletRequest request;
+
+	private MockHttpServletResponse response;
+
+	private final FilterChain chain = new FilterChain() {
+		public void doFilter(ServletRequest request, ServletResponse response) {
+		}
+	};
+
+	@Setup
+	public void setup() {
+		List<SecurityFilterChain> filterChains = new ArrayList<SecurityFilterChain>();
+		for (int i = 0; i < this.chains; i++) {
+			filterChains.add(new DefaultSecurityFilterChain(new AntPathRequestMatcher(
+					"/api/v" + i + "/**"), filters()));
+		}
+		this.filterChainProxy = new FilterChainProxy(filterChains);
+		this.filterChainProxy.setCompiledDispatch(this.compiledDispatch);
+		this.filterChainProxy.setSkipInapplicableFilters(this.skipInapplicableFilters);
+		this.filterChainProxy.afterPropertiesSet();
+
+		String path = "/api/v" + (this.chains - 1) + "/orders/42";
+		this.request = new MockHttpServletRequest("GET", path);
+		this.request.setServletPath(path);
+		this.response = new MockHttpServletResponse();
+	}
+
+	@Benchmark
+	public MockHttpServletResponse doFilter() throws IOException, ServletException {
+		this.filterChainProxy.doFilter(this.request, this.response, this.chain);
+		return this.response;
+	}
+
+	private static List<Filter> filters() {
+		return Arrays.<Filter> asList(new PassThroughFilter(), new LogoutFilter("/",
+				new SecurityContextLogoutHandler()),
+				new UsernamePasswordAuthenticationFilter(), new PassThroughFilter());
+	}
+
+	private static final class PassThroughFilter implements Filter {
+		public void init(FilterConfig filterConfig) {
+		}
+
+		public void doFilter(ServletRequest request, ServletResponse response,
+				FilterChain chain) throws IOException, ServletException {
+			chain.doFilter(request, response);
+		}
+
+		public void destroy() {
+		}
+	}
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.web.access.expression;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.access.ConfigAttribute;
+import org.springframework.security.access.SecurityConfig;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.web.FilterInvocation;
+import org.springframework.security.web.util.matcher.AnyRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+
+/**
+ * Measures the evaluation of a web security expression by {@link WebExpressionVoter}
+ * in the different SpEL compiler modes, with and without shared evaluation context
+ * state.
+ *
+ * @since 4.2
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WebExpressionVoterBenchmark {
+
+	@Param({ "OFF", "MIXED" })
+	public SpelCompilerMode compilerMode;
+
+	@Param({ "false", "true" })
+	public boolean shareEvaluationContextState;
+
+	@Param({ "hasRole('USER') and isAuthenticated()",
+			"hasAnyRole('ADMIN','AUDITOR') or hasIpAddress('127.0.0.1')" })
+	public String expression;
+
+	private WebExpressionVoter voter;
+
+	private Authentication authentication;
+
+	private FilterInvocation filterInvocation;
+
+	private Collection<ConfigAttribute> attributes;
+
+	@Setup
+	public void setup() {
+		DefaultWebSecurityExpressionHandler expressionHandler = new DefaultWebSecurityExpressionHandler();
+		expressionHandler.setShareEvaluationContextState(this.shareEvaluationContextState);
+
+		LinkedHashMap<RequestMatcher, Collection<ConfigAttribute>> requestMap = new LinkedHashMap<RequestMatcher, Collection<ConfigAttribute>>();
+		requestMap.put(AnyRequestMatcher.INSTANCE,
+				SecurityConfig.createList(this.expression));
+		ExpressionBasedFilterInvocationSecurityMetadataSource metadataSource = new ExpressionBasedFilterInvocationSecurityMetadataSource(
+				requestMap, expressionHandler, this.compilerMode);
+
+		this.voter = new WebExpressionVoter();
+		this.voter.setExpressionHandler(expressionHandler);
+		this.authentication = new UsernamePasswordAuthenticationToken("user",
+				"password", AuthorityUtils.createAuthorityList("ROLE_USER",
+						"ROLE_AUDITOR"));
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/orders/42");
+		request.setServletPath("/orders/42");
+		request.setRemoteAddr("127.0.0.1");
+		this.filterInvocation = new FilterInvocation(request,
+				new MockHttpServletResponse(), new FilterChain() {
+					public void doFilter(ServletRequest request,
+							ServletResponse response) {
+					}
+				});
+		this.attributes = metadataSource.getAttributes(this.filterInvocation);
+	}
+
+	@Benchmark
+	public int vote() {
+		return this.voter.vote(this.authentication, this.filterInvocation,
+				this.attributes);
+	}
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.web.access.intercept;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.access.ConfigAttribute;
+import org.springframework.security.access.SecurityConfig;
+import org.springframework.security.web.FilterInvocation;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+
+/**
+ * Measures the lookup of the attributes of a request in a
+ * {@link DefaultFilterInvocationSecurityMetadataSource}, with and without the compiled
+ * lookup. The request matches the last entry of the request map.
+ *
+ * @since 4.2
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FilterInvocationSecurityMetadataSourceBenchmark {
+
+	@Param({ "10", "100", "500" })
+	public int entries;
+
+	@Param({ "false", "true" })
+	public boolean compiledLookup;
+
+	private DefaultFilterInvocationSecurityMetadataSource metadataSource;
+
+	private FilterInvocation filterInvocation;
+
+	@Setup
+	public void setup() {
+		LinkedHashMap<RequestMatcher, Collection<ConfigAttribute>> requestMap = new LinkedHashMap<RequestMatcher, Collection<ConfigAttribute>>();
+		for (int i = 0; i < this.entries; i++) {
+			String method = i % 2 == 0 ? "GET" : "POST";
+			requestMap.put(new AntPathRequestMatcher("/module" + i + "/**", method),
+					SecurityConfig.createList("ROLE_MODULE" + i));
+		}
+		this.metadataSource = new DefaultFilterInvocationSecurityMetadataSource(
+				requestMap);
+		this.metadataSource.setCompiledLookup(this.compiledLookup);
+
+		int last = this.entries - 1;
+		String path = "/module" + last + "/items/42";
+		MockHttpServletRequest request = new MockHttpServletRequest(
+				last % 2 == 0 ? "GET" : "POST", path);
+		request.setServletPath(path);
+		this.filterInvocation = new FilterInvocation(request,
+				new MockHttpServletResponse(), new FilterChain() {
+					public void doFilter(ServletRequest request,
+							ServletResponse response) {
+					}
+				});
+	}
+
+	@Benchmark
+	public Collection<ConfigAttribute> getAttributes() {
+		return this.metadataSource.getAttributes(this.filterInvocation);
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.web.util.matcher;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+/**
+ * Compares {@link AntPathRequestMatcher} and {@link RegexRequestMatcher} for equivalent
+ * patterns, with and without a {@link RequestMatchContext}. Run with
+ * {@code -PjmhArgs="-prof gc"} to report the allocation rate per match.
+ *
+ * @since 4.2
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RequestMatcherBenchmark {
+
+	@Param({ "ant", "regex" })
+	public String matcherType;
+
+	@Param({ "/api/v1/customers/7/orders/42.json", "/static/css/site.css" })
+	public String path;
+
+	private RequestMatcher matcher;
+
+	private MockHttpServletRequest request;
+
+	@Setup
+	public void setup() {
+		if ("ant".equals(this.matcherType)) {
+			this.matcher = new AntPathRequestMatcher("/api/**/orders/*.json", "GET");
+		}
+		else {
+			this.matcher = new RegexRequestMatcher("/api/.*/orders/[^/]+\\.json", "GET");
+		}
+		this.request = new MockHttpServletRequest("GET", this.path);
+		this.request.setServletPath(this.path);
+	}
+
+	@Benchmark
+	public boolean matches() {
+		return this.matcher.matches(this.request);
+	}
+
+	@Benchmark
+	public boolean matchesWithMatchContext() {
+		RequestMatchContext.create(this.request);
+		try {
+			return this.matcher.matches(this.request);
+		}
+		finally {
+			RequestMatchContext.remove(this.request);
+		}
+	}
+}
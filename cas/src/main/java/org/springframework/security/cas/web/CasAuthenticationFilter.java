@@ -293,6 +293,15 @@ public class CasAuthenticationFilter extends AbstractAuthenticationProcessingFil
 		return result;
 	}
 
+	/**
+	 * Overridden to return null, since proxy receptor and proxy ticket requests are also
+	 * processed.
+	 */
+	@Override
+	public RequestMatcher getApplicableRequestMatcher() {
+		return null;
+	}
+
 	/**
 	 * Sets the {@link AuthenticationFailureHandler} for proxy requests.
 	 * @param proxyFailureHandler
@@ -17,15 +17,14 @@ package org.springframework.security.access.expression;
 
 import java.io.Serializable;
 import java.util.Collection;
-import java.util.HashSet;
-import java.util.Set;
 
 import org.springframework.security.access.PermissionEvaluator;
 import org.springframework.security.access.hierarchicalroles.RoleHierarchy;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
 import org.springframework.security.authentication.AuthenticationTrustResolver;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.authority.AuthoritySet;
 
 /**
  * Base root object for use in Spring Security expression evaluations.
@@ -37,7 +36,7 @@ public abstract class SecurityExpressionRoot implements SecurityExpressionOperat
 	protected final Authentication authentication;
 	private AuthenticationTrustResolver trustResolver;
 	private RoleHierarchy roleHierarchy;
-	private Set<String> roles;
+	private AuthoritySet roles;
 	private String defaultRolePrefix = "ROLE_";
 
 	/** Allows "permitAll" expression */
@@ -80,11 +79,10 @@ public abstract class SecurityExpressionRoot implements SecurityExpressionOperat
 	}
 
 	private boolean hasAnyAuthorityName(String prefix, String... roles) {
-		Set<String> roleSet = getAuthoritySet();
+		AuthoritySet roleSet = getAuthoritySet();
 
 		for (String role : roles) {
-			String defaultedRole = getRoleWithDefaultPrefix(prefix, role);
-			if (roleSet.contains(defaultedRole)) {
+			if (roleSet.contains(prefix, role)) {
 				return true;
 			}
 		}
@@ -156,18 +154,23 @@ public abstract class SecurityExpressionRoot implements SecurityExpressionOperat
 		this.defaultRolePrefix = defaultRolePrefix;
 	}
 
-	private Set<String> getAuthoritySet() {
+	private AuthoritySet getAuthoritySet() {
 		if (roles == null) {
-			roles = new HashSet<String>();
-			Collection<? extends GrantedAuthority> userAuthorities = authentication
-					.getAuthorities();
-
-			if (roleHierarchy != null) {
-				userAuthorities = roleHierarchy
-						.getReachableGrantedAuthorities(userAuthorities);
+			if (roleHierarchy == null
+					&& authentication instanceof AbstractAuthenticationToken) {
+				roles = ((AbstractAuthenticationToken) authentication).getAuthoritySet();
 			}
+			else {
+				Collection<? extends GrantedAuthority> userAuthorities = authentication
+						.getAuthorities();
+
+				if (roleHierarchy != null) {
+					userAuthorities = roleHierarchy
+							.getReachableGrantedAuthorities(userAuthorities);
+				}
 
-			roles = AuthorityUtils.authorityListToSet(userAuthorities);
+				roles = AuthoritySet.of(userAuthorities);
+			}
 		}
 
 		return roles;
@@ -185,25 +188,4 @@ public abstract class SecurityExpressionRoot implements SecurityExpressionOperat
 	public void setPermissionEvaluator(PermissionEvaluator permissionEvaluator) {
 		this.permissionEvaluator = permissionEvaluator;
 	}
-
-	/**
-	 * Prefixes role with defaultRolePrefix if defaultRolePrefix is non-null and if role
-	 * does not already start with defaultRolePrefix.
-	 *
-	 * @param defaultRolePrefix
-	 * @param role
-	 * @return
-	 */
-	private static String getRoleWithDefaultPrefix(String defaultRolePrefix, String role) {
-		if (role == null) {
-			return role;
-		}
-		if (defaultRolePrefix == null || defaultRolePrefix.length() == 0) {
-			return role;
-		}
-		if (role.startsWith(defaultRolePrefix)) {
-			return role;
-		}
-		return defaultRolePrefix + role;
-	}
 }
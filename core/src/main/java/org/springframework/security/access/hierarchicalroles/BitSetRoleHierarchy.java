@@ -0,0 +1,326 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.access.hierarchicalroles;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link RoleHierarchy} which accepts the same hierarchy definition as
+ * {@link RoleHierarchyImpl}, but is optimized for large hierarchies which are expanded
+ * on every request.
+ * <p>
+ * Each role of the hierarchy is assigned a dense integer id, and the roles reachable from
+ * each role in one or more steps are pre-calculated as a {@link BitSet} when the
+ * hierarchy is set. A role is therefore resolved with a single map lookup, and the
+ * reachable roles of a set of authorities are the union of their bitsets.
+ * <p>
+ * The reachable authorities of a distinct collection of
+ * {@link SimpleGrantedAuthority} instances are additionally cached, so that repeated
+ * expansions of the same authorities, as performed for every request by the
+ * {@link org.springframework.security.access.vote.RoleHierarchyVoter} and the expression
+ * roots, only copy the cached authorities. As with {@link RoleHierarchyImpl}, the
+ * returned collection may be modified by the caller. The cache holds at most
+ * {@link #setCacheSize(int) cacheSize} entries and is cleared when this limit is reached.
+ * Other authorities, which may carry additional state, are expanded without caching.
+ *
+ * @since 4.2
+ * @see RoleHierarchyImpl
+ */
+public class BitSetRoleHierarchy implements RoleHierarchy {
+
+	private static final Log logger = LogFactory.getLog(BitSetRoleHierarchy.class);
+
+	private static final Pattern HIERARCHY_PATTERN = Pattern
+			.compile("(\\s*([^\\s>]+)\\s*>\\s*([^\\s>]+))");
+
+	private volatile Hierarchy hierarchy = new Hierarchy(
+			Collections.<String, Integer> emptyMap(), new GrantedAuthority[0],
+			new BitSet[0]);
+
+	private final ConcurrentMap<CacheKey, Collection<GrantedAuthority>> reachableAuthoritiesCache = new ConcurrentHashMap<CacheKey, Collection<GrantedAuthority>>();
+
+	private int cacheSize = 1024;
+
+	/**
+	 * Sets the role hierarchy and pre-calculates the roles reachable from every role. A
+	 * {@code CycleInRoleHierarchyException} is thrown if a role can reach itself.
+	 *
+	 * @param roleHierarchyStringRepresentation the definition of the role hierarchy, in
+	 * the format described in {@link RoleHierarchyImpl}
+	 */
+	public void setHierarchy(String roleHierarchyStringRepresentation) {
+		Assert.notNull(roleHierarchyStringRepresentation,
+				"roleHierarchyStringRepresentation cannot be null");
+
+		if (logger.isDebugEnabled()) {
+			logger.debug("setHierarchy() - The following role hierarchy was set: "
+					+ roleHierarchyStringRepresentation);
+		}
+
+		Map<String, Integer> ids = new LinkedHashMap<String, Integer>();
+		List<BitSet> oneStep = new ArrayList<BitSet>();
+		Matcher roleHierarchyMatcher = HIERARCHY_PATTERN
+				.matcher(roleHierarchyStringRepresentation);
+
+		while (roleHierarchyMatcher.find()) {
+			int higherRole = intern(ids, oneStep, roleHierarchyMatcher.group(2));
+			int lowerRole = intern(ids, oneStep, roleHierarchyMatcher.group(3));
+			oneStep.get(higherRole).set(lowerRole);
+		}
+
+		int size = ids.size();
+		GrantedAuthority[] authorities = new GrantedAuthority[size];
+		for (Map.Entry<String, Integer> entry : ids.entrySet()) {
+			authorities[entry.getValue()] = new SimpleGrantedAuthority(entry.getKey());
+		}
+
+		BitSet[] oneOrMoreSteps = new BitSet[size];
+		for (int role = 0; role < size; role++) {
+			BitSet visited = new BitSet(size);
+			BitSet toVisit = (BitSet) oneStep.get(role).clone();
+
+			while (!toVisit.isEmpty()) {
+				int next = toVisit.nextSetBit(0);
+				toVisit.clear(next);
+				visited.set(next);
+				BitSet reachable = oneStep.get(next);
+				for (int i = reachable.nextSetBit(0); i >= 0; i = reachable
+						.nextSetBit(i + 1)) {
+					if (!visited.get(i)) {
+						toVisit.set(i);
+					}
+				}
+			}
+
+			// definition of a cycle: you can reach the role you are starting from
+			if (visited.get(role)) {
+				throw new CycleInRoleHierarchyException();
+			}
+
+			oneOrMoreSteps[role] = visited;
+		}
+
+		this.hierarchy = new Hierarchy(ids, authorities, oneOrMoreSteps);
+		this.reachableAuthoritiesCache.clear();
+	}
+
+	/**
+	 * Sets the maximum number of cached expansions. A value of {@code 0} disables the
+	 * cache. Defaults to 1024.
+	 *
+	 * @param cacheSize the maximum number of cached expansions
+	 */
+	public void setCacheSize(int cacheSize) {
+		Assert.isTrue(cacheSize >= 0, "cacheSize cannot be negative");
+		this.cacheSize = cacheSize;
+		this.reachableAuthoritiesCache.clear();
+	}
+
+	public Collection<GrantedAuthority> getReachableGrantedAuthorities(
+			Collection<? extends GrantedAuthority> authorities) {
+		if (authorities == null || authorities.isEmpty()) {
+			return AuthorityUtils.NO_AUTHORITIES;
+		}
+
+		Hierarchy hierarchy = this.hierarchy;
+		CacheKey key = this.cacheSize > 0 ? createCacheKey(hierarchy, authorities) : null;
+
+		if (key == null) {
+			return expand(hierarchy, authorities);
+		}
+
+		Collection<GrantedAuthority> reachable = this.reachableAuthoritiesCache.get(key);
+
+		if (reachable == null) {
+			reachable = expand(key);
+
+			if (this.reachableAuthoritiesCache.size() >= this.cacheSize) {
+				this.reachableAuthoritiesCache.clear();
+			}
+			this.reachableAuthoritiesCache.put(key, reachable);
+		}
+
+		if (logger.isDebugEnabled()) {
+			logger.debug("getReachableGrantedAuthorities() - From the roles "
+					+ authorities + " one can reach " + reachable
+					+ " in zero or more steps.");
+		}
+
+		return new ArrayList<GrantedAuthority>(reachable);
+	}
+
+	/**
+	 * Creates the cache key of the authorities, or returns null if they contain an
+	 * authority which is not a {@code SimpleGrantedAuthority}.
+	 */
+	private CacheKey createCacheKey(Hierarchy hierarchy,
+			Collection<? extends GrantedAuthority> authorities) {
+		BitSet roles = new BitSet(hierarchy.authorities.length);
+		Set<String> otherRoles = null;
+
+		for (GrantedAuthority authority : authorities) {
+			if (authority == null || authority.getClass() != SimpleGrantedAuthority.class) {
+				return null;
+			}
+			String role = authority.getAuthority();
+			Integer id = hierarchy.ids.get(role);
+			if (id != null) {
+				roles.set(id);
+			}
+			else {
+				if (otherRoles == null) {
+					otherRoles = new LinkedHashSet<String>();
+				}
+				otherRoles.add(role);
+			}
+		}
+
+		Set<String> others = otherRoles == null ? Collections.<String> emptySet()
+				: otherRoles;
+		return new CacheKey(hierarchy, roles, others);
+	}
+
+	private Collection<GrantedAuthority> expand(CacheKey key) {
+		Hierarchy hierarchy = key.hierarchy;
+		BitSet reachable = (BitSet) key.roles.clone();
+		for (int i = key.roles.nextSetBit(0); i >= 0; i = key.roles.nextSetBit(i + 1)) {
+			reachable.or(hierarchy.oneOrMoreSteps[i]);
+		}
+
+		List<GrantedAuthority> result = new ArrayList<GrantedAuthority>(
+				reachable.cardinality() + key.otherRoles.size());
+		for (int i = reachable.nextSetBit(0); i >= 0; i = reachable.nextSetBit(i + 1)) {
+			result.add(hierarchy.authorities[i]);
+		}
+		for (String role : key.otherRoles) {
+			result.add(new SimpleGrantedAuthority(role));
+		}
+
+		return result;
+	}
+
+	private Collection<GrantedAuthority> expand(Hierarchy hierarchy,
+			Collection<? extends GrantedAuthority> authorities) {
+		Set<GrantedAuthority> reachableRoles = new HashSet<GrantedAuthority>();
+		Set<String> roles = new HashSet<String>();
+
+		for (GrantedAuthority authority : authorities) {
+			String role = authority.getAuthority();
+			if (role == null || !roles.contains(role)) {
+				reachableRoles.add(authority);
+			}
+			Integer id = role == null ? null : hierarchy.ids.get(role);
+			if (role != null) {
+				roles.add(role);
+			}
+			if (id != null) {
+				BitSet reachable = hierarchy.oneOrMoreSteps[id];
+				for (int i = reachable.nextSetBit(0); i >= 0; i = reachable
+						.nextSetBit(i + 1)) {
+					reachableRoles.add(hierarchy.authorities[i]);
+					roles.add(hierarchy.authorities[i].getAuthority());
+				}
+			}
+		}
+
+		if (logger.isDebugEnabled()) {
+			logger.debug("getReachableGrantedAuthorities() - From the roles "
+					+ authorities + " one can reach " + reachableRoles
+					+ " in zero or more steps.");
+		}
+
+		return new ArrayList<GrantedAuthority>(reachableRoles);
+	}
+
+	private static int intern(Map<String, Integer> ids, List<BitSet> oneStep, String role) {
+		Integer id = ids.get(role);
+		if (id == null) {
+			id = ids.size();
+			ids.put(role, id);
+			oneStep.add(new BitSet());
+		}
+		return id;
+	}
+
+	/**
+	 * The pre-calculated state of a hierarchy.
+	 */
+	private static final class Hierarchy {
+		private final Map<String, Integer> ids;
+		private final GrantedAuthority[] authorities;
+		private final BitSet[] oneOrMoreSteps;
+
+		private Hierarchy(Map<String, Integer> ids, GrantedAuthority[] authorities,
+				BitSet[] oneOrMoreSteps) {
+			this.ids = new HashMap<String, Integer>(ids);
+			this.authorities = authorities;
+			this.oneOrMoreSteps = oneOrMoreSteps;
+		}
+	}
+
+	/**
+	 * Identifies a distinct collection of {@code SimpleGrantedAuthority} instances by the
+	 * ids of its roles which are part of the hierarchy and the names of the other roles.
+	 */
+	private static final class CacheKey {
+		private final Hierarchy hierarchy;
+		private final BitSet roles;
+		private final Set<String> otherRoles;
+
+		private CacheKey(Hierarchy hierarchy, BitSet roles, Set<String> otherRoles) {
+			this.hierarchy = hierarchy;
+			this.roles = roles;
+			this.otherRoles = otherRoles;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof CacheKey)) {
+				return false;
+			}
+			CacheKey other = (CacheKey) obj;
+			return this.hierarchy == other.hierarchy && this.roles.equals(other.roles)
+					&& this.otherRoles.equals(other.otherRoles);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.roles.hashCode() * 31 + this.otherRoles.hashCode();
+		}
+	}
+}
@@ -19,6 +19,8 @@ package org.springframework.security.access.intercept;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -37,12 +39,15 @@ import org.springframework.security.access.event.AuthenticationCredentialsNotFou
 import org.springframework.security.access.event.AuthorizationFailureEvent;
 import org.springframework.security.access.event.AuthorizedEvent;
 import org.springframework.security.access.event.PublicInvocationEvent;
+import org.springframework.security.access.vote.AbstractAccessDecisionManager;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
 import org.springframework.security.authentication.AuthenticationCredentialsNotFoundException;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.AuthenticationServiceException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.SpringSecurityMessageSource;
+import org.springframework.security.core.authority.AuthoritySet;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.util.Assert;
@@ -96,6 +101,15 @@ import org.springframework.util.Assert;
  * that should be returned to the caller. The subclass will then return that result or
  * exception to the original caller.</li>
  * </ol>
+ * <p>
+ * Optionally, positive authorization decisions can be cached by setting the
+ * {@link #setAccessDecisionCacheSize(int) accessDecisionCacheSize}. A decision is only
+ * cached if the {@code AccessDecisionManager} is an {@link AbstractAccessDecisionManager}
+ * which reports the decision on the attributes as cacheable, and is then reused for
+ * invocations with the same attribute collection instance and an
+ * {@code Authentication} of the same type, {@code authenticated} flag and set of
+ * authorities. Denied invocations are always decided by the
+ * {@code AccessDecisionManager}.
  *
  * @author Ben Alex
  * @author Rob Winch
@@ -121,6 +135,8 @@ public abstract class AbstractSecurityInterceptor implements InitializingBean,
 	private boolean rejectPublicInvocations = false;
 	private boolean validateConfigAttributes = true;
 	private boolean publishAuthorizationSuccess = false;
+	private int accessDecisionCacheSize;
+	private ConcurrentMap<AccessDecisionKey, Boolean> accessDecisionCache;
 
 	// ~ Methods
 	// ========================================================================================================
@@ -230,7 +246,7 @@ public abstract class AbstractSecurityInterceptor implements InitializingBean,
 
 		// Attempt authorization
 		try {
-			this.accessDecisionManager.decide(authenticated, object, attributes);
+			decide(authenticated, object, attributes);
 		}
 		catch (AccessDeniedException accessDeniedException) {
 			publishEvent(new AuthorizationFailureEvent(object, attributes, authenticated,
@@ -402,6 +418,35 @@ public abstract class AbstractSecurityInterceptor implements InitializingBean,
 		return runAsManager;
 	}
 
+	private void decide(Authentication authenticated, Object object,
+			Collection<ConfigAttribute> attributes) {
+		ConcurrentMap<AccessDecisionKey, Boolean> cache = this.accessDecisionCache;
+		AccessDecisionKey key = null;
+
+		if (cache != null
+				&& this.accessDecisionManager instanceof AbstractAccessDecisionManager
+				&& ((AbstractAccessDecisionManager) this.accessDecisionManager)
+						.isDecisionCacheable(attributes)) {
+			key = AccessDecisionKey.create(attributes, authenticated);
+
+			if (key != null && cache.containsKey(key)) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Using cached authorization decision");
+				}
+				return;
+			}
+		}
+
+		this.accessDecisionManager.decide(authenticated, object, attributes);
+
+		if (key != null) {
+			if (cache.size() >= this.accessDecisionCacheSize) {
+				cache.clear();
+			}
+			cache.put(key, Boolean.TRUE);
+		}
+	}
+
 	/**
 	 * Indicates the type of secure objects the subclass will be presenting to the
 	 * abstract parent for processing. This is used to ensure collaborators wired to the
@@ -429,6 +474,22 @@ public abstract class AbstractSecurityInterceptor implements InitializingBean,
 		this.accessDecisionManager = accessDecisionManager;
 	}
 
+	/**
+	 * Sets the maximum number of positive authorization decisions which are cached. When
+	 * the limit is reached the cache is cleared. Defaults to {@code 0}, which disables
+	 * the cache.
+	 *
+	 * @param accessDecisionCacheSize the maximum number of cached decisions
+	 * @since 4.2
+	 */
+	public void setAccessDecisionCacheSize(int accessDecisionCacheSize) {
+		Assert.isTrue(accessDecisionCacheSize >= 0,
+				"accessDecisionCacheSize cannot be negative");
+		this.accessDecisionCacheSize = accessDecisionCacheSize;
+		this.accessDecisionCache = accessDecisionCacheSize == 0 ? null
+				: new ConcurrentHashMap<AccessDecisionKey, Boolean>();
+	}
+
 	public void setAfterInvocationManager(AfterInvocationManager afterInvocationManager) {
 		this.afterInvocationManager = afterInvocationManager;
 	}
@@ -505,6 +566,76 @@ public abstract class AbstractSecurityInterceptor implements InitializingBean,
 		}
 	}
 
+	/**
+	 * Key of a cached authorization decision. The attribute collection is compared by
+	 * identity and the authorities by their {@link AuthoritySet}, irrespective of their
+	 * order.
+	 */
+	private static final class AccessDecisionKey {
+		private final Collection<ConfigAttribute> attributes;
+		private final Class<?> authenticationType;
+		private final boolean authenticated;
+		private final AuthoritySet authorities;
+		private final int hashCode;
+
+		private AccessDecisionKey(Collection<ConfigAttribute> attributes,
+				Class<?> authenticationType, boolean authenticated,
+				AuthoritySet authorities) {
+			this.attributes = attributes;
+			this.authenticationType = authenticationType;
+			this.authenticated = authenticated;
+			this.authorities = authorities;
+			int result = System.identityHashCode(attributes);
+			result = 31 * result + authenticationType.hashCode();
+			result = 31 * result + (authenticated ? 1 : 0);
+			this.hashCode = 31 * result + authorities.hashCode();
+		}
+
+		/**
+		 * Creates the key, or returns null if an authority has no string representation.
+		 */
+		static AccessDecisionKey create(Collection<ConfigAttribute> attributes,
+				Authentication authentication) {
+			if (authentication.getAuthorities() == null) {
+				return null;
+			}
+			AuthoritySet authorities;
+			if (authentication instanceof AbstractAuthenticationToken) {
+				authorities = ((AbstractAuthenticationToken) authentication)
+						.getAuthoritySet();
+			}
+			else {
+				authorities = AuthoritySet.of(authentication.getAuthorities());
+			}
+			if (authorities.containsNonStringAuthorities()) {
+				return null;
+			}
+			return new AccessDecisionKey(attributes, authentication.getClass(),
+					authentication.isAuthenticated(), authorities);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof AccessDecisionKey)) {
+				return false;
+			}
+			AccessDecisionKey other = (AccessDecisionKey) obj;
+			return this.hashCode == other.hashCode
+					&& this.attributes == other.attributes
+					&& this.authenticationType == other.authenticationType
+					&& this.authenticated == other.authenticated
+					&& this.authorities.equals(other.authorities);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hashCode;
+		}
+	}
+
 	private static class NoOpAuthenticationManager implements AuthenticationManager {
 
 		public Authentication authenticate(Authentication authentication)
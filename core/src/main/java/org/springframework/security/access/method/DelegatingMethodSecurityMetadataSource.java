@@ -18,12 +18,22 @@ package org.springframework.security.access.method;
 import java.lang.reflect.Method;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.security.access.ConfigAttribute;
 import org.springframework.util.Assert;
 import org.springframework.util.ObjectUtils;
@@ -32,17 +42,29 @@ import org.springframework.util.ObjectUtils;
  * Automatically tries a series of method definition sources, relying on the first source
  * of metadata that provides a non-null/non-empty response. Provides automatic caching of
  * the retrieved metadata.
+ * <p>
+ * The cache can be read concurrently without locking. The attributes of each method are
+ * resolved only once, and a thread only waits for another one if both resolve the same
+ * method at the same time.
+ * <p>
+ * If {@link #setWarmUpOnRefresh(boolean) warmUpOnRefresh} is enabled, the attributes
+ * of every method of the Spring AOP proxies which have been created as singletons are
+ * resolved when the application context is refreshed, rather than on the first
+ * invocation of each method.
  *
  * @author Ben Alex
  * @author Luke Taylor
  */
 public final class DelegatingMethodSecurityMetadataSource extends
-		AbstractMethodSecurityMetadataSource {
+		AbstractMethodSecurityMetadataSource implements
+		ApplicationListener<ContextRefreshedEvent> {
 	private final static List<ConfigAttribute> NULL_CONFIG_ATTRIBUTE = Collections
 			.emptyList();
 
 	private final List<MethodSecurityMetadataSource> methodSecurityMetadataSources;
-	private final Map<DefaultCacheKey, Collection<ConfigAttribute>> attributeCache = new HashMap<DefaultCacheKey, Collection<ConfigAttribute>>();
+	private final ConcurrentMap<DefaultCacheKey, Collection<ConfigAttribute>> attributeCache = new ConcurrentHashMap<DefaultCacheKey, Collection<ConfigAttribute>>();
+	private final ConcurrentMap<DefaultCacheKey, FutureTask<Collection<ConfigAttribute>>> pendingResolutions = new ConcurrentHashMap<DefaultCacheKey, FutureTask<Collection<ConfigAttribute>>>();
+	private boolean warmUpOnRefresh;
 
 	// ~ Constructor
 	// ====================================================================================================
@@ -57,40 +79,164 @@ public final class DelegatingMethodSecurityMetadataSource extends
 	// ~ Methods
 	// ========================================================================================================
 
-	public Collection<ConfigAttribute> getAttributes(Method method, Class<?> targetClass) {
-		DefaultCacheKey cacheKey = new DefaultCacheKey(method, targetClass);
-		synchronized (attributeCache) {
-			Collection<ConfigAttribute> cached = attributeCache.get(cacheKey);
-			// Check for canonical value indicating there is no config attribute,
+	public Collection<ConfigAttribute> getAttributes(final Method method,
+			final Class<?> targetClass) {
+		final DefaultCacheKey cacheKey = new DefaultCacheKey(method, targetClass);
+		Collection<ConfigAttribute> cached = attributeCache.get(cacheKey);
+		// Check for canonical value indicating there is no config attribute,
 
-			if (cached != null) {
-				return cached;
-			}
+		if (cached != null) {
+			return cached;
+		}
 
-			// No cached value, so query the sources to find a result
-			Collection<ConfigAttribute> attributes = null;
-			for (MethodSecurityMetadataSource s : methodSecurityMetadataSources) {
-				attributes = s.getAttributes(method, targetClass);
-				if (attributes != null && !attributes.isEmpty()) {
-					break;
-				}
+		FutureTask<Collection<ConfigAttribute>> resolution = new FutureTask<Collection<ConfigAttribute>>(
+				new Callable<Collection<ConfigAttribute>>() {
+					public Collection<ConfigAttribute> call() {
+						return resolveAttributes(cacheKey, method, targetClass);
+					}
+				});
+		FutureTask<Collection<ConfigAttribute>> pending = pendingResolutions
+				.putIfAbsent(cacheKey, resolution);
+
+		if (pending == null) {
+			pending = resolution;
+			try {
+				resolution.run();
+			}
+			finally {
+				pendingResolutions.remove(cacheKey, resolution);
 			}
+		}
+
+		return getResolvedAttributes(pending);
+	}
+
+	private Collection<ConfigAttribute> resolveAttributes(DefaultCacheKey cacheKey,
+			Method method, Class<?> targetClass) {
+		Collection<ConfigAttribute> cached = attributeCache.get(cacheKey);
+
+		if (cached != null) {
+			return cached;
+		}
 
-			// Put it in the cache.
-			if (attributes == null || attributes.isEmpty()) {
-				this.attributeCache.put(cacheKey, NULL_CONFIG_ATTRIBUTE);
-				return NULL_CONFIG_ATTRIBUTE;
+		// No cached value, so query the sources to find a result
+		Collection<ConfigAttribute> attributes = null;
+		for (MethodSecurityMetadataSource s : methodSecurityMetadataSources) {
+			attributes = s.getAttributes(method, targetClass);
+			if (attributes != null && !attributes.isEmpty()) {
+				break;
 			}
+		}
+
+		// Put it in the cache.
+		if (attributes == null || attributes.isEmpty()) {
+			this.attributeCache.put(cacheKey, NULL_CONFIG_ATTRIBUTE);
+			return NULL_CONFIG_ATTRIBUTE;
+		}
+
+		if (logger.isDebugEnabled()) {
+			logger.debug("Caching method [" + cacheKey + "] with attributes "
+					+ attributes);
+		}
+
+		this.attributeCache.put(cacheKey, attributes);
+
+		return attributes;
+	}
 
-			if (logger.isDebugEnabled()) {
-				logger.debug("Caching method [" + cacheKey + "] with attributes "
-						+ attributes);
+	private Collection<ConfigAttribute> getResolvedAttributes(
+			FutureTask<Collection<ConfigAttribute>> resolution) {
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					return resolution.get();
+				}
+				catch (InterruptedException e) {
+					interrupted = true;
+				}
+				catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					if (cause instanceof RuntimeException) {
+						throw (RuntimeException) cause;
+					}
+					if (cause instanceof Error) {
+						throw (Error) cause;
+					}
+					throw new IllegalStateException(cause);
+				}
+			}
+		}
+		finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
 			}
+		}
+	}
 
-			this.attributeCache.put(cacheKey, attributes);
+	/**
+	 * Resolves the attributes of the methods of the singleton Spring AOP proxies of the
+	 * refreshed context if {@link #setWarmUpOnRefresh(boolean) warmUpOnRefresh} is
+	 * enabled.
+	 */
+	public void onApplicationEvent(ContextRefreshedEvent event) {
+		if (!warmUpOnRefresh) {
+			return;
+		}
+		ApplicationContext context = event.getApplicationContext();
+		if (!(context instanceof ConfigurableApplicationContext)) {
+			return;
+		}
+		ConfigurableListableBeanFactory beanFactory = ((ConfigurableApplicationContext) context)
+				.getBeanFactory();
+		int resolved = 0;
+		for (String name : beanFactory.getSingletonNames()) {
+			Object bean = beanFactory.getSingleton(name);
+			if (bean instanceof Advised) {
+				resolved += warmUp((Advised) bean);
+			}
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Resolved the attributes of " + resolved
+					+ " methods on context refresh");
+		}
+	}
 
-			return attributes;
+	private int warmUp(Advised advised) {
+		Class<?> targetClass = AopUtils.getTargetClass(advised);
+		Set<Method> methods = new HashSet<Method>();
+		for (Class<?> proxiedInterface : advised.getProxiedInterfaces()) {
+			Collections.addAll(methods, proxiedInterface.getMethods());
+		}
+		if (targetClass != null) {
+			Collections.addAll(methods, targetClass.getMethods());
+		}
+		int resolved = 0;
+		for (Method method : methods) {
+			if (method.getDeclaringClass() == Object.class) {
+				continue;
+			}
+			try {
+				getAttributes(method, targetClass);
+				resolved++;
+			}
+			catch (RuntimeException e) {
+				logger.warn("Could not resolve the attributes of " + method
+						+ " on context refresh", e);
+			}
 		}
+		return resolved;
+	}
+
+	/**
+	 * Sets whether the attributes of the methods of the singleton Spring AOP proxies are
+	 * resolved when the application context is refreshed. The default is {@code false}.
+	 *
+	 * @param warmUpOnRefresh true to resolve the attributes on context refresh
+	 * @since 4.2
+	 */
+	public void setWarmUpOnRefresh(boolean warmUpOnRefresh) {
+		this.warmUpOnRefresh = warmUpOnRefresh;
 	}
 
 	public Collection<ConfigAttribute> getAllConfigAttributes() {
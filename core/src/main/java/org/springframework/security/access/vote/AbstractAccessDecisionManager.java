@@ -16,6 +16,7 @@
 
 package org.springframework.security.access.vote;
 
+import java.util.Collection;
 import java.util.List;
 
 import org.apache.commons.logging.Log;
@@ -88,6 +89,28 @@ public abstract class AbstractAccessDecisionManager implements AccessDecisionMan
 		this.messages = new MessageSourceAccessor(messageSource);
 	}
 
+	/**
+	 * Indicates whether the decision on the supplied attributes may be cached, which is
+	 * the case if every voter implements {@link CacheableAccessDecisionVoter} and allows
+	 * its vote on the attributes to be cached. Subclasses which base the decision on
+	 * anything other than the votes should override this method.
+	 *
+	 * @param attributes the configuration attributes of the secured object
+	 * @return true if the decision may be cached
+	 * @since 4.2
+	 */
+	public boolean isDecisionCacheable(Collection<ConfigAttribute> attributes) {
+		for (AccessDecisionVoter<? extends Object> voter : this.decisionVoters) {
+			if (!(voter instanceof CacheableAccessDecisionVoter)
+					|| !((CacheableAccessDecisionVoter) voter)
+							.isDecisionCacheable(attributes)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
 	public boolean supports(ConfigAttribute attribute) {
 		for (AccessDecisionVoter voter : this.decisionVoters) {
 			if (voter.supports(attribute)) {
@@ -46,7 +46,8 @@ import org.springframework.util.Assert;
  *
  * @author Ben Alex
  */
-public class AuthenticatedVoter implements AccessDecisionVoter<Object> {
+public class AuthenticatedVoter implements AccessDecisionVoter<Object>,
+		CacheableAccessDecisionVoter {
 	// ~ Static fields/initializers
 	// =====================================================================================
 
@@ -97,6 +98,16 @@ public class AuthenticatedVoter implements AccessDecisionVoter<Object> {
 		return true;
 	}
 
+	/**
+	 * Returns {@code true} if the default {@link AuthenticationTrustResolverImpl} is
+	 * used, since it only depends on the type of the {@code Authentication}.
+	 *
+	 * @since 4.2
+	 */
+	public boolean isDecisionCacheable(Collection<ConfigAttribute> attributes) {
+		return authenticationTrustResolver.getClass() == AuthenticationTrustResolverImpl.class;
+	}
+
 	public int vote(Authentication authentication, Object object,
 			Collection<ConfigAttribute> attributes) {
 		int result = ACCESS_ABSTAIN;
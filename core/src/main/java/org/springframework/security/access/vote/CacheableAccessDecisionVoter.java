@@ -0,0 +1,44 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.access.vote;
+
+import java.util.Collection;
+
+import org.springframework.security.access.ConfigAttribute;
+
+/**
+ * Implemented by an {@link org.springframework.security.access.AccessDecisionVoter
+ * AccessDecisionVoter} whose vote on some configuration attributes depends only on those
+ * attributes and on the authorities, the type and the {@code authenticated} flag of the
+ * {@code Authentication}, but not on the secured object or any other state. Decisions
+ * based on such votes may be cached by an
+ * {@link org.springframework.security.access.intercept.AbstractSecurityInterceptor
+ * AbstractSecurityInterceptor}.
+ *
+ * @since 4.2
+ * @see AbstractAccessDecisionManager#isDecisionCacheable(Collection)
+ */
+public interface CacheableAccessDecisionVoter {
+
+	/**
+	 * Indicates whether the vote on the supplied attributes may be cached.
+	 *
+	 * @param attributes the configuration attributes of the secured object
+	 * @return true if the vote only depends on the attributes and the authorities, type
+	 * and {@code authenticated} flag of the {@code Authentication}
+	 */
+	boolean isDecisionCacheable(Collection<ConfigAttribute> attributes);
+}
@@ -20,6 +20,7 @@ import java.util.Collection;
 import org.springframework.security.access.hierarchicalroles.RoleHierarchy;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthoritySet;
 import org.springframework.util.Assert;
 
 /**
@@ -46,4 +47,9 @@ public class RoleHierarchyVoter extends RoleVoter {
 		return roleHierarchy.getReachableGrantedAuthorities(authentication
 				.getAuthorities());
 	}
+
+	@Override
+	AuthoritySet extractAuthoritySet(Authentication authentication) {
+		return AuthoritySet.of(extractAuthorities(authentication));
+	}
 }
@@ -20,8 +20,10 @@ import java.util.Collection;
 
 import org.springframework.security.access.AccessDecisionVoter;
 import org.springframework.security.access.ConfigAttribute;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthoritySet;
 
 /**
  * Votes if any {@link ConfigAttribute#getAttribute()} starts with a prefix indicating
@@ -49,7 +51,8 @@ import org.springframework.security.core.GrantedAuthority;
  * @author Ben Alex
  * @author colin sampaleanu
  */
-public class RoleVoter implements AccessDecisionVoter<Object> {
+public class RoleVoter implements AccessDecisionVoter<Object>,
+		CacheableAccessDecisionVoter {
 	// ~ Instance fields
 	// ================================================================================================
 
@@ -94,23 +97,36 @@ public class RoleVoter implements AccessDecisionVoter<Object> {
 		return true;
 	}
 
+	/**
+	 * Always returns {@code true}, since the vote only depends on the authorities of the
+	 * {@code Authentication}. Subclasses which base their vote on any other state should
+	 * override this method.
+	 *
+	 * @since 4.2
+	 */
+	public boolean isDecisionCacheable(Collection<ConfigAttribute> attributes) {
+		return true;
+	}
+
 	public int vote(Authentication authentication, Object object,
 			Collection<ConfigAttribute> attributes) {
 		if(authentication == null) {
 			return ACCESS_DENIED;
 		}
 		int result = ACCESS_ABSTAIN;
-		Collection<? extends GrantedAuthority> authorities = extractAuthorities(authentication);
+		AuthoritySet authorities = null;
 
 		for (ConfigAttribute attribute : attributes) {
 			if (this.supports(attribute)) {
 				result = ACCESS_DENIED;
 
+				if (authorities == null) {
+					authorities = extractAuthoritySet(authentication);
+				}
+
 				// Attempt to find a matching granted authority
-				for (GrantedAuthority authority : authorities) {
-					if (attribute.getAttribute().equals(authority.getAuthority())) {
-						return ACCESS_GRANTED;
-					}
+				if (authorities.contains(attribute.getAttribute())) {
+					return ACCESS_GRANTED;
 				}
 			}
 		}
@@ -122,4 +138,16 @@ public class RoleVoter implements AccessDecisionVoter<Object> {
 			Authentication authentication) {
 		return authentication.getAuthorities();
 	}
+
+	/**
+	 * Returns the {@link AuthoritySet} of the {@link #extractAuthorities(Authentication)
+	 * extracted authorities}, reusing the set cached by an
+	 * {@link AbstractAuthenticationToken}.
+	 */
+	AuthoritySet extractAuthoritySet(Authentication authentication) {
+		if (authentication instanceof AbstractAuthenticationToken) {
+			return ((AbstractAuthenticationToken) authentication).getAuthoritySet();
+		}
+		return AuthoritySet.of(extractAuthorities(authentication));
+	}
 }
@@ -24,6 +24,7 @@ import java.util.Collections;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.CredentialsContainer;
+import org.springframework.security.core.authority.AuthoritySet;
 import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.security.core.userdetails.UserDetails;
 
@@ -43,6 +44,7 @@ public abstract class AbstractAuthenticationToken implements Authentication,
 	private final Collection<GrantedAuthority> authorities;
 	private Object details;
 	private boolean authenticated = false;
+	private transient volatile AuthoritySet authoritySet;
 
 	// ~ Constructors
 	// ===================================================================================================
@@ -78,6 +80,23 @@ public abstract class AbstractAuthenticationToken implements Authentication,
 		return authorities;
 	}
 
+	/**
+	 * Returns the {@link AuthoritySet} of the {@link #getAuthorities() authorities}. The
+	 * set is created on first use and then reused, which allows voters and expression
+	 * roots to perform their membership tests without copying the authorities.
+	 *
+	 * @return the authority set
+	 * @since 4.2
+	 */
+	public AuthoritySet getAuthoritySet() {
+		AuthoritySet result = this.authoritySet;
+		if (result == null) {
+			result = AuthoritySet.of(getAuthorities());
+			this.authoritySet = result;
+		}
+		return result;
+	}
+
 	public String getName() {
 		if (this.getPrincipal() instanceof UserDetails) {
 			return ((UserDetails) this.getPrincipal()).getUsername();
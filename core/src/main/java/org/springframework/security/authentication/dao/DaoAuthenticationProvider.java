@@ -16,6 +16,8 @@
 
 package org.springframework.security.authentication.dao;
 
+import java.util.concurrent.Callable;
+
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.InternalAuthenticationServiceException;
@@ -64,6 +66,10 @@ public class DaoAuthenticationProvider extends AbstractUserDetailsAuthentication
 
 	private UserDetailsService userDetailsService;
 
+	private PasswordVerificationExecutor passwordVerificationExecutor;
+
+	private VerifiedCredentialsCache verifiedCredentialsCache;
+
 	public DaoAuthenticationProvider() {
 		setPasswordEncoder(new PlaintextPasswordEncoder());
 	}
@@ -90,15 +96,44 @@ public class DaoAuthenticationProvider extends AbstractUserDetailsAuthentication
 		}
 
 		String presentedPassword = authentication.getCredentials().toString();
+		VerifiedCredentialsCache verifiedCredentialsCache = this.verifiedCredentialsCache;
 
-		if (!passwordEncoder.isPasswordValid(userDetails.getPassword(),
-				presentedPassword, salt)) {
+		if (verifiedCredentialsCache != null
+				&& verifiedCredentialsCache.isVerified(userDetails.getUsername(),
+						presentedPassword, userDetails.getPassword(), salt)) {
+			return;
+		}
+
+		if (!isPasswordValid(userDetails.getPassword(), presentedPassword, salt)) {
 			logger.debug("Authentication failed: password does not match stored value");
 
 			throw new BadCredentialsException(messages.getMessage(
 					"AbstractUserDetailsAuthenticationProvider.badCredentials",
 					"Bad credentials"));
 		}
+
+		if (verifiedCredentialsCache != null) {
+			verifiedCredentialsCache.putVerified(userDetails.getUsername(),
+					presentedPassword, userDetails.getPassword(), salt);
+		}
+	}
+
+	@SuppressWarnings("deprecation")
+	private boolean isPasswordValid(final String encodedPassword,
+			final String presentedPassword, final Object salt) {
+		final PasswordEncoder passwordEncoder = this.passwordEncoder;
+
+		if (this.passwordVerificationExecutor == null) {
+			return passwordEncoder.isPasswordValid(encodedPassword, presentedPassword,
+					salt);
+		}
+
+		return this.passwordVerificationExecutor.verify(new Callable<Boolean>() {
+			public Boolean call() {
+				return passwordEncoder.isPasswordValid(encodedPassword,
+						presentedPassword, salt);
+			}
+		});
 	}
 
 	protected void doAfterPropertiesSet() throws Exception {
@@ -116,8 +151,7 @@ public class DaoAuthenticationProvider extends AbstractUserDetailsAuthentication
 		catch (UsernameNotFoundException notFound) {
 			if (authentication.getCredentials() != null) {
 				String presentedPassword = authentication.getCredentials().toString();
-				passwordEncoder.isPasswordValid(userNotFoundEncodedPassword,
-						presentedPassword, null);
+				isPasswordValid(userNotFoundEncodedPassword, presentedPassword, null);
 			}
 			throw notFound;
 		}
@@ -212,6 +246,36 @@ public class DaoAuthenticationProvider extends AbstractUserDetailsAuthentication
 		return saltSource;
 	}
 
+	/**
+	 * Sets the {@link PasswordVerificationExecutor} used to verify passwords on a
+	 * dedicated, bounded pool of threads rather than on the calling thread. When the
+	 * executor is saturated, or a verification times out, authentication fails with an
+	 * {@link org.springframework.security.authentication.AuthenticationServiceException
+	 * AuthenticationServiceException}. By default passwords are verified on the calling
+	 * thread.
+	 *
+	 * @param passwordVerificationExecutor the executor to use, or null
+	 * @since 4.2
+	 */
+	public void setPasswordVerificationExecutor(
+			PasswordVerificationExecutor passwordVerificationExecutor) {
+		this.passwordVerificationExecutor = passwordVerificationExecutor;
+	}
+
+	/**
+	 * Sets the {@link VerifiedCredentialsCache} used to skip the verification of
+	 * credentials which have recently been verified, which is useful for stateless
+	 * clients presenting the same credentials with every request. By default every
+	 * authentication verifies the password.
+	 *
+	 * @param verifiedCredentialsCache the cache to use, or null
+	 * @since 4.2
+	 */
+	public void setVerifiedCredentialsCache(
+			VerifiedCredentialsCache verifiedCredentialsCache) {
+		this.verifiedCredentialsCache = verifiedCredentialsCache;
+	}
+
 	public void setUserDetailsService(UserDetailsService userDetailsService) {
 		this.userDetailsService = userDetailsService;
 	}
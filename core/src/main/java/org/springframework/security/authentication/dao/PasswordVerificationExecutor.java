@@ -0,0 +1,213 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.authentication.dao;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.util.Assert;
+
+/**
+ * Runs password verifications on a dedicated pool of threads with a bounded queue, so
+ * that the cost of slow password hashing algorithms such as BCrypt, PBKDF2 or SCrypt is
+ * isolated from the threads serving requests.
+ * <p>
+ * When all threads are busy and the queue is full, a verification is rejected
+ * immediately with an {@link AuthenticationServiceException} rather than blocking the
+ * calling thread. A verification which does not complete within the
+ * {@link #setTimeout(long) timeout} is cancelled, and also fails with an
+ * {@code AuthenticationServiceException}.
+ * <p>
+ * The executor exposes the current queue depth, the number of rejected and timed out
+ * verifications, and the cumulative time verifications spent waiting in the queue and
+ * hashing, which may be published by any metrics system.
+ *
+ * @since 4.2
+ * @see DaoAuthenticationProvider#setPasswordVerificationExecutor(PasswordVerificationExecutor)
+ */
+public class PasswordVerificationExecutor implements DisposableBean {
+
+	private final ThreadPoolExecutor executor;
+
+	private long timeout = 10000;
+
+	private final AtomicLong verificationCount = new AtomicLong();
+
+	private final AtomicLong rejectedCount = new AtomicLong();
+
+	private final AtomicLong timeoutCount = new AtomicLong();
+
+	private final AtomicLong totalQueueTimeNanos = new AtomicLong();
+
+	private final AtomicLong totalVerificationTimeNanos = new AtomicLong();
+
+	/**
+	 * Creates an executor using {@code poolSize} threads and queueing at most
+	 * {@code queueCapacity} verifications.
+	 *
+	 * @param poolSize the number of threads verifying passwords
+	 * @param queueCapacity the maximum number of waiting verifications
+	 */
+	public PasswordVerificationExecutor(int poolSize, int queueCapacity) {
+		Assert.isTrue(poolSize > 0, "poolSize must be greater than 0");
+		Assert.isTrue(queueCapacity > 0, "queueCapacity must be greater than 0");
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(
+				"password-verification-");
+		threadFactory.setDaemon(true);
+		this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L,
+				TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(queueCapacity),
+				threadFactory, new ThreadPoolExecutor.AbortPolicy());
+	}
+
+	/**
+	 * Sets the maximum time in milliseconds the calling thread waits for a verification,
+	 * including the time it spends in the queue. Defaults to 10 seconds.
+	 *
+	 * @param timeout the timeout in milliseconds
+	 */
+	public void setTimeout(long timeout) {
+		Assert.isTrue(timeout > 0, "timeout must be greater than 0");
+		this.timeout = timeout;
+	}
+
+	/**
+	 * Runs the verification on the pool and waits for its result.
+	 *
+	 * @param verification the password verification
+	 * @return the result of the verification
+	 * @throws AuthenticationServiceException if the executor is saturated, the
+	 * verification times out or the calling thread is interrupted
+	 */
+	public boolean verify(final Callable<Boolean> verification) {
+		final long submitted = System.nanoTime();
+		Future<Boolean> result;
+
+		try {
+			result = this.executor.submit(new Callable<Boolean>() {
+				public Boolean call() throws Exception {
+					long started = System.nanoTime();
+					totalQueueTimeNanos.addAndGet(started - submitted);
+					try {
+						return verification.call();
+					}
+					finally {
+						totalVerificationTimeNanos.addAndGet(System.nanoTime()
+								- started);
+						verificationCount.incrementAndGet();
+					}
+				}
+			});
+		}
+		catch (RejectedExecutionException e) {
+			this.rejectedCount.incrementAndGet();
+			throw new AuthenticationServiceException(
+					"Password verification capacity exceeded", e);
+		}
+
+		try {
+			return Boolean.TRUE.equals(result.get(this.timeout, TimeUnit.MILLISECONDS));
+		}
+		catch (TimeoutException e) {
+			result.cancel(true);
+			this.timeoutCount.incrementAndGet();
+			throw new AuthenticationServiceException("Password verification timed out",
+					e);
+		}
+		catch (InterruptedException e) {
+			result.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new AuthenticationServiceException(
+					"Interrupted while waiting for password verification", e);
+		}
+		catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new AuthenticationServiceException("Password verification failed",
+					cause);
+		}
+	}
+
+	/**
+	 * Returns the number of verifications waiting in the queue.
+	 */
+	public int getQueueDepth() {
+		return this.executor.getQueue().size();
+	}
+
+	/**
+	 * Returns the number of threads currently verifying a password.
+	 */
+	public int getActiveCount() {
+		return this.executor.getActiveCount();
+	}
+
+	/**
+	 * Returns the number of verifications which have been run.
+	 */
+	public long getVerificationCount() {
+		return this.verificationCount.get();
+	}
+
+	/**
+	 * Returns the number of verifications rejected because the executor was saturated.
+	 */
+	public long getRejectedCount() {
+		return this.rejectedCount.get();
+	}
+
+	/**
+	 * Returns the number of verifications which did not complete within the timeout.
+	 */
+	public long getTimeoutCount() {
+		return this.timeoutCount.get();
+	}
+
+	/**
+	 * Returns the cumulative time in nanoseconds verifications spent in the queue.
+	 */
+	public long getTotalQueueTimeNanos() {
+		return this.totalQueueTimeNanos.get();
+	}
+
+	/**
+	 * Returns the cumulative time in nanoseconds spent verifying passwords.
+	 */
+	public long getTotalVerificationTimeNanos() {
+		return this.totalVerificationTimeNanos.get();
+	}
+
+	/**
+	 * Shuts down the pool. Verifications which are still queued are not run.
+	 */
+	public void destroy() {
+		this.executor.shutdownNow();
+	}
+}
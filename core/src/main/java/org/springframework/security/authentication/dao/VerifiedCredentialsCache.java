@@ -0,0 +1,210 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.authentication.dao;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.springframework.security.crypto.codec.Utf8;
+import org.springframework.util.Assert;
+
+/**
+ * Remembers credentials which have recently been verified, so that stateless clients
+ * which present the same credentials with every request (for example using HTTP Basic
+ * authentication) do not incur the cost of an adaptive password hash on every request.
+ * <p>
+ * Neither the presented nor the stored password is retained. Instead, for every user the
+ * cache stores an HMAC-SHA256, keyed with a random secret generated when the cache is
+ * created, of the username, the presented password, the stored password hash and the
+ * salt. A later authentication is only considered verified if the HMAC of its
+ * credentials is identical, so an entry is implicitly invalidated as soon as the stored
+ * password hash of the user changes. Entries expire after the
+ * {@link #setTimeToLive(long) time to live}, and the cache is cleared when it reaches
+ * its {@link #setMaxSize(int) maximum size}.
+ *
+ * @since 4.2
+ * @see DaoAuthenticationProvider#setVerifiedCredentialsCache(VerifiedCredentialsCache)
+ */
+public class VerifiedCredentialsCache {
+
+	private static final String ALGORITHM = "HmacSHA256";
+
+	private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+
+	private final SecretKeySpec secret;
+
+	private final Mac prototype;
+
+	private long timeToLive = 60000;
+
+	private int maxSize = 10000;
+
+	public VerifiedCredentialsCache() {
+		byte[] secret = new byte[32];
+		new SecureRandom().nextBytes(secret);
+		this.secret = new SecretKeySpec(secret, ALGORITHM);
+		this.prototype = newMac();
+	}
+
+	/**
+	 * Sets the time in milliseconds for which verified credentials are remembered.
+	 * Defaults to one minute.
+	 *
+	 * @param timeToLive the time to live in milliseconds
+	 */
+	public void setTimeToLive(long timeToLive) {
+		Assert.isTrue(timeToLive > 0, "timeToLive must be greater than 0");
+		this.timeToLive = timeToLive;
+	}
+
+	/**
+	 * Sets the maximum number of users whose credentials are remembered. Defaults to
+	 * 10000.
+	 *
+	 * @param maxSize the maximum number of entries
+	 */
+	public void setMaxSize(int maxSize) {
+		Assert.isTrue(maxSize > 0, "maxSize must be greater than 0");
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Indicates whether the credentials have been verified within the time to live.
+	 *
+	 * @param username the username
+	 * @param presentedPassword the password presented by the user
+	 * @param storedPassword the stored password hash
+	 * @param salt the salt used to verify the password, may be null
+	 * @return true if the same credentials have recently been verified
+	 */
+	public boolean isVerified(String username, String presentedPassword,
+			String storedPassword, Object salt) {
+		if (username == null || storedPassword == null) {
+			return false;
+		}
+		Entry entry = this.entries.get(username);
+		if (entry == null) {
+			return false;
+		}
+		if (entry.expires - System.currentTimeMillis() <= 0) {
+			this.entries.remove(username, entry);
+			return false;
+		}
+		return MessageDigest.isEqual(entry.mac,
+				mac(username, presentedPassword, storedPassword, salt));
+	}
+
+	/**
+	 * Records that the credentials have been verified, replacing any other credentials
+	 * remembered for the user.
+	 *
+	 * @param username the username
+	 * @param presentedPassword the password presented by the user
+	 * @param storedPassword the stored password hash
+	 * @param salt the salt used to verify the password, may be null
+	 */
+	public void putVerified(String username, String presentedPassword,
+			String storedPassword, Object salt) {
+		if (username == null || storedPassword == null) {
+			return;
+		}
+		if (this.entries.size() >= this.maxSize) {
+			this.entries.clear();
+		}
+		this.entries.put(username, new Entry(mac(username, presentedPassword,
+				storedPassword, salt), System.currentTimeMillis() + this.timeToLive));
+	}
+
+	/**
+	 * Forgets the credentials remembered for the user.
+	 *
+	 * @param username the username
+	 */
+	public void remove(String username) {
+		this.entries.remove(username);
+	}
+
+	/**
+	 * Forgets all remembered credentials.
+	 */
+	public void clear() {
+		this.entries.clear();
+	}
+
+	private byte[] mac(String username, String presentedPassword,
+			String storedPassword, Object salt) {
+		Mac mac = createMac();
+		update(mac, username);
+		update(mac, presentedPassword);
+		update(mac, storedPassword);
+		update(mac, salt == null ? null : salt.toString());
+		return mac.doFinal();
+	}
+
+	private Mac createMac() {
+		try {
+			return (Mac) this.prototype.clone();
+		}
+		catch (CloneNotSupportedException e) {
+			return newMac();
+		}
+	}
+
+	private Mac newMac() {
+		try {
+			Mac mac = Mac.getInstance(ALGORITHM);
+			mac.init(this.secret);
+			return mac;
+		}
+		catch (GeneralSecurityException e) {
+			throw new IllegalStateException("Unable to initialize " + ALGORITHM, e);
+		}
+	}
+
+	/**
+	 * Updates the mac with the length-prefixed value, so that the boundaries between
+	 * values are unambiguous.
+	 */
+	private static void update(Mac mac, String value) {
+		if (value == null) {
+			mac.update((byte) 0);
+			return;
+		}
+		byte[] bytes = Utf8.encode(value);
+		mac.update((byte) 1);
+		mac.update((byte) (bytes.length >>> 24));
+		mac.update((byte) (bytes.length >>> 16));
+		mac.update((byte) (bytes.length >>> 8));
+		mac.update((byte) bytes.length);
+		mac.update(bytes);
+	}
+
+	private static final class Entry {
+		private final byte[] mac;
+		private final long expires;
+
+		private Entry(byte[] mac, long expires) {
+			this.mac = mac;
+			this.expires = expires;
+		}
+	}
+}
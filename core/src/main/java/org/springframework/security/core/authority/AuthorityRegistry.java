@@ -0,0 +1,178 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.core.authority;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.util.Assert;
+
+/**
+ * Assigns dense integer ids to the string representations of
+ * {@link org.springframework.security.core.GrantedAuthority GrantedAuthority} instances,
+ * so that an {@link AuthoritySet} can store its members as a bitset.
+ * <p>
+ * Ids are never released. Once {@link #getMaxSize() maxSize} authorities have been
+ * registered no further ids are assigned, and authority sets containing an unregistered
+ * authority fall back to a sorted array representation. Lookups are lock-free, while
+ * the (rare) registration of a new authority is synchronized.
+ *
+ * @since 4.2
+ * @see AuthoritySet
+ */
+public final class AuthorityRegistry {
+
+	/**
+	 * The maximum number of authorities registered by the
+	 * {@link #getSharedInstance() shared instance}.
+	 */
+	public static final int DEFAULT_MAX_SIZE = 65536;
+
+	private static final AuthorityRegistry sharedInstance = new AuthorityRegistry(
+			DEFAULT_MAX_SIZE);
+
+	private final ConcurrentMap<String, Integer> ids = new ConcurrentHashMap<String, Integer>();
+
+	private final ConcurrentMap<String, ConcurrentMap<String, String>> prefixedAuthorities = new ConcurrentHashMap<String, ConcurrentMap<String, String>>();
+
+	private final int maxSize;
+
+	private volatile String[] authorities = new String[16];
+
+	/**
+	 * Creates a registry which assigns ids to at most {@code maxSize} authorities.
+	 *
+	 * @param maxSize the maximum number of registered authorities
+	 */
+	public AuthorityRegistry(int maxSize) {
+		Assert.isTrue(maxSize >= 0, "maxSize cannot be negative");
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Returns the registry used by {@link AuthoritySet#of(java.util.Collection)}.
+	 */
+	public static AuthorityRegistry getSharedInstance() {
+		return sharedInstance;
+	}
+
+	/**
+	 * Returns the id of the authority, registering it if necessary.
+	 *
+	 * @param authority the string representation of the authority
+	 * @return the id of the authority, or -1 if it is null or the registry is full
+	 */
+	public int register(String authority) {
+		if (authority == null) {
+			return -1;
+		}
+		Integer id = this.ids.get(authority);
+		if (id != null) {
+			return id;
+		}
+		synchronized (this) {
+			id = this.ids.get(authority);
+			if (id != null) {
+				return id;
+			}
+			int size = this.ids.size();
+			if (size >= this.maxSize) {
+				return -1;
+			}
+			String[] authorities = this.authorities;
+			if (size == authorities.length) {
+				String[] grown = new String[Math.min(size * 2, this.maxSize)];
+				System.arraycopy(authorities, 0, grown, 0, size);
+				authorities = grown;
+			}
+			authorities[size] = authority;
+			// publish the name before the id, so that getAuthority(id) never sees null
+			this.authorities = authorities;
+			this.ids.put(authority, size);
+			return size;
+		}
+	}
+
+	/**
+	 * Returns the id of the authority without registering it.
+	 *
+	 * @param authority the string representation of the authority
+	 * @return the id of the authority, or -1 if it is not registered
+	 */
+	public int getId(String authority) {
+		if (authority == null) {
+			return -1;
+		}
+		Integer id = this.ids.get(authority);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * Returns the authority with the given id.
+	 *
+	 * @param id an id returned by {@link #register(String)}
+	 * @return the string representation of the authority
+	 */
+	public String getAuthority(int id) {
+		return this.authorities[id];
+	}
+
+	/**
+	 * Returns the number of registered authorities.
+	 */
+	public int size() {
+		return this.ids.size();
+	}
+
+	public int getMaxSize() {
+		return this.maxSize;
+	}
+
+	/**
+	 * Returns {@code authority} prefixed with {@code prefix}, unless it is null or
+	 * already starts with the prefix. The prefixed strings are cached, so that role
+	 * checks such as {@code hasRole('ADMIN')} neither allocate nor re-hash a new string
+	 * on every evaluation.
+	 *
+	 * @param prefix the prefix, may be null or empty
+	 * @param authority the authority
+	 * @return the prefixed authority
+	 */
+	String prefix(String prefix, String authority) {
+		if (authority == null || prefix == null || prefix.length() == 0
+				|| authority.startsWith(prefix)) {
+			return authority;
+		}
+		ConcurrentMap<String, String> prefixed = this.prefixedAuthorities.get(prefix);
+		if (prefixed == null) {
+			prefixed = new ConcurrentHashMap<String, String>();
+			ConcurrentMap<String, String> existing = this.prefixedAuthorities
+					.putIfAbsent(prefix, prefixed);
+			if (existing != null) {
+				prefixed = existing;
+			}
+		}
+		String result = prefixed.get(authority);
+		if (result == null) {
+			result = prefix + authority;
+			if (prefixed.size() >= Math.max(this.maxSize, 16)) {
+				prefixed.clear();
+			}
+			prefixed.put(authority, result);
+		}
+		return result;
+	}
+}
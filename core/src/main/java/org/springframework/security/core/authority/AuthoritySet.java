@@ -0,0 +1,277 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.core.authority;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.util.Assert;
+
+/**
+ * An immutable set of the string representations of a collection of
+ * {@link GrantedAuthority} instances, optimized for membership tests.
+ * <p>
+ * The authorities are interned by an {@link AuthorityRegistry} and stored as a bitset of
+ * their ids, so that a membership test is a single hash lookup followed by a bit test,
+ * irrespective of the number of authorities. If an authority cannot be registered, or
+ * the ids are too sparse for a compact bitset, the set falls back to a sorted array of
+ * strings which is searched with a binary search.
+ * <p>
+ * Instances are typically obtained once per {@code Authentication}, see
+ * {@link org.springframework.security.authentication.AbstractAuthenticationToken#getAuthoritySet()}.
+ *
+ * @since 4.2
+ */
+public final class AuthoritySet {
+
+	private static final long[] NO_WORDS = new long[0];
+
+	private final AuthorityRegistry registry;
+
+	/**
+	 * The ids of the authorities, or null if the sorted array is used.
+	 */
+	private final long[] words;
+
+	/**
+	 * The sorted authorities, or null if the bitset is used.
+	 */
+	private final String[] sortedAuthorities;
+
+	private final int size;
+
+	private final int hashCode;
+
+	private final boolean containsNonStringAuthorities;
+
+	private AuthoritySet(AuthorityRegistry registry, long[] words,
+			String[] sortedAuthorities, int size, int hashCode,
+			boolean containsNonStringAuthorities) {
+		this.registry = registry;
+		this.words = words;
+		this.sortedAuthorities = sortedAuthorities;
+		this.size = size;
+		this.hashCode = hashCode;
+		this.containsNonStringAuthorities = containsNonStringAuthorities;
+	}
+
+	/**
+	 * Creates the set of the supplied authorities, using the
+	 * {@link AuthorityRegistry#getSharedInstance() shared registry}.
+	 *
+	 * @param authorities the authorities, may be null
+	 * @return the set of the authorities
+	 */
+	public static AuthoritySet of(Collection<? extends GrantedAuthority> authorities) {
+		return of(authorities, AuthorityRegistry.getSharedInstance());
+	}
+
+	/**
+	 * Creates the set of the supplied authorities.
+	 *
+	 * @param authorities the authorities, may be null
+	 * @param registry the registry used to intern the authorities
+	 * @return the set of the authorities
+	 */
+	public static AuthoritySet of(Collection<? extends GrantedAuthority> authorities,
+			AuthorityRegistry registry) {
+		Assert.notNull(registry, "registry cannot be null");
+		if (authorities == null || authorities.isEmpty()) {
+			return new AuthoritySet(registry, NO_WORDS, null, 0, 0, false);
+		}
+
+		int[] ids = new int[authorities.size()];
+		int count = 0;
+		int maxId = -1;
+		boolean registered = true;
+		boolean containsNonStringAuthorities = false;
+
+		for (GrantedAuthority authority : authorities) {
+			String name = authority.getAuthority();
+			if (name == null) {
+				containsNonStringAuthorities = true;
+				continue;
+			}
+			int id = registry.register(name);
+			if (id < 0) {
+				registered = false;
+				break;
+			}
+			if (count == ids.length) {
+				ids = Arrays.copyOf(ids, count * 2);
+			}
+			ids[count++] = id;
+			maxId = Math.max(maxId, id);
+		}
+
+		// use the bitset unless it would be much larger than the array of ids
+		if (registered && (maxId >> 6) < count + 8) {
+			long[] words = new long[(maxId >> 6) + 1];
+			int size = 0;
+			int hashCode = 0;
+			for (int i = 0; i < count; i++) {
+				int id = ids[i];
+				long bit = 1L << id;
+				if ((words[id >> 6] & bit) == 0) {
+					words[id >> 6] |= bit;
+					size++;
+					hashCode += registry.getAuthority(id).hashCode();
+				}
+			}
+			return new AuthoritySet(registry, words, null, size, hashCode,
+					containsNonStringAuthorities);
+		}
+
+		String[] names = new String[authorities.size()];
+		count = 0;
+		for (GrantedAuthority authority : authorities) {
+			String name = authority.getAuthority();
+			if (name != null) {
+				names[count++] = name;
+			}
+		}
+		Arrays.sort(names, 0, count);
+		int size = 0;
+		int hashCode = 0;
+		for (int i = 0; i < count; i++) {
+			if (size == 0 || !names[i].equals(names[size - 1])) {
+				names[size++] = names[i];
+				hashCode += names[i].hashCode();
+			}
+		}
+		return new AuthoritySet(registry, null, Arrays.copyOf(names, size), size,
+				hashCode, containsNonStringAuthorities);
+	}
+
+	/**
+	 * Indicates whether the set contains the authority.
+	 *
+	 * @param authority the string representation of the authority
+	 * @return true if the authority is a member of the set
+	 */
+	public boolean contains(String authority) {
+		if (authority == null) {
+			return false;
+		}
+		if (this.words == null) {
+			return Arrays.binarySearch(this.sortedAuthorities, authority) >= 0;
+		}
+		int id = this.registry.getId(authority);
+		if (id < 0 || (id >> 6) >= this.words.length) {
+			return false;
+		}
+		return (this.words[id >> 6] & (1L << id)) != 0;
+	}
+
+	/**
+	 * Indicates whether the set contains the authority, prefixed with {@code prefix}
+	 * unless it already starts with the prefix. This corresponds to the way role names
+	 * are resolved by {@code hasRole} expressions.
+	 *
+	 * @param prefix the prefix, may be null or empty
+	 * @param authority the string representation of the authority
+	 * @return true if the (prefixed) authority is a member of the set
+	 */
+	public boolean contains(String prefix, String authority) {
+		return contains(this.registry.prefix(prefix, authority));
+	}
+
+	/**
+	 * Indicates whether the set contains any of the authorities.
+	 *
+	 * @param authorities the string representations of the authorities
+	 * @return true if at least one of the authorities is a member of the set
+	 */
+	public boolean containsAny(String... authorities) {
+		for (String authority : authorities) {
+			if (contains(authority)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the number of distinct authorities in the set.
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	/**
+	 * Indicates whether the set was created from a collection containing authorities
+	 * which cannot be represented as a string. Such authorities are not members of the
+	 * set.
+	 */
+	public boolean containsNonStringAuthorities() {
+		return this.containsNonStringAuthorities;
+	}
+
+	/**
+	 * Returns the authorities of the set in their natural order.
+	 */
+	public String[] toArray() {
+		if (this.words == null) {
+			return this.sortedAuthorities.clone();
+		}
+		String[] result = new String[this.size];
+		int i = 0;
+		for (int word = 0; word < this.words.length; word++) {
+			long bits = this.words[word];
+			while (bits != 0) {
+				int bit = Long.numberOfTrailingZeros(bits);
+				result[i++] = this.registry.getAuthority((word << 6) + bit);
+				bits &= bits - 1;
+			}
+		}
+		Arrays.sort(result);
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof AuthoritySet)) {
+			return false;
+		}
+		AuthoritySet other = (AuthoritySet) obj;
+		if (this.size != other.size || this.hashCode != other.hashCode
+				|| this.containsNonStringAuthorities != other.containsNonStringAuthorities) {
+			return false;
+		}
+		if (this.words != null && other.words != null && this.registry == other.registry) {
+			return Arrays.equals(this.words, other.words);
+		}
+		return Arrays.equals(toArray(), other.toArray());
+	}
+
+	@Override
+	public int hashCode() {
+		return this.hashCode;
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(toArray());
+	}
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.core.context;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Writes and reads objects of one type for the {@link BinarySecurityContextCodec}. This
+ * allows custom principals and authentication details to be encoded compactly rather
+ * than by Java serialization.
+ *
+ * @param <T> the type of the objects
+ * @since 4.2
+ * @see BinarySecurityContextCodec#BinarySecurityContextCodec(java.util.List)
+ */
+public interface BinaryObjectCodec<T> {
+
+	/**
+	 * Returns the type of the objects handled by this codec. Only objects of exactly
+	 * this class are passed to {@link #write(Object, DataOutput)}, instances of
+	 * subclasses are not.
+	 */
+	Class<T> getObjectType();
+
+	/**
+	 * Writes the state of the object.
+	 *
+	 * @param object the object, never null
+	 * @param out the output to write to
+	 * @throws IOException if writing fails
+	 */
+	void write(T object, DataOutput out) throws IOException;
+
+	/**
+	 * Reads an object written by {@link #write(Object, DataOutput)}.
+	 *
+	 * @param in the input to read from
+	 * @return the object
+	 * @throws IOException if reading fails
+	 */
+	T read(DataInput in) throws IOException;
+}
@@ -0,0 +1,498 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.core.context;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Constructor;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.BeanClassLoaderAware;
+import org.springframework.core.ConfigurableObjectInputStream;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.RememberMeAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+/**
+ * A {@link SecurityContextCodec} which writes the core types of Spring Security using a
+ * compact binary format, rather than Java serialization with its class descriptors.
+ * <p>
+ * {@link SecurityContextImpl}, {@link UsernamePasswordAuthenticationToken},
+ * {@link RememberMeAuthenticationToken}, {@link AnonymousAuthenticationToken},
+ * {@link User}, {@link SimpleGrantedAuthority} and strings are written field by field,
+ * and an authority which occurs more than once, for example in both the token and the
+ * user, is only written once. Other principals, credentials and details may be handled
+ * by {@link BinaryObjectCodec BinaryObjectCodecs}; any object which is not supported,
+ * including subclasses of the core types, falls back to Java serialization, so every
+ * {@code Serializable} context can be encoded.
+ * <p>
+ * The codecs passed to the constructor are identified by their position in the list,
+ * so all nodes which exchange encoded contexts must be configured with the same codecs
+ * in the same order, and new codecs should only be appended.
+ *
+ * @since 4.2
+ */
+public class BinarySecurityContextCodec implements SecurityContextCodec,
+		BeanClassLoaderAware {
+
+	static final int VERSION = 1;
+
+	private static final int NULL = 0;
+
+	private static final int CONTEXT = 1;
+
+	private static final int USERNAME_PASSWORD = 1;
+
+	private static final int REMEMBER_ME = 2;
+
+	private static final int ANONYMOUS = 3;
+
+	private static final int STRING = 1;
+
+	private static final int USER = 2;
+
+	private static final int SIMPLE_AUTHORITY = 3;
+
+	private static final int SERIALIZED = 15;
+
+	private static final int FIRST_CUSTOM = 16;
+
+	private static final int MAX_CUSTOM = 255 - FIRST_CUSTOM;
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static final Constructor<RememberMeAuthenticationToken> rememberMeConstructor = keyHashConstructor(RememberMeAuthenticationToken.class);
+
+	private static final Constructor<AnonymousAuthenticationToken> anonymousConstructor = keyHashConstructor(AnonymousAuthenticationToken.class);
+
+	private final BinaryObjectCodec<?>[] objectCodecs;
+
+	private final Map<Class<?>, Integer> objectTags = new HashMap<Class<?>, Integer>();
+
+	private ClassLoader classLoader = ClassUtils.getDefaultClassLoader();
+
+	public BinarySecurityContextCodec() {
+		this(Collections.<BinaryObjectCodec<?>> emptyList());
+	}
+
+	/**
+	 * Creates a codec which writes the objects supported by the supplied codecs using
+	 * them.
+	 *
+	 * @param objectCodecs the codecs for custom principals, credentials or details
+	 */
+	public BinarySecurityContextCodec(List<? extends BinaryObjectCodec<?>> objectCodecs) {
+		Assert.notNull(objectCodecs, "objectCodecs cannot be null");
+		Assert.isTrue(objectCodecs.size() <= MAX_CUSTOM, "At most " + MAX_CUSTOM
+				+ " objectCodecs are supported");
+		this.objectCodecs = objectCodecs.toArray(new BinaryObjectCodec<?>[0]);
+		for (int i = 0; i < this.objectCodecs.length; i++) {
+			Class<?> type = this.objectCodecs[i].getObjectType();
+			Assert.notNull(type, "objectType cannot be null");
+			Assert.isTrue(!this.objectTags.containsKey(type),
+					"Duplicate codec for " + type);
+			this.objectTags.put(type, FIRST_CUSTOM + i);
+		}
+	}
+
+	/**
+	 * Sets the class loader used to resolve classes of objects which were written using
+	 * Java serialization.
+	 */
+	public void setBeanClassLoader(ClassLoader classLoader) {
+		this.classLoader = classLoader;
+	}
+
+	public byte[] encode(SecurityContext context) {
+		Assert.notNull(context, "context cannot be null");
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+		Output out = new Output(bytes);
+		try {
+			out.write(VERSION);
+			if (context.getClass() == SecurityContextImpl.class) {
+				out.write(CONTEXT);
+				writeAuthentication(out, context.getAuthentication());
+			}
+			else {
+				writeSerialized(out, context);
+			}
+			out.flush();
+		}
+		catch (IOException e) {
+			throw new IllegalStateException("Unable to encode " + context, e);
+		}
+		return bytes.toByteArray();
+	}
+
+	public SecurityContext decode(byte[] encoded) {
+		Assert.notNull(encoded, "encoded cannot be null");
+		Input in = new Input(encoded);
+		try {
+			int version = in.readUnsignedByte();
+			if (version != VERSION) {
+				throw new IllegalArgumentException("Unsupported version " + version);
+			}
+			SecurityContext context;
+			int tag = in.readUnsignedByte();
+			if (tag == CONTEXT) {
+				context = new SecurityContextImpl();
+				context.setAuthentication(readAuthentication(in));
+			}
+			else if (tag == SERIALIZED) {
+				context = (SecurityContext) readSerialized(in);
+			}
+			else {
+				throw new IllegalArgumentException("Unknown context type " + tag);
+			}
+			if (in.available() != 0) {
+				throw new IllegalArgumentException("Unexpected trailing bytes");
+			}
+			return context;
+		}
+		catch (IOException e) {
+			throw new IllegalArgumentException("Unable to decode SecurityContext", e);
+		}
+		catch (ClassCastException e) {
+			throw new IllegalArgumentException("Unable to decode SecurityContext", e);
+		}
+	}
+
+	private void writeAuthentication(Output out, Authentication authentication)
+			throws IOException {
+		if (authentication == null) {
+			out.write(NULL);
+			return;
+		}
+
+		Class<?> type = authentication.getClass();
+		if (type == UsernamePasswordAuthenticationToken.class
+				&& (authentication.isAuthenticated() || authentication.getAuthorities()
+						.isEmpty())) {
+			out.write(USERNAME_PASSWORD);
+			out.writeBoolean(authentication.isAuthenticated());
+			writeObject(out, authentication.getPrincipal());
+			writeObject(out, authentication.getCredentials());
+			writeAuthorities(out, authentication.getAuthorities());
+		}
+		else if (type == RememberMeAuthenticationToken.class
+				&& rememberMeConstructor != null && authentication.isAuthenticated()) {
+			out.write(REMEMBER_ME);
+			out.writeInt(((RememberMeAuthenticationToken) authentication).getKeyHash());
+			writeObject(out, authentication.getPrincipal());
+			writeAuthorities(out, authentication.getAuthorities());
+		}
+		else if (type == AnonymousAuthenticationToken.class
+				&& anonymousConstructor != null && authentication.isAuthenticated()) {
+			out.write(ANONYMOUS);
+			out.writeInt(((AnonymousAuthenticationToken) authentication).getKeyHash());
+			writeObject(out, authentication.getPrincipal());
+			writeAuthorities(out, authentication.getAuthorities());
+		}
+		else {
+			writeSerialized(out, authentication);
+			return;
+		}
+		writeObject(out, authentication.getDetails());
+	}
+
+	private Authentication readAuthentication(Input in) throws IOException {
+		int tag = in.readUnsignedByte();
+		AbstractAuthenticationToken authentication;
+		switch (tag) {
+		case NULL:
+			return null;
+		case USERNAME_PASSWORD:
+			boolean authenticated = in.readBoolean();
+			Object principal = readObject(in);
+			Object credentials = readObject(in);
+			List<GrantedAuthority> authorities = readAuthorities(in);
+			authentication = authenticated ? new UsernamePasswordAuthenticationToken(
+					principal, credentials, authorities)
+					: new UsernamePasswordAuthenticationToken(principal, credentials);
+			break;
+		case REMEMBER_ME:
+			authentication = newInstance(rememberMeConstructor, in.readInt(),
+					readObject(in), readAuthorities(in));
+			break;
+		case ANONYMOUS:
+			authentication = newInstance(anonymousConstructor, in.readInt(),
+					readObject(in), readAuthorities(in));
+			break;
+		case SERIALIZED:
+			return (Authentication) readSerialized(in);
+		default:
+			throw new IllegalArgumentException("Unknown authentication type " + tag);
+		}
+		authentication.setDetails(readObject(in));
+		return authentication;
+	}
+
+	private void writeAuthorities(Output out,
+			Collection<? extends GrantedAuthority> authorities) throws IOException {
+		writeVarInt(out, authorities.size());
+		for (GrantedAuthority authority : authorities) {
+			writeObject(out, authority);
+		}
+	}
+
+	private List<GrantedAuthority> readAuthorities(Input in) throws IOException {
+		int size = readVarInt(in);
+		List<GrantedAuthority> authorities = new ArrayList<GrantedAuthority>(Math.min(
+				size, in.available()));
+		for (int i = 0; i < size; i++) {
+			authorities.add((GrantedAuthority) readObject(in));
+		}
+		return authorities;
+	}
+
+	@SuppressWarnings("unchecked")
+	private void writeObject(Output out, Object object) throws IOException {
+		if (object == null) {
+			out.write(NULL);
+			return;
+		}
+
+		Class<?> type = object.getClass();
+		if (type == String.class) {
+			out.write(STRING);
+			writeString(out, (String) object);
+		}
+		else if (type == SimpleGrantedAuthority.class) {
+			out.write(SIMPLE_AUTHORITY);
+			out.writeAuthority(((SimpleGrantedAuthority) object).getAuthority());
+		}
+		else if (type == User.class) {
+			User user = (User) object;
+			out.write(USER);
+			writeString(out, user.getUsername());
+			writeString(out, user.getPassword());
+			out.write((user.isEnabled() ? 1 : 0) | (user.isAccountNonExpired() ? 2 : 0)
+					| (user.isCredentialsNonExpired() ? 4 : 0)
+					| (user.isAccountNonLocked() ? 8 : 0));
+			writeAuthorities(out, user.getAuthorities());
+		}
+		else {
+			Integer tag = this.objectTags.get(type);
+			if (tag == null) {
+				writeSerialized(out, object);
+				return;
+			}
+			out.write(tag);
+			((BinaryObjectCodec<Object>) this.objectCodecs[tag - FIRST_CUSTOM]).write(
+					object, out);
+		}
+	}
+
+	private Object readObject(Input in) throws IOException {
+		int tag = in.readUnsignedByte();
+		switch (tag) {
+		case NULL:
+			return null;
+		case STRING:
+			return readString(in);
+		case SIMPLE_AUTHORITY:
+			return new SimpleGrantedAuthority(in.readAuthority());
+		case USER:
+			String username = readString(in);
+			String password = readString(in);
+			int flags = in.readUnsignedByte();
+			User user = new User(username, password == null ? "" : password,
+					(flags & 1) != 0, (flags & 2) != 0, (flags & 4) != 0,
+					(flags & 8) != 0, readAuthorities(in));
+			if (password == null) {
+				user.eraseCredentials();
+			}
+			return user;
+		case SERIALIZED:
+			return readSerialized(in);
+		default:
+			if (tag < FIRST_CUSTOM || tag - FIRST_CUSTOM >= this.objectCodecs.length) {
+				throw new IllegalArgumentException("Unknown object type " + tag);
+			}
+			return this.objectCodecs[tag - FIRST_CUSTOM].read(in);
+		}
+	}
+
+	private void writeSerialized(Output out, Object object) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+		ObjectOutputStream oos = new ObjectOutputStream(bytes);
+		oos.writeObject(object);
+		oos.flush();
+		out.write(SERIALIZED);
+		writeVarInt(out, bytes.size());
+		bytes.writeTo(out);
+	}
+
+	private Object readSerialized(Input in) throws IOException {
+		int length = readVarInt(in);
+		if (length > in.available()) {
+			throw new IllegalArgumentException("Truncated serialized object");
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		ObjectInputStream ois = new ConfigurableObjectInputStream(
+				new ByteArrayInputStream(bytes), this.classLoader);
+		try {
+			return ois.readObject();
+		}
+		catch (ClassNotFoundException e) {
+			throw new IllegalArgumentException("Unable to decode SecurityContext", e);
+		}
+	}
+
+	private static <T> T newInstance(Constructor<T> constructor, int keyHash,
+			Object principal, List<GrantedAuthority> authorities) {
+		try {
+			return constructor.newInstance(keyHash, principal, authorities);
+		}
+		catch (Exception e) {
+			throw new IllegalArgumentException("Unable to create "
+					+ constructor.getDeclaringClass().getName(), e);
+		}
+	}
+
+	/**
+	 * Returns the private constructor taking the hash of the key, which is also used by
+	 * the Jackson mixins, or null if it is not available.
+	 */
+	private static <T> Constructor<T> keyHashConstructor(Class<T> type) {
+		try {
+			Constructor<T> constructor = type.getDeclaredConstructor(Integer.class,
+					Object.class, Collection.class);
+			ReflectionUtils.makeAccessible(constructor);
+			return constructor;
+		}
+		catch (Exception e) {
+			return null;
+		}
+	}
+
+	static void writeVarInt(DataOutput out, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+
+	static int readVarInt(DataInput in) throws IOException {
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				if (value < 0) {
+					throw new IllegalArgumentException("Negative length " + value);
+				}
+				return value;
+			}
+		}
+		throw new IllegalArgumentException("Malformed variable length integer");
+	}
+
+	/**
+	 * Writes the length of the UTF-8 encoded string plus one, or 0 for null, followed by
+	 * the encoded string.
+	 */
+	private static void writeString(DataOutput out, String value) throws IOException {
+		if (value == null) {
+			out.write(0);
+			return;
+		}
+		byte[] bytes = value.getBytes(UTF_8);
+		writeVarInt(out, bytes.length + 1);
+		out.write(bytes);
+	}
+
+	private static String readString(Input in) throws IOException {
+		int length = readVarInt(in);
+		if (length == 0) {
+			return null;
+		}
+		length--;
+		if (length > in.available()) {
+			throw new IllegalArgumentException("Truncated string");
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, UTF_8);
+	}
+
+	/**
+	 * The output of one context, which writes each distinct authority only once and
+	 * refers to it by its index afterwards.
+	 */
+	private static final class Output extends DataOutputStream {
+		private final Map<String, Integer> authorities = new HashMap<String, Integer>();
+
+		private Output(ByteArrayOutputStream out) {
+			super(out);
+		}
+
+		void writeAuthority(String authority) throws IOException {
+			Integer index = this.authorities.get(authority);
+			if (index != null) {
+				writeVarInt(this, index + 1);
+				return;
+			}
+			writeVarInt(this, 0);
+			writeString(this, authority);
+			this.authorities.put(authority, this.authorities.size());
+		}
+	}
+
+	private static final class Input extends DataInputStream {
+		private final List<String> authorities = new ArrayList<String>();
+
+		private Input(byte[] bytes) {
+			super(new ByteArrayInputStream(bytes));
+		}
+
+		String readAuthority() throws IOException {
+			int index = readVarInt(this);
+			if (index == 0) {
+				String authority = readString(this);
+				this.authorities.add(authority);
+				return authority;
+			}
+			if (index > this.authorities.size()) {
+				throw new IllegalArgumentException("Unknown authority " + index);
+			}
+			return this.authorities.get(index - 1);
+		}
+	}
+}
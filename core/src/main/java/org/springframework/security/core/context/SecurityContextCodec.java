@@ -0,0 +1,44 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.core.context;
+
+/**
+ * Converts a {@link SecurityContext} to and from bytes, so that it may be stored in a
+ * replicated session or cache without relying on Java serialization of the whole object
+ * graph.
+ *
+ * @since 4.2
+ * @see BinarySecurityContextCodec
+ */
+public interface SecurityContextCodec {
+
+	/**
+	 * Encodes the context.
+	 *
+	 * @param context the context to encode
+	 * @return the encoded context
+	 */
+	byte[] encode(SecurityContext context);
+
+	/**
+	 * Decodes a context previously encoded by {@link #encode(SecurityContext)}.
+	 *
+	 * @param encoded the encoded context
+	 * @return the decoded context
+	 * @throws IllegalArgumentException if the bytes cannot be decoded
+	 */
+	SecurityContext decode(byte[] encoded);
+}
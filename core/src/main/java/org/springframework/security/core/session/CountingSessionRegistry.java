@@ -0,0 +1,36 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.core.session;
+
+/**
+ * A {@link SessionRegistry} which can count the sessions of a principal without
+ * obtaining their <code>SessionInformation</code>.
+ *
+ * @since 4.2
+ */
+public interface CountingSessionRegistry extends SessionRegistry {
+
+	/**
+	 * Counts the sessions of the specified principal which have neither expired nor been
+	 * destroyed, which is the size of the list returned by
+	 * {@link #getAllSessions(Object, boolean) getAllSessions(principal, false)}.
+	 *
+	 * @param principal to count sessions for (should never be <code>null</code>)
+	 *
+	 * @return the number of unexpired sessions of the principal
+	 */
+	int countSessions(Object principal);
+}
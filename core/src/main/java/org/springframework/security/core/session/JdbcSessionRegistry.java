@@ -0,0 +1,403 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.core.session;
+
+import java.security.Principal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.ApplicationListener;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.support.JdbcDaoSupport;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.core.SpringSecurityCoreVersion;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link SessionRegistry} which stores the sessions in a database, so that the
+ * maximum number of sessions of a principal can be enforced across all nodes of a
+ * cluster. The default schema is found in
+ * <tt>org/springframework/security/core/session/sessions.ddl</tt>.
+ * <p>
+ * As the time of the last request is refreshed on every request, refreshes are buffered
+ * in memory and written in a single batch every {@link #setFlushInterval(long) flush
+ * interval}, with multiple refreshes of a session being coalesced. Sessions looked up by
+ * their id are kept in a small near-cache for the {@link #setCacheTimeToLive(long)
+ * cache time to live}, so that a session expired on another node is only noticed once
+ * the cached entry has expired. Counting and listing the sessions of a principal always
+ * queries the database.
+ * <p>
+ * Only the name of a principal is stored, which is the username of a
+ * {@link UserDetails}, the name of a {@link Principal} or the string representation of
+ * the principal otherwise. The principal of the returned <code>SessionInformation</code>
+ * and the principals returned by {@link #getAllPrincipals()} are these names.
+ *
+ * @since 4.2
+ */
+public class JdbcSessionRegistry extends JdbcDaoSupport implements
+		CountingSessionRegistry, ApplicationListener<SessionDestroyedEvent>,
+		DisposableBean {
+	// ~ Static fields/initializers
+	// =====================================================================================
+
+	/** Default SQL for creating the database table to store the sessions */
+	public static final String CREATE_TABLE_SQL = "create table sessions (session_id varchar(100) not null primary key, "
+			+ "principal_name varchar(100) not null, last_request bigint not null, expired boolean not null)";
+	/** The default SQL used by <tt>getAllPrincipals</tt> */
+	public static final String DEF_ALL_PRINCIPALS_SQL = "select distinct principal_name from sessions";
+	/** The default SQL used by <tt>getAllSessions</tt> */
+	public static final String DEF_SESSIONS_BY_PRINCIPAL_SQL = "select session_id, principal_name, last_request, expired from sessions where principal_name = ?";
+	/** The default SQL used by <tt>getAllSessions</tt> excluding expired sessions */
+	public static final String DEF_UNEXPIRED_SESSIONS_BY_PRINCIPAL_SQL = "select session_id, principal_name, last_request, expired from sessions where principal_name = ? and expired = false";
+	/** The default SQL used by <tt>countSessions</tt> */
+	public static final String DEF_COUNT_UNEXPIRED_SESSIONS_SQL = "select count(*) from sessions where principal_name = ? and expired = false";
+	/** The default SQL used by <tt>getSessionInformation</tt> */
+	public static final String DEF_SESSION_BY_ID_SQL = "select session_id, principal_name, last_request, expired from sessions where session_id = ?";
+	/** The default SQL used by <tt>registerNewSession</tt> */
+	public static final String DEF_INSERT_SESSION_SQL = "insert into sessions (session_id, principal_name, last_request, expired) values (?,?,?,false)";
+	/** The default SQL used to flush the refreshed times of the last requests */
+	public static final String DEF_UPDATE_LAST_REQUEST_SQL = "update sessions set last_request = ? where session_id = ? and last_request < ?";
+	/** The default SQL used to expire a session */
+	public static final String DEF_EXPIRE_SESSION_SQL = "update sessions set expired = true where session_id = ?";
+	/** The default SQL used by <tt>removeSessionInformation</tt> */
+	public static final String DEF_REMOVE_SESSION_SQL = "delete from sessions where session_id = ?";
+
+	// ~ Instance fields
+	// ================================================================================================
+
+	private final RowMapper<SessionInformation> sessionMapper = new RowMapper<SessionInformation>() {
+		public SessionInformation mapRow(ResultSet rs, int rowNum) throws SQLException {
+			String sessionId = rs.getString(1);
+			JdbcSessionInformation session = new JdbcSessionInformation(
+					JdbcSessionRegistry.this, sessionId, rs.getString(2), rs.getLong(3),
+					rs.getBoolean(4));
+			Long lastRequest = JdbcSessionRegistry.this.pendingLastRequests
+					.get(sessionId);
+			if (lastRequest != null && lastRequest > session.lastRequest) {
+				session.lastRequest = lastRequest;
+			}
+			return session;
+		}
+	};
+
+	/** <sessionId:Object,lastRequest:Long> of refreshes which have not been flushed */
+	private final ConcurrentMap<String, Long> pendingLastRequests = new ConcurrentHashMap<String, Long>();
+
+	/** <sessionId:Object,CacheEntry> */
+	private final ConcurrentMap<String, CacheEntry> cache = new ConcurrentHashMap<String, CacheEntry>();
+
+	private ScheduledExecutorService flushExecutor;
+
+	private long flushInterval = 10000;
+
+	private long cacheTimeToLive = 5000;
+
+	private int maxCacheSize = 10000;
+
+	private boolean createTableOnStartup;
+
+	@Override
+	protected void initDao() {
+		if (this.createTableOnStartup) {
+			getJdbcTemplate().execute(CREATE_TABLE_SQL);
+		}
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(
+				"session-registry-flush-");
+		threadFactory.setDaemon(true);
+		this.flushExecutor = Executors.newSingleThreadScheduledExecutor(threadFactory);
+		this.flushExecutor.scheduleWithFixedDelay(new Runnable() {
+			public void run() {
+				try {
+					flush();
+				}
+				catch (RuntimeException e) {
+					logger.error("Failed to flush the times of the last requests", e);
+				}
+			}
+		}, this.flushInterval, this.flushInterval, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Writes the buffered times of the last requests, and shuts down the periodic flush.
+	 */
+	public void destroy() {
+		if (this.flushExecutor != null) {
+			this.flushExecutor.shutdown();
+		}
+		flush();
+	}
+
+	public List<Object> getAllPrincipals() {
+		return new ArrayList<Object>(getJdbcTemplate().queryForList(
+				DEF_ALL_PRINCIPALS_SQL, String.class));
+	}
+
+	public List<SessionInformation> getAllSessions(Object principal,
+			boolean includeExpiredSessions) {
+		return getJdbcTemplate().query(
+				includeExpiredSessions ? DEF_SESSIONS_BY_PRINCIPAL_SQL
+						: DEF_UNEXPIRED_SESSIONS_BY_PRINCIPAL_SQL, this.sessionMapper,
+				getPrincipalName(principal));
+	}
+
+	public int countSessions(Object principal) {
+		Integer count = getJdbcTemplate().queryForObject(
+				DEF_COUNT_UNEXPIRED_SESSIONS_SQL, Integer.class,
+				getPrincipalName(principal));
+		return count == null ? 0 : count;
+	}
+
+	public SessionInformation getSessionInformation(String sessionId) {
+		Assert.hasText(sessionId, "SessionId required as per interface contract");
+
+		long now = System.currentTimeMillis();
+		CacheEntry entry = this.cache.get(sessionId);
+
+		if (entry != null && entry.expires - now > 0) {
+			return entry.session;
+		}
+
+		List<SessionInformation> sessions = getJdbcTemplate().query(
+				DEF_SESSION_BY_ID_SQL, this.sessionMapper, sessionId);
+		JdbcSessionInformation session = sessions.isEmpty() ? null
+				: (JdbcSessionInformation) sessions.get(0);
+
+		if (this.cacheTimeToLive > 0) {
+			cache(sessionId, session, now);
+		}
+
+		return session;
+	}
+
+	public void onApplicationEvent(SessionDestroyedEvent event) {
+		removeSessionInformation(event.getId());
+	}
+
+	public void refreshLastRequest(String sessionId) {
+		Assert.hasText(sessionId, "SessionId required as per interface contract");
+
+		SessionInformation info = getSessionInformation(sessionId);
+
+		if (info != null) {
+			info.refreshLastRequest();
+		}
+	}
+
+	public void registerNewSession(String sessionId, Object principal) {
+		Assert.hasText(sessionId, "SessionId required as per interface contract");
+		Assert.notNull(principal, "Principal required as per interface contract");
+
+		if (logger.isDebugEnabled()) {
+			logger.debug("Registering session " + sessionId + ", for principal "
+					+ principal);
+		}
+
+		String principalName = getPrincipalName(principal);
+		long now = System.currentTimeMillis();
+
+		removeSessionInformation(sessionId);
+		getJdbcTemplate().update(DEF_INSERT_SESSION_SQL, sessionId, principalName, now);
+
+		if (this.cacheTimeToLive > 0) {
+			cache(sessionId, new JdbcSessionInformation(this, sessionId, principalName,
+					now, false), now);
+		}
+	}
+
+	public void removeSessionInformation(String sessionId) {
+		Assert.hasText(sessionId, "SessionId required as per interface contract");
+
+		this.cache.remove(sessionId);
+		this.pendingLastRequests.remove(sessionId);
+		getJdbcTemplate().update(DEF_REMOVE_SESSION_SQL, sessionId);
+	}
+
+	/**
+	 * Writes the buffered times of the last requests in a single batch. Invoked every
+	 * flush interval, but may also be invoked directly.
+	 */
+	public void flush() {
+		List<Object[]> updates = new ArrayList<Object[]>(this.pendingLastRequests.size());
+
+		for (Map.Entry<String, Long> pending : this.pendingLastRequests.entrySet()) {
+			if (this.pendingLastRequests.remove(pending.getKey(), pending.getValue())) {
+				updates.add(new Object[] { pending.getValue(), pending.getKey(),
+						pending.getValue() });
+			}
+		}
+
+		if (updates.isEmpty()) {
+			return;
+		}
+
+		if (logger.isDebugEnabled()) {
+			logger.debug("Flushing the times of the last requests of " + updates.size()
+					+ " sessions");
+		}
+
+		getJdbcTemplate().batchUpdate(DEF_UPDATE_LAST_REQUEST_SQL, updates);
+	}
+
+	/**
+	 * Returns the name of the principal which is stored in the database. The default
+	 * implementation returns the username of a {@link UserDetails}, the name of a
+	 * {@link Principal} or otherwise the string representation of the principal.
+	 *
+	 * @param principal the principal
+	 * @return the name of the principal
+	 */
+	protected String getPrincipalName(Object principal) {
+		if (principal instanceof UserDetails) {
+			return ((UserDetails) principal).getUsername();
+		}
+		if (principal instanceof Principal) {
+			return ((Principal) principal).getName();
+		}
+		return principal.toString();
+	}
+
+	/**
+	 * Sets the interval in milliseconds at which the buffered times of the last requests
+	 * are written to the database. Defaults to 10 seconds.
+	 *
+	 * @param flushInterval the flush interval in milliseconds
+	 */
+	public void setFlushInterval(long flushInterval) {
+		Assert.isTrue(flushInterval > 0, "flushInterval must be greater than 0");
+		this.flushInterval = flushInterval;
+	}
+
+	/**
+	 * Sets the time in milliseconds for which sessions looked up by their id are cached.
+	 * This is the maximum delay before a session expired on another node is noticed.
+	 * Defaults to 5 seconds, and 0 disables the cache.
+	 *
+	 * @param cacheTimeToLive the time to live of cached sessions in milliseconds
+	 */
+	public void setCacheTimeToLive(long cacheTimeToLive) {
+		Assert.isTrue(cacheTimeToLive >= 0, "cacheTimeToLive cannot be negative");
+		this.cacheTimeToLive = cacheTimeToLive;
+	}
+
+	/**
+	 * Sets the maximum number of cached sessions, after which the cache is cleared.
+	 * Defaults to 10000.
+	 *
+	 * @param maxCacheSize the maximum number of cached sessions
+	 */
+	public void setMaxCacheSize(int maxCacheSize) {
+		Assert.isTrue(maxCacheSize > 0, "maxCacheSize must be greater than 0");
+		this.maxCacheSize = maxCacheSize;
+	}
+
+	/**
+	 * Intended for convenience in debugging. Will create the sessions database table
+	 * when the class is initialized during the initDao method.
+	 *
+	 * @param createTableOnStartup set to true to execute the
+	 */
+	public void setCreateTableOnStartup(boolean createTableOnStartup) {
+		this.createTableOnStartup = createTableOnStartup;
+	}
+
+	private void cache(String sessionId, JdbcSessionInformation session, long now) {
+		if (this.cache.size() >= this.maxCacheSize) {
+			this.cache.clear();
+		}
+		this.cache.put(sessionId, new CacheEntry(session, now + this.cacheTimeToLive));
+	}
+
+	private static final class CacheEntry {
+		/**
+		 * The cached session, or null if the session is not registered.
+		 */
+		private final JdbcSessionInformation session;
+		private final long expires;
+
+		private CacheEntry(JdbcSessionInformation session, long expires) {
+			this.session = session;
+			this.expires = expires;
+		}
+	}
+
+	/**
+	 * A session whose refreshes are buffered by the registry and whose expiration is
+	 * written to the database immediately.
+	 */
+	private static final class JdbcSessionInformation extends SessionInformation {
+
+		private static final long serialVersionUID = SpringSecurityCoreVersion.SERIAL_VERSION_UID;
+
+		private static final Date UNUSED = new Date(0);
+
+		private final transient JdbcSessionRegistry registry;
+
+		private volatile long lastRequest;
+
+		private volatile boolean expired;
+
+		private JdbcSessionInformation(JdbcSessionRegistry registry, String sessionId,
+				String principalName, long lastRequest, boolean expired) {
+			super(principalName, sessionId, UNUSED);
+			this.registry = registry;
+			this.lastRequest = lastRequest;
+			this.expired = expired;
+		}
+
+		@Override
+		public void expireNow() {
+			this.expired = true;
+			if (this.registry != null) {
+				this.registry.getJdbcTemplate().update(DEF_EXPIRE_SESSION_SQL,
+						getSessionId());
+				// the cached instance may differ from this one, e.g. if this session was
+				// listed by getAllSessions
+				this.registry.cache.remove(getSessionId());
+				this.registry.pendingLastRequests.remove(getSessionId());
+			}
+		}
+
+		@Override
+		public Date getLastRequest() {
+			return new Date(this.lastRequest);
+		}
+
+		@Override
+		public boolean isExpired() {
+			return this.expired;
+		}
+
+		@Override
+		public void refreshLastRequest() {
+			long now = System.currentTimeMillis();
+			this.lastRequest = now;
+			if (this.registry != null) {
+				this.registry.pendingLastRequests.put(getSessionId(), now);
+			}
+		}
+	}
+}
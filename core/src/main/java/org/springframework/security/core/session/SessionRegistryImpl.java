@@ -39,7 +39,7 @@ import java.util.concurrent.CopyOnWriteArraySet;
  * @author Ben Alex
  * @author Luke Taylor
  */
-public class SessionRegistryImpl implements SessionRegistry,
+public class SessionRegistryImpl implements CountingSessionRegistry,
 		ApplicationListener<SessionDestroyedEvent> {
 
 	// ~ Instance fields
@@ -85,6 +85,26 @@ public class SessionRegistryImpl implements SessionRegistry,
 		return list;
 	}
 
+	public int countSessions(Object principal) {
+		final Set<String> sessionsUsedByPrincipal = principals.get(principal);
+
+		if (sessionsUsedByPrincipal == null) {
+			return 0;
+		}
+
+		int count = 0;
+
+		for (String sessionId : sessionsUsedByPrincipal) {
+			SessionInformation sessionInformation = getSessionInformation(sessionId);
+
+			if (sessionInformation != null && !sessionInformation.isExpired()) {
+				count++;
+			}
+		}
+
+		return count;
+	}
+
 	public SessionInformation getSessionInformation(String sessionId) {
 		Assert.hasText(sessionId, "SessionId required as per interface contract");
 
@@ -0,0 +1,358 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.core.session;
+
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.context.ApplicationListener;
+import org.springframework.security.core.SpringSecurityCoreVersion;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link SessionRegistry} designed for a large number of sessions, which listens for
+ * {@link SessionDestroyedEvent}s in the same way as {@link SessionRegistryImpl}.
+ * <p>
+ * The principals are partitioned into shards, each of which is guarded by its own lock,
+ * so that registrations of different principals rarely contend. The sessions of a
+ * principal are kept in a compact array together with a counter of the unexpired
+ * sessions, so that {@link #countSessions(Object)} does not need to create a list.
+ * The <code>SessionInformation</code> instances hold the time of the last request as a
+ * primitive timestamp rather than a <code>Date</code>.
+ * <p>
+ * Principals are identified by their name, which is the username of a
+ * {@link UserDetails}, the name of a {@link Principal} or the principal itself
+ * otherwise. All sessions of a principal share the principal most recently registered
+ * with that name, so that a principal which is created anew on every authentication is
+ * not retained once per session.
+ *
+ * @since 4.2
+ */
+public class ShardedSessionRegistry implements CountingSessionRegistry,
+		ApplicationListener<SessionDestroyedEvent> {
+
+	protected final Log logger = LogFactory.getLog(ShardedSessionRegistry.class);
+
+	private final Shard[] shards;
+
+	/** <sessionId:Object,SessionInformation> */
+	private final ConcurrentMap<String, Session> sessionIds;
+
+	public ShardedSessionRegistry() {
+		this(64);
+	}
+
+	/**
+	 * Creates a registry which partitions the principals into at least
+	 * {@code concurrencyLevel} shards.
+	 *
+	 * @param concurrencyLevel the estimated number of concurrently registering threads
+	 */
+	public ShardedSessionRegistry(int concurrencyLevel) {
+		Assert.isTrue(concurrencyLevel > 0, "concurrencyLevel must be greater than 0");
+		int shardCount = 1;
+		while (shardCount < concurrencyLevel) {
+			shardCount <<= 1;
+		}
+		this.shards = new Shard[shardCount];
+		for (int i = 0; i < shardCount; i++) {
+			this.shards[i] = new Shard();
+		}
+		this.sessionIds = new ConcurrentHashMap<String, Session>(16, 0.75f, shardCount);
+	}
+
+	public List<Object> getAllPrincipals() {
+		List<Object> principals = new ArrayList<Object>();
+
+		for (Shard shard : this.shards) {
+			synchronized (shard) {
+				for (PrincipalSessions sessions : shard.principals.values()) {
+					principals.add(sessions.principal);
+				}
+			}
+		}
+
+		return principals;
+	}
+
+	public List<SessionInformation> getAllSessions(Object principal,
+			boolean includeExpiredSessions) {
+		Object key = getPrincipalKey(principal);
+		Shard shard = shard(key);
+
+		synchronized (shard) {
+			PrincipalSessions sessions = shard.principals.get(key);
+
+			if (sessions == null) {
+				return Collections.emptyList();
+			}
+
+			List<SessionInformation> list = new ArrayList<SessionInformation>(
+					includeExpiredSessions ? sessions.size : sessions.unexpiredCount);
+
+			for (int i = 0; i < sessions.size; i++) {
+				Session session = sessions.sessions[i];
+				if (includeExpiredSessions || !session.expired) {
+					list.add(session);
+				}
+			}
+
+			return list;
+		}
+	}
+
+	public int countSessions(Object principal) {
+		Object key = getPrincipalKey(principal);
+		Shard shard = shard(key);
+
+		synchronized (shard) {
+			PrincipalSessions sessions = shard.principals.get(key);
+			return sessions == null ? 0 : sessions.unexpiredCount;
+		}
+	}
+
+	public SessionInformation getSessionInformation(String sessionId) {
+		Assert.hasText(sessionId, "SessionId required as per interface contract");
+
+		return this.sessionIds.get(sessionId);
+	}
+
+	public void onApplicationEvent(SessionDestroyedEvent event) {
+		removeSessionInformation(event.getId());
+	}
+
+	public void refreshLastRequest(String sessionId) {
+		Assert.hasText(sessionId, "SessionId required as per interface contract");
+
+		Session session = this.sessionIds.get(sessionId);
+
+		if (session != null) {
+			session.refreshLastRequest();
+		}
+	}
+
+	public void registerNewSession(String sessionId, Object principal) {
+		Assert.hasText(sessionId, "SessionId required as per interface contract");
+		Assert.notNull(principal, "Principal required as per interface contract");
+
+		if (this.logger.isDebugEnabled()) {
+			this.logger.debug("Registering session " + sessionId + ", for principal "
+					+ principal);
+		}
+
+		if (this.sessionIds.containsKey(sessionId)) {
+			removeSessionInformation(sessionId);
+		}
+
+		Object key = getPrincipalKey(principal);
+		Shard shard = shard(key);
+
+		synchronized (shard) {
+			PrincipalSessions sessions = shard.principals.get(key);
+
+			if (sessions == null) {
+				sessions = new PrincipalSessions(key, shard);
+				shard.principals.put(key, sessions);
+			}
+
+			sessions.principal = principal;
+			Session session = new Session(sessions, sessionId);
+			sessions.add(session);
+			this.sessionIds.put(sessionId, session);
+		}
+	}
+
+	public void removeSessionInformation(String sessionId) {
+		Assert.hasText(sessionId, "SessionId required as per interface contract");
+
+		Session session = this.sessionIds.remove(sessionId);
+
+		if (session == null) {
+			return;
+		}
+
+		if (this.logger.isDebugEnabled()) {
+			this.logger.debug("Removing session " + sessionId
+					+ " from set of registered sessions");
+		}
+
+		PrincipalSessions sessions = session.sessions;
+		Shard shard = sessions.shard;
+
+		synchronized (shard) {
+			sessions.remove(session);
+
+			if (sessions.size == 0 && shard.principals.get(sessions.key) == sessions) {
+				// No need to keep the principal anymore
+				if (this.logger.isDebugEnabled()) {
+					this.logger.debug("Removing principal " + sessions.principal
+							+ " from registry");
+				}
+				shard.principals.remove(sessions.key);
+			}
+		}
+	}
+
+	/**
+	 * Returns the key identifying the principal. The default implementation returns the
+	 * username of a {@link UserDetails}, the name of a {@link Principal} or otherwise the
+	 * principal itself.
+	 *
+	 * @param principal the principal
+	 * @return the key of the principal, which must implement <code>equals</code> and
+	 * <code>hashCode</code>
+	 */
+	protected Object getPrincipalKey(Object principal) {
+		if (principal instanceof UserDetails) {
+			return ((UserDetails) principal).getUsername();
+		}
+		if (principal instanceof Principal) {
+			return ((Principal) principal).getName();
+		}
+		return principal;
+	}
+
+	private Shard shard(Object key) {
+		int hash = key.hashCode();
+		hash ^= (hash >>> 16);
+		return this.shards[hash & (this.shards.length - 1)];
+	}
+
+	private static final class Shard {
+		/**
+		 * The sessions by principal key, guarded by the shard.
+		 */
+		private final Map<Object, PrincipalSessions> principals = new HashMap<Object, PrincipalSessions>();
+	}
+
+	/**
+	 * The sessions of a principal, guarded by its shard.
+	 */
+	private static final class PrincipalSessions {
+		private final Object key;
+		private final Shard shard;
+		private volatile Object principal;
+		private Session[] sessions = new Session[1];
+		private int size;
+		private int unexpiredCount;
+
+		private PrincipalSessions(Object key, Shard shard) {
+			this.key = key;
+			this.shard = shard;
+		}
+
+		private void add(Session session) {
+			if (this.size == this.sessions.length) {
+				Session[] sessions = new Session[this.size * 2];
+				System.arraycopy(this.sessions, 0, sessions, 0, this.size);
+				this.sessions = sessions;
+			}
+			this.sessions[this.size++] = session;
+			this.unexpiredCount++;
+		}
+
+		private void remove(Session session) {
+			for (int i = 0; i < this.size; i++) {
+				if (this.sessions[i] == session) {
+					System.arraycopy(this.sessions, i + 1, this.sessions, i, this.size
+							- i - 1);
+					this.sessions[--this.size] = null;
+					session.removed = true;
+					if (!session.expired) {
+						this.unexpiredCount--;
+					}
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * A session whose principal is shared with the other sessions of the principal and
+	 * whose last request is held as a timestamp. Expiring the session updates the
+	 * counter of unexpired sessions of the principal.
+	 */
+	private static final class Session extends SessionInformation {
+
+		private static final long serialVersionUID = SpringSecurityCoreVersion.SERIAL_VERSION_UID;
+
+		private static final Date UNUSED = new Date(0);
+
+		private final transient PrincipalSessions sessions;
+
+		private volatile long lastRequest = System.currentTimeMillis();
+
+		private volatile boolean expired;
+
+		/**
+		 * Whether the session has been removed from the registry, guarded by the shard.
+		 */
+		private transient boolean removed;
+
+		private Session(PrincipalSessions sessions, String sessionId) {
+			// the principal is obtained from the sessions of the principal instead
+			super(sessions.key, sessionId, UNUSED);
+			this.sessions = sessions;
+		}
+
+		@Override
+		public void expireNow() {
+			if (this.sessions == null) {
+				this.expired = true;
+				return;
+			}
+			synchronized (this.sessions.shard) {
+				if (!this.expired) {
+					this.expired = true;
+					if (!this.removed) {
+						this.sessions.unexpiredCount--;
+					}
+				}
+			}
+		}
+
+		@Override
+		public Date getLastRequest() {
+			return new Date(this.lastRequest);
+		}
+
+		@Override
+		public Object getPrincipal() {
+			return this.sessions == null ? super.getPrincipal()
+					: this.sessions.principal;
+		}
+
+		@Override
+		public boolean isExpired() {
+			return this.expired;
+		}
+
+		@Override
+		public void refreshLastRequest() {
+			this.lastRequest = System.currentTimeMillis();
+		}
+	}
+}
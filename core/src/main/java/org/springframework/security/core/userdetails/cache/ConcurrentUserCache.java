@@ -0,0 +1,346 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.core.userdetails.cache;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.security.core.userdetails.UserCache;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link UserCache} which keeps {@link UserDetails} instances in memory, without
+ * requiring an external cache provider.
+ * <p>
+ * Users are held in a {@link ConcurrentHashMap}, so reads never block and writes only
+ * lock one of {@code concurrencyLevel} segments. Entries expire after the
+ * {@link #setTimeToLive(long) time to live}. When more than {@code maxSize} users are
+ * cached, entries are evicted using the CLOCK algorithm, an approximation of LRU: a
+ * read marks an entry as referenced, and the eviction sweep clears the mark of
+ * referenced entries and evicts the first unreferenced one it finds.
+ * <p>
+ * Usernames which could not be found may optionally be cached as well, by setting a
+ * {@link #setNegativeTimeToLive(long) negative time to live} and loading users through
+ * the {@link #createCachingUserDetailsService(UserDetailsService) caching
+ * UserDetailsService}. The {@code UserCache} contract has no way to represent a missing
+ * user, so such entries are never returned by {@link #getUserFromCache(String)}.
+ * <p>
+ * The cache counts hits, misses, evictions and expirations, which may be published by
+ * any metrics system.
+ *
+ * @since 4.2
+ */
+public class ConcurrentUserCache implements UserCache {
+
+	private static final Log logger = LogFactory.getLog(ConcurrentUserCache.class);
+
+	private final ConcurrentMap<String, Entry> entries;
+
+	private final int maxSize;
+
+	private final AtomicInteger size = new AtomicInteger();
+
+	private final ReentrantLock evictionLock = new ReentrantLock();
+
+	/**
+	 * The position of the eviction sweep, guarded by the {@code evictionLock}.
+	 */
+	private Iterator<Map.Entry<String, Entry>> clockHand;
+
+	private long timeToLive = 300000;
+
+	private long negativeTimeToLive;
+
+	private final AtomicLong hitCount = new AtomicLong();
+
+	private final AtomicLong missCount = new AtomicLong();
+
+	private final AtomicLong evictionCount = new AtomicLong();
+
+	private final AtomicLong expirationCount = new AtomicLong();
+
+	/**
+	 * Creates a cache holding at most {@code maxSize} users.
+	 *
+	 * @param maxSize the maximum number of cached users
+	 */
+	public ConcurrentUserCache(int maxSize) {
+		this(maxSize, 16);
+	}
+
+	/**
+	 * Creates a cache holding at most {@code maxSize} users, whose writes are striped
+	 * across {@code concurrencyLevel} locks.
+	 *
+	 * @param maxSize the maximum number of cached users
+	 * @param concurrencyLevel the estimated number of concurrently writing threads
+	 */
+	public ConcurrentUserCache(int maxSize, int concurrencyLevel) {
+		Assert.isTrue(maxSize > 0, "maxSize must be greater than 0");
+		Assert.isTrue(concurrencyLevel > 0, "concurrencyLevel must be greater than 0");
+		this.maxSize = maxSize;
+		this.entries = new ConcurrentHashMap<String, Entry>(Math.min(maxSize, 1024),
+				0.75f, concurrencyLevel);
+	}
+
+	/**
+	 * Sets the time in milliseconds after which a cached user expires. Defaults to 5
+	 * minutes.
+	 *
+	 * @param timeToLive the time to live in milliseconds
+	 */
+	public void setTimeToLive(long timeToLive) {
+		Assert.isTrue(timeToLive > 0, "timeToLive must be greater than 0");
+		this.timeToLive = timeToLive;
+	}
+
+	/**
+	 * Sets the time in milliseconds for which a username which could not be found is
+	 * remembered. Defaults to 0, which disables negative caching.
+	 *
+	 * @param negativeTimeToLive the time to live in milliseconds of missing usernames
+	 * @see #createCachingUserDetailsService(UserDetailsService)
+	 */
+	public void setNegativeTimeToLive(long negativeTimeToLive) {
+		Assert.isTrue(negativeTimeToLive >= 0, "negativeTimeToLive cannot be negative");
+		this.negativeTimeToLive = negativeTimeToLive;
+	}
+
+	public UserDetails getUserFromCache(String username) {
+		Entry entry = getEntry(username);
+
+		if (logger.isDebugEnabled()) {
+			logger.debug("Cache hit: " + (entry != null && entry.user != null)
+					+ "; username: " + username);
+		}
+
+		if (entry == null || entry.user == null) {
+			this.missCount.incrementAndGet();
+			return null;
+		}
+
+		this.hitCount.incrementAndGet();
+		return entry.user;
+	}
+
+	public void putUserInCache(UserDetails user) {
+		if (logger.isDebugEnabled()) {
+			logger.debug("Cache put: " + user.getUsername());
+		}
+
+		put(user.getUsername(), new Entry(user, System.currentTimeMillis()
+				+ this.timeToLive));
+	}
+
+	public void removeUserFromCache(String username) {
+		if (username != null && this.entries.remove(username) != null) {
+			this.size.decrementAndGet();
+		}
+	}
+
+	/**
+	 * Returns a {@link UserDetailsService} which loads users from this cache, and only
+	 * delegates to the supplied {@code UserDetailsService} when a user is not cached. If
+	 * a {@link #setNegativeTimeToLive(long) negative time to live} is set, usernames for
+	 * which the delegate throws a {@link UsernameNotFoundException} are remembered, and
+	 * later lookups fail without consulting the delegate.
+	 *
+	 * @param userDetailsService the service loading users which are not cached
+	 * @return the caching service
+	 */
+	public UserDetailsService createCachingUserDetailsService(
+			final UserDetailsService userDetailsService) {
+		Assert.notNull(userDetailsService, "userDetailsService cannot be null");
+		return new UserDetailsService() {
+			public UserDetails loadUserByUsername(String username)
+					throws UsernameNotFoundException {
+				Entry entry = getEntry(username);
+
+				if (entry != null) {
+					ConcurrentUserCache.this.hitCount.incrementAndGet();
+					if (entry.user == null) {
+						throw new UsernameNotFoundException("User " + username
+								+ " was not found (cached)");
+					}
+					return entry.user;
+				}
+
+				ConcurrentUserCache.this.missCount.incrementAndGet();
+
+				UserDetails user;
+				try {
+					user = userDetailsService.loadUserByUsername(username);
+				}
+				catch (UsernameNotFoundException notFound) {
+					long negativeTimeToLive = ConcurrentUserCache.this.negativeTimeToLive;
+					if (negativeTimeToLive > 0 && username != null) {
+						put(username, new Entry(null, System.currentTimeMillis()
+								+ negativeTimeToLive));
+					}
+					throw notFound;
+				}
+
+				if (user != null) {
+					putUserInCache(user);
+				}
+				return user;
+			}
+		};
+	}
+
+	/**
+	 * Returns the approximate number of cached entries.
+	 */
+	public int getSize() {
+		return this.size.get();
+	}
+
+	/**
+	 * Returns the number of lookups which found a cached entry.
+	 */
+	public long getHitCount() {
+		return this.hitCount.get();
+	}
+
+	/**
+	 * Returns the number of lookups which did not find a cached entry.
+	 */
+	public long getMissCount() {
+		return this.missCount.get();
+	}
+
+	/**
+	 * Returns the number of entries evicted because the cache was full.
+	 */
+	public long getEvictionCount() {
+		return this.evictionCount.get();
+	}
+
+	/**
+	 * Returns the number of entries removed because they had expired.
+	 */
+	public long getExpirationCount() {
+		return this.expirationCount.get();
+	}
+
+	private Entry getEntry(String username) {
+		if (username == null) {
+			return null;
+		}
+
+		Entry entry = this.entries.get(username);
+
+		if (entry == null) {
+			return null;
+		}
+
+		if (entry.isExpired(System.currentTimeMillis())) {
+			if (this.entries.remove(username, entry)) {
+				this.size.decrementAndGet();
+				this.expirationCount.incrementAndGet();
+			}
+			return null;
+		}
+
+		// avoid writing to a shared cache line when the entry is already marked
+		if (!entry.referenced) {
+			entry.referenced = true;
+		}
+		return entry;
+	}
+
+	private void put(String username, Entry entry) {
+		if (this.entries.put(username, entry) == null) {
+			this.size.incrementAndGet();
+			evictIfNecessary();
+		}
+	}
+
+	/**
+	 * Evicts entries until the cache holds no more than {@code maxSize} entries. Only
+	 * one thread sweeps at a time, other threads do not wait for it.
+	 */
+	private void evictIfNecessary() {
+		if (this.size.get() <= this.maxSize || !this.evictionLock.tryLock()) {
+			return;
+		}
+
+		try {
+			long now = System.currentTimeMillis();
+			// every entry is visited at most twice before one is evicted
+			int remainingSteps = 2 * (this.size.get() + 1);
+
+			while (this.size.get() > this.maxSize && remainingSteps-- > 0) {
+				if (this.clockHand == null || !this.clockHand.hasNext()) {
+					this.clockHand = this.entries.entrySet().iterator();
+					if (!this.clockHand.hasNext()) {
+						return;
+					}
+				}
+
+				Map.Entry<String, Entry> candidate = this.clockHand.next();
+				Entry entry = candidate.getValue();
+				boolean expired = entry.isExpired(now);
+
+				if (entry.referenced && !expired) {
+					entry.referenced = false;
+					continue;
+				}
+
+				if (this.entries.remove(candidate.getKey(), entry)) {
+					this.size.decrementAndGet();
+					if (expired) {
+						this.expirationCount.incrementAndGet();
+					}
+					else {
+						this.evictionCount.incrementAndGet();
+					}
+				}
+			}
+		}
+		finally {
+			this.evictionLock.unlock();
+		}
+	}
+
+	private static final class Entry {
+		/**
+		 * The cached user, or null if the username could not be found.
+		 */
+		private final UserDetails user;
+		private final long expires;
+		private volatile boolean referenced;
+
+		private Entry(UserDetails user, long expires) {
+			this.user = user;
+			this.expires = expires;
+		}
+
+		private boolean isExpired(long now) {
+			return this.expires - now <= 0;
+		}
+	}
+}
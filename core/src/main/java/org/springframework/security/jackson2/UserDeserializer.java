@@ -18,12 +18,11 @@ package org.springframework.security.jackson2;
 
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.MissingNode;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.deser.ResolvableDeserializer;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.User;
@@ -34,12 +33,22 @@ import java.util.Set;
 /**
  * Custom Deserializer for {@link User} class. This is already registered with {@link UserMixin}.
  * You can also use it directly with your mixin class.
+ * <p>
+ * The properties are read from the token stream as they arrive, in any order, without buffering
+ * the user as a tree first. The deserializer for the authorities is resolved once per mapper.
  *
  * @author Jitendra Singh
  * @see UserMixin
  * @since 4.2
  */
-class UserDeserializer extends JsonDeserializer<User> {
+class UserDeserializer extends JsonDeserializer<User> implements ResolvableDeserializer {
+
+	private JsonDeserializer<Object> authoritiesDeserializer;
+
+	public void resolve(DeserializationContext ctxt) throws JsonMappingException {
+		this.authoritiesDeserializer = ctxt.findRootValueDeserializer(
+				ctxt.getTypeFactory().constructCollectionType(Set.class, SimpleGrantedAuthority.class));
+	}
 
 	/**
 	 * This method will create {@link User} object. It will ensure successful object creation even if password key is null in
@@ -51,28 +60,61 @@ class UserDeserializer extends JsonDeserializer<User> {
 	 * @return the user
 	 * @throws IOException if a exception during IO occurs
 	 * @throws JsonProcessingException if an error during JSON processing occurs
+	 * @throws IllegalArgumentException if the authorities are missing or cannot be read
 	 */
 	@Override
 	public User deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException, JsonProcessingException {
-		ObjectMapper mapper = (ObjectMapper) jp.getCodec();
-		JsonNode jsonNode = mapper.readTree(jp);
-		Set<GrantedAuthority> authorities = mapper.convertValue(jsonNode.get("authorities"), new TypeReference<Set<SimpleGrantedAuthority>>() {
-		});
-		JsonNode password = readJsonNode(jsonNode, "password");
-		User result =  new User(
-				readJsonNode(jsonNode, "username").asText(), password.asText(""),
-				readJsonNode(jsonNode, "enabled").asBoolean(), readJsonNode(jsonNode, "accountNonExpired").asBoolean(),
-				readJsonNode(jsonNode, "credentialsNonExpired").asBoolean(),
-				readJsonNode(jsonNode, "accountNonLocked").asBoolean(), authorities
-		);
+		String username = "";
+		String password = null;
+		boolean enabled = false;
+		boolean accountNonExpired = false;
+		boolean credentialsNonExpired = false;
+		boolean accountNonLocked = false;
+		Set<GrantedAuthority> authorities = null;
+
+		JsonToken token = jp.getCurrentToken();
+		if (token == JsonToken.START_OBJECT) {
+			token = jp.nextToken();
+		}
+		for (; token == JsonToken.FIELD_NAME; token = jp.nextToken()) {
+			String field = jp.getCurrentName();
+			jp.nextToken();
+			if ("username".equals(field)) {
+				username = jp.getValueAsString("");
+			} else if ("password".equals(field)) {
+				password = jp.getValueAsString(null);
+			} else if ("enabled".equals(field)) {
+				enabled = jp.getValueAsBoolean();
+			} else if ("accountNonExpired".equals(field)) {
+				accountNonExpired = jp.getValueAsBoolean();
+			} else if ("credentialsNonExpired".equals(field)) {
+				credentialsNonExpired = jp.getValueAsBoolean();
+			} else if ("accountNonLocked".equals(field)) {
+				accountNonLocked = jp.getValueAsBoolean();
+			} else if ("authorities".equals(field)) {
+				authorities = readAuthorities(jp, ctxt);
+			} else {
+				jp.skipChildren();
+			}
+		}
 
-		if(password.asText(null) == null) {
+		User result = new User(username, password == null ? "" : password, enabled, accountNonExpired,
+				credentialsNonExpired, accountNonLocked, authorities);
+		if (password == null) {
 			result.eraseCredentials();
 		}
 		return result;
 	}
 
-	private JsonNode readJsonNode(JsonNode jsonNode, String field) {
-		return jsonNode.has(field) ? jsonNode.get(field) : MissingNode.getInstance();
+	@SuppressWarnings("unchecked")
+	private Set<GrantedAuthority> readAuthorities(JsonParser jp, DeserializationContext ctxt) throws IOException {
+		if (jp.getCurrentToken() == JsonToken.VALUE_NULL) {
+			return null;
+		}
+		try {
+			return (Set<GrantedAuthority>) this.authoritiesDeserializer.deserialize(jp, ctxt);
+		} catch (JsonMappingException e) {
+			throw new IllegalArgumentException(e.getMessage(), e);
+		}
 	}
 }
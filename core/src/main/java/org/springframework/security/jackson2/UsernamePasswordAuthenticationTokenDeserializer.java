@@ -18,15 +18,13 @@ package org.springframework.security.jackson2;
 
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.MissingNode;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.deser.ResolvableDeserializer;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.userdetails.User;
 
 import java.io.IOException;
 import java.util.List;
@@ -36,6 +34,10 @@ import java.util.List;
  * it will invoke suitable constructor depending on the value of <b>authenticated</b> property.
  * It will ensure that the token's state must not change.
  * <p>
+ * The properties are read from the token stream as they arrive, in any order. The principal and the
+ * details are read as typed values, so that their class is restored from the type information which is
+ * written by {@link SecurityJacksonModules}, while a textual principal remains a {@link String}.
+ * <p>
  * This deserializer is already registered with {@link UsernamePasswordAuthenticationTokenMixin} but
  * you can also registered it with your own mixin class.
  *
@@ -43,7 +45,18 @@ import java.util.List;
  * @see UsernamePasswordAuthenticationTokenMixin
  * @since 4.2
  */
-class UsernamePasswordAuthenticationTokenDeserializer extends JsonDeserializer<UsernamePasswordAuthenticationToken> {
+class UsernamePasswordAuthenticationTokenDeserializer extends JsonDeserializer<UsernamePasswordAuthenticationToken>
+		implements ResolvableDeserializer {
+
+	private JsonDeserializer<Object> objectDeserializer;
+
+	private JsonDeserializer<Object> authoritiesDeserializer;
+
+	public void resolve(DeserializationContext ctxt) throws JsonMappingException {
+		this.objectDeserializer = ctxt.findRootValueDeserializer(ctxt.constructType(Object.class));
+		this.authoritiesDeserializer = ctxt.findRootValueDeserializer(
+				ctxt.getTypeFactory().constructCollectionType(List.class, GrantedAuthority.class));
+	}
 
 	/**
 	 * This method construct {@link UsernamePasswordAuthenticationToken} object from serialized json.
@@ -54,32 +67,52 @@ class UsernamePasswordAuthenticationTokenDeserializer extends JsonDeserializer<U
 	 * @throws JsonProcessingException if an error during JSON processing occurs
 	 */
 	@Override
+	@SuppressWarnings("unchecked")
 	public UsernamePasswordAuthenticationToken deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException, JsonProcessingException {
-		UsernamePasswordAuthenticationToken token = null;
-		ObjectMapper mapper = (ObjectMapper) jp.getCodec();
-		JsonNode jsonNode = mapper.readTree(jp);
-		Boolean authenticated = readJsonNode(jsonNode, "authenticated").asBoolean();
-		JsonNode principalNode = readJsonNode(jsonNode, "principal");
+		boolean authenticated = false;
 		Object principal = null;
-		if(principalNode.isObject()) {
-			principal = mapper.readValue(principalNode.toString(), new TypeReference<User>() {});
-		} else {
-			principal = principalNode.asText();
+		Object credentials = null;
+		List<GrantedAuthority> authorities = null;
+		Object details = null;
+
+		JsonToken token = jp.getCurrentToken();
+		if (token == JsonToken.START_OBJECT) {
+			token = jp.nextToken();
+		}
+		for (; token == JsonToken.FIELD_NAME; token = jp.nextToken()) {
+			String field = jp.getCurrentName();
+			JsonToken value = jp.nextToken();
+			if ("authenticated".equals(field)) {
+				authenticated = jp.getValueAsBoolean();
+			} else if ("principal".equals(field)) {
+				principal = value.isScalarValue() ? jp.getValueAsString(null) : readObject(jp, ctxt);
+			} else if ("credentials".equals(field)) {
+				credentials = jp.getValueAsString(null);
+			} else if ("authorities".equals(field)) {
+				authorities = (List<GrantedAuthority>) readValue(this.authoritiesDeserializer, jp, ctxt);
+			} else if ("details".equals(field)) {
+				details = readObject(jp, ctxt);
+			} else {
+				jp.skipChildren();
+			}
 		}
-		Object credentials = readJsonNode(jsonNode, "credentials").asText();
-		List<GrantedAuthority> authorities = mapper.readValue(
-				readJsonNode(jsonNode, "authorities").toString(), new TypeReference<List<GrantedAuthority>>() {
-		});
+
+		UsernamePasswordAuthenticationToken result;
 		if (authenticated) {
-			token = new UsernamePasswordAuthenticationToken(principal, credentials, authorities);
+			result = new UsernamePasswordAuthenticationToken(principal, credentials, authorities);
 		} else {
-			token = new UsernamePasswordAuthenticationToken(principal, credentials);
+			result = new UsernamePasswordAuthenticationToken(principal, credentials);
 		}
-		token.setDetails(readJsonNode(jsonNode, "details"));
-		return token;
+		result.setDetails(details);
+		return result;
+	}
+
+	private Object readObject(JsonParser jp, DeserializationContext ctxt) throws IOException {
+		return readValue(this.objectDeserializer, jp, ctxt);
 	}
 
-	private JsonNode readJsonNode(JsonNode jsonNode, String field) {
-		return jsonNode.has(field) ? jsonNode.get(field) : MissingNode.getInstance();
+	private static Object readValue(JsonDeserializer<Object> deserializer, JsonParser jp, DeserializationContext ctxt)
+			throws IOException {
+		return jp.getCurrentToken() == JsonToken.VALUE_NULL ? null : deserializer.deserialize(jp, ctxt);
 	}
 }
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.access.hierarchicalroles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Tests for {@link BitSetRoleHierarchy}.
+ */
+public class BitSetRoleHierarchyTests {
+
+	private static final String HIERARCHY = "ROLE_A > ROLE_B\nROLE_B > ROLE_C\n"
+			+ "ROLE_C > ROLE_D\nROLE_B > ROLE_E\nROLE_F > ROLE_C";
+
+	@Test
+	public void nullOrEmptyAuthoritiesReturnEmptyCollection() {
+		BitSetRoleHierarchy roleHierarchy = new BitSetRoleHierarchy();
+		roleHierarchy.setHierarchy("ROLE_A > ROLE_B");
+
+		assertThat(roleHierarchy.getReachableGrantedAuthorities(null)).isEmpty();
+		assertThat(roleHierarchy.getReachableGrantedAuthorities(
+				new ArrayList<GrantedAuthority>())).isEmpty();
+	}
+
+	@Test
+	public void reachableAuthoritiesMatchRoleHierarchyImpl() {
+		BitSetRoleHierarchy roleHierarchy = new BitSetRoleHierarchy();
+		roleHierarchy.setHierarchy(HIERARCHY);
+		RoleHierarchyImpl roleHierarchyImpl = new RoleHierarchyImpl();
+		roleHierarchyImpl.setHierarchy(HIERARCHY);
+		String[][] inputs = { { "ROLE_0" }, { "ROLE_A" }, { "ROLE_B", "ROLE_X" },
+				{ "ROLE_F", "ROLE_E" }, { "ROLE_D", "ROLE_A", "ROLE_A" } };
+
+		for (String[] roles : inputs) {
+			List<GrantedAuthority> authorities = AuthorityUtils
+					.createAuthorityList(roles);
+			assertThat(HierarchicalRolesTestHelper.containTheSameGrantedAuthorities(
+					roleHierarchy.getReachableGrantedAuthorities(authorities),
+					roleHierarchyImpl.getReachableGrantedAuthorities(authorities)))
+					.isTrue();
+
+			authorities = HierarchicalRolesTestHelper.createAuthorityList(roles);
+			assertThat(HierarchicalRolesTestHelper
+					.containTheSameGrantedAuthoritiesCompareByAuthorityString(
+							roleHierarchy.getReachableGrantedAuthorities(authorities),
+							roleHierarchyImpl
+									.getReachableGrantedAuthorities(authorities)))
+					.isTrue();
+		}
+	}
+
+	@Test
+	public void reachableAuthoritiesAreCachedForSimpleGrantedAuthorities() {
+		BitSetRoleHierarchy roleHierarchy = new BitSetRoleHierarchy();
+		roleHierarchy.setHierarchy(HIERARCHY);
+
+		Collection<GrantedAuthority> first = roleHierarchy
+				.getReachableGrantedAuthorities(AuthorityUtils.createAuthorityList(
+						"ROLE_A", "ROLE_X"));
+		Collection<GrantedAuthority> second = roleHierarchy
+				.getReachableGrantedAuthorities(AuthorityUtils.createAuthorityList(
+						"ROLE_A", "ROLE_X"));
+
+		assertThat(cacheSize(roleHierarchy)).isEqualTo(1);
+		assertThat(second).isNotSameAs(first).isEqualTo(first);
+		assertThat(AuthorityUtils.authorityListToSet(first)).containsOnly("ROLE_A",
+				"ROLE_B", "ROLE_C", "ROLE_D", "ROLE_E", "ROLE_X");
+	}
+
+	@Test
+	public void cachedReachableAuthoritiesCanBeModified() {
+		BitSetRoleHierarchy roleHierarchy = new BitSetRoleHierarchy();
+		roleHierarchy.setHierarchy(HIERARCHY);
+		List<GrantedAuthority> authorities = AuthorityUtils.createAuthorityList("ROLE_B");
+
+		roleHierarchy.getReachableGrantedAuthorities(authorities).add(
+				new SimpleGrantedAuthority("ROLE_Z"));
+		roleHierarchy.getReachableGrantedAuthorities(authorities).clear();
+
+		assertThat(cacheSize(roleHierarchy)).isEqualTo(1);
+		assertThat(AuthorityUtils.authorityListToSet(roleHierarchy
+				.getReachableGrantedAuthorities(authorities))).containsOnly("ROLE_B",
+				"ROLE_C", "ROLE_D", "ROLE_E");
+	}
+
+	@Test
+	public void cachedReachableAuthoritiesDoNotDependOnOrderOfAuthorities() {
+		BitSetRoleHierarchy roleHierarchy = new BitSetRoleHierarchy();
+		roleHierarchy.setHierarchy(HIERARCHY);
+
+		Collection<GrantedAuthority> first = roleHierarchy
+				.getReachableGrantedAuthorities(AuthorityUtils.createAuthorityList(
+						"ROLE_B", "ROLE_X", "ROLE_Y"));
+		Collection<GrantedAuthority> second = roleHierarchy
+				.getReachableGrantedAuthorities(AuthorityUtils.createAuthorityList(
+						"ROLE_Y", "ROLE_X", "ROLE_B", "ROLE_Y"));
+
+		assertThat(cacheSize(roleHierarchy)).isEqualTo(1);
+		assertThat(second).isEqualTo(first);
+		assertThat(AuthorityUtils.authorityListToSet(first)).containsOnly("ROLE_B",
+				"ROLE_C", "ROLE_D", "ROLE_E", "ROLE_X", "ROLE_Y");
+	}
+
+	@Test
+	public void reachableAuthoritiesAreNotCachedWhenCacheDisabled() {
+		BitSetRoleHierarchy roleHierarchy = new BitSetRoleHierarchy();
+		roleHierarchy.setHierarchy(HIERARCHY);
+		roleHierarchy.setCacheSize(0);
+
+		Collection<GrantedAuthority> first = roleHierarchy
+				.getReachableGrantedAuthorities(AuthorityUtils.createAuthorityList(
+						"ROLE_B"));
+		Collection<GrantedAuthority> second = roleHierarchy
+				.getReachableGrantedAuthorities(AuthorityUtils.createAuthorityList(
+						"ROLE_B"));
+
+		assertThat(second).isNotSameAs(first).isEqualTo(first);
+	}
+
+	@Test
+	public void settingHierarchyInvalidatesCache() {
+		BitSetRoleHierarchy roleHierarchy = new BitSetRoleHierarchy();
+		roleHierarchy.setHierarchy("ROLE_A > ROLE_B");
+		List<GrantedAuthority> authorities = AuthorityUtils.createAuthorityList("ROLE_A");
+		roleHierarchy.getReachableGrantedAuthorities(authorities);
+
+		roleHierarchy.setHierarchy("ROLE_A > ROLE_C");
+
+		assertThat(AuthorityUtils.authorityListToSet(roleHierarchy
+				.getReachableGrantedAuthorities(authorities))).containsOnly("ROLE_A",
+				"ROLE_C");
+	}
+
+	@Test
+	public void cyclesAreDetected() {
+		String[] cycles = { "ROLE_A > ROLE_A", "ROLE_A > ROLE_B\nROLE_B > ROLE_A",
+				"ROLE_A > ROLE_B\nROLE_B > ROLE_C\nROLE_C > ROLE_A",
+				"ROLE_A > ROLE_B\nROLE_B > ROLE_C\nROLE_C > ROLE_E\nROLE_E > ROLE_D\nROLE_D > ROLE_B" };
+		BitSetRoleHierarchy roleHierarchy = new BitSetRoleHierarchy();
+
+		for (String cycle : cycles) {
+			try {
+				roleHierarchy.setHierarchy(cycle);
+				fail("Cycle in role hierarchy was not detected: " + cycle);
+			}
+			catch (CycleInRoleHierarchyException expected) {
+			}
+		}
+	}
+
+	private static int cacheSize(BitSetRoleHierarchy roleHierarchy) {
+		return ((Map<?, ?>) ReflectionTestUtils.getField(roleHierarchy,
+				"reachableAuthoritiesCache")).size();
+	}
+}
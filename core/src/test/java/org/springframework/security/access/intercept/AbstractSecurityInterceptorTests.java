@@ -16,12 +16,33 @@
 
 package org.springframework.security.access.intercept;
 
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.After;
 import org.junit.Test;
 import org.springframework.security.access.AccessDecisionManager;
+import org.springframework.security.access.AccessDecisionVoter;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.access.ConfigAttribute;
+import org.springframework.security.access.SecurityConfig;
 import org.springframework.security.access.SecurityMetadataSource;
+import org.springframework.security.access.vote.AffirmativeBased;
+import org.springframework.security.access.vote.RoleVoter;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.util.SimpleMethodInvocation;
 
 /**
@@ -34,6 +55,11 @@ public class AbstractSecurityInterceptorTests {
 	// ~ Methods
 	// ========================================================================================================
 
+	@After
+	public void clearContext() {
+		SecurityContextHolder.clearContext();
+	}
+
 	@Test(expected = IllegalArgumentException.class)
 	public void detectsIfInvocationPassedIncompatibleSecureObject() throws Exception {
 		MockSecurityInterceptorWhichOnlySupportsStrings si = new MockSecurityInterceptorWhichOnlySupportsStrings();
@@ -57,6 +83,86 @@ public class AbstractSecurityInterceptorTests {
 		si.afterPropertiesSet();
 	}
 
+	@Test
+	public void accessDecisionCacheReusesDecisionForSameAuthorities() throws Exception {
+		RoleVoter voter = spy(new RoleVoter());
+		MockSecurityInterceptorWhichOnlySupportsStrings si = createCachingInterceptor(
+				voter, SecurityConfig.createList("ROLE_A"));
+
+		authenticate("ROLE_A", "ROLE_B");
+		si.beforeInvocation("object");
+		authenticate("ROLE_B", "ROLE_A");
+		si.beforeInvocation("object");
+
+		verify(voter, times(1)).vote(any(Authentication.class), any(),
+				anyCollectionOf(ConfigAttribute.class));
+
+		authenticate("ROLE_A");
+		si.beforeInvocation("object");
+
+		verify(voter, times(2)).vote(any(Authentication.class), any(),
+				anyCollectionOf(ConfigAttribute.class));
+	}
+
+	@Test
+	public void accessDecisionCacheDoesNotCacheDeniedDecisions() throws Exception {
+		RoleVoter voter = spy(new RoleVoter());
+		MockSecurityInterceptorWhichOnlySupportsStrings si = createCachingInterceptor(
+				voter, SecurityConfig.createList("ROLE_A"));
+
+		authenticate("ROLE_B");
+		for (int i = 0; i < 2; i++) {
+			try {
+				si.beforeInvocation("object");
+				fail("Expected AccessDeniedException");
+			}
+			catch (AccessDeniedException expected) {
+			}
+		}
+
+		verify(voter, times(2)).vote(any(Authentication.class), any(),
+				anyCollectionOf(ConfigAttribute.class));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void accessDecisionCacheIsNotUsedWithNonCacheableVoter() throws Exception {
+		AccessDecisionVoter<Object> voter = mock(AccessDecisionVoter.class);
+		when(voter.supports(any(Class.class))).thenReturn(true);
+		when(voter.vote(any(Authentication.class), any(),
+				anyCollectionOf(ConfigAttribute.class))).thenReturn(
+				AccessDecisionVoter.ACCESS_GRANTED);
+		MockSecurityInterceptorWhichOnlySupportsStrings si = createCachingInterceptor(
+				voter, SecurityConfig.createList("ROLE_A"));
+
+		authenticate("ROLE_A");
+		si.beforeInvocation("object");
+		si.beforeInvocation("object");
+
+		verify(voter, times(2)).vote(any(Authentication.class), any(),
+				anyCollectionOf(ConfigAttribute.class));
+	}
+
+	private MockSecurityInterceptorWhichOnlySupportsStrings createCachingInterceptor(
+			AccessDecisionVoter<?> voter, Collection<ConfigAttribute> attributes) {
+		List<AccessDecisionVoter<? extends Object>> voters = Arrays
+				.<AccessDecisionVoter<? extends Object>> asList(voter);
+		SecurityMetadataSource metadataSource = mock(SecurityMetadataSource.class);
+		when(metadataSource.getAttributes("object")).thenReturn(attributes);
+		MockSecurityInterceptorWhichOnlySupportsStrings si = new MockSecurityInterceptorWhichOnlySupportsStrings();
+		si.setAccessDecisionManager(new AffirmativeBased(voters));
+		si.setSecurityMetadataSource(metadataSource);
+		si.setAccessDecisionCacheSize(10);
+		return si;
+	}
+
+	private void authenticate(String... authorities) {
+		TestingAuthenticationToken token = new TestingAuthenticationToken("user",
+				"password", authorities);
+		token.setAuthenticated(true);
+		SecurityContextHolder.getContext().setAuthentication(token);
+	}
+
 	// ~ Inner Classes
 	// ==================================================================================================
 
@@ -21,11 +21,22 @@ import static org.mockito.Mockito.*;
 import org.aopalliance.intercept.MethodInvocation;
 import org.junit.Test;
 import org.mockito.Matchers;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.support.GenericApplicationContext;
 import org.springframework.security.access.ConfigAttribute;
 import org.springframework.security.util.SimpleMethodInvocation;
 
 import java.lang.reflect.Method;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author Luke Taylor
@@ -71,4 +82,100 @@ public class DelegatingMethodSecurityMetadataSourceTests {
 				new SimpleMethodInvocation(null, String.class.getMethod("length")))).isEmpty();;
 	}
 
+	@Test
+	public void concurrentRequestsResolveAttributesOnce() throws Exception {
+		final CountDownLatch resolving = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final List attributes = Arrays.asList(mock(ConfigAttribute.class));
+		final Method toString = String.class.getMethod("toString");
+		MethodSecurityMetadataSource delegate = mock(MethodSecurityMetadataSource.class);
+		when(delegate.getAttributes(toString, String.class)).thenAnswer(
+				new Answer<Object>() {
+					public Object answer(InvocationOnMock invocation) throws Throwable {
+						resolving.countDown();
+						release.await(5, TimeUnit.SECONDS);
+						return attributes;
+					}
+				});
+		mds = new DelegatingMethodSecurityMetadataSource(Arrays.asList(delegate));
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Collection<ConfigAttribute>>> results = new ArrayList<Future<Collection<ConfigAttribute>>>();
+			for (int i = 0; i < 4; i++) {
+				results.add(executor.submit(new Callable<Collection<ConfigAttribute>>() {
+					public Collection<ConfigAttribute> call() {
+						return mds.getAttributes(toString, String.class);
+					}
+				}));
+			}
+			assertThat(resolving.await(5, TimeUnit.SECONDS)).isTrue();
+			release.countDown();
+			for (Future<Collection<ConfigAttribute>> result : results) {
+				assertThat(result.get(5, TimeUnit.SECONDS)).isSameAs(attributes);
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+
+		verify(delegate, times(1)).getAttributes(toString, String.class);
+	}
+
+	@Test
+	public void failedResolutionIsNotCached() throws Exception {
+		Method toString = String.class.getMethod("toString");
+		List attributes = Arrays.asList(mock(ConfigAttribute.class));
+		MethodSecurityMetadataSource delegate = mock(MethodSecurityMetadataSource.class);
+		when(delegate.getAttributes(toString, String.class)).thenThrow(
+				new IllegalStateException("failed")).thenReturn(attributes);
+		mds = new DelegatingMethodSecurityMetadataSource(Arrays.asList(delegate));
+
+		try {
+			mds.getAttributes(toString, String.class);
+			fail("Expected IllegalStateException");
+		}
+		catch (IllegalStateException expected) {
+		}
+
+		assertThat(mds.getAttributes(toString, String.class)).isSameAs(attributes);
+	}
+
+	@Test
+	public void warmUpOnRefreshResolvesProxiedMethods() throws Exception {
+		MethodSecurityMetadataSource delegate = mock(MethodSecurityMetadataSource.class);
+		mds = new DelegatingMethodSecurityMetadataSource(Arrays.asList(delegate));
+		mds.setWarmUpOnRefresh(true);
+		ProxyFactory factory = new ProxyFactory(new ArrayList<String>());
+		factory.addInterface(List.class);
+		GenericApplicationContext context = new GenericApplicationContext();
+		context.getBeanFactory().registerSingleton("proxy", factory.getProxy());
+		context.getBeanFactory().registerSingleton("plain", new Object());
+		context.refresh();
+
+		mds.onApplicationEvent(new ContextRefreshedEvent(context));
+
+		verify(delegate).getAttributes(List.class.getMethod("size"), ArrayList.class);
+		verify(delegate).getAttributes(ArrayList.class.getMethod("size"),
+				ArrayList.class);
+		mds.getAttributes(List.class.getMethod("size"), ArrayList.class);
+		verify(delegate, times(1)).getAttributes(List.class.getMethod("size"),
+				ArrayList.class);
+		context.close();
+	}
+
+	@Test
+	public void warmUpOnRefreshDisabledByDefault() throws Exception {
+		MethodSecurityMetadataSource delegate = mock(MethodSecurityMetadataSource.class);
+		mds = new DelegatingMethodSecurityMetadataSource(Arrays.asList(delegate));
+		ProxyFactory factory = new ProxyFactory(new ArrayList<String>());
+		factory.addInterface(List.class);
+		GenericApplicationContext context = new GenericApplicationContext();
+		context.getBeanFactory().registerSingleton("proxy", factory.getProxy());
+		context.refresh();
+
+		mds.onApplicationEvent(new ContextRefreshedEvent(context));
+
+		verifyZeroInteractions(delegate);
+		context.close();
+	}
 }
@@ -55,6 +55,16 @@ public class AbstractAuthenticationTokenTests {
 		gotAuthorities.set(0, new SimpleGrantedAuthority("ROLE_SUPER_USER"));
 	}
 
+	@Test
+	public void authoritySetIsCreatedOnceFromAuthorities() {
+		MockAuthenticationImpl token = new MockAuthenticationImpl("Test", "Password",
+				authorities);
+
+		assertThat(token.getAuthoritySet()).isSameAs(token.getAuthoritySet());
+		assertThat(token.getAuthoritySet().toArray()).containsExactly("ROLE_ONE",
+				"ROLE_TWO");
+	}
+
 	@Test
 	public void testGetters() throws Exception {
 		MockAuthenticationImpl token = new MockAuthenticationImpl("Test", "Password",
@@ -323,6 +323,54 @@ public class DaoAuthenticationProviderTests {
 		assertThat(castResult.getDetails()).isEqualTo("192.168.0.1");
 	}
 
+	@Test
+	public void testAuthenticatesWithPasswordVerificationExecutor() {
+		PasswordVerificationExecutor executor = new PasswordVerificationExecutor(1, 1);
+		DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
+		provider.setUserDetailsService(new MockAuthenticationDaoUserrod());
+		provider.setPasswordVerificationExecutor(executor);
+
+		try {
+			Authentication result = provider.authenticate(
+					new UsernamePasswordAuthenticationToken("rod", "koala"));
+			assertThat(result.isAuthenticated()).isTrue();
+
+			try {
+				provider.authenticate(
+						new UsernamePasswordAuthenticationToken("rod", "wrong"));
+				fail("Should have thrown BadCredentialsException");
+			}
+			catch (BadCredentialsException expected) {
+			}
+
+			assertThat(executor.getVerificationCount()).isEqualTo(2);
+		}
+		finally {
+			executor.destroy();
+		}
+	}
+
+	@Test
+	public void testVerifiedCredentialsCacheSkipsVerificationUntilPasswordChanges() {
+		PasswordEncoder encoder = mock(PasswordEncoder.class);
+		when(encoder.matches(anyString(), anyString())).thenReturn(true);
+		MockAuthenticationDaoUserrod userDetailsService = new MockAuthenticationDaoUserrod();
+		DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
+		provider.setPasswordEncoder(encoder);
+		provider.setUserDetailsService(userDetailsService);
+		provider.setVerifiedCredentialsCache(new VerifiedCredentialsCache());
+
+		provider.authenticate(new UsernamePasswordAuthenticationToken("rod", "koala"));
+		provider.authenticate(new UsernamePasswordAuthenticationToken("rod", "koala"));
+
+		verify(encoder, times(1)).matches("koala", "koala");
+
+		userDetailsService.setPassword("changed");
+		provider.authenticate(new UsernamePasswordAuthenticationToken("rod", "koala"));
+
+		verify(encoder, times(1)).matches("koala", "changed");
+	}
+
 	@Test
 	public void testAuthenticatesASecondTime() {
 		UsernamePasswordAuthenticationToken token = new UsernamePasswordAuthenticationToken(
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.authentication.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.security.authentication.AuthenticationServiceException;
+
+/**
+ * Tests for {@link PasswordVerificationExecutor}.
+ */
+public class PasswordVerificationExecutorTests {
+
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	private PasswordVerificationExecutor executor = new PasswordVerificationExecutor(1,
+			1);
+
+	@After
+	public void tearDown() {
+		this.release.countDown();
+		this.executor.destroy();
+	}
+
+	@Test
+	public void verifyReturnsResultOfVerification() {
+		assertThat(this.executor.verify(result(true))).isTrue();
+		assertThat(this.executor.verify(result(false))).isFalse();
+		assertThat(this.executor.getVerificationCount()).isEqualTo(2);
+		assertThat(this.executor.getTotalVerificationTimeNanos()).isGreaterThanOrEqualTo(0);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void verifyPropagatesRuntimeException() {
+		this.executor.verify(new Callable<Boolean>() {
+			public Boolean call() {
+				throw new IllegalStateException();
+			}
+		});
+	}
+
+	@Test
+	public void verifyFailsFastWhenSaturated() throws Exception {
+		final CountDownLatch started = new CountDownLatch(1);
+		final Callable<Boolean> blocking = new Callable<Boolean>() {
+			public Boolean call() throws Exception {
+				started.countDown();
+				release.await();
+				return true;
+			}
+		};
+		Thread first = verifyInBackground(blocking);
+		assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+		Thread second = verifyInBackground(blocking);
+		while (this.executor.getQueueDepth() == 0) {
+			Thread.sleep(1);
+		}
+
+		try {
+			this.executor.verify(result(true));
+			fail("Expected AuthenticationServiceException");
+		}
+		catch (AuthenticationServiceException expected) {
+		}
+
+		assertThat(this.executor.getRejectedCount()).isEqualTo(1);
+		this.release.countDown();
+		first.join();
+		second.join();
+	}
+
+	@Test
+	public void verifyTimesOut() {
+		this.executor.setTimeout(10);
+
+		try {
+			this.executor.verify(new Callable<Boolean>() {
+				public Boolean call() throws Exception {
+					release.await();
+					return true;
+				}
+			});
+			fail("Expected AuthenticationServiceException");
+		}
+		catch (AuthenticationServiceException expected) {
+		}
+
+		assertThat(this.executor.getTimeoutCount()).isEqualTo(1);
+	}
+
+	private Thread verifyInBackground(final Callable<Boolean> verification) {
+		Thread thread = new Thread() {
+			@Override
+			public void run() {
+				executor.verify(verification);
+			}
+		};
+		thread.start();
+		return thread;
+	}
+
+	private static Callable<Boolean> result(final boolean result) {
+		return new Callable<Boolean>() {
+			public Boolean call() {
+				return result;
+			}
+		};
+	}
+}
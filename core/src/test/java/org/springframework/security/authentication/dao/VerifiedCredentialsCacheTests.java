@@ -0,0 +1,86 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.authentication.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link VerifiedCredentialsCache}.
+ */
+public class VerifiedCredentialsCacheTests {
+
+	private VerifiedCredentialsCache cache = new VerifiedCredentialsCache();
+
+	@Test
+	public void verifiedCredentialsAreRemembered() {
+		this.cache.putVerified("rod", "koala", "{hash}", null);
+
+		assertThat(this.cache.isVerified("rod", "koala", "{hash}", null)).isTrue();
+	}
+
+	@Test
+	public void differentCredentialsAreNotVerified() {
+		this.cache.putVerified("rod", "koala", "{hash}", null);
+
+		assertThat(this.cache.isVerified("rod", "wrong", "{hash}", null)).isFalse();
+		assertThat(this.cache.isVerified("rod", "koala", "{changed}", null)).isFalse();
+		assertThat(this.cache.isVerified("rod", "koala", "{hash}", "salt")).isFalse();
+		assertThat(this.cache.isVerified("scott", "koala", "{hash}", null)).isFalse();
+	}
+
+	@Test
+	public void valueBoundariesAreUnambiguous() {
+		this.cache.putVerified("rod", "koala", "{hash}", null);
+
+		assertThat(this.cache.isVerified("rod", "koala{hash}", "", null)).isFalse();
+	}
+
+	@Test
+	public void expiredCredentialsAreNotVerified() throws Exception {
+		this.cache.setTimeToLive(1);
+		this.cache.putVerified("rod", "koala", "{hash}", null);
+		Thread.sleep(10);
+
+		assertThat(this.cache.isVerified("rod", "koala", "{hash}", null)).isFalse();
+	}
+
+	@Test
+	public void removedCredentialsAreNotVerified() {
+		this.cache.putVerified("rod", "koala", "{hash}", null);
+		this.cache.remove("rod");
+
+		assertThat(this.cache.isVerified("rod", "koala", "{hash}", null)).isFalse();
+	}
+
+	@Test
+	public void cacheIsClearedWhenFull() {
+		this.cache.setMaxSize(1);
+		this.cache.putVerified("rod", "koala", "{hash}", null);
+		this.cache.putVerified("scott", "wombat", "{hash}", null);
+
+		assertThat(this.cache.isVerified("rod", "koala", "{hash}", null)).isFalse();
+		assertThat(this.cache.isVerified("scott", "wombat", "{hash}", null)).isTrue();
+	}
+
+	@Test
+	public void nullStoredPasswordIsNeverVerified() {
+		this.cache.putVerified("rod", "koala", null, null);
+
+		assertThat(this.cache.isVerified("rod", "koala", null, null)).isFalse();
+	}
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.core.authority;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.springframework.security.core.GrantedAuthority;
+
+/**
+ * Tests for {@link AuthoritySet} and {@link AuthorityRegistry}.
+ */
+public class AuthoritySetTests {
+
+	@Test
+	public void membershipIsTestedByAuthorityString() {
+		AuthoritySet set = AuthoritySet.of(AuthorityUtils.createAuthorityList("ROLE_A",
+				"ROLE_B", "ROLE_A"), new AuthorityRegistry(10));
+
+		assertThat(set.size()).isEqualTo(2);
+		assertThat(set.contains("ROLE_A")).isTrue();
+		assertThat(set.contains("ROLE_B")).isTrue();
+		assertThat(set.contains("ROLE_C")).isFalse();
+		assertThat(set.contains(null)).isFalse();
+		assertThat(set.containsAny("ROLE_C", "ROLE_B")).isTrue();
+		assertThat(set.containsAny("ROLE_C", "ROLE_D")).isFalse();
+		assertThat(set.toArray()).containsExactly("ROLE_A", "ROLE_B");
+	}
+
+	@Test
+	public void containsWithPrefixOnlyPrefixesUnprefixedAuthorities() {
+		AuthoritySet set = AuthoritySet.of(
+				AuthorityUtils.createAuthorityList("ROLE_A", "B"));
+
+		assertThat(set.contains("ROLE_", "A")).isTrue();
+		assertThat(set.contains("ROLE_", "ROLE_A")).isTrue();
+		assertThat(set.contains("ROLE_", "B")).isFalse();
+		assertThat(set.contains(null, "B")).isTrue();
+		assertThat(set.contains("", "B")).isTrue();
+	}
+
+	@Test
+	public void fullRegistryFallsBackToSortedArray() {
+		AuthorityRegistry registry = new AuthorityRegistry(2);
+		AuthoritySet set = AuthoritySet.of(
+				AuthorityUtils.createAuthorityList("ROLE_C", "ROLE_A", "ROLE_B"),
+				registry);
+
+		assertThat(registry.size()).isEqualTo(2);
+		assertThat(registry.register("ROLE_D")).isEqualTo(-1);
+		assertThat(set.contains("ROLE_A")).isTrue();
+		assertThat(set.contains("ROLE_B")).isTrue();
+		assertThat(set.contains("ROLE_C")).isTrue();
+		assertThat(set.contains("ROLE_D")).isFalse();
+		assertThat(set.toArray()).containsExactly("ROLE_A", "ROLE_B", "ROLE_C");
+	}
+
+	@Test
+	public void setsWithSameAuthoritiesAreEqual() {
+		AuthorityRegistry registry = new AuthorityRegistry(2);
+		AuthoritySet bitset = AuthoritySet.of(
+				AuthorityUtils.createAuthorityList("ROLE_A", "ROLE_B"), registry);
+		registry.register("ROLE_C");
+		AuthoritySet sortedArray = AuthoritySet.of(
+				AuthorityUtils.createAuthorityList("ROLE_B", "ROLE_C", "ROLE_A"),
+				new AuthorityRegistry(0));
+		AuthoritySet other = AuthoritySet.of(
+				AuthorityUtils.createAuthorityList("ROLE_B", "ROLE_A"), registry);
+
+		assertThat(bitset).isEqualTo(other);
+		assertThat(bitset.hashCode()).isEqualTo(other.hashCode());
+		assertThat(bitset).isNotEqualTo(sortedArray);
+		assertThat(sortedArray).isEqualTo(AuthoritySet.of(
+				AuthorityUtils.createAuthorityList("ROLE_A", "ROLE_B", "ROLE_C")));
+	}
+
+	@Test
+	public void nonStringAuthoritiesAreNotMembers() {
+		List<GrantedAuthority> authorities = new ArrayList<GrantedAuthority>(
+				AuthorityUtils.createAuthorityList("ROLE_A"));
+		authorities.add(new GrantedAuthority() {
+			public String getAuthority() {
+				return null;
+			}
+		});
+
+		AuthoritySet set = AuthoritySet.of(authorities);
+
+		assertThat(set.size()).isEqualTo(1);
+		assertThat(set.containsNonStringAuthorities()).isTrue();
+		assertThat(AuthoritySet.of(AuthorityUtils.createAuthorityList("ROLE_A"))
+				.containsNonStringAuthorities()).isFalse();
+	}
+
+	@Test
+	public void emptySetContainsNothing() {
+		assertThat(AuthoritySet.of(null).isEmpty()).isTrue();
+		assertThat(AuthoritySet.of(AuthorityUtils.NO_AUTHORITIES).contains("ROLE_A"))
+				.isFalse();
+	}
+}
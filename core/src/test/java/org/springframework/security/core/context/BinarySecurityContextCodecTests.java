@@ -0,0 +1,264 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.core.context;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.RememberMeAuthenticationToken;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.userdetails.User;
+
+/**
+ * @since 4.2
+ */
+public class BinarySecurityContextCodecTests {
+
+	private final BinarySecurityContextCodec codec = new BinarySecurityContextCodec();
+
+	@Test
+	public void emptyContextRoundTrips() {
+		SecurityContext decoded = roundTrip(this.codec, new SecurityContextImpl());
+
+		assertThat(decoded).isInstanceOf(SecurityContextImpl.class);
+		assertThat(decoded.getAuthentication()).isNull();
+	}
+
+	@Test
+	public void usernamePasswordTokenWithUserRoundTrips() {
+		UsernamePasswordAuthenticationToken token = authenticatedUser(3);
+		token.setDetails("details");
+
+		Authentication decoded = roundTrip(this.codec, context(token))
+				.getAuthentication();
+
+		assertThat(decoded).isInstanceOf(UsernamePasswordAuthenticationToken.class);
+		assertThat(decoded).isEqualTo(token);
+		assertThat(decoded.isAuthenticated()).isTrue();
+		assertThat(decoded.getDetails()).isEqualTo("details");
+		User user = (User) decoded.getPrincipal();
+		User expected = (User) token.getPrincipal();
+		assertThat(user.getUsername()).isEqualTo(expected.getUsername());
+		assertThat(user.getPassword()).isNull();
+		assertThat(user.isEnabled()).isTrue();
+		assertThat(user.isAccountNonExpired()).isFalse();
+		assertThat(user.isCredentialsNonExpired()).isTrue();
+		assertThat(user.isAccountNonLocked()).isFalse();
+		assertThat(user.getAuthorities()).isEqualTo(expected.getAuthorities());
+	}
+
+	@Test
+	public void unauthenticatedTokenRoundTrips() {
+		UsernamePasswordAuthenticationToken token = new UsernamePasswordAuthenticationToken(
+				"rod", "koala");
+
+		Authentication decoded = roundTrip(this.codec, context(token))
+				.getAuthentication();
+
+		assertThat(decoded).isEqualTo(token);
+		assertThat(decoded.isAuthenticated()).isFalse();
+		assertThat(decoded.getCredentials()).isEqualTo("koala");
+	}
+
+	@Test
+	public void rememberMeTokenRoundTrips() {
+		RememberMeAuthenticationToken token = new RememberMeAuthenticationToken("key",
+				"rod", AuthorityUtils.createAuthorityList("ROLE_USER"));
+
+		RememberMeAuthenticationToken decoded = (RememberMeAuthenticationToken) roundTrip(
+				this.codec, context(token)).getAuthentication();
+
+		assertThat(decoded).isEqualTo(token);
+		assertThat(decoded.getKeyHash()).isEqualTo("key".hashCode());
+	}
+
+	@Test
+	public void anonymousTokenRoundTrips() {
+		AnonymousAuthenticationToken token = new AnonymousAuthenticationToken("key",
+				"anonymousUser", AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS"));
+
+		Authentication decoded = roundTrip(this.codec, context(token))
+				.getAuthentication();
+
+		assertThat(decoded).isEqualTo(token);
+	}
+
+	@Test
+	public void unsupportedTypesFallBackToSerialization() {
+		TestingAuthenticationToken token = new TestingAuthenticationToken(
+				new Customer("rod"), "koala", "ROLE_USER");
+
+		Authentication decoded = roundTrip(this.codec, context(token))
+				.getAuthentication();
+
+		assertThat(decoded).isInstanceOf(TestingAuthenticationToken.class);
+		assertThat(decoded.getPrincipal()).isEqualTo(new Customer("rod"));
+	}
+
+	@Test
+	public void customPrincipalUsesObjectCodec() {
+		UsernamePasswordAuthenticationToken token = new UsernamePasswordAuthenticationToken(
+				new Customer("rod"), null, AuthorityUtils.createAuthorityList("ROLE_USER"));
+		List<BinaryObjectCodec<?>> codecs = new ArrayList<BinaryObjectCodec<?>>();
+		codecs.add(new CustomerCodec());
+		BinarySecurityContextCodec customCodec = new BinarySecurityContextCodec(codecs);
+
+		byte[] serialized = this.codec.encode(context(token));
+		byte[] encoded = customCodec.encode(context(token));
+		Authentication decoded = customCodec.decode(encoded).getAuthentication();
+
+		assertThat(decoded.getPrincipal()).isEqualTo(new Customer("rod"));
+		assertThat(encoded.length).isLessThan(serialized.length);
+	}
+
+	@Test
+	public void encodingIsAtLeastFiveTimesSmallerThanSerialization()
+			throws IOException {
+		UsernamePasswordAuthenticationToken token = authenticatedUser(10);
+		token.setDetails("127.0.0.1");
+		SecurityContext context = context(token);
+
+		ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(serialized);
+		out.writeObject(context);
+		out.flush();
+
+		assertThat(this.codec.encode(context).length * 5).isLessThan(
+				serialized.size());
+	}
+
+	@Test
+	public void repeatedAuthoritiesAreWrittenOnce() {
+		UsernamePasswordAuthenticationToken once = authenticatedUser(10);
+		UsernamePasswordAuthenticationToken twice = new UsernamePasswordAuthenticationToken(
+				once.getPrincipal(), null, once.getAuthorities());
+		UsernamePasswordAuthenticationToken none = new UsernamePasswordAuthenticationToken(
+				once.getPrincipal(), null, AuthorityUtils.NO_AUTHORITIES);
+
+		int withAuthorities = this.codec.encode(context(twice)).length;
+		int withoutAuthorities = this.codec.encode(context(none)).length;
+
+		// a type and an index for every authority which was written before
+		assertThat(withAuthorities - withoutAuthorities).isEqualTo(2 * 10);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void decodeTruncatedBytesFails() {
+		byte[] encoded = this.codec.encode(context(authenticatedUser(3)));
+
+		this.codec.decode(Arrays.copyOf(encoded, encoded.length - 1));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void decodeTrailingBytesFails() {
+		byte[] encoded = this.codec.encode(context(authenticatedUser(3)));
+
+		this.codec.decode(Arrays.copyOf(encoded, encoded.length + 1));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void decodeUnknownVersionFails() {
+		this.codec.decode(new byte[] { 2, 1, 0 });
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void decodeUnknownObjectCodecFails() {
+		byte[] encoded = new BinarySecurityContextCodec(
+				Arrays.<BinaryObjectCodec<?>> asList(new CustomerCodec()))
+				.encode(context(new UsernamePasswordAuthenticationToken(new Customer(
+						"rod"), null)));
+
+		this.codec.decode(encoded);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void duplicateObjectCodecsAreRejected() {
+		new BinarySecurityContextCodec(Arrays.<BinaryObjectCodec<?>> asList(
+				new CustomerCodec(), new CustomerCodec()));
+	}
+
+	private static UsernamePasswordAuthenticationToken authenticatedUser(
+			int authorityCount) {
+		List<GrantedAuthority> authorities = new ArrayList<GrantedAuthority>();
+		for (int i = 0; i < authorityCount; i++) {
+			authorities.addAll(AuthorityUtils.createAuthorityList("ROLE_" + i));
+		}
+		User user = new User("rod", "koala", true, false, true, false, authorities);
+		UsernamePasswordAuthenticationToken token = new UsernamePasswordAuthenticationToken(
+				user, "koala", user.getAuthorities());
+		token.eraseCredentials();
+		return token;
+	}
+
+	private static SecurityContext context(Authentication authentication) {
+		SecurityContext context = new SecurityContextImpl();
+		context.setAuthentication(authentication);
+		return context;
+	}
+
+	private static SecurityContext roundTrip(SecurityContextCodec codec,
+			SecurityContext context) {
+		return codec.decode(codec.encode(context));
+	}
+
+	static class Customer implements Serializable {
+		private final String name;
+
+		Customer(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Customer && this.name.equals(((Customer) obj).name);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.name.hashCode();
+		}
+	}
+
+	static class CustomerCodec implements BinaryObjectCodec<Customer> {
+
+		public Class<Customer> getObjectType() {
+			return Customer.class;
+		}
+
+		public void write(Customer customer, DataOutput out) throws IOException {
+			out.writeUTF(customer.name);
+		}
+
+		public Customer read(DataInput in) throws IOException {
+			return new Customer(in.readUTF());
+		}
+	}
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.core.session;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.userdetails.User;
+
+public class JdbcSessionRegistryTests {
+
+	private static SingleConnectionDataSource dataSource;
+
+	private JdbcSessionRegistry sessionRegistry;
+
+	private JdbcTemplate template;
+
+	@BeforeClass
+	public static void createDataSource() {
+		dataSource = new SingleConnectionDataSource("jdbc:hsqldb:mem:sessionregistrytest",
+				"sa", "", true);
+		dataSource.setDriverClassName("org.hsqldb.jdbc.JDBCDriver");
+	}
+
+	@AfterClass
+	public static void clearDataSource() throws Exception {
+		dataSource.destroy();
+		dataSource = null;
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		sessionRegistry = createSessionRegistry();
+		sessionRegistry.setCreateTableOnStartup(true);
+		sessionRegistry.afterPropertiesSet();
+		template = sessionRegistry.getJdbcTemplate();
+	}
+
+	@After
+	public void tearDown() {
+		sessionRegistry.destroy();
+		template.execute("drop table sessions");
+	}
+
+	@Test
+	public void sessionDestroyedEventRemovesSessionFromRegistry() {
+		final String sessionId = "zzzz";
+		sessionRegistry.registerNewSession(sessionId, "principal");
+
+		sessionRegistry.onApplicationEvent(new SessionDestroyedEvent("") {
+			@Override
+			public String getId() {
+				return sessionId;
+			}
+
+			@Override
+			public List<SecurityContext> getSecurityContexts() {
+				return null;
+			}
+		});
+
+		assertThat(sessionRegistry.getSessionInformation(sessionId)).isNull();
+		assertThat(count("select count(*) from sessions")).isEqualTo(0);
+	}
+
+	@Test
+	public void registerNewSessionStoresPrincipalName() {
+		User user = new User("rod", "koala", AuthorityUtils.NO_AUTHORITIES);
+		sessionRegistry.registerNewSession("1234567890", user);
+		sessionRegistry.registerNewSession("9876543210", "other");
+
+		assertThat(template.queryForObject(
+				"select principal_name from sessions where session_id = '1234567890'",
+				String.class)).isEqualTo("rod");
+		assertThat(sessionRegistry.getAllPrincipals()).containsOnly("rod", "other");
+		assertThat(sessionRegistry.getSessionInformation("1234567890").getPrincipal())
+				.isEqualTo("rod");
+		assertThat(sessionRegistry.getAllSessions(user, false)).hasSize(1);
+		assertThat(sessionRegistry.countSessions(user)).isEqualTo(1);
+	}
+
+	@Test
+	public void expiredSessionsAreNotCountedAcrossRegistries() throws Exception {
+		JdbcSessionRegistry otherNode = createSessionRegistry();
+		otherNode.afterPropertiesSet();
+		try {
+			sessionRegistry.registerNewSession("1234567890", "principal");
+			otherNode.registerNewSession("9876543210", "principal");
+
+			assertThat(sessionRegistry.countSessions("principal")).isEqualTo(2);
+
+			List<SessionInformation> sessions = otherNode
+					.getAllSessions("principal", false);
+			assertThat(sessions).hasSize(2);
+			sessions.get(0).expireNow();
+
+			assertThat(sessionRegistry.countSessions("principal")).isEqualTo(1);
+			assertThat(sessionRegistry.getAllSessions("principal", false)).hasSize(1);
+			assertThat(sessionRegistry.getAllSessions("principal", true)).hasSize(2);
+		}
+		finally {
+			otherNode.destroy();
+		}
+	}
+
+	@Test
+	public void refreshLastRequestIsBufferedUntilFlushed() throws Exception {
+		sessionRegistry.registerNewSession("1234567890", "principal");
+		long registered = lastRequest("1234567890");
+
+		Thread.sleep(10);
+		sessionRegistry.refreshLastRequest("1234567890");
+		sessionRegistry.refreshLastRequest("1234567890");
+
+		assertThat(lastRequest("1234567890")).isEqualTo(registered);
+		long refreshed = sessionRegistry.getSessionInformation("1234567890")
+				.getLastRequest().getTime();
+		assertThat(refreshed).isGreaterThan(registered);
+		assertThat(sessionRegistry.getAllSessions("principal", false).get(0)
+				.getLastRequest().getTime()).isEqualTo(refreshed);
+
+		sessionRegistry.flush();
+
+		assertThat(lastRequest("1234567890")).isEqualTo(refreshed);
+	}
+
+	@Test
+	public void destroyFlushesBufferedRefreshes() throws Exception {
+		sessionRegistry.registerNewSession("1234567890", "principal");
+		long registered = lastRequest("1234567890");
+
+		Thread.sleep(10);
+		sessionRegistry.refreshLastRequest("1234567890");
+		sessionRegistry.destroy();
+
+		assertThat(lastRequest("1234567890")).isGreaterThan(registered);
+	}
+
+	@Test
+	public void periodicFlush() throws Exception {
+		JdbcSessionRegistry otherNode = createSessionRegistry();
+		otherNode.setFlushInterval(10);
+		otherNode.afterPropertiesSet();
+		try {
+			otherNode.registerNewSession("1234567890", "principal");
+			long registered = lastRequest("1234567890");
+
+			Thread.sleep(10);
+			otherNode.refreshLastRequest("1234567890");
+
+			for (int i = 0; i < 100 && lastRequest("1234567890") == registered; i++) {
+				Thread.sleep(10);
+			}
+			assertThat(lastRequest("1234567890")).isGreaterThan(registered);
+		}
+		finally {
+			otherNode.destroy();
+		}
+	}
+
+	@Test
+	public void getSessionInformationIsCached() {
+		sessionRegistry.registerNewSession("1234567890", "principal");
+		template.update("update sessions set expired = true");
+
+		assertThat(sessionRegistry.getSessionInformation("1234567890").isExpired())
+				.isFalse();
+	}
+
+	@Test
+	public void getSessionInformationWithoutCache() {
+		sessionRegistry.setCacheTimeToLive(0);
+		sessionRegistry.registerNewSession("1234567890", "principal");
+		template.update("update sessions set expired = true");
+
+		assertThat(sessionRegistry.getSessionInformation("1234567890").isExpired())
+				.isTrue();
+		assertThat(sessionRegistry.getSessionInformation("unknown")).isNull();
+	}
+
+	@Test
+	public void sessionExpiredThroughGetAllSessionsIsNotServedFromCache() {
+		sessionRegistry.registerNewSession("1234567890", "principal");
+		assertThat(sessionRegistry.getSessionInformation("1234567890").isExpired())
+				.isFalse();
+
+		sessionRegistry.getAllSessions("principal", false).get(0).expireNow();
+
+		assertThat(sessionRegistry.getSessionInformation("1234567890").isExpired())
+				.isTrue();
+	}
+
+	@Test
+	public void removeSessionInformationDiscardsBufferedRefresh() {
+		sessionRegistry.registerNewSession("1234567890", "principal");
+		sessionRegistry.refreshLastRequest("1234567890");
+		sessionRegistry.removeSessionInformation("1234567890");
+		sessionRegistry.flush();
+
+		assertThat(sessionRegistry.getSessionInformation("1234567890")).isNull();
+		assertThat(sessionRegistry.countSessions("principal")).isEqualTo(0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void setFlushIntervalInvalid() {
+		sessionRegistry.setFlushInterval(0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void setCacheTimeToLiveNegative() {
+		sessionRegistry.setCacheTimeToLive(-1);
+	}
+
+	private JdbcSessionRegistry createSessionRegistry() {
+		JdbcSessionRegistry registry = new JdbcSessionRegistry();
+		registry.setDataSource(dataSource);
+		return registry;
+	}
+
+	private long lastRequest(String sessionId) {
+		return template.queryForObject(
+				"select last_request from sessions where session_id = ?", Long.class,
+				sessionId);
+	}
+
+	private int count(String sql) {
+		return template.queryForObject(sql, Integer.class);
+	}
+}
@@ -177,6 +177,20 @@ public class SessionRegistryImplTests {
 		assertThat(sessionRegistry.getAllSessions(principal, false)).isEmpty();
 	}
 
+	@Test
+	public void countSessionsExcludesExpiredSessions() throws Exception {
+		Object principal = "Some principal object";
+
+		assertThat(sessionRegistry.countSessions(principal)).isEqualTo(0);
+
+		sessionRegistry.registerNewSession("1234567890", principal);
+		sessionRegistry.registerNewSession("9876543210", principal);
+		assertThat(sessionRegistry.countSessions(principal)).isEqualTo(2);
+
+		sessionRegistry.getSessionInformation("9876543210").expireNow();
+		assertThat(sessionRegistry.countSessions(principal)).isEqualTo(1);
+	}
+
 	private boolean contains(String sessionId, Object principal) {
 		List<SessionInformation> info = sessionRegistry.getAllSessions(principal, false);
 
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.core.session;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.userdetails.User;
+
+public class ShardedSessionRegistryTests {
+
+	private ShardedSessionRegistry sessionRegistry;
+
+	@Before
+	public void setUp() {
+		sessionRegistry = new ShardedSessionRegistry();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void constructorInvalidConcurrencyLevel() {
+		new ShardedSessionRegistry(0);
+	}
+
+	@Test
+	public void sessionDestroyedEventRemovesSessionFromRegistry() {
+		Object principal = "Some principal object";
+		final String sessionId = "zzzz";
+
+		sessionRegistry.registerNewSession(sessionId, principal);
+
+		sessionRegistry.onApplicationEvent(new SessionDestroyedEvent("") {
+			@Override
+			public String getId() {
+				return sessionId;
+			}
+
+			@Override
+			public List<SecurityContext> getSecurityContexts() {
+				return null;
+			}
+		});
+
+		assertThat(sessionRegistry.getSessionInformation(sessionId)).isNull();
+		assertThat(sessionRegistry.getAllPrincipals()).isEmpty();
+	}
+
+	@Test
+	public void multiplePrincipals() {
+		Object principal1 = "principal_1";
+		Object principal2 = "principal_2";
+
+		sessionRegistry.registerNewSession("1234567890", principal1);
+		sessionRegistry.registerNewSession("9876543210", principal1);
+		sessionRegistry.registerNewSession("5432109876", principal2);
+
+		assertThat(sessionRegistry.getAllPrincipals()).hasSize(2);
+		assertThat(sessionRegistry.getAllPrincipals()).contains(principal1, principal2);
+		assertThat(sessionRegistry.getAllSessions(principal1, false)).hasSize(2);
+		assertThat(sessionRegistry.getAllSessions(principal2, false)).hasSize(1);
+	}
+
+	@Test
+	public void sessionInformationLifecycle() throws Exception {
+		Object principal = "Some principal object";
+		String sessionId = "1234567890";
+		sessionRegistry.registerNewSession(sessionId, principal);
+
+		SessionInformation info = sessionRegistry.getSessionInformation(sessionId);
+		assertThat(info.getPrincipal()).isEqualTo(principal);
+		assertThat(info.getSessionId()).isEqualTo(sessionId);
+		Date lastRequest = info.getLastRequest();
+		assertThat(lastRequest).isNotNull();
+		assertThat(sessionRegistry.getAllSessions(principal, false)).hasSize(1);
+
+		Thread.sleep(10);
+		sessionRegistry.refreshLastRequest(sessionId);
+
+		assertThat(info.getLastRequest().after(lastRequest)).isTrue();
+
+		sessionRegistry.removeSessionInformation(sessionId);
+
+		assertThat(sessionRegistry.getSessionInformation(sessionId)).isNull();
+		assertThat(sessionRegistry.getAllSessions(principal, false)).isEmpty();
+		assertThat(sessionRegistry.countSessions(principal)).isEqualTo(0);
+	}
+
+	@Test
+	public void expiredSessionsAreCountedAndListedSeparately() {
+		Object principal = "Some principal object";
+		sessionRegistry.registerNewSession("1234567890", principal);
+		sessionRegistry.registerNewSession("9876543210", principal);
+		assertThat(sessionRegistry.countSessions(principal)).isEqualTo(2);
+
+		SessionInformation info = sessionRegistry.getSessionInformation("9876543210");
+		info.expireNow();
+		info.expireNow();
+
+		assertThat(sessionRegistry.getSessionInformation("9876543210").isExpired())
+				.isTrue();
+		assertThat(sessionRegistry.getSessionInformation("1234567890").isExpired())
+				.isFalse();
+		assertThat(sessionRegistry.countSessions(principal)).isEqualTo(1);
+		assertThat(sessionRegistry.getAllSessions(principal, false)).hasSize(1);
+		assertThat(sessionRegistry.getAllSessions(principal, true)).hasSize(2);
+
+		sessionRegistry.removeSessionInformation("9876543210");
+		assertThat(sessionRegistry.countSessions(principal)).isEqualTo(1);
+		sessionRegistry.removeSessionInformation("1234567890");
+		assertThat(sessionRegistry.countSessions(principal)).isEqualTo(0);
+	}
+
+	@Test
+	public void reregisteringSessionMovesItToNewPrincipal() {
+		sessionRegistry.registerNewSession("1234567890", "principal_1");
+		sessionRegistry.registerNewSession("1234567890", "principal_2");
+
+		assertThat(sessionRegistry.countSessions("principal_1")).isEqualTo(0);
+		assertThat(sessionRegistry.countSessions("principal_2")).isEqualTo(1);
+		assertThat(sessionRegistry.getAllPrincipals()).containsOnly("principal_2");
+	}
+
+	@Test
+	public void principalsWithSameNameShareSessions() {
+		User first = new User("rod", "koala", AuthorityUtils.NO_AUTHORITIES);
+		User second = new User("rod", "koala", AuthorityUtils.NO_AUTHORITIES);
+		sessionRegistry.registerNewSession("1234567890", first);
+		sessionRegistry.registerNewSession("9876543210", second);
+
+		assertThat(sessionRegistry.getAllPrincipals()).hasSize(1);
+		assertThat(sessionRegistry.countSessions("rod")).isEqualTo(2);
+		assertThat(sessionRegistry.countSessions(new TestingAuthenticationToken("rod",
+				"koala"))).isEqualTo(2);
+		assertThat(sessionRegistry.getSessionInformation("1234567890").getPrincipal())
+				.isSameAs(second);
+	}
+
+	@Test
+	public void concurrentRegistrationAndRemoval() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<Void>> results = new ArrayList<Future<Void>>();
+			for (int t = 0; t < 8; t++) {
+				final int thread = t;
+				results.add(executor.submit(new Callable<Void>() {
+					public Void call() {
+						for (int i = 0; i < 1000; i++) {
+							String sessionId = thread + "-" + i;
+							sessionRegistry.registerNewSession(sessionId, "user" + i % 10);
+							if (i % 2 == 0) {
+								sessionRegistry.getSessionInformation(sessionId)
+										.expireNow();
+							}
+							if (i % 4 == 0) {
+								sessionRegistry.removeSessionInformation(sessionId);
+							}
+						}
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> result : results) {
+				result.get();
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+
+		int unexpired = 0;
+		int total = 0;
+		for (int i = 0; i < 10; i++) {
+			unexpired += sessionRegistry.countSessions("user" + i);
+			total += sessionRegistry.getAllSessions("user" + i, true).size();
+		}
+		assertThat(unexpired).isEqualTo(8 * 500);
+		assertThat(total).isEqualTo(8 * 750);
+	}
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.core.userdetails.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Test;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+/**
+ * Tests {@link ConcurrentUserCache}.
+ */
+public class ConcurrentUserCacheTests {
+
+	private static User getUser(String username) {
+		return new User(username, "password", true, true, true, true,
+				AuthorityUtils.createAuthorityList("ROLE_ONE", "ROLE_TWO"));
+	}
+
+	@Test
+	public void cacheOperationsAreSuccessful() {
+		ConcurrentUserCache cache = new ConcurrentUserCache(10);
+
+		cache.putUserInCache(getUser("john"));
+		assertThat(cache.getUserFromCache("john").getPassword()).isEqualTo("password");
+
+		cache.removeUserFromCache("john");
+		assertThat(cache.getUserFromCache("john")).isNull();
+
+		assertThat(cache.getUserFromCache(null)).isNull();
+		assertThat(cache.getUserFromCache("UNKNOWN_USER")).isNull();
+		assertThat(cache.getHitCount()).isEqualTo(1);
+		assertThat(cache.getMissCount()).isEqualTo(3);
+		assertThat(cache.getSize()).isEqualTo(0);
+	}
+
+	@Test
+	public void expiredUsersAreNotReturned() throws Exception {
+		ConcurrentUserCache cache = new ConcurrentUserCache(10);
+		cache.setTimeToLive(1);
+
+		cache.putUserInCache(getUser("john"));
+		Thread.sleep(10);
+
+		assertThat(cache.getUserFromCache("john")).isNull();
+		assertThat(cache.getExpirationCount()).isEqualTo(1);
+		assertThat(cache.getSize()).isEqualTo(0);
+	}
+
+	@Test
+	public void leastRecentlyReadUsersAreEvicted() {
+		ConcurrentUserCache cache = new ConcurrentUserCache(3);
+		for (int i = 0; i < 3; i++) {
+			cache.putUserInCache(getUser("user" + i));
+		}
+		for (int round = 0; round < 10; round++) {
+			cache.getUserFromCache("user0");
+			cache.putUserInCache(getUser("other" + round));
+		}
+
+		assertThat(cache.getSize()).isEqualTo(3);
+		assertThat(cache.getEvictionCount()).isEqualTo(10);
+		assertThat(cache.getUserFromCache("user0")).isNotNull();
+	}
+
+	@Test
+	public void cachingUserDetailsServiceCachesUsers() {
+		UserDetailsService delegate = mock(UserDetailsService.class);
+		when(delegate.loadUserByUsername("john")).thenReturn(getUser("john"));
+		ConcurrentUserCache cache = new ConcurrentUserCache(10);
+		UserDetailsService service = cache.createCachingUserDetailsService(delegate);
+
+		UserDetails first = service.loadUserByUsername("john");
+
+		assertThat(service.loadUserByUsername("john")).isSameAs(first);
+		assertThat(cache.getUserFromCache("john")).isSameAs(first);
+		verify(delegate, times(1)).loadUserByUsername("john");
+	}
+
+	@Test
+	public void cachingUserDetailsServiceCachesMissingUsersWhenEnabled() {
+		UserDetailsService delegate = mock(UserDetailsService.class);
+		when(delegate.loadUserByUsername("missing")).thenThrow(
+				new UsernameNotFoundException("missing"));
+		ConcurrentUserCache cache = new ConcurrentUserCache(10);
+		cache.setNegativeTimeToLive(60000);
+		UserDetailsService service = cache.createCachingUserDetailsService(delegate);
+
+		for (int i = 0; i < 2; i++) {
+			try {
+				service.loadUserByUsername("missing");
+				fail("Expected UsernameNotFoundException");
+			}
+			catch (UsernameNotFoundException expected) {
+			}
+		}
+
+		verify(delegate, times(1)).loadUserByUsername("missing");
+		assertThat(cache.getUserFromCache("missing")).isNull();
+	}
+
+	@Test
+	public void cachingUserDetailsServiceDoesNotCacheMissingUsersByDefault() {
+		UserDetailsService delegate = mock(UserDetailsService.class);
+		when(delegate.loadUserByUsername("missing")).thenThrow(
+				new UsernameNotFoundException("missing"));
+		UserDetailsService service = new ConcurrentUserCache(10)
+				.createCachingUserDetailsService(delegate);
+
+		for (int i = 0; i < 2; i++) {
+			try {
+				service.loadUserByUsername("missing");
+				fail("Expected UsernameNotFoundException");
+			}
+			catch (UsernameNotFoundException expected) {
+			}
+		}
+
+		verify(delegate, times(2)).loadUserByUsername("missing");
+	}
+}
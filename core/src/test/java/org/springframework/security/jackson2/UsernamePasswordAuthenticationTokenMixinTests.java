@@ -115,6 +115,45 @@ public class UsernamePasswordAuthenticationTokenMixinTests extends AbstractMixin
 		JSONAssert.assertEquals(AUTHENTICATED_JSON.replaceAll(UserDeserializerTests.USER_PASSWORD, "null"), actualJson, true);
 	}
 
+	@Test
+	public void deserializeAuthenticatedUsernamePasswordAuthenticationTokenAfterEraseCredentialInvoked() throws IOException {
+		String json = AUTHENTICATED_JSON.replaceAll(UserDeserializerTests.USER_PASSWORD, "null");
+		UsernamePasswordAuthenticationToken token = mapper.readValue(json, UsernamePasswordAuthenticationToken.class);
+		assertThat(token.getCredentials()).isNull();
+		assertThat(((User) token.getPrincipal()).getPassword()).isNull();
+		assertThat(token.getDetails()).isNull();
+	}
+
+	@Test
+	public void deserializeUsernamePasswordAuthenticationTokenWithDetails() throws IOException {
+		UsernamePasswordAuthenticationToken token = createToken();
+		token.setDetails(createUser("details", "1234", "ROLE_DETAILS"));
+		String json = mapper.writeValueAsString(token);
+		UsernamePasswordAuthenticationToken deserialized = mapper.readValue(json, UsernamePasswordAuthenticationToken.class);
+		assertThat(deserialized.getDetails()).isInstanceOf(User.class);
+		assertThat(((User) deserialized.getDetails()).getUsername()).isEqualTo("details");
+	}
+
+	@Test
+	public void deserializeUsernamePasswordAuthenticationTokenWithPropertiesInAnyOrder() throws IOException {
+		// @formatter:off
+		String json = "{"
+			+ "\"authorities\": " + SimpleGrantedAuthorityMixinTests.AUTHORITIES_ARRAYLIST_JSON + ", "
+			+ "\"details\": null, "
+			+ "\"name\": \"admin\", "
+			+ "\"authenticated\": true, "
+			+ "\"credentials\": \"1234\", "
+			+ "\"principal\": \"admin\", "
+			+ "\"@class\": \"org.springframework.security.authentication.UsernamePasswordAuthenticationToken\""
+		+ "}";
+		// @formatter:on
+		UsernamePasswordAuthenticationToken token = mapper.readValue(json, UsernamePasswordAuthenticationToken.class);
+		assertThat(token.getPrincipal()).isEqualTo("admin");
+		assertThat(token.getCredentials()).isEqualTo("1234");
+		assertThat(token.isAuthenticated()).isTrue();
+		assertThat(token.getAuthorities()).hasSize(1).contains(new SimpleGrantedAuthority("ROLE_USER"));
+	}
+
 	private UsernamePasswordAuthenticationToken createToken() {
 		User user = createDefaultUser();
 		UsernamePasswordAuthenticationToken token = new UsernamePasswordAuthenticationToken(user, user.getPassword(), user.getAuthorities());
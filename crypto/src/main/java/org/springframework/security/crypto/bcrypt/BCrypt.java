@@ -17,6 +17,10 @@ import java.io.ByteArrayOutputStream;
 import java.io.UnsupportedEncodingException;
 
 import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * BCrypt implements OpenBSD-style Blowfish password hashing using the scheme described in
@@ -259,9 +263,20 @@ public class BCrypt {
 			41, 42, 43, 44, 45, 46, 47, 48, 49, 50, 51, 52, 53, -1, -1, -1, -1, -1 };
 	static final int MIN_LOG_ROUNDS = 4;
 	static final int MAX_LOG_ROUNDS = 31;
+	// Idle engines, so that the key schedule is not reallocated for every hash. A
+	// bounded pool rather than a ThreadLocal, so that no engine outlives this class
+	// on a container thread
+	private static final Queue<BCrypt> engines = new ConcurrentLinkedQueue<BCrypt>();
+	private static final AtomicInteger pooledEngineCount = new AtomicInteger();
+	private static final int MAX_POOLED_ENGINES = 2 * Runtime.getRuntime()
+			.availableProcessors();
 	// Expanded Blowfish key
-	private int P[];
-	private int S[];
+	private final int P[] = new int[P_orig.length];
+	private final int S[] = new int[S_orig.length];
+	// Key material of the expensive key schedule, one word per P-array entry
+	private final int passwordWords[] = new int[P_orig.length];
+	private final int saltWords[] = new int[P_orig.length];
+	private final int cdata[] = new int[bf_crypt_ciphertext.length];
 
 	/**
 	 * Encode a byte array using bcrypt's slightly-modified base64 encoding scheme. Note
@@ -368,85 +383,114 @@ public class BCrypt {
 	}
 
 	/**
-	 * Blowfish encipher a single 64-bit block encoded as two 32-bit halves
-	 * @param lr an array containing the two 32-bit half blocks
-	 * @param off the position in the array of the blocks
+	 * Blowfish encipher a single 64-bit block encoded as two 32-bit halves, with the 16
+	 * rounds of the Feistel network unrolled
+	 * @param P the P-array of the key schedule
+	 * @param S the S-boxes of the key schedule
+	 * @param l the left half block
+	 * @param r the right half block
+	 * @return the enciphered left half block in the high and the right half block in the
+	 * low 32 bits
 	 */
-	private final void encipher(int lr[], int off) {
-		int i, n, l = lr[off], r = lr[off + 1];
-
+	private static long encipher(int P[], int S[], int l, int r) {
 		l ^= P[0];
-		for (i = 0; i <= BLOWFISH_NUM_ROUNDS - 2;) {
-			// Feistel substitution on left word
-			n = S[(l >> 24) & 0xff];
-			n += S[0x100 | ((l >> 16) & 0xff)];
-			n ^= S[0x200 | ((l >> 8) & 0xff)];
-			n += S[0x300 | (l & 0xff)];
-			r ^= n ^ P[++i];
-
-			// Feistel substitution on right word
-			n = S[(r >> 24) & 0xff];
-			n += S[0x100 | ((r >> 16) & 0xff)];
-			n ^= S[0x200 | ((r >> 8) & 0xff)];
-			n += S[0x300 | (r & 0xff)];
-			l ^= n ^ P[++i];
-		}
-		lr[off] = r ^ P[BLOWFISH_NUM_ROUNDS + 1];
-		lr[off + 1] = l;
+		r ^= feistel(S, l) ^ P[1];
+		l ^= feistel(S, r) ^ P[2];
+		r ^= feistel(S, l) ^ P[3];
+		l ^= feistel(S, r) ^ P[4];
+		r ^= feistel(S, l) ^ P[5];
+		l ^= feistel(S, r) ^ P[6];
+		r ^= feistel(S, l) ^ P[7];
+		l ^= feistel(S, r) ^ P[8];
+		r ^= feistel(S, l) ^ P[9];
+		l ^= feistel(S, r) ^ P[10];
+		r ^= feistel(S, l) ^ P[11];
+		l ^= feistel(S, r) ^ P[12];
+		r ^= feistel(S, l) ^ P[13];
+		l ^= feistel(S, r) ^ P[14];
+		r ^= feistel(S, l) ^ P[15];
+		l ^= feistel(S, r) ^ P[16];
+		return ((long) (r ^ P[BLOWFISH_NUM_ROUNDS + 1]) << 32) | (l & 0xffffffffL);
+	}
+
+	/**
+	 * The Blowfish round function
+	 * @param S the S-boxes of the key schedule
+	 * @param x the half block
+	 * @return the substituted word
+	 */
+	private static int feistel(int S[], int x) {
+		int n = S[x >>> 24];
+		n += S[0x100 | ((x >>> 16) & 0xff)];
+		n ^= S[0x200 | ((x >>> 8) & 0xff)];
+		n += S[0x300 | (x & 0xff)];
+		return n;
 	}
 
 	/**
 	 * Cycically extract a word of key material
 	 * @param data the string to extract the data from
-	 * @param offp a "pointer" (as a one-entry array) to the current offset into data
-	 * @return the next word of material from data
+	 * @param off the offset of the word in data
+	 * @return the word of material from data at the offset
 	 */
-	private static int streamtoword(byte data[], int offp[]) {
+	private static int streamtoword(byte data[], int off) {
 		int i;
 		int word = 0;
-		int off = offp[0];
 
 		for (i = 0; i < 4; i++) {
 			word = (word << 8) | (data[off] & 0xff);
 			off = (off + 1) % data.length;
 		}
 
-		offp[0] = off;
 		return word;
 	}
 
+	/**
+	 * Extract the words of key material XORed into the P-array by a key schedule
+	 * @param data the key
+	 * @param words the array receiving the words
+	 */
+	private static void keywords(byte data[], int words[]) {
+		int off = 0;
+
+		for (int i = 0; i < words.length; i++) {
+			words[i] = streamtoword(data, off);
+			off = (off + 4) % data.length;
+		}
+	}
+
 	/**
 	 * Initialise the Blowfish key schedule
 	 */
 	private void init_key() {
-		P = (int[]) P_orig.clone();
-		S = (int[]) S_orig.clone();
+		System.arraycopy(P_orig, 0, P, 0, P_orig.length);
+		System.arraycopy(S_orig, 0, S, 0, S_orig.length);
 	}
 
 	/**
 	 * Key the Blowfish cipher
-	 * @param key an array containing the key
+	 * @param keyWords the words of key material, as extracted by keywords()
 	 */
-	private void key(byte key[]) {
-		int i;
-		int koffp[] = { 0 };
-		int lr[] = { 0, 0 };
+	private void key(int keyWords[]) {
+		int P[] = this.P, S[] = this.S;
+		int i, l = 0, r = 0;
+		long lr;
 		int plen = P.length, slen = S.length;
 
 		for (i = 0; i < plen; i++) {
-			P[i] = P[i] ^ streamtoword(key, koffp);
+			P[i] ^= keyWords[i];
 		}
 
 		for (i = 0; i < plen; i += 2) {
-			encipher(lr, 0);
-			P[i] = lr[0];
-			P[i + 1] = lr[1];
+			lr = encipher(P, S, l, r);
+			P[i] = l = (int) (lr >>> 32);
+			P[i + 1] = r = (int) lr;
 		}
 
 		for (i = 0; i < slen; i += 2) {
-			encipher(lr, 0);
-			S[i] = lr[0];
-			S[i + 1] = lr[1];
+			lr = encipher(P, S, l, r);
+			S[i] = l = (int) (lr >>> 32);
+			S[i + 1] = r = (int) lr;
 		}
 	}
 
@@ -454,32 +498,36 @@ public class BCrypt {
 	 * Perform the "enhanced key schedule" step described by Provos and Mazieres in
 	 * "A Future-Adaptable Password Scheme" http://www.openbsd.org/papers/bcrypt-paper.ps
 	 * @param data salt information
-	 * @param key password information
+	 * @param keyWords password information, as extracted by keywords()
 	 */
-	private void ekskey(byte data[], byte key[]) {
-		int i;
-		int koffp[] = { 0 }, doffp[] = { 0 };
-		int lr[] = { 0, 0 };
-		int plen = P.length, slen = S.length;
+	private void ekskey(byte data[], int keyWords[]) {
+		int P[] = this.P, S[] = this.S;
+		int i, doff = 0, l = 0, r = 0;
+		long lr;
+		int plen = P.length, slen = S.length, dlen = data.length;
 
 		for (i = 0; i < plen; i++) {
-			P[i] = P[i] ^ streamtoword(key, koffp);
+			P[i] ^= keyWords[i];
 		}
 
 		for (i = 0; i < plen; i += 2) {
-			lr[0] ^= streamtoword(data, doffp);
-			lr[1] ^= streamtoword(data, doffp);
-			encipher(lr, 0);
-			P[i] = lr[0];
-			P[i + 1] = lr[1];
+			l ^= streamtoword(data, doff);
+			doff = (doff + 4) % dlen;
+			r ^= streamtoword(data, doff);
+			doff = (doff + 4) % dlen;
+			lr = encipher(P, S, l, r);
+			P[i] = l = (int) (lr >>> 32);
+			P[i + 1] = r = (int) lr;
 		}
 
 		for (i = 0; i < slen; i += 2) {
-			lr[0] ^= streamtoword(data, doffp);
-			lr[1] ^= streamtoword(data, doffp);
-			encipher(lr, 0);
-			S[i] = lr[0];
-			S[i + 1] = lr[1];
+			l ^= streamtoword(data, doff);
+			doff = (doff + 4) % dlen;
+			r ^= streamtoword(data, doff);
+			doff = (doff + 4) % dlen;
+			lr = encipher(P, S, l, r);
+			S[i] = l = (int) (lr >>> 32);
+			S[i + 1] = r = (int) lr;
 		}
 	}
 
@@ -498,33 +546,48 @@ public class BCrypt {
 	 * @return an array containing the binary hashed password
 	 */
 	private byte[] crypt_raw(byte password[], byte salt[], int log_rounds) {
-		int cdata[] = (int[]) bf_crypt_ciphertext.clone();
+		int cdata[] = this.cdata;
 		int clen = cdata.length;
 		byte ret[];
 
 		long rounds = roundsForLogRounds(log_rounds);
 
-		init_key();
-		ekskey(salt, password);
-		for (long i = 0; i < rounds; i++) {
-			key(password);
-			key(salt);
-		}
+		try {
+			keywords(password, passwordWords);
+			keywords(salt, saltWords);
+			init_key();
+			ekskey(salt, passwordWords);
+			for (long i = 0; i < rounds; i++) {
+				key(passwordWords);
+				key(saltWords);
+			}
 
-		for (int i = 0; i < 64; i++) {
-			for (int j = 0; j < (clen >> 1); j++) {
-				encipher(cdata, j << 1);
+			System.arraycopy(bf_crypt_ciphertext, 0, cdata, 0, clen);
+			for (int i = 0; i < 64; i++) {
+				for (int j = 0; j < clen; j += 2) {
+					long lr = encipher(P, S, cdata[j], cdata[j + 1]);
+					cdata[j] = (int) (lr >>> 32);
+					cdata[j + 1] = (int) lr;
+				}
 			}
-		}
 
-		ret = new byte[clen * 4];
-		for (int i = 0, j = 0; i < clen; i++) {
-			ret[j++] = (byte) ((cdata[i] >> 24) & 0xff);
-			ret[j++] = (byte) ((cdata[i] >> 16) & 0xff);
-			ret[j++] = (byte) ((cdata[i] >> 8) & 0xff);
-			ret[j++] = (byte) (cdata[i] & 0xff);
+			ret = new byte[clen * 4];
+			for (int i = 0, j = 0; i < clen; i++) {
+				ret[j++] = (byte) ((cdata[i] >> 24) & 0xff);
+				ret[j++] = (byte) ((cdata[i] >> 16) & 0xff);
+				ret[j++] = (byte) ((cdata[i] >> 8) & 0xff);
+				ret[j++] = (byte) (cdata[i] & 0xff);
+			}
+			return ret;
+		}
+		finally {
+			// do not retain key material derived from the password
+			Arrays.fill(P, 0);
+			Arrays.fill(S, 0);
+			Arrays.fill(passwordWords, 0);
+			Arrays.fill(saltWords, 0);
+			Arrays.fill(cdata, 0);
 		}
-		return ret;
 	}
 
 	/**
@@ -581,8 +644,9 @@ public class BCrypt {
 
 		saltb = decode_base64(real_salt, BCRYPT_SALT_LEN);
 
-		B = new BCrypt();
+		B = acquireEngine();
 		hashed = B.crypt_raw(passwordb, saltb, rounds);
+		releaseEngine(B);
 
 		rs.append("$2");
 		if (minor >= 'a') {
@@ -599,6 +663,27 @@ public class BCrypt {
 		return rs.toString();
 	}
 
+	private static BCrypt acquireEngine() {
+		BCrypt B = engines.poll();
+		if (B == null) {
+			return new BCrypt();
+		}
+		pooledEngineCount.decrementAndGet();
+		return B;
+	}
+
+	/**
+	 * Returns an engine to the pool unless the pool is full. Engines are not released
+	 * when hashing fails.
+	 */
+	private static void releaseEngine(BCrypt B) {
+		if (pooledEngineCount.incrementAndGet() > MAX_POOLED_ENGINES) {
+			pooledEngineCount.decrementAndGet();
+			return;
+		}
+		engines.offer(B);
+	}
+
 	/**
 	 * Generate a salt for use with the BCrypt.hashpw() method
 	 * @param log_rounds the log2 of the number of rounds of hashing to apply - the work
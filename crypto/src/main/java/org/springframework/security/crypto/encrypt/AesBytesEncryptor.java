@@ -19,10 +19,12 @@ import static org.springframework.security.crypto.encrypt.CipherUtils.doFinal;
 import static org.springframework.security.crypto.encrypt.CipherUtils.initCipher;
 import static org.springframework.security.crypto.encrypt.CipherUtils.newCipher;
 import static org.springframework.security.crypto.encrypt.CipherUtils.newSecretKey;
-import static org.springframework.security.crypto.util.EncodingUtils.concatenate;
 import static org.springframework.security.crypto.util.EncodingUtils.subArray;
 
 import java.security.spec.AlgorithmParameterSpec;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.crypto.Cipher;
 import javax.crypto.SecretKey;
@@ -37,6 +39,13 @@ import org.springframework.security.crypto.keygen.KeyGenerators;
 
 /**
  * Encryptor that uses 256-bit AES encryption.
+ * <p>
+ * A {@link Cipher} is not thread-safe, so every encryption and decryption borrows a
+ * cipher from a pool of instances initialized from the same key, rather than serializing
+ * all threads on a single shared instance. A new cipher is created whenever the pool is
+ * empty. At most a fixed number of idle ciphers is retained, and a cipher is discarded
+ * rather than reused if an encryption or decryption with it fails. The wire format is
+ * the same as with a single cipher.
  *
  * @author Keith Donald
  * @author Dave Syer
@@ -45,9 +54,9 @@ final class AesBytesEncryptor implements BytesEncryptor {
 
 	private final SecretKey secretKey;
 
-	private final Cipher encryptor;
+	private final Queue<Cipher> ciphers = new ConcurrentLinkedQueue<Cipher>();
 
-	private final Cipher decryptor;
+	private final AtomicInteger pooledCipherCount = new AtomicInteger();
 
 	private final BytesKeyGenerator ivGenerator;
 
@@ -57,6 +66,9 @@ final class AesBytesEncryptor implements BytesEncryptor {
 
 	private static final String AES_GCM_ALGORITHM = "AES/GCM/NoPadding";
 
+	private static final int MAX_POOLED_CIPHERS = Math.max(64, 4 * Runtime
+			.getRuntime().availableProcessors());
+
 	public enum CipherAlgorithm {
 
 		CBC(AES_CBC_ALGORITHM, NULL_IV_GENERATOR), GCM(AES_GCM_ALGORITHM, KeyGenerators
@@ -104,43 +116,64 @@ final class AesBytesEncryptor implements BytesEncryptor {
 		SecretKey secretKey = newSecretKey("PBKDF2WithHmacSHA1", keySpec);
 		this.secretKey = new SecretKeySpec(secretKey.getEncoded(), "AES");
 		this.alg = alg;
-		this.encryptor = alg.createCipher();
-		this.decryptor = alg.createCipher();
+		releaseCipher(alg.createCipher());
 		this.ivGenerator = ivGenerator != null ? ivGenerator : alg.defaultIvGenerator();
 	}
 
 	public byte[] encrypt(byte[] bytes) {
-		synchronized (this.encryptor) {
-			byte[] iv = this.ivGenerator.generateKey();
-			initCipher(this.encryptor, Cipher.ENCRYPT_MODE, this.secretKey,
-					this.alg.getParameterSpec(iv));
-			byte[] encrypted = doFinal(this.encryptor, bytes);
-			return this.ivGenerator != NULL_IV_GENERATOR ? concatenate(iv, encrypted)
-					: encrypted;
-		}
+		byte[] iv = this.ivGenerator.generateKey();
+		Cipher encryptor = acquireCipher();
+		initCipher(encryptor, Cipher.ENCRYPT_MODE, this.secretKey,
+				this.alg.getParameterSpec(iv));
+		byte[] encrypted = this.ivGenerator != NULL_IV_GENERATOR ? doFinal(encryptor,
+				iv, bytes) : doFinal(encryptor, bytes);
+		releaseCipher(encryptor);
+		return encrypted;
 	}
 
 	public byte[] decrypt(byte[] encryptedBytes) {
-		synchronized (this.decryptor) {
-			byte[] iv = iv(encryptedBytes);
-			initCipher(this.decryptor, Cipher.DECRYPT_MODE, this.secretKey,
-					this.alg.getParameterSpec(iv));
-			return doFinal(
-					this.decryptor,
-					this.ivGenerator != NULL_IV_GENERATOR ? encrypted(encryptedBytes,
-							iv.length) : encryptedBytes);
-		}
+		byte[] iv = iv(encryptedBytes);
+		Cipher decryptor = acquireCipher();
+		initCipher(decryptor, Cipher.DECRYPT_MODE, this.secretKey,
+				this.alg.getParameterSpec(iv));
+		byte[] decrypted = doFinal(decryptor, encryptedBytes, ivLength(),
+				encryptedBytes.length - ivLength());
+		releaseCipher(decryptor);
+		return decrypted;
 	}
 
 	// internal helpers
 
+	private Cipher acquireCipher() {
+		Cipher cipher = this.ciphers.poll();
+		if (cipher == null) {
+			return this.alg.createCipher();
+		}
+		this.pooledCipherCount.decrementAndGet();
+		return cipher;
+	}
+
+	/**
+	 * Returns a cipher to the pool unless the pool is full. Ciphers are deliberately not
+	 * released when an invocation fails, so that no cipher left in an inconsistent state
+	 * is reused.
+	 */
+	private void releaseCipher(Cipher cipher) {
+		if (this.pooledCipherCount.incrementAndGet() > MAX_POOLED_CIPHERS) {
+			this.pooledCipherCount.decrementAndGet();
+			return;
+		}
+		this.ciphers.offer(cipher);
+	}
+
 	private byte[] iv(byte[] encrypted) {
 		return this.ivGenerator != NULL_IV_GENERATOR ? subArray(encrypted, 0,
 				this.ivGenerator.getKeyLength()) : NULL_IV_GENERATOR.generateKey();
 	}
 
-	private byte[] encrypted(byte[] encryptedBytes, int ivLength) {
-		return subArray(encryptedBytes, ivLength, encryptedBytes.length);
+	private int ivLength() {
+		return this.ivGenerator != NULL_IV_GENERATOR ? this.ivGenerator.getKeyLength()
+				: 0;
 	}
 
 	private static final BytesKeyGenerator NULL_IV_GENERATOR = new BytesKeyGenerator() {
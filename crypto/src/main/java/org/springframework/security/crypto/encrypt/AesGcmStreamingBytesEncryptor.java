@@ -0,0 +1,585 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.crypto.encrypt;
+
+import static org.springframework.security.crypto.encrypt.CipherUtils.newCipher;
+import static org.springframework.security.crypto.encrypt.CipherUtils.newSecretKey;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.security.GeneralSecurityException;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.springframework.security.crypto.codec.Hex;
+import org.springframework.security.crypto.keygen.BytesKeyGenerator;
+import org.springframework.security.crypto.keygen.KeyGenerators;
+
+/**
+ * Streaming encryptor that uses 256-bit AES encryption in Galois Counter Mode (GCM).
+ * <p>
+ * The secret key is derived from the password in the same way as by
+ * {@link AesBytesEncryptor}. The encrypted data starts with a header consisting of a
+ * version byte, the segment size and a random 16 byte salt. Every stream is encrypted
+ * with its own key, which is the HMAC-SHA256 of the salt keyed with the secret key, so
+ * that the initialization vectors of the segments can be derived from their index
+ * without ever being reused. The header is followed by the segments, each holding
+ * exactly {@code segmentSize} bytes of data, except for the last one which holds less,
+ * possibly none, followed by the 16 byte authentication tag. The initialization vector
+ * of a segment consists of its index and a flag marking the last segment, and the header
+ * is authenticated as additional data of every segment.
+ *
+ * @since 4.2
+ */
+final class AesGcmStreamingBytesEncryptor implements StreamingBytesEncryptor {
+
+	static final int DEFAULT_SEGMENT_SIZE = 64 * 1024;
+
+	private static final int MAX_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+	private static final byte VERSION = 1;
+
+	private static final int SALT_LENGTH = 16;
+
+	private static final int HEADER_LENGTH = 1 + 4 + SALT_LENGTH;
+
+	private static final int TAG_LENGTH = 16;
+
+	private static final String AES_GCM_ALGORITHM = "AES/GCM/NoPadding";
+
+	private static final String KEY_DERIVATION_ALGORITHM = "HmacSHA256";
+
+	private final SecretKey secretKey;
+
+	private final int segmentSize;
+
+	private final BytesKeyGenerator saltGenerator = KeyGenerators
+			.secureRandom(SALT_LENGTH);
+
+	AesGcmStreamingBytesEncryptor(String password, CharSequence salt) {
+		this(password, salt, DEFAULT_SEGMENT_SIZE);
+	}
+
+	AesGcmStreamingBytesEncryptor(String password, CharSequence salt, int segmentSize) {
+		if (segmentSize <= 0 || segmentSize > MAX_SEGMENT_SIZE) {
+			throw new IllegalArgumentException("segmentSize must be between 1 and "
+					+ MAX_SEGMENT_SIZE);
+		}
+		PBEKeySpec keySpec = new PBEKeySpec(password.toCharArray(), Hex.decode(salt),
+				1024, 256);
+		SecretKey secretKey = newSecretKey("PBKDF2WithHmacSHA1", keySpec);
+		this.secretKey = new SecretKeySpec(secretKey.getEncoded(),
+				KEY_DERIVATION_ALGORITHM);
+		this.segmentSize = segmentSize;
+	}
+
+	public OutputStream encrypt(final OutputStream out) throws IOException {
+		final Encryption encryption = new Encryption(new Sink() {
+			public void write(ByteBuffer buffer) throws IOException {
+				out.write(buffer.array(), buffer.arrayOffset() + buffer.position(),
+						buffer.remaining());
+				buffer.position(buffer.limit());
+			}
+
+			public void close() throws IOException {
+				out.close();
+			}
+		}, false);
+
+		return new OutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				write(new byte[] { (byte) b }, 0, 1);
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				encryption.write(ByteBuffer.wrap(b, off, len));
+			}
+
+			@Override
+			public void flush() throws IOException {
+				out.flush();
+			}
+
+			@Override
+			public void close() throws IOException {
+				encryption.close();
+			}
+		};
+	}
+
+	public InputStream decrypt(final InputStream in) throws IOException {
+		final Decryption decryption = new Decryption(new Source() {
+			public int read(ByteBuffer buffer) throws IOException {
+				int count = in.read(buffer.array(),
+						buffer.arrayOffset() + buffer.position(), buffer.remaining());
+				if (count > 0) {
+					buffer.position(buffer.position() + count);
+				}
+				return count;
+			}
+
+			public void close() throws IOException {
+				in.close();
+			}
+		}, false);
+
+		return new InputStream() {
+			@Override
+			public int read() throws IOException {
+				byte[] b = new byte[1];
+				return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				return decryption.read(ByteBuffer.wrap(b, off, len));
+			}
+
+			@Override
+			public int available() throws IOException {
+				return decryption.available();
+			}
+
+			@Override
+			public void close() throws IOException {
+				decryption.close();
+			}
+		};
+	}
+
+	public WritableByteChannel encrypt(final WritableByteChannel channel)
+			throws IOException {
+		final Encryption encryption = new Encryption(new Sink() {
+			public void write(ByteBuffer buffer) throws IOException {
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+			}
+
+			public void close() throws IOException {
+				channel.close();
+			}
+		}, true);
+
+		return new WritableByteChannel() {
+			public int write(ByteBuffer src) throws IOException {
+				return encryption.write(src);
+			}
+
+			public boolean isOpen() {
+				return !encryption.closed;
+			}
+
+			public void close() throws IOException {
+				encryption.close();
+			}
+		};
+	}
+
+	public ReadableByteChannel decrypt(final ReadableByteChannel channel)
+			throws IOException {
+		final Decryption decryption = new Decryption(new Source() {
+			public int read(ByteBuffer buffer) throws IOException {
+				return channel.read(buffer);
+			}
+
+			public void close() throws IOException {
+				channel.close();
+			}
+		}, true);
+
+		return new ReadableByteChannel() {
+			public int read(ByteBuffer dst) throws IOException {
+				return decryption.read(dst);
+			}
+
+			public boolean isOpen() {
+				return !decryption.closed;
+			}
+
+			public void close() throws IOException {
+				decryption.close();
+			}
+		};
+	}
+
+	public int encrypt(ByteBuffer plaintext, ByteBuffer ciphertext) {
+		if (ciphertext.remaining() < getEncryptedLength(plaintext.remaining())) {
+			throw new IllegalArgumentException(
+					"ciphertext buffer is too small to hold the encrypted data");
+		}
+		int start = ciphertext.position();
+		byte[] header = newHeader();
+		ciphertext.put(header);
+		try {
+			SegmentCipher cipher = new SegmentCipher(header);
+			while (plaintext.remaining() >= this.segmentSize) {
+				cipher.encrypt(plaintext, this.segmentSize, ciphertext, false);
+			}
+			cipher.encrypt(plaintext, plaintext.remaining(), ciphertext, true);
+		}
+		catch (GeneralSecurityException e) {
+			throw new IllegalStateException("Unable to encrypt data", e);
+		}
+		return ciphertext.position() - start;
+	}
+
+	public int decrypt(ByteBuffer ciphertext, ByteBuffer plaintext) {
+		if (ciphertext.remaining() < HEADER_LENGTH) {
+			throw new IllegalStateException("Encrypted data is truncated");
+		}
+		int start = plaintext.position();
+		byte[] header = new byte[HEADER_LENGTH];
+		ciphertext.get(header);
+		try {
+			SegmentCipher cipher = new SegmentCipher(header);
+			int segmentLength = cipher.segmentSize + TAG_LENGTH;
+			boolean last = false;
+			while (!last) {
+				int length = ciphertext.remaining();
+				last = length < segmentLength;
+				if (last && length < TAG_LENGTH) {
+					throw new IllegalStateException("Encrypted data is truncated");
+				}
+				cipher.decrypt(ciphertext, last ? length : segmentLength, plaintext,
+						last);
+			}
+		}
+		catch (GeneralSecurityException e) {
+			throw new IllegalStateException("Unable to decrypt data", e);
+		}
+		return plaintext.position() - start;
+	}
+
+	public long getEncryptedLength(long plaintextLength) {
+		long segments = plaintextLength / this.segmentSize + 1;
+		return HEADER_LENGTH + plaintextLength + segments * TAG_LENGTH;
+	}
+
+	// internal helpers
+
+	private byte[] newHeader() {
+		byte[] header = new byte[HEADER_LENGTH];
+		header[0] = VERSION;
+		header[1] = (byte) (this.segmentSize >>> 24);
+		header[2] = (byte) (this.segmentSize >>> 16);
+		header[3] = (byte) (this.segmentSize >>> 8);
+		header[4] = (byte) this.segmentSize;
+		System.arraycopy(this.saltGenerator.generateKey(), 0, header, 5, SALT_LENGTH);
+		return header;
+	}
+
+	private static ByteBuffer allocate(int capacity, boolean direct) {
+		return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer
+				.allocate(capacity);
+	}
+
+	/**
+	 * Transfers as many bytes as possible from {@code src} to {@code dst}.
+	 */
+	private static int transfer(ByteBuffer src, ByteBuffer dst) {
+		int count = Math.min(src.remaining(), dst.remaining());
+		int limit = src.limit();
+		src.limit(src.position() + count);
+		dst.put(src);
+		src.limit(limit);
+		return count;
+	}
+
+	/**
+	 * Encrypts and decrypts the segments of a single stream.
+	 */
+	private final class SegmentCipher {
+		private final Cipher cipher = newCipher(AES_GCM_ALGORITHM);
+		private final byte[] header;
+		private final int segmentSize;
+		private final SecretKey key;
+		private final byte[] iv = new byte[12];
+		private int segmentIndex;
+
+		private SegmentCipher(byte[] header) throws GeneralSecurityException {
+			if (header[0] != VERSION) {
+				throw new GeneralSecurityException("Unsupported version " + header[0]);
+			}
+			int segmentSize = ((header[1] & 0xff) << 24) | ((header[2] & 0xff) << 16)
+					| ((header[3] & 0xff) << 8) | (header[4] & 0xff);
+			if (segmentSize <= 0 || segmentSize > MAX_SEGMENT_SIZE) {
+				throw new GeneralSecurityException("Invalid segment size "
+						+ segmentSize);
+			}
+			Mac mac = Mac.getInstance(KEY_DERIVATION_ALGORITHM);
+			mac.init(AesGcmStreamingBytesEncryptor.this.secretKey);
+			mac.update(header, 5, SALT_LENGTH);
+			this.key = new SecretKeySpec(mac.doFinal(), "AES");
+			this.header = header;
+			this.segmentSize = segmentSize;
+		}
+
+		/**
+		 * Encrypts the next {@code length} bytes of {@code in} as the next segment.
+		 */
+		void encrypt(ByteBuffer in, int length, ByteBuffer out, boolean last)
+				throws GeneralSecurityException {
+			doFinal(Cipher.ENCRYPT_MODE, in, length, out, last);
+		}
+
+		/**
+		 * Decrypts the next {@code length} bytes of {@code in} as the next segment.
+		 */
+		void decrypt(ByteBuffer in, int length, ByteBuffer out, boolean last)
+				throws GeneralSecurityException {
+			doFinal(Cipher.DECRYPT_MODE, in, length, out, last);
+		}
+
+		private void doFinal(int mode, ByteBuffer in, int length, ByteBuffer out,
+				boolean last) throws GeneralSecurityException {
+			if (this.segmentIndex < 0) {
+				throw new GeneralSecurityException("Too many segments");
+			}
+			int index = this.segmentIndex++;
+			this.iv[7] = (byte) (index >>> 24);
+			this.iv[8] = (byte) (index >>> 16);
+			this.iv[9] = (byte) (index >>> 8);
+			this.iv[10] = (byte) index;
+			this.iv[11] = (byte) (last ? 1 : 0);
+			this.cipher.init(mode, this.key, new GCMParameterSpec(TAG_LENGTH * 8,
+					this.iv));
+			this.cipher.updateAAD(this.header);
+			int limit = in.limit();
+			in.limit(in.position() + length);
+			try {
+				this.cipher.doFinal(in, out);
+			}
+			finally {
+				in.limit(limit);
+			}
+		}
+	}
+
+	private interface Sink {
+		void write(ByteBuffer buffer) throws IOException;
+
+		void close() throws IOException;
+	}
+
+	private interface Source {
+		/**
+		 * Reads into the buffer, returning -1 at the end of the data.
+		 */
+		int read(ByteBuffer buffer) throws IOException;
+
+		void close() throws IOException;
+	}
+
+	/**
+	 * Buffers the data of the current segment and writes the encrypted segments to a
+	 * {@link Sink}. Full segments are encrypted directly from the data being written.
+	 */
+	private final class Encryption {
+		private final Sink sink;
+		private final SegmentCipher cipher;
+		private final ByteBuffer plaintext;
+		private final ByteBuffer ciphertext;
+		private boolean closed;
+
+		private Encryption(Sink sink, boolean direct) throws IOException {
+			byte[] header = newHeader();
+			try {
+				this.cipher = new SegmentCipher(header);
+			}
+			catch (GeneralSecurityException e) {
+				throw new IOException("Unable to initialize encryption", e);
+			}
+			this.sink = sink;
+			this.plaintext = allocate(AesGcmStreamingBytesEncryptor.this.segmentSize,
+					direct);
+			this.ciphertext = allocate(AesGcmStreamingBytesEncryptor.this.segmentSize
+					+ TAG_LENGTH, direct);
+			sink.write(ByteBuffer.wrap(header));
+		}
+
+		int write(ByteBuffer src) throws IOException {
+			if (this.closed) {
+				throw new ClosedChannelException();
+			}
+			int count = src.remaining();
+			int segmentSize = AesGcmStreamingBytesEncryptor.this.segmentSize;
+			while (src.hasRemaining()) {
+				if (this.plaintext.position() == 0 && src.remaining() >= segmentSize) {
+					encryptSegment(src, segmentSize, false);
+				}
+				else {
+					transfer(src, this.plaintext);
+					if (!this.plaintext.hasRemaining()) {
+						this.plaintext.flip();
+						encryptSegment(this.plaintext, segmentSize, false);
+						this.plaintext.clear();
+					}
+				}
+			}
+			return count;
+		}
+
+		void close() throws IOException {
+			if (this.closed) {
+				return;
+			}
+			this.closed = true;
+			try {
+				this.plaintext.flip();
+				encryptSegment(this.plaintext, this.plaintext.remaining(), true);
+			}
+			finally {
+				this.sink.close();
+			}
+		}
+
+		private void encryptSegment(ByteBuffer src, int length, boolean last)
+				throws IOException {
+			this.ciphertext.clear();
+			try {
+				this.cipher.encrypt(src, length, this.ciphertext, last);
+			}
+			catch (GeneralSecurityException e) {
+				throw new IOException("Unable to encrypt segment", e);
+			}
+			this.ciphertext.flip();
+			this.sink.write(this.ciphertext);
+		}
+	}
+
+	/**
+	 * Reads the encrypted segments from a {@link Source} and buffers the data of the
+	 * current segment. Segments are decrypted directly to the destination buffer if it
+	 * has sufficient space.
+	 */
+	private final class Decryption {
+		private final Source source;
+		private final boolean direct;
+		private SegmentCipher cipher;
+		private ByteBuffer ciphertext;
+		private ByteBuffer plaintext;
+		private boolean last;
+		private boolean closed;
+
+		private Decryption(Source source, boolean direct) {
+			this.source = source;
+			this.direct = direct;
+		}
+
+		int read(ByteBuffer dst) throws IOException {
+			if (this.closed) {
+				throw new ClosedChannelException();
+			}
+			if (this.cipher == null) {
+				readHeader();
+			}
+			if (!dst.hasRemaining()) {
+				return 0;
+			}
+			while (!this.plaintext.hasRemaining()) {
+				if (this.last) {
+					return -1;
+				}
+				int length = readSegment();
+				if (length > 0 && dst.remaining() >= length) {
+					decryptSegment(dst);
+					return length;
+				}
+				this.plaintext.clear();
+				decryptSegment(this.plaintext);
+				this.plaintext.flip();
+			}
+			return transfer(this.plaintext, dst);
+		}
+
+		int available() {
+			return this.plaintext == null ? 0 : this.plaintext.remaining();
+		}
+
+		void close() throws IOException {
+			if (!this.closed) {
+				this.closed = true;
+				this.source.close();
+			}
+		}
+
+		private void readHeader() throws IOException {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+			if (fill(header) < HEADER_LENGTH) {
+				throw new IOException("Encrypted data is truncated");
+			}
+			try {
+				this.cipher = new SegmentCipher(header.array());
+			}
+			catch (GeneralSecurityException e) {
+				throw new IOException("Unable to initialize decryption", e);
+			}
+			this.ciphertext = allocate(this.cipher.segmentSize + TAG_LENGTH, this.direct);
+			this.plaintext = allocate(this.cipher.segmentSize, this.direct);
+			this.plaintext.limit(0);
+		}
+
+		/**
+		 * Reads the next segment, returning the length of its data.
+		 */
+		private int readSegment() throws IOException {
+			this.ciphertext.clear();
+			int length = fill(this.ciphertext);
+			this.last = length < this.ciphertext.capacity();
+			if (length < TAG_LENGTH) {
+				throw new IOException("Encrypted data is truncated");
+			}
+			this.ciphertext.flip();
+			return length - TAG_LENGTH;
+		}
+
+		private void decryptSegment(ByteBuffer dst) throws IOException {
+			try {
+				this.cipher.decrypt(this.ciphertext, this.ciphertext.remaining(), dst,
+						this.last);
+			}
+			catch (GeneralSecurityException e) {
+				throw new IOException("Unable to decrypt segment", e);
+			}
+		}
+
+		/**
+		 * Reads until the buffer is full or the end of the data is reached.
+		 */
+		private int fill(ByteBuffer buffer) throws IOException {
+			int start = buffer.position();
+			while (buffer.hasRemaining()) {
+				if (this.source.read(buffer) == -1) {
+					break;
+				}
+			}
+			return buffer.position() - start;
+		}
+	}
+}
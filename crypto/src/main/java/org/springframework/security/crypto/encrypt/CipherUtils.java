@@ -28,6 +28,7 @@ import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.NoSuchPaddingException;
 import javax.crypto.SecretKey;
 import javax.crypto.SecretKeyFactory;
+import javax.crypto.ShortBufferException;
 import javax.crypto.spec.PBEKeySpec;
 import javax.crypto.spec.PBEParameterSpec;
 
@@ -144,6 +145,56 @@ class CipherUtils {
 		}
 	}
 
+	/**
+	 * Invokes the Cipher to perform encryption or decryption (depending on the
+	 * initialized mode) of a part of the input.
+	 */
+	public static byte[] doFinal(Cipher cipher, byte[] input, int offset, int length) {
+		try {
+			return cipher.doFinal(input, offset, length);
+		}
+		catch (IllegalBlockSizeException e) {
+			throw new IllegalStateException(
+					"Unable to invoke Cipher due to illegal block size", e);
+		}
+		catch (BadPaddingException e) {
+			throw new IllegalStateException("Unable to invoke Cipher due to bad padding",
+					e);
+		}
+	}
+
+	/**
+	 * Invokes the Cipher to perform encryption or decryption (depending on the
+	 * initialized mode), writing the output after the prefix into a single array.
+	 */
+	public static byte[] doFinal(Cipher cipher, byte[] prefix, byte[] input) {
+		byte[] output = new byte[prefix.length + cipher.getOutputSize(input.length)];
+		System.arraycopy(prefix, 0, output, 0, prefix.length);
+		int length;
+		try {
+			length = prefix.length
+					+ cipher.doFinal(input, 0, input.length, output, prefix.length);
+		}
+		catch (ShortBufferException e) {
+			throw new IllegalStateException(
+					"Unable to invoke Cipher due to short buffer", e);
+		}
+		catch (IllegalBlockSizeException e) {
+			throw new IllegalStateException(
+					"Unable to invoke Cipher due to illegal block size", e);
+		}
+		catch (BadPaddingException e) {
+			throw new IllegalStateException("Unable to invoke Cipher due to bad padding",
+					e);
+		}
+		if (length == output.length) {
+			return output;
+		}
+		byte[] result = new byte[length];
+		System.arraycopy(output, 0, result, 0, length);
+		return result;
+	}
+
 	private CipherUtils() {
 	}
 
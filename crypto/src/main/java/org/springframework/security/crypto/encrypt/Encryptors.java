@@ -66,6 +66,24 @@ public class Encryptors {
 				KeyGenerators.secureRandom(16));
 	}
 
+	/**
+	 * Creates a password-based encryptor for large amounts of data, such as exports or
+	 * files, using 256 bit AES encryption with Galois Counter Mode (GCM). The secret key
+	 * is derived in the same way as by {@link #stronger(CharSequence, CharSequence)}, but
+	 * the data is encrypted in segments of 64 KB, each of which is authenticated, so that
+	 * it can be encrypted and decrypted in constant memory.
+	 *
+	 * @param password the password used to generate the encryptor's secret key; should
+	 * not be shared
+	 * @param salt a hex-encoded, random, site-global salt value to use to generate the
+	 * key
+	 * @since 4.2
+	 */
+	public static StreamingBytesEncryptor streaming(CharSequence password,
+			CharSequence salt) {
+		return new AesGcmStreamingBytesEncryptor(password.toString(), salt);
+	}
+
 	/**
 	 * Creates a text encryptor that uses "stronger" password-based encryption. Encrypted
 	 * text is hex-encoded.
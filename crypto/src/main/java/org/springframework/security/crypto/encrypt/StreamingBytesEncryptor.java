@@ -0,0 +1,113 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.crypto.encrypt;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Service interface for symmetric encryption of data which is too large to be held in
+ * memory as a whole, such as exports or files.
+ * <p>
+ * The data is encrypted as a sequence of independently authenticated segments, so that
+ * it can be processed in constant memory. All variants produce and accept the same
+ * format, for example data encrypted to an {@link OutputStream} may be decrypted from a
+ * {@link ByteBuffer}. Decryption fails if any segment has been modified, reordered,
+ * removed or appended, or if the data has been truncated.
+ *
+ * @since 4.2
+ * @see Encryptors#streaming(CharSequence, CharSequence)
+ */
+public interface StreamingBytesEncryptor {
+
+	/**
+	 * Returns a stream which encrypts the data written to it to the supplied stream. The
+	 * returned stream must be closed to complete the encrypted data, which also closes
+	 * the supplied stream.
+	 *
+	 * @param out the stream receiving the encrypted data
+	 * @return the stream accepting the data to encrypt
+	 */
+	OutputStream encrypt(OutputStream out) throws IOException;
+
+	/**
+	 * Returns a stream which decrypts the data read from the supplied stream. Closing the
+	 * returned stream also closes the supplied stream.
+	 *
+	 * @param in the stream providing the encrypted data
+	 * @return the stream providing the decrypted data
+	 * @throws IOException if reading from the supplied stream fails, or if the encrypted
+	 * data is not authentic
+	 */
+	InputStream decrypt(InputStream in) throws IOException;
+
+	/**
+	 * Returns a channel which encrypts the data written to it to the supplied channel.
+	 * The returned channel must be closed to complete the encrypted data, which also
+	 * closes the supplied channel.
+	 *
+	 * @param channel the channel receiving the encrypted data
+	 * @return the channel accepting the data to encrypt
+	 */
+	WritableByteChannel encrypt(WritableByteChannel channel) throws IOException;
+
+	/**
+	 * Returns a channel which decrypts the data read from the supplied channel. Closing
+	 * the returned channel also closes the supplied channel.
+	 *
+	 * @param channel the channel providing the encrypted data
+	 * @return the channel providing the decrypted data
+	 * @throws IOException if reading from the supplied channel fails, or if the
+	 * encrypted data is not authentic
+	 */
+	ReadableByteChannel decrypt(ReadableByteChannel channel) throws IOException;
+
+	/**
+	 * Encrypts the remaining bytes of {@code plaintext} to {@code ciphertext}, which must
+	 * have at least {@link #getEncryptedLength(long)} bytes remaining. Direct buffers are
+	 * encrypted without copying the data to the heap.
+	 *
+	 * @param plaintext the data to encrypt
+	 * @param ciphertext the buffer receiving the encrypted data
+	 * @return the number of bytes written to {@code ciphertext}
+	 */
+	int encrypt(ByteBuffer plaintext, ByteBuffer ciphertext);
+
+	/**
+	 * Decrypts the remaining bytes of {@code ciphertext} to {@code plaintext}, which must
+	 * have at least as many bytes remaining as the data has been encrypted from.
+	 *
+	 * @param ciphertext the encrypted data
+	 * @param plaintext the buffer receiving the decrypted data
+	 * @return the number of bytes written to {@code plaintext}
+	 * @throws IllegalStateException if the encrypted data is not authentic
+	 */
+	int decrypt(ByteBuffer ciphertext, ByteBuffer plaintext);
+
+	/**
+	 * Returns the length of the encrypted data for the given length of the data to
+	 * encrypt.
+	 *
+	 * @param plaintextLength the length of the data to encrypt
+	 * @return the length of the encrypted data
+	 */
+	long getEncryptedLength(long plaintextLength);
+
+}
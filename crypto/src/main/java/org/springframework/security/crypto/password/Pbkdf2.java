@@ -0,0 +1,309 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.crypto.password;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder.SecretKeyFactoryAlgorithm;
+
+/**
+ * An implementation of PBKDF2 (RFC 2898) with HMAC-SHA1, HMAC-SHA256 and HMAC-SHA512 as
+ * pseudorandom function, which derives the same keys as the corresponding
+ * {@code SecretKeyFactory} algorithms but only depends on the {@link MessageDigest}
+ * algorithms, which are available on all supported Java versions.
+ * <p>
+ * A {@code Mac} compresses the inner and the outer padded key again for every HMAC, so
+ * that half of the hashing done by a {@code SecretKeyFactory} is spent on the key.
+ * Instead, the digest states after the padded keys are computed once per password, and
+ * every iteration continues from copies of these states. Idle digests are kept in a
+ * small pool per algorithm, and their state is reset after every derivation.
+ *
+ * @since 4.2
+ */
+final class Pbkdf2 {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static final int MAX_POOLED_PRFS = 2 * Runtime.getRuntime()
+			.availableProcessors();
+
+	private static final PrfPool hmacSha1 = new PrfPool("SHA-1", 64);
+
+	private static final PrfPool hmacSha256 = new PrfPool("SHA-256", 64);
+
+	private static final PrfPool hmacSha512 = new PrfPool("SHA-512", 128);
+
+	private Pbkdf2() {
+	}
+
+	/**
+	 * Derives a key from the password. The password is encoded using UTF-8, with
+	 * malformed characters replaced, in the same way as by the {@code SecretKeyFactory}.
+	 *
+	 * @param algorithm the PBKDF2 algorithm
+	 * @param password the password
+	 * @param salt the salt
+	 * @param iterations the number of iterations
+	 * @param keyLength the length of the derived key in bits, which is truncated to a
+	 * multiple of 8
+	 * @return the derived key
+	 */
+	static byte[] deriveKey(SecretKeyFactoryAlgorithm algorithm, CharSequence password,
+			byte[] salt, int iterations, int keyLength) {
+		if (salt == null || salt.length == 0) {
+			throw new IllegalArgumentException(
+					"the salt parameter must be non-null and non-empty");
+		}
+		if (iterations <= 0) {
+			throw new IllegalArgumentException("invalid iterationCount value");
+		}
+		if (keyLength <= 0) {
+			throw new IllegalArgumentException("invalid keyLength value");
+		}
+
+		PrfPool pool = pool(algorithm);
+		Prf prf = pool.acquire();
+		byte[] passwordBytes = encode(password);
+		byte[] key = new byte[keyLength / 8];
+		try {
+			prf.init(passwordBytes);
+			int digestLength = prf.digestLength;
+			int block = 1;
+			for (int offset = 0; offset < key.length; offset += digestLength) {
+				prf.deriveBlock(salt, block++, iterations, key, offset,
+						Math.min(digestLength, key.length - offset));
+			}
+			return key;
+		}
+		finally {
+			prf.clear();
+			pool.release(prf);
+			Arrays.fill(passwordBytes, (byte) 0);
+		}
+	}
+
+	private static PrfPool pool(SecretKeyFactoryAlgorithm algorithm) {
+		switch (algorithm) {
+		case PBKDF2WithHmacSHA1:
+			return hmacSha1;
+		case PBKDF2WithHmacSHA256:
+			return hmacSha256;
+		case PBKDF2WithHmacSHA512:
+			return hmacSha512;
+		default:
+			throw new IllegalArgumentException("Unsupported algorithm " + algorithm);
+		}
+	}
+
+	private static byte[] encode(CharSequence password) {
+		ByteBuffer encoded = UTF_8.encode(CharBuffer.wrap(password));
+		byte[] bytes = new byte[encoded.remaining()];
+		encoded.get(bytes);
+		if (encoded.hasArray()) {
+			Arrays.fill(encoded.array(), (byte) 0);
+		}
+		return bytes;
+	}
+
+	/**
+	 * A bounded pool of idle {@link Prf} instances of one algorithm. Unlike a
+	 * {@code ThreadLocal}, it does not keep instances of this class reachable from
+	 * container threads once the application is undeployed.
+	 */
+	private static final class PrfPool {
+		private final String algorithm;
+		private final int blockLength;
+		private final Queue<Prf> prfs = new ConcurrentLinkedQueue<Prf>();
+		private final AtomicInteger pooledPrfCount = new AtomicInteger();
+
+		private PrfPool(String algorithm, int blockLength) {
+			this.algorithm = algorithm;
+			this.blockLength = blockLength;
+		}
+
+		Prf acquire() {
+			Prf prf = this.prfs.poll();
+			if (prf == null) {
+				return new Prf(this.algorithm, this.blockLength);
+			}
+			this.pooledPrfCount.decrementAndGet();
+			return prf;
+		}
+
+		/**
+		 * Returns a cleared {@link Prf} to the pool unless the pool is full.
+		 */
+		void release(Prf prf) {
+			if (this.pooledPrfCount.incrementAndGet() > MAX_POOLED_PRFS) {
+				this.pooledPrfCount.decrementAndGet();
+				return;
+			}
+			this.prfs.offer(prf);
+		}
+	}
+
+	/**
+	 * An HMAC which retains the digest states after the padded keys between the
+	 * iterations of PBKDF2.
+	 */
+	private static final class Prf {
+		private final String algorithm;
+		private final int blockLength;
+		private final int digestLength;
+		private final MessageDigest inner;
+		private final MessageDigest outer;
+		private final byte[] paddedKey;
+		private final byte[] u;
+		private final byte[] t;
+		private boolean cloneable = true;
+
+		private Prf(String algorithm, int blockLength) {
+			this.algorithm = algorithm;
+			this.blockLength = blockLength;
+			this.inner = createDigest(algorithm);
+			this.outer = createDigest(algorithm);
+			this.digestLength = this.inner.getDigestLength();
+			this.paddedKey = new byte[blockLength];
+			this.u = new byte[this.digestLength];
+			this.t = new byte[this.digestLength];
+		}
+
+		/**
+		 * Compresses the inner and the outer padded key.
+		 */
+		void init(byte[] password) {
+			byte[] key = password.length > this.blockLength ? this.inner.digest(password)
+					: password;
+			byte[] paddedKey = this.paddedKey;
+			for (int i = 0; i < key.length; i++) {
+				paddedKey[i] = (byte) (key[i] ^ 0x36);
+			}
+			Arrays.fill(paddedKey, key.length, paddedKey.length, (byte) 0x36);
+			this.inner.update(paddedKey);
+			for (int i = 0; i < paddedKey.length; i++) {
+				paddedKey[i] ^= 0x36 ^ 0x5c;
+			}
+			this.outer.update(paddedKey);
+			if (key != password) {
+				Arrays.fill(key, (byte) 0);
+			}
+		}
+
+		/**
+		 * Computes the block {@code U_1 ^ U_2 ^ ... ^ U_c} of the derived key, where
+		 * {@code U_1 = PRF(P, S || INT(i))} and {@code U_j = PRF(P, U_{j-1})}.
+		 */
+		void deriveBlock(byte[] salt, int blockIndex, int iterations, byte[] out,
+				int off, int len) {
+			byte[] u = this.u;
+			byte[] t = this.t;
+
+			MessageDigest digest = copyInner();
+			digest.update(salt);
+			digest.update((byte) (blockIndex >>> 24));
+			digest.update((byte) (blockIndex >>> 16));
+			digest.update((byte) (blockIndex >>> 8));
+			digest.update((byte) blockIndex);
+			digest(digest, u);
+			digest = copyOuter();
+			digest.update(u);
+			digest(digest, u);
+			System.arraycopy(u, 0, t, 0, u.length);
+
+			for (int i = 1; i < iterations; i++) {
+				digest = copyInner();
+				digest.update(u);
+				digest(digest, u);
+				digest = copyOuter();
+				digest.update(u);
+				digest(digest, u);
+				for (int j = 0; j < t.length; j++) {
+					t[j] ^= u[j];
+				}
+			}
+
+			System.arraycopy(t, 0, out, off, len);
+		}
+
+		/**
+		 * Clears all state derived from the password.
+		 */
+		void clear() {
+			this.inner.reset();
+			this.outer.reset();
+			Arrays.fill(this.paddedKey, (byte) 0);
+			Arrays.fill(this.u, (byte) 0);
+			Arrays.fill(this.t, (byte) 0);
+		}
+
+		private MessageDigest copyInner() {
+			return copy(this.inner, 0x36 ^ 0x5c);
+		}
+
+		private MessageDigest copyOuter() {
+			return copy(this.outer, 0);
+		}
+
+		/**
+		 * Clones the digest. If the provider does not support cloning, a new digest is
+		 * created instead, and the padded key is compressed again. As the
+		 * {@code paddedKey} holds the key xor the outer pad, {@code padDifference} is
+		 * the difference of the pad of the digest and the outer pad.
+		 */
+		private MessageDigest copy(MessageDigest digest, int padDifference) {
+			if (this.cloneable) {
+				try {
+					return (MessageDigest) digest.clone();
+				}
+				catch (CloneNotSupportedException e) {
+					this.cloneable = false;
+				}
+			}
+			MessageDigest copy = createDigest(this.algorithm);
+			for (int i = 0; i < this.paddedKey.length; i++) {
+				copy.update((byte) (this.paddedKey[i] ^ padDifference));
+			}
+			return copy;
+		}
+
+		private static void digest(MessageDigest digest, byte[] out) {
+			try {
+				digest.digest(out, 0, out.length);
+			}
+			catch (DigestException e) {
+				throw new IllegalStateException("Could not compute digest", e);
+			}
+		}
+
+		private static MessageDigest createDigest(String algorithm) {
+			try {
+				return MessageDigest.getInstance(algorithm);
+			}
+			catch (NoSuchAlgorithmException e) {
+				throw new IllegalStateException("No such hashing algorithm", e);
+			}
+		}
+	}
+}
@@ -15,11 +15,6 @@
  */
 package org.springframework.security.crypto.password;
 
-import java.security.GeneralSecurityException;
-
-import javax.crypto.SecretKeyFactory;
-import javax.crypto.spec.PBEKeySpec;
-
 import org.springframework.security.crypto.codec.Hex;
 import org.springframework.security.crypto.codec.Utf8;
 import org.springframework.security.crypto.keygen.BytesKeyGenerator;
@@ -35,13 +30,19 @@ import static org.springframework.security.crypto.util.EncodingUtils.subArray;
  * The width of the output hash can also be configured.
  * <p>
  * The algorithm is invoked on the concatenated bytes of the salt, secret and password.
+ * <p>
+ * The pseudorandom function defaults to HMAC-SHA1 and may be changed using
+ * {@link #setAlgorithm(SecretKeyFactoryAlgorithm)}. PBKDF2 is computed by a pure Java
+ * implementation which produces the same keys as the corresponding
+ * {@code SecretKeyFactory} algorithms, but computes the padded key state of the HMAC
+ * only once per password rather than on every iteration, and does not depend on the
+ * algorithms offered by the installed security providers.
  *
  * @author Rob Worsnop
  * @author Rob Winch
  * @since 4.1
  */
 public class Pbkdf2PasswordEncoder implements PasswordEncoder {
-	private static final String PBKDF2_ALGORITHM = "PBKDF2WithHmacSHA1";
 	private static final int DEFAULT_HASH_WIDTH = 256;
 	private static final int DEFAULT_ITERATIONS = 185000;
 
@@ -50,6 +51,7 @@ public class Pbkdf2PasswordEncoder implements PasswordEncoder {
 	private final byte[] secret;
 	private final int hashWidth;
 	private final int iterations;
+	private SecretKeyFactoryAlgorithm algorithm = SecretKeyFactoryAlgorithm.PBKDF2WithHmacSHA1;
 
 	/**
 	 * Constructs a PBKDF2 password encoder with no additional secret value. There will be
@@ -86,6 +88,21 @@ public class Pbkdf2PasswordEncoder implements PasswordEncoder {
 		this.hashWidth = hashWidth;
 	}
 
+	/**
+	 * Sets the algorithm used to hash passwords. Passwords encoded with a different
+	 * algorithm no longer match. Defaults to
+	 * {@link SecretKeyFactoryAlgorithm#PBKDF2WithHmacSHA1}.
+	 *
+	 * @param algorithm the algorithm
+	 * @since 4.2
+	 */
+	public void setAlgorithm(SecretKeyFactoryAlgorithm algorithm) {
+		if (algorithm == null) {
+			throw new IllegalArgumentException("algorithm cannot be null.");
+		}
+		this.algorithm = algorithm;
+	}
+
 	@Override
 	public String encode(CharSequence rawPassword) {
 		byte[] salt = this.saltGenerator.generateKey();
@@ -116,14 +133,17 @@ public class Pbkdf2PasswordEncoder implements PasswordEncoder {
 	}
 
 	private byte[] encode(CharSequence rawPassword, byte[] salt) {
-		try {
-			PBEKeySpec spec = new PBEKeySpec(rawPassword.toString().toCharArray(),
-					concatenate(salt, this.secret), this.iterations, this.hashWidth);
-			SecretKeyFactory skf = SecretKeyFactory.getInstance(PBKDF2_ALGORITHM);
-			return concatenate(salt, skf.generateSecret(spec).getEncoded());
-		}
-		catch (GeneralSecurityException e) {
-			throw new IllegalStateException("Could not create hash", e);
-		}
+		return concatenate(salt, Pbkdf2.deriveKey(this.algorithm, rawPassword,
+				concatenate(salt, this.secret), this.iterations, this.hashWidth));
+	}
+
+	/**
+	 * The PBKDF2 algorithms supported by {@link Pbkdf2PasswordEncoder}, named after the
+	 * corresponding {@code SecretKeyFactory} algorithms.
+	 *
+	 * @since 4.2
+	 */
+	public enum SecretKeyFactoryAlgorithm {
+		PBKDF2WithHmacSHA1, PBKDF2WithHmacSHA256, PBKDF2WithHmacSHA512
 	}
-}
\ No newline at end of file
+}
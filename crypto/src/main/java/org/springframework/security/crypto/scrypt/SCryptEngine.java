@@ -0,0 +1,376 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.crypto.scrypt;
+
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * An implementation of scrypt (RFC 7914) which derives the same keys as the Bouncy
+ * Castle implementation, but can compute the {@code p} independent lanes of the
+ * algorithm in parallel and reuse the large ROMix working buffers.
+ * <p>
+ * If an {@link Executor} is supplied, all lanes but the first are submitted to it,
+ * while the first lane is computed by the calling thread. Lanes which the executor
+ * rejects are computed by the calling thread as well. Without an executor the lanes are
+ * computed one after the other.
+ * <p>
+ * The {@code 128 * r * N} byte ROMix buffers are taken from a pool holding at most
+ * {@code maxPooledBuffers} buffers, so that hashing does not continuously allocate
+ * arrays which are large enough to be allocated directly in the old generation. A
+ * buffer is cleared before it is returned to the pool, and only buffers of the size
+ * requested last are kept.
+ *
+ * @since 4.2
+ */
+final class SCryptEngine {
+
+	private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+	private final Executor executor;
+
+	private final int maxPooledBuffers;
+
+	private final Queue<int[]> pooledBuffers = new ConcurrentLinkedQueue<int[]>();
+
+	private final AtomicInteger pooledBufferCount = new AtomicInteger();
+
+	/**
+	 * Creates a new engine.
+	 *
+	 * @param executor the executor computing the lanes, or null to compute them on the
+	 * calling thread
+	 * @param maxPooledBuffers the maximum number of pooled ROMix buffers, 0 to disable
+	 * pooling
+	 */
+	SCryptEngine(Executor executor, int maxPooledBuffers) {
+		if (maxPooledBuffers < 0) {
+			throw new IllegalArgumentException("maxPooledBuffers must be >= 0.");
+		}
+		this.executor = executor;
+		this.maxPooledBuffers = maxPooledBuffers;
+	}
+
+	/**
+	 * Derives a key using scrypt.
+	 *
+	 * @param password the password
+	 * @param salt the salt
+	 * @param n the cpu cost parameter
+	 * @param r the block size parameter
+	 * @param p the parallelization parameter
+	 * @param dkLen the length of the derived key in bytes
+	 * @return the derived key
+	 */
+	byte[] generate(byte[] password, byte[] salt, final int n, final int r, int p,
+			int dkLen) {
+		if (password == null) {
+			throw new IllegalArgumentException("Passphrase P must be provided.");
+		}
+		if (salt == null) {
+			throw new IllegalArgumentException("Salt S must be provided.");
+		}
+		if (n <= 1) {
+			throw new IllegalArgumentException("Cost parameter N must be > 1.");
+		}
+		// Only value of r that cost (as an int) could be exceeded for is 1
+		if (r == 1 && n >= 65536) {
+			throw new IllegalArgumentException(
+					"Cost parameter N must be > 1 and < 65536.");
+		}
+		if (r < 1) {
+			throw new IllegalArgumentException("Block size r must be >= 1.");
+		}
+		int maxParallel = Integer.MAX_VALUE / (128 * r * 8);
+		if (p < 1 || p > maxParallel) {
+			throw new IllegalArgumentException(
+					"Parallelisation parameter p must be >= 1 and <= " + maxParallel
+							+ " (based on block size r of " + r + ")");
+		}
+		if (dkLen < 1) {
+			throw new IllegalArgumentException(
+					"Generated key length dkLen must be >= 1.");
+		}
+		if ((long) n * 32 * r > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Cost parameter N of " + n
+					+ " is too large for block size r of " + r);
+		}
+
+		final byte[] b = pbkdf2(password, salt, p * 128 * r);
+		try {
+			if (this.executor != null && p > 1) {
+				List<FutureTask<Object>> lanes = new ArrayList<FutureTask<Object>>(p - 1);
+				for (int lane = 1; lane < p; lane++) {
+					final int offset = lane * 128 * r;
+					FutureTask<Object> task = new FutureTask<Object>(new Runnable() {
+						public void run() {
+							roMix(b, offset, n, r);
+						}
+					}, null);
+					try {
+						this.executor.execute(task);
+					}
+					catch (RejectedExecutionException e) {
+						task.run();
+					}
+					lanes.add(task);
+				}
+				try {
+					roMix(b, 0, n, r);
+				}
+				finally {
+					awaitLanes(lanes);
+				}
+			}
+			else {
+				for (int lane = 0; lane < p; lane++) {
+					roMix(b, lane * 128 * r, n, r);
+				}
+			}
+			return pbkdf2(password, b, dkLen);
+		}
+		finally {
+			Arrays.fill(b, (byte) 0);
+		}
+	}
+
+	private static void awaitLanes(List<FutureTask<Object>> lanes) {
+		boolean interrupted = false;
+		try {
+			for (FutureTask<Object> lane : lanes) {
+				while (true) {
+					try {
+						lane.get();
+						break;
+					}
+					catch (InterruptedException e) {
+						// the lane writes to the shared block, so it must complete
+						interrupted = true;
+					}
+					catch (ExecutionException e) {
+						Throwable cause = e.getCause();
+						if (cause instanceof RuntimeException) {
+							throw (RuntimeException) cause;
+						}
+						if (cause instanceof Error) {
+							throw (Error) cause;
+						}
+						throw new IllegalStateException("Could not compute scrypt lane",
+								cause);
+					}
+				}
+			}
+		}
+		finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Applies ROMix to the {@code 128 * r} bytes of the block starting at
+	 * {@code offset}.
+	 */
+	private void roMix(byte[] b, int offset, int n, int r) {
+		int blockWords = 32 * r;
+		int[] x = new int[blockWords];
+		int[] y = new int[blockWords];
+		int[] t = new int[16];
+		int[] v = acquireBuffer(n * blockWords);
+		try {
+			for (int i = 0; i < blockWords; i++) {
+				int off = offset + i * 4;
+				x[i] = (b[off] & 0xff) | ((b[off + 1] & 0xff) << 8)
+						| ((b[off + 2] & 0xff) << 16) | (b[off + 3] << 24);
+			}
+
+			for (int i = 0; i < n; i++) {
+				System.arraycopy(x, 0, v, i * blockWords, blockWords);
+				blockMix(x, y, t, r);
+			}
+
+			int mask = n - 1;
+			int last = (2 * r - 1) * 16;
+			for (int i = 0; i < n; i++) {
+				int j = x[last] & mask;
+				int vOff = j * blockWords;
+				for (int k = 0; k < blockWords; k++) {
+					x[k] ^= v[vOff + k];
+				}
+				blockMix(x, y, t, r);
+			}
+
+			for (int i = 0; i < blockWords; i++) {
+				int word = x[i];
+				int off = offset + i * 4;
+				b[off] = (byte) word;
+				b[off + 1] = (byte) (word >>> 8);
+				b[off + 2] = (byte) (word >>> 16);
+				b[off + 3] = (byte) (word >>> 24);
+			}
+		}
+		finally {
+			Arrays.fill(x, 0);
+			Arrays.fill(y, 0);
+			Arrays.fill(t, 0);
+			releaseBuffer(v);
+		}
+	}
+
+	/**
+	 * Applies BlockMix with Salsa20/8 to {@code b}, using {@code y} and {@code t} as
+	 * scratch space. The output blocks are written to {@code y} in their final order.
+	 */
+	private static void blockMix(int[] b, int[] y, int[] t, int r) {
+		System.arraycopy(b, (2 * r - 1) * 16, t, 0, 16);
+		for (int i = 0; i < 2 * r; i++) {
+			int bOff = i * 16;
+			for (int k = 0; k < 16; k++) {
+				t[k] ^= b[bOff + k];
+			}
+			salsa20_8(t);
+			int yOff = ((i & 1) == 0 ? i >> 1 : r + (i >> 1)) * 16;
+			System.arraycopy(t, 0, y, yOff, 16);
+		}
+		System.arraycopy(y, 0, b, 0, 32 * r);
+	}
+
+	private static void salsa20_8(int[] b) {
+		int x0 = b[0], x1 = b[1], x2 = b[2], x3 = b[3];
+		int x4 = b[4], x5 = b[5], x6 = b[6], x7 = b[7];
+		int x8 = b[8], x9 = b[9], x10 = b[10], x11 = b[11];
+		int x12 = b[12], x13 = b[13], x14 = b[14], x15 = b[15];
+
+		for (int i = 0; i < 8; i += 2) {
+			// columns
+			x4 ^= Integer.rotateLeft(x0 + x12, 7);
+			x8 ^= Integer.rotateLeft(x4 + x0, 9);
+			x12 ^= Integer.rotateLeft(x8 + x4, 13);
+			x0 ^= Integer.rotateLeft(x12 + x8, 18);
+			x9 ^= Integer.rotateLeft(x5 + x1, 7);
+			x13 ^= Integer.rotateLeft(x9 + x5, 9);
+			x1 ^= Integer.rotateLeft(x13 + x9, 13);
+			x5 ^= Integer.rotateLeft(x1 + x13, 18);
+			x14 ^= Integer.rotateLeft(x10 + x6, 7);
+			x2 ^= Integer.rotateLeft(x14 + x10, 9);
+			x6 ^= Integer.rotateLeft(x2 + x14, 13);
+			x10 ^= Integer.rotateLeft(x6 + x2, 18);
+			x3 ^= Integer.rotateLeft(x15 + x11, 7);
+			x7 ^= Integer.rotateLeft(x3 + x15, 9);
+			x11 ^= Integer.rotateLeft(x7 + x3, 13);
+			x15 ^= Integer.rotateLeft(x11 + x7, 18);
+			// rows
+			x1 ^= Integer.rotateLeft(x0 + x3, 7);
+			x2 ^= Integer.rotateLeft(x1 + x0, 9);
+			x3 ^= Integer.rotateLeft(x2 + x1, 13);
+			x0 ^= Integer.rotateLeft(x3 + x2, 18);
+			x6 ^= Integer.rotateLeft(x5 + x4, 7);
+			x7 ^= Integer.rotateLeft(x6 + x5, 9);
+			x4 ^= Integer.rotateLeft(x7 + x6, 13);
+			x5 ^= Integer.rotateLeft(x4 + x7, 18);
+			x11 ^= Integer.rotateLeft(x10 + x9, 7);
+			x8 ^= Integer.rotateLeft(x11 + x10, 9);
+			x9 ^= Integer.rotateLeft(x8 + x11, 13);
+			x10 ^= Integer.rotateLeft(x9 + x8, 18);
+			x12 ^= Integer.rotateLeft(x15 + x14, 7);
+			x13 ^= Integer.rotateLeft(x12 + x15, 9);
+			x14 ^= Integer.rotateLeft(x13 + x12, 13);
+			x15 ^= Integer.rotateLeft(x14 + x13, 18);
+		}
+
+		b[0] += x0;
+		b[1] += x1;
+		b[2] += x2;
+		b[3] += x3;
+		b[4] += x4;
+		b[5] += x5;
+		b[6] += x6;
+		b[7] += x7;
+		b[8] += x8;
+		b[9] += x9;
+		b[10] += x10;
+		b[11] += x11;
+		b[12] += x12;
+		b[13] += x13;
+		b[14] += x14;
+		b[15] += x15;
+	}
+
+	private int[] acquireBuffer(int length) {
+		int[] buffer;
+		while ((buffer = this.pooledBuffers.poll()) != null) {
+			this.pooledBufferCount.decrementAndGet();
+			if (buffer.length == length) {
+				return buffer;
+			}
+		}
+		return new int[length];
+	}
+
+	private void releaseBuffer(int[] buffer) {
+		Arrays.fill(buffer, 0);
+		if (this.pooledBufferCount.incrementAndGet() <= this.maxPooledBuffers) {
+			this.pooledBuffers.offer(buffer);
+		}
+		else {
+			this.pooledBufferCount.decrementAndGet();
+		}
+	}
+
+	/**
+	 * PBKDF2 with HMAC-SHA256 and a single iteration.
+	 */
+	private static byte[] pbkdf2(byte[] password, byte[] salt, int dkLen) {
+		byte[] key = new byte[dkLen];
+		try {
+			Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+			// HMAC pads the key with zeros, so an empty key is equivalent to a single
+			// zero byte, which unlike an empty key is accepted by SecretKeySpec
+			mac.init(new SecretKeySpec(password.length == 0 ? new byte[1] : password,
+					HMAC_ALGORITHM));
+			byte[] u = new byte[mac.getMacLength()];
+			int block = 1;
+			for (int offset = 0; offset < dkLen; offset += u.length) {
+				mac.update(salt);
+				mac.update((byte) (block >>> 24));
+				mac.update((byte) (block >>> 16));
+				mac.update((byte) (block >>> 8));
+				mac.update((byte) block);
+				mac.doFinal(u, 0);
+				System.arraycopy(u, 0, key, offset, Math.min(u.length, dkLen - offset));
+				block++;
+			}
+			Arrays.fill(u, (byte) 0);
+			return key;
+		}
+		catch (GeneralSecurityException e) {
+			throw new IllegalStateException("Could not compute PBKDF2", e);
+		}
+	}
+}
@@ -15,9 +15,10 @@
  */
 package org.springframework.security.crypto.scrypt;
 
+import java.util.concurrent.Executor;
+
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.bouncycastle.crypto.generators.SCrypt;
 import org.springframework.security.crypto.codec.Base64;
 import org.springframework.security.crypto.codec.Utf8;
 import org.springframework.security.crypto.keygen.BytesKeyGenerator;
@@ -38,9 +39,10 @@ import org.springframework.security.crypto.password.PasswordEncoder;
  * </p>
  *
  * <ul>
- * <li>The currently implementation uses Bouncy castle which does not exploit
- * parallelism/optimizations that password crackers will, so there is an
- * unnecessary asymmetry between attacker and defender.</li>
+ * <li>The implementation only exploits parallelism if an
+ * {@link #setExecutor(Executor) executor} is configured, and does not use the
+ * optimizations that password crackers will, so there is an unnecessary
+ * asymmetry between attacker and defender.</li>
  * <li>Scrypt is based on Salsa20 which performs poorly in Java (on par with
  * AES) but performs awesome (~4-5x faster) on SIMD capable platforms</li>
  * <li>While there are some that would disagree, consider reading -
@@ -48,6 +50,17 @@ import org.springframework.security.crypto.password.PasswordEncoder;
  * Why I Don't Recommend Scrypt</a> (for password storage)</li>
  * </ul>
  *
+ * <p>
+ * The {@code parallelization} independent lanes of the algorithm are computed
+ * one after the other on the calling thread, unless an
+ * {@link #setExecutor(Executor) executor} is configured, in which case they
+ * are computed in parallel. This allows raising the parallelization parameter
+ * without increasing the time a password verification takes. The
+ * {@code 128 * memoryCost * cpuCost} byte working buffers may be
+ * {@link #setMaxPooledBuffers(int) pooled} rather than allocated for every
+ * hash.
+ * </p>
+ *
  * @author Shazin Sadakath
  * @author Rob Winch
  *
@@ -66,6 +79,12 @@ public class SCryptPasswordEncoder implements PasswordEncoder {
 
 	private final BytesKeyGenerator saltGenerator;
 
+	private Executor executor;
+
+	private int maxPooledBuffers;
+
+	private SCryptEngine engine = new SCryptEngine(null, 0);
+
 	public SCryptPasswordEncoder() {
 		this(16384, 8, 1, 32, 64);
 	}
@@ -82,9 +101,8 @@ public class SCryptPasswordEncoder implements PasswordEncoder {
 	 *            Default is currently 8.
 	 * @param parallelization
 	 *            the parallelization of the algorithm (as defined in scrypt
-	 *            this is p) Default is currently 1. Note that the
-	 *            implementation does not currently take advantage of
-	 *            parallelization.
+	 *            this is p) Default is currently 1. The lanes are only
+	 *            computed in parallel if an executor is configured.
 	 * @param keyLength
 	 *            key length for the algorithm (as defined in scrypt this is
 	 *            dkLen). The default is currently 32.
@@ -121,6 +139,34 @@ public class SCryptPasswordEncoder implements PasswordEncoder {
 		this.saltGenerator = KeyGenerators.secureRandom(saltLength);
 	}
 
+	/**
+	 * Sets the executor computing the parallel lanes of the algorithm. The
+	 * calling thread computes the first lane, and any lanes the executor
+	 * rejects. Defaults to null, in which case the calling thread computes all
+	 * lanes one after the other.
+	 *
+	 * @param executor the executor, or null
+	 * @since 4.2
+	 */
+	public void setExecutor(Executor executor) {
+		this.executor = executor;
+		this.engine = new SCryptEngine(executor, this.maxPooledBuffers);
+	}
+
+	/**
+	 * Sets the maximum number of working buffers which are retained for reuse.
+	 * Each buffer takes {@code 128 * memoryCost * cpuCost} bytes, 16 MB with the
+	 * default parameters, and one buffer is used per lane being computed.
+	 * Defaults to 0, which disables pooling.
+	 *
+	 * @param maxPooledBuffers the maximum number of pooled buffers
+	 * @since 4.2
+	 */
+	public void setMaxPooledBuffers(int maxPooledBuffers) {
+		this.engine = new SCryptEngine(this.executor, maxPooledBuffers);
+		this.maxPooledBuffers = maxPooledBuffers;
+	}
+
 	public String encode(CharSequence rawPassword) {
 		return digest(rawPassword, saltGenerator.generateKey());
 	}
@@ -148,7 +194,7 @@ public class SCryptPasswordEncoder implements PasswordEncoder {
 		int memoryCost = (int) params >> 8 & 0xff;
 		int parallelization = (int) params & 0xff;
 
-		byte[] generated = SCrypt.generate(Utf8.encode(rawPassword), salt, cpuCost, memoryCost, parallelization,
+		byte[] generated = engine.generate(Utf8.encode(rawPassword), salt, cpuCost, memoryCost, parallelization,
 				keyLength);
 
 		if (derived.length != generated.length) {
@@ -163,7 +209,7 @@ public class SCryptPasswordEncoder implements PasswordEncoder {
 	}
 
 	private String digest(CharSequence rawPassword, byte[] salt) {
-		byte[] derived = SCrypt.generate(Utf8.encode(rawPassword), salt, cpuCost, memoryCost, parallelization, 32);
+		byte[] derived = engine.generate(Utf8.encode(rawPassword), salt, cpuCost, memoryCost, parallelization, 32);
 
 		String params = Long
 				.toString(((int) (Math.log(cpuCost) / Math.log(2)) << 16L) | memoryCost << 8 | parallelization, 16);
@@ -179,6 +179,31 @@ public class BCryptTests {
 		println("");
 	}
 
+	@Test
+	public void hashpwIsThreadSafe() throws Exception {
+		final String[] results = new String[test_vectors.length];
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			final int offset = t;
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					for (int i = offset; i < test_vectors.length; i += 4) {
+						results[i] = BCrypt.hashpw(test_vectors[i][0],
+								test_vectors[i][1]);
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		for (int i = 0; i < test_vectors.length; i++) {
+			assertThat(results[i]).isEqualTo(test_vectors[i][2]);
+		}
+	}
+
 	@Test
 	public void roundsForDoesNotOverflow() {
 		assertThat(BCrypt.roundsForLogRounds(10)).isEqualTo(1024);
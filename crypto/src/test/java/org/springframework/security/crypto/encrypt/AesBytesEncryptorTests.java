@@ -0,0 +1,117 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.crypto.encrypt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.springframework.security.crypto.encrypt.AesBytesEncryptor.CipherAlgorithm;
+import org.springframework.security.crypto.keygen.KeyGenerators;
+
+public class AesBytesEncryptorTests {
+
+	private static final String PASSWORD = "password";
+
+	private static final String SALT = "5c0744940b5c369b";
+
+	@Test
+	public void cbcConcurrentRoundTrip() throws Exception {
+		CryptoAssumptions.assumeCBCJCE();
+		assertConcurrentRoundTrip(new AesBytesEncryptor(PASSWORD, SALT,
+				KeyGenerators.secureRandom(16)));
+	}
+
+	@Test
+	public void gcmConcurrentRoundTrip() throws Exception {
+		CryptoAssumptions.assumeGCMJCE();
+		assertConcurrentRoundTrip(new AesBytesEncryptor(PASSWORD, SALT,
+				KeyGenerators.secureRandom(16), CipherAlgorithm.GCM));
+	}
+
+	@Test
+	public void queryableConcurrentEncryptionIsDeterministic() throws Exception {
+		CryptoAssumptions.assumeCBCJCE();
+		final BytesEncryptor encryptor = new AesBytesEncryptor(PASSWORD, SALT);
+		final byte[] expected = encryptor.encrypt("text".getBytes("UTF-8"));
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<byte[]>> results = new ArrayList<Future<byte[]>>();
+			for (int i = 0; i < 200; i++) {
+				results.add(executor.submit(new Callable<byte[]>() {
+					public byte[] call() throws Exception {
+						return encryptor.encrypt("text".getBytes("UTF-8"));
+					}
+				}));
+			}
+			for (Future<byte[]> result : results) {
+				assertThat(result.get()).isEqualTo(expected);
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void decryptAfterFailedDecryption() throws Exception {
+		CryptoAssumptions.assumeGCMJCE();
+		BytesEncryptor encryptor = new AesBytesEncryptor(PASSWORD, SALT,
+				KeyGenerators.secureRandom(16), CipherAlgorithm.GCM);
+		byte[] encrypted = encryptor.encrypt("text".getBytes("UTF-8"));
+		byte[] tampered = encrypted.clone();
+		tampered[tampered.length - 1] ^= 1;
+		try {
+			encryptor.decrypt(tampered);
+			fail("Expected IllegalStateException");
+		}
+		catch (IllegalStateException expected) {
+		}
+		assertThat(new String(encryptor.decrypt(encrypted), "UTF-8")).isEqualTo("text");
+	}
+
+	private void assertConcurrentRoundTrip(final BytesEncryptor encryptor)
+			throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+			for (int i = 0; i < 200; i++) {
+				final byte[] plaintext = ("text" + i).getBytes("UTF-8");
+				results.add(executor.submit(new Callable<Boolean>() {
+					public Boolean call() throws Exception {
+						byte[] decrypted = encryptor.decrypt(encryptor.encrypt(plaintext));
+						return Arrays.equals(plaintext, decrypted);
+					}
+				}));
+			}
+			for (Future<Boolean> result : results) {
+				assertThat(result.get()).isTrue();
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+}
@@ -0,0 +1,264 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.crypto.encrypt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class AesGcmStreamingBytesEncryptorTests {
+
+	private static final int SEGMENT_SIZE = 32;
+
+	private static final int[] LENGTHS = { 0, 1, SEGMENT_SIZE - 1, SEGMENT_SIZE,
+			SEGMENT_SIZE + 1, 3 * SEGMENT_SIZE, 5 * SEGMENT_SIZE + 7 };
+
+	private AesGcmStreamingBytesEncryptor encryptor;
+
+	@Before
+	public void setup() {
+		CryptoAssumptions.assumeGCMJCE();
+		this.encryptor = new AesGcmStreamingBytesEncryptor("password",
+				"5c0744940b5c369b", SEGMENT_SIZE);
+	}
+
+	@Test
+	public void streamRoundTrip() throws Exception {
+		for (int length : LENGTHS) {
+			byte[] data = data(length);
+			byte[] encrypted = encryptStream(data);
+			assertThat(encrypted.length).isEqualTo(
+					(int) this.encryptor.getEncryptedLength(length));
+			assertThat(decryptStream(encrypted)).isEqualTo(data);
+		}
+	}
+
+	@Test
+	public void streamWrittenBytewiseRoundTrip() throws Exception {
+		byte[] data = data(3 * SEGMENT_SIZE + 5);
+		ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+		OutputStream out = this.encryptor.encrypt(encrypted);
+		for (byte b : data) {
+			out.write(b);
+		}
+		out.close();
+		InputStream in = this.encryptor.decrypt(new ByteArrayInputStream(encrypted
+				.toByteArray()));
+		ByteArrayOutputStream decrypted = new ByteArrayOutputStream();
+		int b;
+		while ((b = in.read()) != -1) {
+			decrypted.write(b);
+		}
+		in.close();
+		assertThat(decrypted.toByteArray()).isEqualTo(data);
+	}
+
+	@Test
+	public void channelRoundTrip() throws Exception {
+		for (int length : LENGTHS) {
+			byte[] data = data(length);
+			ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+			WritableByteChannel channel = this.encryptor.encrypt(Channels
+					.newChannel(encrypted));
+			ByteBuffer plaintext = ByteBuffer.allocateDirect(length);
+			plaintext.put(data).flip();
+			channel.write(plaintext);
+			channel.close();
+			assertThat(channel.isOpen()).isFalse();
+
+			ReadableByteChannel decrypting = this.encryptor.decrypt(Channels
+					.newChannel(new ByteArrayInputStream(encrypted.toByteArray())));
+			ByteBuffer decrypted = ByteBuffer.allocateDirect(length + 1);
+			while (decrypting.read(decrypted) != -1) {
+			}
+			decrypting.close();
+			decrypted.flip();
+			assertThat(bytes(decrypted)).isEqualTo(data);
+		}
+	}
+
+	@Test
+	public void byteBufferRoundTrip() throws Exception {
+		for (int length : LENGTHS) {
+			byte[] data = data(length);
+			ByteBuffer plaintext = ByteBuffer.allocateDirect(length);
+			plaintext.put(data).flip();
+			ByteBuffer ciphertext = ByteBuffer.allocateDirect((int) this.encryptor
+					.getEncryptedLength(length));
+			assertThat(this.encryptor.encrypt(plaintext, ciphertext)).isEqualTo(
+					ciphertext.capacity());
+			ciphertext.flip();
+
+			ByteBuffer decrypted = ByteBuffer.allocateDirect(length);
+			assertThat(this.encryptor.decrypt(ciphertext, decrypted)).isEqualTo(length);
+			decrypted.flip();
+			assertThat(bytes(decrypted)).isEqualTo(data);
+		}
+	}
+
+	@Test
+	public void variantsAreInteroperable() throws Exception {
+		byte[] data = data(4 * SEGMENT_SIZE + 3);
+		ByteBuffer decrypted = ByteBuffer.allocate(data.length);
+		this.encryptor.decrypt(ByteBuffer.wrap(encryptStream(data)), decrypted);
+		assertThat(decrypted.array()).isEqualTo(data);
+
+		ByteBuffer ciphertext = ByteBuffer.allocate((int) this.encryptor
+				.getEncryptedLength(data.length));
+		this.encryptor.encrypt(ByteBuffer.wrap(data), ciphertext);
+		assertThat(decryptStream(ciphertext.array())).isEqualTo(data);
+	}
+
+	@Test
+	public void encryptionIsRandomized() throws Exception {
+		byte[] data = data(SEGMENT_SIZE);
+		assertThat(encryptStream(data)).isNotEqualTo(encryptStream(data));
+	}
+
+	@Test
+	public void decryptWithDifferentSegmentSize() throws Exception {
+		byte[] data = data(5 * SEGMENT_SIZE);
+		StreamingBytesEncryptor other = new AesGcmStreamingBytesEncryptor("password",
+				"5c0744940b5c369b", 7);
+		assertThat(decryptStream(other, encryptStream(data))).isEqualTo(data);
+	}
+
+	@Test
+	public void decryptModifiedSegmentFails() throws Exception {
+		byte[] encrypted = encryptStream(data(3 * SEGMENT_SIZE));
+		encrypted[encrypted.length - 5] ^= 1;
+		assertDecryptionFails(encrypted);
+	}
+
+	@Test
+	public void decryptModifiedHeaderFails() throws Exception {
+		byte[] encrypted = encryptStream(data(3 * SEGMENT_SIZE));
+		encrypted[10] ^= 1;
+		assertDecryptionFails(encrypted);
+	}
+
+	@Test
+	public void decryptTruncatedAtSegmentBoundaryFails() throws Exception {
+		byte[] encrypted = encryptStream(data(3 * SEGMENT_SIZE));
+		byte[] truncated = new byte[encrypted.length - 16];
+		System.arraycopy(encrypted, 0, truncated, 0, truncated.length);
+		assertDecryptionFails(truncated);
+	}
+
+	@Test
+	public void decryptReorderedSegmentsFails() throws Exception {
+		byte[] encrypted = encryptStream(data(3 * SEGMENT_SIZE));
+		int segmentLength = SEGMENT_SIZE + 16;
+		int header = encrypted.length - 3 * segmentLength - 16;
+		byte[] reordered = encrypted.clone();
+		System.arraycopy(encrypted, header, reordered, header + segmentLength,
+				segmentLength);
+		System.arraycopy(encrypted, header + segmentLength, reordered, header,
+				segmentLength);
+		assertDecryptionFails(reordered);
+	}
+
+	@Test
+	public void decryptWithDifferentPasswordFails() throws Exception {
+		byte[] encrypted = encryptStream(data(10));
+		StreamingBytesEncryptor other = new AesGcmStreamingBytesEncryptor("other",
+				"5c0744940b5c369b", SEGMENT_SIZE);
+		try {
+			decryptStream(other, encrypted);
+			fail("Expected IOException");
+		}
+		catch (IOException expected) {
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void encryptToShortBufferFails() {
+		this.encryptor.encrypt(ByteBuffer.allocate(SEGMENT_SIZE),
+				ByteBuffer.allocate(SEGMENT_SIZE));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void invalidSegmentSize() {
+		new AesGcmStreamingBytesEncryptor("password", "5c0744940b5c369b", 0);
+	}
+
+	private void assertDecryptionFails(byte[] encrypted) throws Exception {
+		try {
+			decryptStream(encrypted);
+			fail("Expected IOException");
+		}
+		catch (IOException expected) {
+		}
+		try {
+			this.encryptor.decrypt(ByteBuffer.wrap(encrypted),
+					ByteBuffer.allocate(encrypted.length));
+			fail("Expected IllegalStateException");
+		}
+		catch (IllegalStateException expected) {
+		}
+	}
+
+	private byte[] encryptStream(byte[] data) throws IOException {
+		ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+		OutputStream out = this.encryptor.encrypt(encrypted);
+		out.write(data);
+		out.close();
+		return encrypted.toByteArray();
+	}
+
+	private byte[] decryptStream(byte[] encrypted) throws IOException {
+		return decryptStream(this.encryptor, encrypted);
+	}
+
+	private static byte[] decryptStream(StreamingBytesEncryptor encryptor,
+			byte[] encrypted) throws IOException {
+		InputStream in = encryptor.decrypt(new ByteArrayInputStream(encrypted));
+		ByteArrayOutputStream decrypted = new ByteArrayOutputStream();
+		byte[] buffer = new byte[SEGMENT_SIZE / 3];
+		int count;
+		while ((count = in.read(buffer)) != -1) {
+			decrypted.write(buffer, 0, count);
+		}
+		in.close();
+		return decrypted.toByteArray();
+	}
+
+	private static byte[] data(int length) {
+		byte[] data = new byte[length];
+		new Random(length).nextBytes(data);
+		return data;
+	}
+
+	private static byte[] bytes(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.get(bytes);
+		return bytes;
+	}
+
+}
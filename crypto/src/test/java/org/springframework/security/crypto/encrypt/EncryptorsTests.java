@@ -17,6 +17,11 @@ package org.springframework.security.crypto.encrypt;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+
 import org.junit.Test;
 
 public class EncryptorsTests {
@@ -45,6 +50,24 @@ public class EncryptorsTests {
 				new String(encryptor.encrypt("text".getBytes())));
 	}
 
+	@Test
+	public void streaming() throws Exception {
+		CryptoAssumptions.assumeGCMJCE();
+		StreamingBytesEncryptor encryptor = Encryptors.streaming("password",
+				"5c0744940b5c369b");
+		ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+		OutputStream out = encryptor.encrypt(encrypted);
+		out.write("text".getBytes("UTF-8"));
+		out.close();
+		assertThat(new String(encrypted.toByteArray())).doesNotContain("text");
+		InputStream in = encryptor.decrypt(new ByteArrayInputStream(encrypted
+				.toByteArray()));
+		byte[] decrypted = new byte[4];
+		assertThat(in.read(decrypted)).isEqualTo(4);
+		assertThat(in.read()).isEqualTo(-1);
+		assertThat(new String(decrypted, "UTF-8")).isEqualTo("text");
+	}
+
 	@Test
 	public void preferred() {
 		CryptoAssumptions.assumeGCMJCE();
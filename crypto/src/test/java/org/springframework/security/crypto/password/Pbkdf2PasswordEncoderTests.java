@@ -62,6 +62,44 @@ public class Pbkdf2PasswordEncoderTests {
 		assertThat(this.encoder.matches(rawPassword, encodedPassword)).isTrue();
 	}
 
+	@Test
+	public void passivityWhenSha256() {
+		this.encoder.setAlgorithm(
+				Pbkdf2PasswordEncoder.SecretKeyFactoryAlgorithm.PBKDF2WithHmacSHA256);
+		String encodedPassword = "4a1b7c02e5339d61ecda72c361df6cbafb31f2554ed37e7e9c8d77426504caa5a0a23712b651d959";
+		assertThat(this.encoder.matches("password", encodedPassword)).isTrue();
+	}
+
+	@Test
+	public void passivityWhenSha512() {
+		this.encoder.setAlgorithm(
+				Pbkdf2PasswordEncoder.SecretKeyFactoryAlgorithm.PBKDF2WithHmacSHA512);
+		String encodedPassword = "4a1b7c02e5339d614e69f3666c87c646ec5a59ebf702ec6f36f09e4de1dde5cda5b98fb484016483";
+		assertThat(this.encoder.matches("password", encodedPassword)).isTrue();
+	}
+
+	@Test
+	public void matchesWhenSha512() {
+		this.encoder.setAlgorithm(
+				Pbkdf2PasswordEncoder.SecretKeyFactoryAlgorithm.PBKDF2WithHmacSHA512);
+		String result = this.encoder.encode("password");
+		assertThat(this.encoder.matches("password", result)).isTrue();
+		assertThat(this.encoder.matches("bogus", result)).isFalse();
+	}
+
+	@Test
+	public void notMatchesWhenAlgorithmDiffers() {
+		String result = this.encoder.encode("password");
+		this.encoder.setAlgorithm(
+				Pbkdf2PasswordEncoder.SecretKeyFactoryAlgorithm.PBKDF2WithHmacSHA256);
+		assertThat(this.encoder.matches("password", result)).isFalse();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void setAlgorithmWhenNullThenException() {
+		this.encoder.setAlgorithm(null);
+	}
+
 	@Test
 	public void migrate() {
 		final int saltLength = KeyGenerators.secureRandom().getKeyLength();
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.crypto.password;
+
+import java.security.NoSuchAlgorithmException;
+import java.util.Random;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import org.springframework.security.crypto.codec.Hex;
+import org.springframework.security.crypto.codec.Utf8;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder.SecretKeyFactoryAlgorithm;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class Pbkdf2Tests {
+
+	// RFC 6070
+	@Test
+	public void hmacSha1TestVectors() {
+		assertThat(deriveKey(SecretKeyFactoryAlgorithm.PBKDF2WithHmacSHA1, "password",
+				"salt", 1, 20)).isEqualTo("0c60c80f961f0e71f3a9b524af6012062fe037a6");
+		assertThat(deriveKey(SecretKeyFactoryAlgorithm.PBKDF2WithHmacSHA1, "password",
+				"salt", 4096, 20)).isEqualTo("4b007901b765489abead49d926f721d065a429c1");
+		assertThat(deriveKey(SecretKeyFactoryAlgorithm.PBKDF2WithHmacSHA1,
+				"passwordPASSWORDpassword", "saltSALTsaltSALTsaltSALTsaltSALTsalt", 4096,
+				25)).isEqualTo("3d2eec4fe41c849b80c8d83662c0e44a8b291a964cf2f07038");
+	}
+
+	// RFC 7914
+	@Test
+	public void hmacSha256TestVector() {
+		assertThat(deriveKey(SecretKeyFactoryAlgorithm.PBKDF2WithHmacSHA256, "passwd",
+				"salt", 1, 64)).isEqualTo(
+				"55ac046e56e3089fec1691c22544b605f94185216dde0465e68b9d57c20dacbc"
+						+ "49ca9cccf179b645991664b39d77ef317c71b845b1e30bd509112041d3a19783");
+	}
+
+	@Test
+	public void keyLongerThanBlockIsHashed() {
+		StringBuilder password = new StringBuilder();
+		for (int i = 0; i < 200; i++) {
+			password.append((char) ('a' + i % 26));
+		}
+		for (SecretKeyFactoryAlgorithm algorithm : SecretKeyFactoryAlgorithm.values()) {
+			assertMatchesSecretKeyFactory(algorithm, password.toString(),
+					Utf8.encode("salt"), 3, 512);
+		}
+	}
+
+	@Test
+	public void matchesSecretKeyFactory() {
+		Random random = new Random(1);
+		for (SecretKeyFactoryAlgorithm algorithm : SecretKeyFactoryAlgorithm.values()) {
+			for (int i = 0; i < 50; i++) {
+				StringBuilder password = new StringBuilder();
+				int length = random.nextInt(150);
+				for (int j = 0; j < length; j++) {
+					password.append((char) (32 + random.nextInt(0x3000)));
+				}
+				byte[] salt = new byte[1 + random.nextInt(150)];
+				random.nextBytes(salt);
+				int keyLength = 8 + random.nextInt(1200);
+				assertMatchesSecretKeyFactory(algorithm, password.toString(), salt,
+						1 + random.nextInt(20), keyLength);
+			}
+		}
+	}
+
+	@Test
+	public void derivesSameKeyRepeatedly() {
+		String first = deriveKey(SecretKeyFactoryAlgorithm.PBKDF2WithHmacSHA512,
+				"password", "salt", 10, 100);
+		deriveKey(SecretKeyFactoryAlgorithm.PBKDF2WithHmacSHA512, "other", "pepper", 5,
+				64);
+		assertThat(deriveKey(SecretKeyFactoryAlgorithm.PBKDF2WithHmacSHA512, "password",
+				"salt", 10, 100)).isEqualTo(first);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void emptySaltIsRejected() {
+		Pbkdf2.deriveKey(SecretKeyFactoryAlgorithm.PBKDF2WithHmacSHA1, "password",
+				new byte[0], 1, 160);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void zeroIterationsAreRejected() {
+		Pbkdf2.deriveKey(SecretKeyFactoryAlgorithm.PBKDF2WithHmacSHA1, "password",
+				Utf8.encode("salt"), 0, 160);
+	}
+
+	private static String deriveKey(SecretKeyFactoryAlgorithm algorithm,
+			String password, String salt, int iterations, int keyLengthInBytes) {
+		return String.valueOf(Hex.encode(Pbkdf2.deriveKey(algorithm, password,
+				Utf8.encode(salt), iterations, keyLengthInBytes * 8)));
+	}
+
+	private static void assertMatchesSecretKeyFactory(
+			SecretKeyFactoryAlgorithm algorithm, String password, byte[] salt,
+			int iterations, int keyLength) {
+		SecretKeyFactory secretKeyFactory;
+		try {
+			secretKeyFactory = SecretKeyFactory.getInstance(algorithm.name());
+		}
+		catch (NoSuchAlgorithmException e) {
+			// PBKDF2WithHmacSHA256 and PBKDF2WithHmacSHA512 require Java 8
+			Assume.assumeNoException(e);
+			return;
+		}
+		byte[] expected;
+		try {
+			expected = secretKeyFactory.generateSecret(
+					new PBEKeySpec(password.toCharArray(), salt, iterations, keyLength))
+					.getEncoded();
+		}
+		catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+		assertThat(Pbkdf2.deriveKey(algorithm, password, salt, iterations, keyLength))
+				.isEqualTo(expected);
+	}
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.crypto.scrypt;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.bouncycastle.crypto.generators.SCrypt;
+import org.junit.After;
+import org.junit.Test;
+
+import org.springframework.security.crypto.codec.Hex;
+import org.springframework.security.crypto.codec.Utf8;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SCryptEngineTests {
+
+	private ExecutorService executor = Executors.newFixedThreadPool(3);
+
+	@After
+	public void shutdownExecutor() {
+		this.executor.shutdownNow();
+	}
+
+	// RFC 7914
+	@Test
+	public void testVectors() {
+		for (SCryptEngine engine : new SCryptEngine[] { new SCryptEngine(null, 0),
+				new SCryptEngine(this.executor, 2) }) {
+			assertThat(generate(engine, "", "", 16, 1, 1, 64)).isEqualTo(
+					"77d6576238657b203b19ca42c18a0497f16b4844e3074ae8dfdffa3fede21442"
+							+ "fcd0069ded0948f8326a753a0fc81f17e8d3e0fb2e0d3628cf35e20c38d18906");
+			assertThat(generate(engine, "password", "NaCl", 1024, 8, 16, 64)).isEqualTo(
+					"fdbabe1c9d3472007856e7190d01e9fe7c6ad7cbc8237830e77376634b373162"
+							+ "2eaf30d92e22a3886ff109279d9830dac727afb94a83ee6d8360cbdfa2cc0640");
+		}
+	}
+
+	@Test
+	public void matchesBouncyCastle() {
+		Random random = new Random(1);
+		SCryptEngine engine = new SCryptEngine(this.executor, 1);
+		for (int i = 0; i < 20; i++) {
+			byte[] password = new byte[random.nextInt(100)];
+			random.nextBytes(password);
+			byte[] salt = new byte[random.nextInt(40)];
+			random.nextBytes(salt);
+			int n = 2 << random.nextInt(8);
+			int r = 1 + random.nextInt(4);
+			int p = 1 + random.nextInt(4);
+			int dkLen = 1 + random.nextInt(100);
+			assertThat(engine.generate(password, salt, n, r, p, dkLen)).isEqualTo(
+					SCrypt.generate(password, salt, n, r, p, dkLen));
+		}
+	}
+
+	@Test
+	public void rejectedLanesAreComputedByCallingThread() {
+		this.executor.shutdown();
+		SCryptEngine engine = new SCryptEngine(this.executor, 0);
+		assertThat(generate(engine, "password", "NaCl", 1024, 8, 16, 64)).isEqualTo(
+				generate(new SCryptEngine(null, 0), "password", "NaCl", 1024, 8, 16, 64));
+	}
+
+	@Test
+	public void pooledBuffersOfDifferentSizeAreNotReused() {
+		SCryptEngine engine = new SCryptEngine(null, 1);
+		String first = generate(engine, "password", "salt", 64, 2, 2, 32);
+		generate(engine, "password", "salt", 32, 1, 1, 32);
+		assertThat(generate(engine, "password", "salt", 64, 2, 2, 32)).isEqualTo(first);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void invalidCostParameter() {
+		new SCryptEngine(null, 0).generate(new byte[1], new byte[1], 1, 8, 1, 32);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void negativeMaxPooledBuffers() {
+		new SCryptEngine(null, -1);
+	}
+
+	private static String generate(SCryptEngine engine, String password, String salt,
+			int n, int r, int p, int dkLen) {
+		return String.valueOf(Hex.encode(engine.generate(Utf8.encode(password),
+				Utf8.encode(salt), n, r, p, dkLen)));
+	}
+}
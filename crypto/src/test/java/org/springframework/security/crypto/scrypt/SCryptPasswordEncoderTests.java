@@ -17,6 +17,9 @@ package org.springframework.security.crypto.scrypt;
 
 import static org.assertj.core.api.Assertions.*;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 import org.junit.Test;
 
 /**
@@ -56,6 +59,28 @@ public class SCryptPasswordEncoderTests {
 		assertThat(encoder.matches("password", result)).isTrue();
 	}
 
+	@Test
+	public void customParametersWithExecutorAndPooledBuffers() {
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			SCryptPasswordEncoder encoder = new SCryptPasswordEncoder(512, 8, 4, 32, 16);
+			encoder.setExecutor(executor);
+			encoder.setMaxPooledBuffers(4);
+			String result = encoder.encode("password");
+			assertThat(encoder.matches("password", result)).isTrue();
+			assertThat(encoder.matches("bogus", result)).isFalse();
+			assertThat(new SCryptPasswordEncoder().matches("password", result)).isTrue();
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void invalidMaxPooledBuffers() {
+		new SCryptPasswordEncoder().setMaxPooledBuffers(-1);
+	}
+
 	@Test
 	public void differentPasswordHashes() {
 		SCryptPasswordEncoder encoder = new SCryptPasswordEncoder();
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.web;
+
+import javax.servlet.Filter;
+
+import org.springframework.security.web.util.matcher.RequestMatcher;
+
+/**
+ * A {@code Filter} which only acts on the requests matched by a {@link RequestMatcher}.
+ * For any other request the filter does nothing but pass the unmodified request and
+ * response to the next filter in the chain, so that a {@code FilterChainProxy} with
+ * {@link FilterChainProxy#setSkipInapplicableFilters(boolean) skipInapplicableFilters}
+ * enabled may skip the filter altogether.
+ * <p>
+ * The matcher is obtained once, when the {@code FilterChainProxy} is configured, and
+ * must not have side effects. Subclasses which change the conditions under which a
+ * filter acts must also override {@link #getApplicableRequestMatcher()}.
+ *
+ * @since 4.2
+ */
+public interface ConditionalFilter extends Filter {
+
+	/**
+	 * Returns the {@link RequestMatcher} matching the requests the filter acts on.
+	 *
+	 * @return the matcher, or null if the filter may act on any request
+	 */
+	RequestMatcher getApplicableRequestMatcher();
+}
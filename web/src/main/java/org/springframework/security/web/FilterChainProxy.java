@@ -23,6 +23,8 @@ import org.springframework.security.web.firewall.DefaultHttpFirewall;
 import org.springframework.security.web.firewall.FirewalledRequest;
 import org.springframework.security.web.firewall.HttpFirewall;
 import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatchContext;
+import org.springframework.security.web.util.matcher.RequestMatcherIndex;
 import org.springframework.security.web.util.UrlUtils;
 import org.springframework.web.filter.DelegatingFilterProxy;
 import org.springframework.web.filter.GenericFilterBean;
@@ -86,6 +88,10 @@ import java.util.*;
  * entered against the respective entry. The {@code FilterChainProxy} will not iterate
  * through the remainder of the map entries to locate additional {@code Filter}s.
  * <p>
+ * While a request passes through the security filter chain, a {@link RequestMatchContext}
+ * is stored on it so that the request path and the results of the built-in
+ * {@code RequestMatcher}s are only computed once.
+ * <p>
  * {@code FilterChainProxy} respects normal handling of {@code Filter}s that elect not to
  * call
  * {@link javax.servlet.Filter#doFilter(javax.servlet.ServletRequest, javax.servlet.ServletResponse, javax.servlet.FilterChain)}
@@ -113,6 +119,25 @@ import java.util.*;
  * and {@code pathInfo} will be returned thereafter, instead of the modified ones used for
  * security pattern matching.
  * <p>
+ * <h3>Compiled Dispatch</h3>
+ *
+ * When {@link #setCompiledDispatch(boolean) compiled dispatch} is enabled, the
+ * {@code RequestMatcher}s of the configured {@link DefaultSecurityFilterChain}s are
+ * indexed by their literal path prefix and HTTP method using a
+ * {@link RequestMatcherIndex}, so that only the chains which could possibly match a
+ * request are tried. The first matching chain in declaration order is still the one which
+ * is used. Chains whose matcher cannot be indexed are tried for every request.
+ *
+ * <h3>Skipping Inapplicable Filters</h3>
+ *
+ * A filter which only acts on some requests may implement {@link ConditionalFilter} to
+ * expose a {@code RequestMatcher} for them. When
+ * {@link #setSkipInapplicableFilters(boolean) skipInapplicableFilters} is enabled, the
+ * filters of each chain are copied into an array together with their matchers, and a
+ * request is not passed through a filter whose matcher does not match it. The request
+ * therefore only passes through the filters which may act on it, without the additional
+ * stack frames of the skipped filters.
+ * <p>
  * Since this additional wrapping functionality is performed by the
  * {@code FilterChainProxy}, we don't recommend that you use multiple instances in the
  * same filter chain. It shouldn't be considered purely as a utility for wrapping filter
@@ -149,6 +174,10 @@ public class FilterChainProxy extends GenericFilterBean {
 
 	private HttpFirewall firewall = new DefaultHttpFirewall();
 
+	private RequestMatcherIndex filterChainIndex;
+
+	private FusedFilterChain[] fusedFilterChains;
+
 	// ~ Methods
 	// ========================================================================================================
 
@@ -194,24 +223,45 @@ public class FilterChainProxy extends GenericFilterBean {
 		HttpServletResponse fwResponse = firewall
 				.getFirewalledResponse((HttpServletResponse) response);
 
-		List<Filter> filters = getFilters(fwRequest);
+		boolean createContext = RequestMatchContext.get(fwRequest) == null;
+		if (createContext) {
+			RequestMatchContext.create(fwRequest);
+		}
 
-		if (filters == null || filters.size() == 0) {
-			if (logger.isDebugEnabled()) {
-				logger.debug(UrlUtils.buildRequestUrl(fwRequest)
-						+ (filters == null ? " has no matching filters"
-								: " has an empty filter list"));
-			}
+		try {
+			int index = indexOfFilterChain(fwRequest);
+			List<Filter> filters = index == -1 ? null : filterChains.get(index)
+					.getFilters();
+
+			if (filters == null || filters.size() == 0) {
+				if (logger.isDebugEnabled()) {
+					logger.debug(UrlUtils.buildRequestUrl(fwRequest)
+							+ (filters == null ? " has no matching filters"
+									: " has an empty filter list"));
+				}
 
-			fwRequest.reset();
+				fwRequest.reset();
 
-			chain.doFilter(fwRequest, fwResponse);
+				chain.doFilter(fwRequest, fwResponse);
 
-			return;
-		}
+				return;
+			}
 
-		VirtualFilterChain vfc = new VirtualFilterChain(fwRequest, chain, filters);
-		vfc.doFilter(fwRequest, fwResponse);
+			FilterChain vfc;
+			if (fusedFilterChains != null) {
+				vfc = new FusedVirtualFilterChain(fwRequest, chain,
+						fusedFilterChains[index]);
+			}
+			else {
+				vfc = new VirtualFilterChain(fwRequest, chain, filters);
+			}
+			vfc.doFilter(fwRequest, fwResponse);
+		}
+		finally {
+			if (createContext) {
+				RequestMatchContext.remove(fwRequest);
+			}
+		}
 	}
 
 	/**
@@ -221,13 +271,30 @@ public class FilterChainProxy extends GenericFilterBean {
 	 * @return an ordered array of Filters defining the filter chain
 	 */
 	private List<Filter> getFilters(HttpServletRequest request) {
+		int index = indexOfFilterChain(request);
+		return index == -1 ? null : filterChains.get(index).getFilters();
+	}
+
+	/**
+	 * Returns the index of the first filter chain matching the supplied request.
+	 *
+	 * @param request the request to match
+	 * @return the index of the filter chain or -1 if no chain matches
+	 */
+	private int indexOfFilterChain(HttpServletRequest request) {
+		if (filterChainIndex != null) {
+			return filterChainIndex.indexOf(request);
+		}
+
+		int index = 0;
 		for (SecurityFilterChain chain : filterChains) {
 			if (chain.matches(request)) {
-				return chain.getFilters();
+				return index;
 			}
+			index++;
 		}
 
-		return null;
+		return -1;
 	}
 
 	/**
@@ -271,6 +338,60 @@ public class FilterChainProxy extends GenericFilterBean {
 		this.firewall = firewall;
 	}
 
+	/**
+	 * Enables or disables compiled dispatch, in which the filter chains are indexed by the
+	 * literal path prefix and HTTP method of their {@code RequestMatcher} rather than
+	 * being tried one after the other. The chain selected for a request is the same in
+	 * both modes. Defaults to {@code false}.
+	 *
+	 * @param compiledDispatch true if the filter chains should be indexed
+	 * @since 4.2
+	 */
+	public void setCompiledDispatch(boolean compiledDispatch) {
+		if (!compiledDispatch) {
+			this.filterChainIndex = null;
+			return;
+		}
+		List<RequestMatcher> matchers = new ArrayList<RequestMatcher>(
+				filterChains.size());
+		for (final SecurityFilterChain chain : filterChains) {
+			if (chain instanceof DefaultSecurityFilterChain) {
+				matchers.add(((DefaultSecurityFilterChain) chain).getRequestMatcher());
+			}
+			else {
+				matchers.add(new RequestMatcher() {
+					public boolean matches(HttpServletRequest request) {
+						return chain.matches(request);
+					}
+				});
+			}
+		}
+		this.filterChainIndex = new RequestMatcherIndex(matchers);
+	}
+
+	/**
+	 * Enables or disables skipping the filters which implement {@link ConditionalFilter}
+	 * for the requests their {@code RequestMatcher} does not match. The filters and
+	 * their matchers are obtained from the filter chains when this property is set, so it
+	 * should be set once the chains and their filters have been fully configured. Defaults
+	 * to {@code false}.
+	 *
+	 * @param skipInapplicableFilters true if inapplicable filters should be skipped
+	 * @since 4.2
+	 */
+	public void setSkipInapplicableFilters(boolean skipInapplicableFilters) {
+		if (!skipInapplicableFilters) {
+			this.fusedFilterChains = null;
+			return;
+		}
+		FusedFilterChain[] fused = new FusedFilterChain[filterChains.size()];
+		int index = 0;
+		for (SecurityFilterChain chain : filterChains) {
+			fused[index++] = new FusedFilterChain(chain.getFilters());
+		}
+		this.fusedFilterChains = fused;
+	}
+
 	public String toString() {
 		StringBuilder sb = new StringBuilder();
 		sb.append("FilterChainProxy[");
@@ -333,6 +454,86 @@ public class FilterChainProxy extends GenericFilterBean {
 		}
 	}
 
+	/**
+	 * The filters of a {@code SecurityFilterChain} together with the
+	 * {@code RequestMatcher}s of those which implement {@link ConditionalFilter}.
+	 */
+	private static final class FusedFilterChain {
+		private final Filter[] filters;
+		private final RequestMatcher[] applicableRequestMatchers;
+
+		private FusedFilterChain(List<Filter> filters) {
+			this.filters = filters.toArray(new Filter[filters.size()]);
+			this.applicableRequestMatchers = new RequestMatcher[this.filters.length];
+			for (int i = 0; i < this.filters.length; i++) {
+				if (this.filters[i] instanceof ConditionalFilter) {
+					this.applicableRequestMatchers[i] = ((ConditionalFilter) this.filters[i])
+							.getApplicableRequestMatcher();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Internal {@code FilterChain} implementation that passes a request through the
+	 * filters of a {@link FusedFilterChain}, skipping those whose
+	 * {@code RequestMatcher} does not match the request.
+	 */
+	private static class FusedVirtualFilterChain implements FilterChain {
+		private final FilterChain originalChain;
+		private final Filter[] additionalFilters;
+		private final RequestMatcher[] applicableRequestMatchers;
+		private final FirewalledRequest firewalledRequest;
+		private int currentPosition = 0;
+
+		private FusedVirtualFilterChain(FirewalledRequest firewalledRequest,
+				FilterChain chain, FusedFilterChain fusedChain) {
+			this.originalChain = chain;
+			this.additionalFilters = fusedChain.filters;
+			this.applicableRequestMatchers = fusedChain.applicableRequestMatchers;
+			this.firewalledRequest = firewalledRequest;
+		}
+
+		public void doFilter(ServletRequest request, ServletResponse response)
+				throws IOException, ServletException {
+			int size = additionalFilters.length;
+			while (currentPosition < size) {
+				Filter nextFilter = additionalFilters[currentPosition];
+				RequestMatcher matcher = applicableRequestMatchers[currentPosition];
+				currentPosition++;
+
+				if (matcher == null || matcher.matches((HttpServletRequest) request)) {
+					if (logger.isDebugEnabled()) {
+						logger.debug(UrlUtils.buildRequestUrl(firewalledRequest)
+								+ " at position " + currentPosition + " of " + size
+								+ " in additional filter chain; firing Filter: '"
+								+ nextFilter.getClass().getSimpleName() + "'");
+					}
+
+					nextFilter.doFilter(request, response, this);
+					return;
+				}
+
+				if (logger.isDebugEnabled()) {
+					logger.debug(UrlUtils.buildRequestUrl(firewalledRequest)
+							+ " at position " + currentPosition + " of " + size
+							+ " in additional filter chain; skipping Filter: '"
+							+ nextFilter.getClass().getSimpleName() + "'");
+				}
+			}
+
+			if (logger.isDebugEnabled()) {
+				logger.debug(UrlUtils.buildRequestUrl(firewalledRequest)
+						+ " reached end of additional filter chain; proceeding with original chain");
+			}
+
+			// Deactivate path stripping as we exit the security filter chain
+			this.firewalledRequest.reset();
+
+			originalChain.doFilter(request, response);
+		}
+	}
+
 	public interface FilterChainValidator {
 		void validate(FilterChainProxy filterChainProxy);
 	}
@@ -15,6 +15,20 @@
  */
 package org.springframework.security.web.access.expression;
 
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.expression.ConstructorResolver;
+import org.springframework.expression.MethodResolver;
+import org.springframework.expression.PropertyAccessor;
+import org.springframework.expression.TypeConverter;
+import org.springframework.expression.TypeLocator;
+import org.springframework.expression.spel.support.ReflectiveConstructorResolver;
+import org.springframework.expression.spel.support.ReflectiveMethodResolver;
+import org.springframework.expression.spel.support.ReflectivePropertyAccessor;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+import org.springframework.expression.spel.support.StandardTypeConverter;
+import org.springframework.expression.spel.support.StandardTypeLocator;
 import org.springframework.security.access.expression.AbstractSecurityExpressionHandler;
 import org.springframework.security.access.expression.SecurityExpressionHandler;
 import org.springframework.security.access.expression.SecurityExpressionOperations;
@@ -25,6 +39,15 @@ import org.springframework.security.web.FilterInvocation;
 import org.springframework.util.Assert;
 
 /**
+ * The default {@link SecurityExpressionHandler} for web security expressions.
+ * <p>
+ * By default a new {@code StandardEvaluationContext}, with its own resolvers and
+ * accessors, is created for every evaluation. When
+ * {@link #setShareEvaluationContextState(boolean) shareEvaluationContextState} is
+ * enabled, the contexts instead share a single set of property accessors, method and
+ * constructor resolvers, type locator and type converter, so that the reflection caches
+ * of the accessors survive between requests. The shared state cannot be modified through
+ * the context.
  *
  * @author Luke Taylor
  * @since 3.0
@@ -35,6 +58,12 @@ public class DefaultWebSecurityExpressionHandler extends
 
 	private AuthenticationTrustResolver trustResolver = new AuthenticationTrustResolverImpl();
 	private String defaultRolePrefix = "ROLE_";
+	private boolean shareEvaluationContextState;
+	private List<PropertyAccessor> propertyAccessors;
+	private List<MethodResolver> methodResolvers;
+	private List<ConstructorResolver> constructorResolvers;
+	private TypeLocator typeLocator;
+	private TypeConverter typeConverter;
 
 	@Override
 	protected SecurityExpressionOperations createSecurityExpressionRoot(
@@ -47,6 +76,43 @@ public class DefaultWebSecurityExpressionHandler extends
 		return root;
 	}
 
+	@Override
+	protected StandardEvaluationContext createEvaluationContextInternal(
+			Authentication authentication, FilterInvocation fi) {
+		StandardEvaluationContext ctx = super.createEvaluationContextInternal(
+				authentication, fi);
+		if (shareEvaluationContextState) {
+			ctx.setPropertyAccessors(propertyAccessors);
+			ctx.setMethodResolvers(methodResolvers);
+			ctx.setConstructorResolvers(constructorResolvers);
+			ctx.setTypeLocator(typeLocator);
+			ctx.setTypeConverter(typeConverter);
+		}
+		return ctx;
+	}
+
+	/**
+	 * Sets whether the evaluation contexts created by this handler should share their
+	 * accessors, resolvers, type locator and type converter rather than creating them for
+	 * every evaluation. The default is {@code false}.
+	 *
+	 * @param shareEvaluationContextState true if the state should be shared
+	 * @since 4.2
+	 */
+	public void setShareEvaluationContextState(boolean shareEvaluationContextState) {
+		if (shareEvaluationContextState && propertyAccessors == null) {
+			propertyAccessors = Collections
+					.<PropertyAccessor> singletonList(new ReflectivePropertyAccessor());
+			methodResolvers = Collections
+					.<MethodResolver> singletonList(new ReflectiveMethodResolver());
+			constructorResolvers = Collections
+					.<ConstructorResolver> singletonList(new ReflectiveConstructorResolver());
+			typeLocator = new StandardTypeLocator();
+			typeConverter = new StandardTypeConverter();
+		}
+		this.shareEvaluationContextState = shareEvaluationContextState;
+	}
+
 	/**
 	 * Sets the {@link AuthenticationTrustResolver} to be used. The default is
 	 * {@link AuthenticationTrustResolverImpl}.
@@ -59,6 +125,10 @@ public class DefaultWebSecurityExpressionHandler extends
 		this.trustResolver = trustResolver;
 	}
 
+	boolean hasDefaultTrustResolver() {
+		return trustResolver.getClass() == AuthenticationTrustResolverImpl.class;
+	}
+
 	/**
 	 * <p>
 	 * Sets the default prefix to be added to {@link org.springframework.security.access.expression.SecurityExpressionRoot#hasAnyRole(String...)} or
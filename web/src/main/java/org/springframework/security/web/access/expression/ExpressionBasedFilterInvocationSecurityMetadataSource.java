@@ -27,6 +27,9 @@ import org.apache.commons.logging.LogFactory;
 
 import org.springframework.expression.ExpressionParser;
 import org.springframework.expression.ParseException;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
 import org.springframework.security.access.ConfigAttribute;
 import org.springframework.security.access.expression.SecurityExpressionHandler;
 import org.springframework.security.web.FilterInvocation;
@@ -38,6 +41,16 @@ import org.springframework.util.Assert;
 
 /**
  * Expression-based {@code FilterInvocationSecurityMetadataSource}.
+ * <p>
+ * By default the expressions are parsed with the {@code ExpressionParser} of the
+ * {@link SecurityExpressionHandler}. If a {@link SpelCompilerMode} other than
+ * {@link SpelCompilerMode#OFF} is supplied and the handler uses a
+ * {@link SpelExpressionParser}, the expressions are instead parsed with a
+ * {@link SpelParserConfiguration} in that mode, so that SpEL compiles them to bytecode
+ * once they have been evaluated. In {@link SpelCompilerMode#MIXED} mode an expression
+ * which cannot be compiled, or whose compiled form fails, silently remains interpreted.
+ * In {@link SpelCompilerMode#IMMEDIATE} mode an expression which cannot be compiled also
+ * remains interpreted, but a failure of the compiled form is reported.
  *
  * @author Luke Taylor
  * @since 3.0
@@ -55,6 +68,38 @@ public final class ExpressionBasedFilterInvocationSecurityMetadataSource
 				"A non-null SecurityExpressionHandler is required");
 	}
 
+	/**
+	 * Creates a new instance which parses the expressions in the supplied SpEL compiler
+	 * mode.
+	 *
+	 * @param requestMap order-preserving map of request definitions to expressions
+	 * @param expressionHandler the {@link SecurityExpressionHandler} to use
+	 * @param compilerMode the {@link SpelCompilerMode} to parse the expressions with.
+	 * Cannot be null.
+	 * @since 4.2
+	 */
+	public ExpressionBasedFilterInvocationSecurityMetadataSource(
+			LinkedHashMap<RequestMatcher, Collection<ConfigAttribute>> requestMap,
+			SecurityExpressionHandler<FilterInvocation> expressionHandler,
+			SpelCompilerMode compilerMode) {
+		super(processMap(requestMap, createParser(expressionHandler, compilerMode)));
+	}
+
+	private static ExpressionParser createParser(
+			SecurityExpressionHandler<FilterInvocation> expressionHandler,
+			SpelCompilerMode compilerMode) {
+		Assert.notNull(expressionHandler,
+				"A non-null SecurityExpressionHandler is required");
+		Assert.notNull(compilerMode, "compilerMode cannot be null");
+		ExpressionParser parser = expressionHandler.getExpressionParser();
+		if (compilerMode == SpelCompilerMode.OFF
+				|| !(parser instanceof SpelExpressionParser)) {
+			return parser;
+		}
+		return new SpelExpressionParser(new SpelParserConfiguration(compilerMode,
+				expressionHandler.getClass().getClassLoader()));
+	}
+
 	private static LinkedHashMap<RequestMatcher, Collection<ConfigAttribute>> processMap(
 			LinkedHashMap<RequestMatcher, Collection<ConfigAttribute>> requestMap,
 			ExpressionParser parser) {
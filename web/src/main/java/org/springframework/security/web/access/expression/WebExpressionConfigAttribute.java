@@ -15,8 +15,21 @@
  */
 package org.springframework.security.web.access.expression;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
 import org.springframework.expression.EvaluationContext;
 import org.springframework.expression.Expression;
+import org.springframework.expression.spel.SpelNode;
+import org.springframework.expression.spel.ast.BooleanLiteral;
+import org.springframework.expression.spel.ast.MethodReference;
+import org.springframework.expression.spel.ast.OpAnd;
+import org.springframework.expression.spel.ast.OpOr;
+import org.springframework.expression.spel.ast.OperatorNot;
+import org.springframework.expression.spel.ast.PropertyOrFieldReference;
+import org.springframework.expression.spel.ast.StringLiteral;
+import org.springframework.expression.spel.standard.SpelExpression;
 import org.springframework.security.access.ConfigAttribute;
 import org.springframework.security.web.FilterInvocation;
 
@@ -28,19 +41,69 @@ import org.springframework.security.web.FilterInvocation;
  */
 class WebExpressionConfigAttribute implements ConfigAttribute,
 		EvaluationContextPostProcessor<FilterInvocation> {
+	private static final Set<String> AUTHORITY_METHODS = new HashSet<String>(
+			Arrays.asList("hasRole", "hasAnyRole", "hasAuthority", "hasAnyAuthority",
+					"isAnonymous", "isAuthenticated", "isRememberMe",
+					"isFullyAuthenticated", "permitAll", "denyAll"));
+	private static final Set<String> AUTHORITY_PROPERTIES = new HashSet<String>(
+			Arrays.asList("anonymous", "authenticated", "rememberMe",
+					"fullyAuthenticated", "permitAll", "denyAll"));
+
 	private final Expression authorizeExpression;
 	private final EvaluationContextPostProcessor<FilterInvocation> postProcessor;
+	private final boolean authorityBased;
 
 	public WebExpressionConfigAttribute(Expression authorizeExpression,
 			EvaluationContextPostProcessor<FilterInvocation> postProcessor) {
 		this.authorizeExpression = authorizeExpression;
 		this.postProcessor = postProcessor;
+		this.authorityBased = authorizeExpression instanceof SpelExpression
+				&& isAuthorityBased(((SpelExpression) authorizeExpression).getAST());
 	}
 
 	Expression getAuthorizeExpression() {
 		return this.authorizeExpression;
 	}
 
+	/**
+	 * Indicates whether the expression only combines the role, authority and
+	 * authentication state checks of the expression root with literal arguments, so that
+	 * its value only depends on the {@code Authentication}.
+	 */
+	boolean isAuthorityBased() {
+		return this.authorityBased;
+	}
+
+	private static boolean isAuthorityBased(SpelNode node) {
+		if (node instanceof OpAnd || node instanceof OpOr || node instanceof OperatorNot) {
+			for (int i = 0; i < node.getChildCount(); i++) {
+				if (!isAuthorityBased(node.getChild(i))) {
+					return false;
+				}
+			}
+			return true;
+		}
+		if (node instanceof BooleanLiteral) {
+			return true;
+		}
+		if (node instanceof PropertyOrFieldReference) {
+			return AUTHORITY_PROPERTIES.contains(((PropertyOrFieldReference) node)
+					.getName());
+		}
+		if (node instanceof MethodReference) {
+			if (!AUTHORITY_METHODS.contains(((MethodReference) node).getName())) {
+				return false;
+			}
+			for (int i = 0; i < node.getChildCount(); i++) {
+				if (!(node.getChild(i) instanceof StringLiteral)) {
+					return false;
+				}
+			}
+			return true;
+		}
+		return false;
+	}
+
 	@Override
 	public EvaluationContext postProcess(EvaluationContext context, FilterInvocation fi) {
 		return this.postProcessor == null ? context
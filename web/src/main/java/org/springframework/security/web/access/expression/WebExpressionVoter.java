@@ -22,6 +22,7 @@ import org.springframework.security.access.AccessDecisionVoter;
 import org.springframework.security.access.ConfigAttribute;
 import org.springframework.security.access.expression.ExpressionUtils;
 import org.springframework.security.access.expression.SecurityExpressionHandler;
+import org.springframework.security.access.vote.CacheableAccessDecisionVoter;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.web.FilterInvocation;
 
@@ -30,7 +31,8 @@ import org.springframework.security.web.FilterInvocation;
  * @author Luke Taylor
  * @since 3.0
  */
-public class WebExpressionVoter implements AccessDecisionVoter<FilterInvocation> {
+public class WebExpressionVoter implements AccessDecisionVoter<FilterInvocation>,
+		CacheableAccessDecisionVoter {
 	private SecurityExpressionHandler<FilterInvocation> expressionHandler = new DefaultWebSecurityExpressionHandler();
 
 	public int vote(Authentication authentication, FilterInvocation fi,
@@ -63,6 +65,26 @@ public class WebExpressionVoter implements AccessDecisionVoter<FilterInvocation>
 		return null;
 	}
 
+	/**
+	 * Returns {@code true} if the expression handler is a
+	 * {@link DefaultWebSecurityExpressionHandler} with the default trust resolver and the
+	 * expression only consists of role, authority and authentication state checks with
+	 * literal arguments, such as {@code hasRole('USER') and isFullyAuthenticated()}.
+	 *
+	 * @since 4.2
+	 */
+	public boolean isDecisionCacheable(Collection<ConfigAttribute> attributes) {
+		WebExpressionConfigAttribute weca = findConfigAttribute(attributes);
+
+		if (weca == null) {
+			return true;
+		}
+
+		return expressionHandler.getClass() == DefaultWebSecurityExpressionHandler.class
+				&& ((DefaultWebSecurityExpressionHandler) expressionHandler)
+						.hasDefaultTrustResolver() && weca.isAuthorityBased();
+	}
+
 	public boolean supports(ConfigAttribute attribute) {
 		return attribute instanceof WebExpressionConfigAttribute;
 	}
@@ -16,9 +16,11 @@
 
 package org.springframework.security.web.access.intercept;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -29,6 +31,7 @@ import org.apache.commons.logging.LogFactory;
 import org.springframework.security.access.ConfigAttribute;
 import org.springframework.security.web.FilterInvocation;
 import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcherIndex;
 
 /**
  * Default implementation of <tt>FilterInvocationDefinitionSource</tt>.
@@ -47,6 +50,12 @@ import org.springframework.security.web.util.matcher.RequestMatcher;
  * {@code <intercept-url>} elements defined as children of the {@code <http>}
  * element are combined to build the instance used by the
  * {@code FilterSecurityInterceptor}.
+ * <p>
+ * For large maps the lookup can be switched to a compiled mode using
+ * {@link #setCompiledLookup(boolean)}, in which ant, regular expression and HTTP method
+ * matchers are organized in a {@link RequestMatcherIndex} keyed by path segment. The
+ * first matching entry is still the one which is used, and matchers which cannot be
+ * compiled are tried in their original position.
  *
  * @author Ben Alex
  * @author Luke Taylor
@@ -58,6 +67,10 @@ public class DefaultFilterInvocationSecurityMetadataSource implements
 
 	private final Map<RequestMatcher, Collection<ConfigAttribute>> requestMap;
 
+	private RequestMatcherIndex requestMatcherIndex;
+
+	private List<Collection<ConfigAttribute>> indexedAttributes;
+
 	// ~ Constructors
 	// ===================================================================================================
 
@@ -90,6 +103,10 @@ public class DefaultFilterInvocationSecurityMetadataSource implements
 
 	public Collection<ConfigAttribute> getAttributes(Object object) {
 		final HttpServletRequest request = ((FilterInvocation) object).getRequest();
+		if (requestMatcherIndex != null) {
+			int index = requestMatcherIndex.indexOf(request);
+			return index == -1 ? null : indexedAttributes.get(index);
+		}
 		for (Map.Entry<RequestMatcher, Collection<ConfigAttribute>> entry : requestMap
 				.entrySet()) {
 			if (entry.getKey().matches(request)) {
@@ -99,6 +116,33 @@ public class DefaultFilterInvocationSecurityMetadataSource implements
 		return null;
 	}
 
+	/**
+	 * Enables or disables the compiled lookup of the request map. When enabled, the
+	 * {@link RequestMatcher}s are compiled into a {@link RequestMatcherIndex} so that
+	 * only the entries which could match the request path and method are tried. Defaults
+	 * to {@code false}.
+	 *
+	 * @param compiledLookup true if the request map should be compiled
+	 * @since 4.2
+	 */
+	public void setCompiledLookup(boolean compiledLookup) {
+		if (!compiledLookup) {
+			this.requestMatcherIndex = null;
+			this.indexedAttributes = null;
+			return;
+		}
+		List<RequestMatcher> matchers = new ArrayList<RequestMatcher>(requestMap.size());
+		List<Collection<ConfigAttribute>> attributes = new ArrayList<Collection<ConfigAttribute>>(
+				requestMap.size());
+		for (Map.Entry<RequestMatcher, Collection<ConfigAttribute>> entry : requestMap
+				.entrySet()) {
+			matchers.add(entry.getKey());
+			attributes.add(entry.getValue());
+		}
+		this.indexedAttributes = attributes;
+		this.requestMatcherIndex = new RequestMatcherIndex(matchers);
+	}
+
 	public boolean supports(Class<?> clazz) {
 		return FilterInvocation.class.isAssignableFrom(clazz);
 	}
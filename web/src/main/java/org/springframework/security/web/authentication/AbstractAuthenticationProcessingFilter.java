@@ -17,6 +17,7 @@
 package org.springframework.security.web.authentication;
 
 import java.io.IOException;
+import java.lang.reflect.Method;
 
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
@@ -38,11 +39,13 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.SpringSecurityMessageSource;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.ConditionalFilter;
 import org.springframework.security.web.authentication.session.NullAuthenticatedSessionStrategy;
 import org.springframework.security.web.authentication.session.SessionAuthenticationStrategy;
 import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 import org.springframework.security.web.util.matcher.RequestMatcher;
 import org.springframework.util.Assert;
+import org.springframework.util.ReflectionUtils;
 import org.springframework.web.filter.GenericFilterBean;
 
 /**
@@ -109,7 +112,7 @@ import org.springframework.web.filter.GenericFilterBean;
  * @author Luke Taylor
  */
 public abstract class AbstractAuthenticationProcessingFilter extends GenericFilterBean
-		implements ApplicationEventPublisherAware, MessageSourceAware {
+		implements ApplicationEventPublisherAware, MessageSourceAware, ConditionalFilter {
 	// ~ Static fields/initializers
 	// =====================================================================================
 
@@ -258,6 +261,26 @@ public abstract class AbstractAuthenticationProcessingFilter extends GenericFilt
 		return requiresAuthenticationRequestMatcher.matches(request);
 	}
 
+	/**
+	 * Returns the {@code RequestMatcher} which determines whether authentication should
+	 * be attempted. If a subclass overrides
+	 * {@link #requiresAuthentication(HttpServletRequest, HttpServletResponse)}, null is
+	 * returned so that the filter is applied to every request, unless this method is
+	 * overridden as well.
+	 *
+	 * @since 4.2
+	 */
+	public RequestMatcher getApplicableRequestMatcher() {
+		Method requiresAuthentication = ReflectionUtils.findMethod(getClass(),
+				"requiresAuthentication", HttpServletRequest.class,
+				HttpServletResponse.class);
+		if (requiresAuthentication
+				.getDeclaringClass() != AbstractAuthenticationProcessingFilter.class) {
+			return null;
+		}
+		return requiresAuthenticationRequestMatcher;
+	}
+
 	/**
 	 * Performs actual authentication.
 	 * <p>
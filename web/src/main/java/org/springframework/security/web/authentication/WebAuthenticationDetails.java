@@ -60,7 +60,7 @@ public class WebAuthenticationDetails implements Serializable {
 	 * @param remoteAddress remote address of current request
 	 * @param sessionId session id
 	 */
-	private WebAuthenticationDetails(final String remoteAddress, final String sessionId) {
+	WebAuthenticationDetails(final String remoteAddress, final String sessionId) {
 		this.remoteAddress = remoteAddress;
 		this.sessionId = sessionId;
 	}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.web.authentication;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.springframework.security.core.context.BinaryObjectCodec;
+import org.springframework.security.core.context.BinarySecurityContextCodec;
+
+/**
+ * A {@link BinaryObjectCodec} for {@link WebAuthenticationDetails}, which are attached to
+ * most authentications performed by the web filters.
+ *
+ * @since 4.2
+ * @see BinarySecurityContextCodec
+ */
+public class WebAuthenticationDetailsCodec implements
+		BinaryObjectCodec<WebAuthenticationDetails> {
+
+	public Class<WebAuthenticationDetails> getObjectType() {
+		return WebAuthenticationDetails.class;
+	}
+
+	public void write(WebAuthenticationDetails details, DataOutput out)
+			throws IOException {
+		writeNullable(out, details.getRemoteAddress());
+		writeNullable(out, details.getSessionId());
+	}
+
+	public WebAuthenticationDetails read(DataInput in) throws IOException {
+		String remoteAddress = readNullable(in);
+		String sessionId = readNullable(in);
+		return new WebAuthenticationDetails(remoteAddress, sessionId);
+	}
+
+	private static void writeNullable(DataOutput out, String value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeUTF(value);
+		}
+	}
+
+	private static String readNullable(DataInput in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+}
@@ -17,6 +17,7 @@
 package org.springframework.security.web.authentication.logout;
 
 import java.io.IOException;
+import java.lang.reflect.Method;
 
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
@@ -27,10 +28,12 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.ConditionalFilter;
 import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 import org.springframework.security.web.util.matcher.RequestMatcher;
 import org.springframework.security.web.util.UrlUtils;
 import org.springframework.util.Assert;
+import org.springframework.util.ReflectionUtils;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.GenericFilterBean;
 
@@ -49,7 +52,7 @@ import org.springframework.web.filter.GenericFilterBean;
  * @author Ben Alex
  * @author Eddú Meléndez
  */
-public class LogoutFilter extends GenericFilterBean {
+public class LogoutFilter extends GenericFilterBean implements ConditionalFilter {
 
 	// ~ Instance fields
 	// ================================================================================================
@@ -129,6 +132,24 @@ public class LogoutFilter extends GenericFilterBean {
 		return logoutRequestMatcher.matches(request);
 	}
 
+	/**
+	 * Returns the {@code RequestMatcher} which determines whether a logout should take
+	 * place. If a subclass overrides
+	 * {@link #requiresLogout(HttpServletRequest, HttpServletResponse)}, null is returned
+	 * so that the filter is applied to every request, unless this method is overridden as
+	 * well.
+	 *
+	 * @since 4.2
+	 */
+	public RequestMatcher getApplicableRequestMatcher() {
+		Method requiresLogout = ReflectionUtils.findMethod(getClass(), "requiresLogout",
+				HttpServletRequest.class, HttpServletResponse.class);
+		if (requiresLogout.getDeclaringClass() != LogoutFilter.class) {
+			return null;
+		}
+		return logoutRequestMatcher;
+	}
+
 	public void setLogoutRequestMatcher(RequestMatcher logoutRequestMatcher) {
 		Assert.notNull(logoutRequestMatcher, "logoutRequestMatcher cannot be null");
 		this.logoutRequestMatcher = logoutRequestMatcher;
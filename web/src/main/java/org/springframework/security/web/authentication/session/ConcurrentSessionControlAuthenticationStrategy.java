@@ -26,6 +26,7 @@ import org.springframework.context.MessageSourceAware;
 import org.springframework.context.support.MessageSourceAccessor;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.SpringSecurityMessageSource;
+import org.springframework.security.core.session.CountingSessionRegistry;
 import org.springframework.security.core.session.SessionInformation;
 import org.springframework.security.core.session.SessionRegistry;
 import org.springframework.security.web.authentication.AbstractAuthenticationProcessingFilter;
@@ -41,7 +42,9 @@ import org.springframework.util.Assert;
  * When invoked following an authentication, it will check whether the user in question
  * should be allowed to proceed, by comparing the number of sessions they already have
  * active with the configured <tt>maximumSessions</tt> value. The {@link SessionRegistry}
- * is used as the source of data on authenticated users and session data.
+ * is used as the source of data on authenticated users and session data. If it is a
+ * {@link CountingSessionRegistry}, the sessions are only obtained once the user has
+ * reached the maximum number of sessions.
  * </p>
  * <p>
  * If a user has reached the maximum number of permitted sessions, the behaviour depends
@@ -88,11 +91,20 @@ public class ConcurrentSessionControlAuthenticationStrategy implements
 	public void onAuthentication(Authentication authentication,
 			HttpServletRequest request, HttpServletResponse response) {
 
+		int allowedSessions = getMaximumSessionsForThisUser(authentication);
+
+		if (allowedSessions != -1
+				&& sessionRegistry instanceof CountingSessionRegistry
+				&& ((CountingSessionRegistry) sessionRegistry).countSessions(authentication
+						.getPrincipal()) < allowedSessions) {
+			// Avoid obtaining the sessions when the maximum cannot have been reached
+			return;
+		}
+
 		final List<SessionInformation> sessions = sessionRegistry.getAllSessions(
 				authentication.getPrincipal(), false);
 
 		int sessionCount = sessions.size();
-		int allowedSessions = getMaximumSessionsForThisUser(authentication);
 
 		if (sessionCount < allowedSessions) {
 			// They haven't got too many login sessions running at present
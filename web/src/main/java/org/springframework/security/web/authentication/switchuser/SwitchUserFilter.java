@@ -51,12 +51,14 @@ import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsChecker;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.web.ConditionalFilter;
 import org.springframework.security.web.authentication.AuthenticationFailureHandler;
 import org.springframework.security.web.authentication.AuthenticationSuccessHandler;
 import org.springframework.security.web.authentication.SimpleUrlAuthenticationFailureHandler;
 import org.springframework.security.web.authentication.SimpleUrlAuthenticationSuccessHandler;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.security.web.util.UrlUtils;
+import org.springframework.security.web.util.matcher.RequestMatcher;
 import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.GenericFilterBean;
@@ -106,7 +108,7 @@ import org.springframework.web.filter.GenericFilterBean;
  * @see SwitchUserGrantedAuthority
  */
 public class SwitchUserFilter extends GenericFilterBean
-		implements ApplicationEventPublisherAware, MessageSourceAware {
+		implements ApplicationEventPublisherAware, MessageSourceAware, ConditionalFilter {
 	// ~ Static fields/initializers
 	// =====================================================================================
 
@@ -411,6 +413,21 @@ public class SwitchUserFilter extends GenericFilterBean
 		return uri.endsWith(request.getContextPath() + this.switchUserUrl);
 	}
 
+	/**
+	 * Returns a {@code RequestMatcher} matching the requests for which
+	 * {@link #requiresSwitchUser(HttpServletRequest)} or
+	 * {@link #requiresExitUser(HttpServletRequest)} return true.
+	 *
+	 * @since 4.2
+	 */
+	public RequestMatcher getApplicableRequestMatcher() {
+		return new RequestMatcher() {
+			public boolean matches(HttpServletRequest request) {
+				return requiresSwitchUser(request) || requiresExitUser(request);
+			}
+		};
+	}
+
 	public void setApplicationEventPublisher(ApplicationEventPublisher eventPublisher)
 			throws BeansException {
 		this.eventPublisher = eventPublisher;
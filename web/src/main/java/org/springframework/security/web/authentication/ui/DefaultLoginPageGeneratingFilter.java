@@ -26,11 +26,13 @@ import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 
 import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.web.ConditionalFilter;
 import org.springframework.security.web.WebAttributes;
 import org.springframework.security.web.authentication.AbstractAuthenticationProcessingFilter;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.security.web.authentication.rememberme.AbstractRememberMeServices;
 import org.springframework.security.web.csrf.CsrfToken;
+import org.springframework.security.web.util.matcher.RequestMatcher;
 import org.springframework.web.filter.GenericFilterBean;
 
 /**
@@ -43,7 +45,8 @@ import org.springframework.web.filter.GenericFilterBean;
  * @author Luke Taylor
  * @since 2.0
  */
-public class DefaultLoginPageGeneratingFilter extends GenericFilterBean {
+public class DefaultLoginPageGeneratingFilter extends GenericFilterBean implements
+		ConditionalFilter {
 	public static final String DEFAULT_LOGIN_PAGE_URL = "/login";
 	public static final String ERROR_PARAMETER_NAME = "error";
 	private String loginPageUrl;
@@ -177,6 +180,21 @@ public class DefaultLoginPageGeneratingFilter extends GenericFilterBean {
 		chain.doFilter(request, response);
 	}
 
+	/**
+	 * Returns a {@code RequestMatcher} matching the login page, login error and logout
+	 * success requests.
+	 *
+	 * @since 4.2
+	 */
+	public RequestMatcher getApplicableRequestMatcher() {
+		return new RequestMatcher() {
+			public boolean matches(HttpServletRequest request) {
+				return isLoginUrlRequest(request) || isErrorPage(request)
+						|| isLogoutSuccess(request);
+			}
+		};
+	}
+
 	private String generateLoginPageHtml(HttpServletRequest request, boolean loginError,
 			boolean logoutSuccess) {
 		String errorMsg = "none";
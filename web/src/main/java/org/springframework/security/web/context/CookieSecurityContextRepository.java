@@ -0,0 +1,784 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.web.context;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Method;
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.security.authentication.AuthenticationTrustResolver;
+import org.springframework.security.authentication.AuthenticationTrustResolverImpl;
+import org.springframework.security.authentication.RememberMeAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.crypto.codec.Base64;
+import org.springframework.security.crypto.codec.Utf8;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.web.util.WebUtils;
+
+/**
+ * A {@code SecurityContextRepository} which stores the authenticated user in a signed
+ * cookie, so that no server side state is required between requests.
+ * <p>
+ * Only the principal name, the authorities, whether the user was authenticated
+ * interactively or by remember-me, the time the cookie was first issued and the expiry
+ * are stored, using a compact versioned binary encoding. The cookie is signed with
+ * HMAC-SHA256, and may additionally be encrypted with AES-GCM by setting an
+ * {@link #setEncryptionKey(byte[]) encryption key}.
+ * A cookie whose signature does not match, or which has expired, is ignored. Authorities
+ * which are listed in the {@link #setKnownAuthorities(List) known authorities} are
+ * encoded as their index in that list rather than as a string. All nodes sharing the
+ * cookie must therefore be configured with the same keys and known authorities.
+ * <p>
+ * On the next request, the {@code Authentication} is reconstructed by
+ * {@link #createAuthentication(String, int, List)}. By default it is a
+ * {@link UsernamePasswordAuthenticationToken} or a {@link RememberMeAuthenticationToken}
+ * whose principal is the user name; the original principal, credentials and details are
+ * not retained.
+ * <p>
+ * As with the {@link HttpSessionSecurityContextRepository}, the context is saved through
+ * a {@link SaveContextOnUpdateOrErrorResponseWrapper}. The cookie is only written when
+ * the context changed during the request, or when less than half of the
+ * {@link #setMaxInactiveInterval(int) maximum inactive interval} remains, so that most
+ * responses carry no cookie at all. Anonymous and empty contexts are never stored, and
+ * an existing cookie is removed when the user is no longer authenticated, or when the
+ * context of the user is too large to be stored in a cookie.
+ * <p>
+ * Refreshing the cookie retains the time it was first issued, and a cookie issued more
+ * than the {@link #setMaxAge(int) maximum age} ago is rejected however recently it was
+ * refreshed, so that the authorities are loaded again periodically. As no state is kept
+ * on the server, logging out only removes the cookie from the browser: a copy of the
+ * cookie remains valid until it expires, or until the signing key is changed.
+ *
+ * @since 4.2
+ */
+public class CookieSecurityContextRepository implements SecurityContextRepository {
+
+	public static final String DEFAULT_COOKIE_NAME = "SECURITY_CONTEXT";
+
+	static final byte VERSION = 1;
+
+	static final int AUTHENTICATED = 0;
+
+	static final int REMEMBER_ME = 1;
+
+	private static final int FLAG_ENCRYPTED = 1;
+
+	private static final String MAC_ALGORITHM = "HmacSHA256";
+
+	private static final int MAC_LENGTH = 32;
+
+	private static final int IV_LENGTH = 12;
+
+	private static final int TAG_LENGTH = 128;
+
+	private static final int MAX_COOKIE_LENGTH = 4096;
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private static final String REMEMBER_ME_KEY = CookieSecurityContextRepository.class
+			.getName();
+
+	protected final Log logger = LogFactory.getLog(this.getClass());
+
+	private final SecretKeySpec signingKey;
+
+	private final Mac prototype;
+
+	private final SecureRandom random = new SecureRandom();
+
+	private SecretKeySpec encryptionKey;
+
+	private Map<String, Integer> authorityIds = new HashMap<String, Integer>();
+
+	private String[] knownAuthorities = new String[0];
+
+	private String cookieName = DEFAULT_COOKIE_NAME;
+
+	private String cookieDomain;
+
+	private Boolean useSecureCookie;
+
+	private int maxInactiveInterval = 1800;
+
+	private int maxAge = 43200;
+
+	private boolean disableUrlRewriting;
+
+	private AuthenticationTrustResolver trustResolver = new AuthenticationTrustResolverImpl();
+
+	private final Method setHttpOnlyMethod = ReflectionUtils.findMethod(Cookie.class,
+			"setHttpOnly", boolean.class);
+
+	private final boolean isServlet3 = ClassUtils.hasMethod(ServletRequest.class,
+			"startAsync");
+
+	/**
+	 * Creates a repository signing the cookie with the supplied key.
+	 *
+	 * @param signingKey the HMAC-SHA256 key, which must be at least 32 bytes long
+	 */
+	public CookieSecurityContextRepository(byte[] signingKey) {
+		Assert.notNull(signingKey, "signingKey cannot be null");
+		Assert.isTrue(signingKey.length >= MAC_LENGTH,
+				"signingKey must be at least 32 bytes long");
+		this.signingKey = new SecretKeySpec(signingKey, MAC_ALGORITHM);
+		this.prototype = newMac();
+	}
+
+	public SecurityContext loadContext(HttpRequestResponseHolder requestResponseHolder) {
+		HttpServletRequest request = requestResponseHolder.getRequest();
+		HttpServletResponse response = requestResponseHolder.getResponse();
+		String cookieValue = readCookie(request);
+		long now = System.currentTimeMillis();
+
+		SecurityContext context = SecurityContextHolder.createEmptyContext();
+		long issuedAt = 0;
+		long expires = 0;
+
+		if (cookieValue != null) {
+			DecodedContext decoded = decode(cookieValue, now);
+			if (decoded != null) {
+				context.setAuthentication(decoded.authentication);
+				issuedAt = decoded.issuedAt;
+				expires = decoded.expires;
+			}
+			else if (logger.isDebugEnabled()) {
+				logger.debug("Ignoring invalid or expired cookie '" + cookieName + "'");
+			}
+		}
+
+		SaveToCookieResponseWrapper wrappedResponse = new SaveToCookieResponseWrapper(
+				response, request, cookieValue != null, context, issuedAt, expires);
+		requestResponseHolder.setResponse(wrappedResponse);
+
+		if (isServlet3) {
+			requestResponseHolder.setRequest(new Servlet3SaveToCookieRequestWrapper(
+					request, wrappedResponse));
+		}
+
+		return context;
+	}
+
+	public void saveContext(SecurityContext context, HttpServletRequest request,
+			HttpServletResponse response) {
+		SaveContextOnUpdateOrErrorResponseWrapper responseWrapper = WebUtils
+				.getNativeResponse(response,
+						SaveContextOnUpdateOrErrorResponseWrapper.class);
+		if (responseWrapper == null) {
+			throw new IllegalStateException(
+					"Cannot invoke saveContext on response "
+							+ response
+							+ ". You must use the HttpRequestResponseHolder.response after invoking loadContext");
+		}
+		if (!responseWrapper.isContextSaved()) {
+			responseWrapper.saveContext(context);
+		}
+	}
+
+	public boolean containsContext(HttpServletRequest request) {
+		String cookieValue = readCookie(request);
+		return cookieValue != null
+				&& decode(cookieValue, System.currentTimeMillis()) != null;
+	}
+
+	/**
+	 * Reconstructs the {@code Authentication} stored in the cookie. Subclasses may
+	 * override this to load the principal, for example from a cache of users.
+	 *
+	 * @param name the name of the principal
+	 * @param type {@link #AUTHENTICATED} or {@link #REMEMBER_ME}
+	 * @param authorities the authorities granted to the principal
+	 * @return the authentication, or null to treat the user as not authenticated
+	 */
+	protected Authentication createAuthentication(String name, int type,
+			List<GrantedAuthority> authorities) {
+		if (type == REMEMBER_ME) {
+			return new RememberMeAuthenticationToken(REMEMBER_ME_KEY, name, authorities);
+		}
+		return new UsernamePasswordAuthenticationToken(name, null, authorities);
+	}
+
+	/**
+	 * Enables encryption of the cookie with AES-GCM.
+	 *
+	 * @param encryptionKey the AES key, which must be 16, 24 or 32 bytes long
+	 */
+	public void setEncryptionKey(byte[] encryptionKey) {
+		Assert.notNull(encryptionKey, "encryptionKey cannot be null");
+		Assert.isTrue(encryptionKey.length == 16 || encryptionKey.length == 24
+				|| encryptionKey.length == 32,
+				"encryptionKey must be 16, 24 or 32 bytes long");
+		this.encryptionKey = new SecretKeySpec(encryptionKey, "AES");
+	}
+
+	/**
+	 * Sets the authorities which are encoded by their index rather than by name. The
+	 * order of the list is part of the cookie format, so authorities should only ever be
+	 * appended to it. Other authorities are still stored, using their name.
+	 *
+	 * @param knownAuthorities the names of the commonly granted authorities
+	 */
+	public void setKnownAuthorities(List<String> knownAuthorities) {
+		Assert.notNull(knownAuthorities, "knownAuthorities cannot be null");
+		Map<String, Integer> authorityIds = new HashMap<String, Integer>();
+		for (int i = 0; i < knownAuthorities.size(); i++) {
+			String authority = knownAuthorities.get(i);
+			Assert.hasText(authority, "knownAuthorities cannot contain empty values");
+			authorityIds.put(authority, i + 1);
+		}
+		this.authorityIds = authorityIds;
+		this.knownAuthorities = knownAuthorities.toArray(new String[0]);
+	}
+
+	/**
+	 * Sets the time in seconds after the last write of the cookie at which the stored
+	 * context expires. The cookie is rewritten with a new expiry once less than half of
+	 * the interval remains. Defaults to 30 minutes.
+	 *
+	 * @param maxInactiveInterval the interval in seconds
+	 */
+	public void setMaxInactiveInterval(int maxInactiveInterval) {
+		Assert.isTrue(maxInactiveInterval > 0,
+				"maxInactiveInterval must be greater than 0");
+		this.maxInactiveInterval = maxInactiveInterval;
+	}
+
+	/**
+	 * Sets the time in seconds after the authentication of the user at which the stored
+	 * context expires, regardless of how often the cookie is rewritten. Defaults to 12
+	 * hours.
+	 *
+	 * @param maxAge the maximum age in seconds
+	 */
+	public void setMaxAge(int maxAge) {
+		Assert.isTrue(maxAge > 0, "maxAge must be greater than 0");
+		this.maxAge = maxAge;
+	}
+
+	public void setCookieName(String cookieName) {
+		Assert.hasText(cookieName, "cookieName cannot be empty");
+		this.cookieName = cookieName;
+	}
+
+	public void setCookieDomain(String cookieDomain) {
+		this.cookieDomain = cookieDomain;
+	}
+
+	/**
+	 * Whether the cookie should be flagged as secure or not. By default the cookie is
+	 * secure if the request is.
+	 *
+	 * @param useSecureCookie set to {@code false} to always send the cookie over
+	 * insecure connections as well
+	 */
+	public void setUseSecureCookie(boolean useSecureCookie) {
+		this.useSecureCookie = useSecureCookie;
+	}
+
+	/**
+	 * Allows the use of session identifiers in URLs to be disabled. Off by default.
+	 *
+	 * @param disableUrlRewriting set to <tt>true</tt> to disable URL encoding methods in
+	 * the response wrapper and prevent the addition of session identifiers to URLs.
+	 */
+	public void setDisableUrlRewriting(boolean disableUrlRewriting) {
+		this.disableUrlRewriting = disableUrlRewriting;
+	}
+
+	/**
+	 * Sets the {@link AuthenticationTrustResolver} to be used. The default is
+	 * {@link AuthenticationTrustResolverImpl}.
+	 *
+	 * @param trustResolver the {@link AuthenticationTrustResolver} to use. Cannot be
+	 * null.
+	 */
+	public void setTrustResolver(AuthenticationTrustResolver trustResolver) {
+		Assert.notNull(trustResolver, "trustResolver cannot be null");
+		this.trustResolver = trustResolver;
+	}
+
+	// ~ Encoding
+	// ================================================================================================
+
+	/**
+	 * Encodes the authentication as
+	 * {@code version | flags | payload | HMAC(version | flags | payload)}, where the
+	 * payload is either the plain body or {@code iv | AES-GCM(body)}.
+	 */
+	String encode(Authentication authentication, long issuedAt, long expires) {
+		ByteArrayOutputStream body = new ByteArrayOutputStream(72);
+		writeLong(body, issuedAt);
+		writeLong(body, expires);
+		body.write(trustResolver.isRememberMe(authentication) ? REMEMBER_ME
+				: AUTHENTICATED);
+		writeString(body, authentication.getName());
+
+		Collection<? extends GrantedAuthority> authorities = authentication
+				.getAuthorities();
+		writeVarInt(body, authorities.size());
+		for (GrantedAuthority authority : authorities) {
+			String name = authority.getAuthority();
+			Integer id = name == null ? null : this.authorityIds.get(name);
+			if (id != null) {
+				writeVarInt(body, id);
+			}
+			else {
+				writeVarInt(body, 0);
+				writeString(body, name == null ? "" : name);
+			}
+		}
+
+		byte[] payload = body.toByteArray();
+		int flags = 0;
+		if (this.encryptionKey != null) {
+			payload = encrypt(payload);
+			flags |= FLAG_ENCRYPTED;
+		}
+
+		byte[] token = new byte[2 + payload.length + MAC_LENGTH];
+		token[0] = VERSION;
+		token[1] = (byte) flags;
+		System.arraycopy(payload, 0, token, 2, payload.length);
+		Mac mac = createMac();
+		mac.update(token, 0, token.length - MAC_LENGTH);
+		try {
+			mac.doFinal(token, token.length - MAC_LENGTH);
+		}
+		catch (GeneralSecurityException e) {
+			throw new IllegalStateException("Unable to sign the security context", e);
+		}
+
+		StringBuilder value = new StringBuilder(Utf8.decode(Base64.encode(token)));
+		while (value.charAt(value.length() - 1) == '=') {
+			value.deleteCharAt(value.length() - 1);
+		}
+		return value.toString();
+	}
+
+	/**
+	 * Decodes and verifies the cookie value.
+	 *
+	 * @return the decoded context, or null if the value is malformed, is not signed
+	 * with the signing key, has expired or was issued more than the maximum age ago
+	 */
+	DecodedContext decode(String cookieValue, long now) {
+		StringBuilder padded = new StringBuilder(cookieValue);
+		while (padded.length() % 4 != 0) {
+			padded.append('=');
+		}
+		byte[] encoded = Utf8.encode(padded);
+		if (!Base64.isBase64(encoded)) {
+			return null;
+		}
+		byte[] token = Base64.decode(encoded);
+		if (token.length < 2 + MAC_LENGTH || token[0] != VERSION) {
+			return null;
+		}
+
+		Mac mac = createMac();
+		mac.update(token, 0, token.length - MAC_LENGTH);
+		byte[] expected = mac.doFinal();
+		byte[] actual = new byte[MAC_LENGTH];
+		System.arraycopy(token, token.length - MAC_LENGTH, actual, 0, MAC_LENGTH);
+		if (!MessageDigest.isEqual(expected, actual)) {
+			return null;
+		}
+
+		byte[] body;
+		int offset;
+		int end;
+		if ((token[1] & FLAG_ENCRYPTED) != 0) {
+			if (this.encryptionKey == null) {
+				return null;
+			}
+			body = decrypt(token, 2, token.length - 2 - MAC_LENGTH);
+			if (body == null) {
+				return null;
+			}
+			offset = 0;
+			end = body.length;
+		}
+		else {
+			body = token;
+			offset = 2;
+			end = token.length - MAC_LENGTH;
+		}
+
+		try {
+			Reader reader = new Reader(body, offset, end);
+			long issuedAt = reader.readLong();
+			long expires = reader.readLong();
+			if (expires - now <= 0 || now - issuedAt >= this.maxAge * 1000L) {
+				return null;
+			}
+			int type = reader.readByte();
+			String name = reader.readString();
+			int count = reader.readVarInt();
+			List<GrantedAuthority> authorities = new ArrayList<GrantedAuthority>(
+					Math.min(count, end - offset));
+			for (int i = 0; i < count; i++) {
+				int id = reader.readVarInt();
+				String authority;
+				if (id == 0) {
+					authority = reader.readString();
+				}
+				else if (id <= this.knownAuthorities.length) {
+					authority = this.knownAuthorities[id - 1];
+				}
+				else {
+					return null;
+				}
+				authorities.add(new SimpleGrantedAuthority(authority));
+			}
+			if (!reader.isFinished()) {
+				return null;
+			}
+			Authentication authentication = createAuthentication(name, type,
+					authorities);
+			return authentication == null ? null : new DecodedContext(authentication,
+					issuedAt, expires);
+		}
+		catch (IndexOutOfBoundsException e) {
+			return null;
+		}
+		catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	private byte[] encrypt(byte[] body) {
+		byte[] iv = new byte[IV_LENGTH];
+		this.random.nextBytes(iv);
+		try {
+			Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+			cipher.init(Cipher.ENCRYPT_MODE, this.encryptionKey, new GCMParameterSpec(
+					TAG_LENGTH, iv));
+			byte[] payload = new byte[IV_LENGTH + cipher.getOutputSize(body.length)];
+			System.arraycopy(iv, 0, payload, 0, IV_LENGTH);
+			cipher.doFinal(body, 0, body.length, payload, IV_LENGTH);
+			return payload;
+		}
+		catch (GeneralSecurityException e) {
+			throw new IllegalStateException("Unable to encrypt the security context", e);
+		}
+	}
+
+	private byte[] decrypt(byte[] token, int offset, int length) {
+		if (length < IV_LENGTH + TAG_LENGTH / 8) {
+			return null;
+		}
+		try {
+			Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+			cipher.init(Cipher.DECRYPT_MODE, this.encryptionKey, new GCMParameterSpec(
+					TAG_LENGTH, token, offset, IV_LENGTH));
+			return cipher.doFinal(token, offset + IV_LENGTH, length - IV_LENGTH);
+		}
+		catch (GeneralSecurityException e) {
+			return null;
+		}
+	}
+
+	private Mac createMac() {
+		try {
+			return (Mac) this.prototype.clone();
+		}
+		catch (CloneNotSupportedException e) {
+			return newMac();
+		}
+	}
+
+	private Mac newMac() {
+		try {
+			Mac mac = Mac.getInstance(MAC_ALGORITHM);
+			mac.init(this.signingKey);
+			return mac;
+		}
+		catch (GeneralSecurityException e) {
+			throw new IllegalStateException("Unable to initialize " + MAC_ALGORITHM, e);
+		}
+	}
+
+	private static void writeLong(ByteArrayOutputStream out, long value) {
+		for (int shift = 56; shift >= 0; shift -= 8) {
+			out.write((int) (value >>> shift));
+		}
+	}
+
+	private static void writeVarInt(ByteArrayOutputStream out, int value) {
+		while ((value & ~0x7F) != 0) {
+			out.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+
+	private static void writeString(ByteArrayOutputStream out, String value) {
+		byte[] bytes = Utf8.encode(value);
+		writeVarInt(out, bytes.length);
+		out.write(bytes, 0, bytes.length);
+	}
+
+	// ~ Cookie handling
+	// ================================================================================================
+
+	private String readCookie(HttpServletRequest request) {
+		Cookie[] cookies = request.getCookies();
+		if (cookies == null) {
+			return null;
+		}
+		for (Cookie cookie : cookies) {
+			if (cookieName.equals(cookie.getName())) {
+				String value = cookie.getValue();
+				return value == null || value.length() == 0 ? null : value;
+			}
+		}
+		return null;
+	}
+
+	private void writeCookie(String value, HttpServletRequest request,
+			HttpServletResponse response) {
+		Cookie cookie = new Cookie(cookieName, value);
+		cookie.setPath(getCookiePath(request));
+		if (cookieDomain != null) {
+			cookie.setDomain(cookieDomain);
+		}
+		if (value == null) {
+			cookie.setMaxAge(0);
+		}
+		else {
+			cookie.setMaxAge(-1);
+			cookie.setSecure(useSecureCookie == null ? request.isSecure()
+					: useSecureCookie);
+		}
+		if (setHttpOnlyMethod != null) {
+			ReflectionUtils.invokeMethod(setHttpOnlyMethod, cookie, Boolean.TRUE);
+		}
+		response.addCookie(cookie);
+	}
+
+	private String getCookiePath(HttpServletRequest request) {
+		String contextPath = request.getContextPath();
+		return contextPath.length() > 0 ? contextPath : "/";
+	}
+
+	// ~ Inner Classes
+	// ==================================================================================================
+
+	static final class DecodedContext {
+		final Authentication authentication;
+		final long issuedAt;
+		final long expires;
+
+		private DecodedContext(Authentication authentication, long issuedAt,
+				long expires) {
+			this.authentication = authentication;
+			this.issuedAt = issuedAt;
+			this.expires = expires;
+		}
+	}
+
+	/**
+	 * Reads the binary encoding, failing with an {@code IndexOutOfBoundsException} when
+	 * the input is truncated.
+	 */
+	private static final class Reader {
+		private final byte[] bytes;
+		private final int end;
+		private int position;
+
+		private Reader(byte[] bytes, int offset, int end) {
+			this.bytes = bytes;
+			this.position = offset;
+			this.end = end;
+		}
+
+		int readByte() {
+			if (this.position >= this.end) {
+				throw new IndexOutOfBoundsException();
+			}
+			return this.bytes[this.position++] & 0xFF;
+		}
+
+		long readLong() {
+			long value = 0;
+			for (int i = 0; i < 8; i++) {
+				value = (value << 8) | readByte();
+			}
+			return value;
+		}
+
+		int readVarInt() {
+			int value = 0;
+			for (int shift = 0; shift < 32; shift += 7) {
+				int b = readByte();
+				value |= (b & 0x7F) << shift;
+				if ((b & 0x80) == 0) {
+					if (value < 0) {
+						throw new IllegalArgumentException("Negative length");
+					}
+					return value;
+				}
+			}
+			throw new IllegalArgumentException("Malformed variable length integer");
+		}
+
+		String readString() {
+			int length = readVarInt();
+			if (length > this.end - this.position) {
+				throw new IndexOutOfBoundsException();
+			}
+			String value = new String(this.bytes, this.position, length, UTF_8);
+			this.position += length;
+			return value;
+		}
+
+		boolean isFinished() {
+			return this.position == this.end;
+		}
+	}
+
+	private static class Servlet3SaveToCookieRequestWrapper extends
+			HttpServletRequestWrapper {
+		private final SaveContextOnUpdateOrErrorResponseWrapper response;
+
+		public Servlet3SaveToCookieRequestWrapper(HttpServletRequest request,
+				SaveContextOnUpdateOrErrorResponseWrapper response) {
+			super(request);
+			this.response = response;
+		}
+
+		@Override
+		public AsyncContext startAsync() {
+			response.disableSaveOnResponseCommitted();
+			return super.startAsync();
+		}
+
+		@Override
+		public AsyncContext startAsync(ServletRequest servletRequest,
+				ServletResponse servletResponse) throws IllegalStateException {
+			response.disableSaveOnResponseCommitted();
+			return super.startAsync(servletRequest, servletResponse);
+		}
+	}
+
+	/**
+	 * Writes the cookie before the response is committed, but only if the context
+	 * changed during the request or the stored context is about to expire.
+	 */
+	final class SaveToCookieResponseWrapper extends
+			SaveContextOnUpdateOrErrorResponseWrapper {
+
+		private final HttpServletRequest request;
+		private final boolean cookieExistedAtStartOfRequest;
+		private final SecurityContext contextBeforeExecution;
+		private final Authentication authBeforeExecution;
+		private final long issuedAtBeforeExecution;
+		private final long expiresBeforeExecution;
+
+		SaveToCookieResponseWrapper(HttpServletResponse response,
+				HttpServletRequest request, boolean cookieExistedAtStartOfRequest,
+				SecurityContext context, long issuedAt, long expires) {
+			super(response, disableUrlRewriting);
+			this.request = request;
+			this.cookieExistedAtStartOfRequest = cookieExistedAtStartOfRequest;
+			this.contextBeforeExecution = context;
+			this.authBeforeExecution = context.getAuthentication();
+			this.issuedAtBeforeExecution = issuedAt;
+			this.expiresBeforeExecution = expires;
+		}
+
+		@Override
+		protected void saveContext(SecurityContext context) {
+			final Authentication authentication = context.getAuthentication();
+			HttpServletResponse response = (HttpServletResponse) getResponse();
+
+			if (authentication == null || trustResolver.isAnonymous(authentication)) {
+				if (cookieExistedAtStartOfRequest) {
+					if (logger.isDebugEnabled()) {
+						logger.debug("SecurityContext is empty or contents are anonymous - removing cookie '"
+								+ cookieName + "'");
+					}
+					writeCookie(null, request, response);
+				}
+				return;
+			}
+
+			long now = System.currentTimeMillis();
+			long interval = maxInactiveInterval * 1000L;
+			// a refreshed cookie cannot outlive the maximum age of the original one
+			long issuedAt = authentication == authBeforeExecution ? issuedAtBeforeExecution
+					: now;
+			long expires = Math.min(now + interval, issuedAt + maxAge * 1000L);
+			if (!contextChanged(context)
+					&& (expiresBeforeExecution - now > interval / 2
+							|| expires <= expiresBeforeExecution)) {
+				return;
+			}
+
+			String value = encode(authentication, issuedAt, expires);
+			if (value.length() > MAX_COOKIE_LENGTH) {
+				logger.warn("SecurityContext of '" + authentication.getName()
+						+ "' does not fit into a cookie (" + value.length()
+						+ " characters) and is not stored");
+				// the cookie of the request may hold a different authentication
+				if (cookieExistedAtStartOfRequest) {
+					writeCookie(null, request, response);
+				}
+				return;
+			}
+			writeCookie(value, request, response);
+
+			if (logger.isDebugEnabled()) {
+				logger.debug("SecurityContext '" + context + "' stored to cookie '"
+						+ cookieName + "'");
+			}
+		}
+
+		private boolean contextChanged(SecurityContext context) {
+			return context != contextBeforeExecution
+					|| context.getAuthentication() != authBeforeExecution;
+		}
+	}
+}
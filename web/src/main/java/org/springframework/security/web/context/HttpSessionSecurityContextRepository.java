@@ -29,6 +29,7 @@ import org.springframework.security.authentication.AuthenticationTrustResolver;
 import org.springframework.security.authentication.AuthenticationTrustResolverImpl;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextCodec;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.context.SecurityContextHolderStrategy;
 import org.springframework.util.Assert;
@@ -73,6 +74,11 @@ import org.springframework.web.util.WebUtils;
  * need to conserve server memory and ensure all classes using the
  * {@code SecurityContextHolder} are designed to have no persistence of the
  * {@code SecurityContext} between web requests.
+ * <p>
+ * If a {@link #setSecurityContextCodec(SecurityContextCodec) SecurityContextCodec} is
+ * set, the context is stored in the session as the bytes produced by the codec rather
+ * than as an object. This keeps the session attribute small and avoids Java
+ * serialization of the context when sessions are replicated or stored externally.
  *
  * @author Luke Taylor
  * @since 3.0
@@ -97,6 +103,8 @@ public class HttpSessionSecurityContextRepository implements SecurityContextRepo
 
 	private AuthenticationTrustResolver trustResolver = new AuthenticationTrustResolverImpl();
 
+	private SecurityContextCodec securityContextCodec;
+
 	/**
 	 * Gets the security context for the current request (if available) and returns it.
 	 * <p>
@@ -189,6 +197,14 @@ public class HttpSessionSecurityContextRepository implements SecurityContextRepo
 			return null;
 		}
 
+		if (securityContextCodec != null && contextFromSession instanceof byte[]) {
+			contextFromSession = decodeSecurityContext((byte[]) contextFromSession);
+
+			if (contextFromSession == null) {
+				return null;
+			}
+		}
+
 		// We now have the security context object from the session.
 		if (!(contextFromSession instanceof SecurityContext)) {
 			if (logger.isWarnEnabled()) {
@@ -213,6 +229,18 @@ public class HttpSessionSecurityContextRepository implements SecurityContextRepo
 		return (SecurityContext) contextFromSession;
 	}
 
+	private SecurityContext decodeSecurityContext(byte[] encoded) {
+		try {
+			return securityContextCodec.decode(encoded);
+		}
+		catch (IllegalArgumentException e) {
+			logger.warn(springSecurityContextKey
+					+ " contained an encoded SecurityContext which could not be decoded",
+					e);
+			return null;
+		}
+	}
+
 	/**
 	 * By default, calls {@link SecurityContextHolder#createEmptyContext()} to obtain a
 	 * new context (there should be no context present in the holder when this method is
@@ -370,8 +398,11 @@ public class HttpSessionSecurityContextRepository implements SecurityContextRepo
 				// We may have a new session, so check also whether the context attribute
 				// is set SEC-1561
 				if (contextChanged(context)
-						|| httpSession.getAttribute(springSecurityContextKey) == null) {
-					httpSession.setAttribute(springSecurityContextKey, context);
+						|| !isContextStored(httpSession
+								.getAttribute(springSecurityContextKey))) {
+					httpSession.setAttribute(springSecurityContextKey,
+							securityContextCodec == null ? context
+									: securityContextCodec.encode(context));
 
 					if (logger.isDebugEnabled()) {
 						logger.debug("SecurityContext '" + context
@@ -386,6 +417,18 @@ public class HttpSessionSecurityContextRepository implements SecurityContextRepo
 					|| context.getAuthentication() != authBeforeExecution;
 		}
 
+		/**
+		 * Whether the session attribute holds a context in the configured form, so that
+		 * a context stored as an object is encoded once a codec is set.
+		 */
+		private boolean isContextStored(Object contextFromSession) {
+			if (contextFromSession == null) {
+				return false;
+			}
+			return securityContextCodec == null
+					|| contextFromSession instanceof byte[];
+		}
+
 		private HttpSession createNewSessionIfAllowed(SecurityContext context) {
 			if (httpSessionExistedAtStartOfRequest) {
 				if (logger.isDebugEnabled()) {
@@ -448,4 +491,21 @@ public class HttpSessionSecurityContextRepository implements SecurityContextRepo
 		Assert.notNull(trustResolver, "trustResolver cannot be null");
 		this.trustResolver = trustResolver;
 	}
+
+	/**
+	 * Sets the {@link SecurityContextCodec} used to store the context in the session as
+	 * bytes. Contexts which were stored as objects are still read, and are encoded when
+	 * they are next saved. By default the context is stored as an object.
+	 * <p>
+	 * Listeners of a {@code SessionDestroyedEvent} only receive the encoded context if
+	 * the event can decode it. The {@code HttpSessionEventPublisher} does so when the
+	 * codec is the only {@code SecurityContextCodec} bean of the application context.
+	 *
+	 * @param securityContextCodec the codec to use, or null to store the context object
+	 * @since 4.2
+	 * @see org.springframework.security.core.context.BinarySecurityContextCodec
+	 */
+	public void setSecurityContextCodec(SecurityContextCodec securityContextCodec) {
+		this.securityContextCodec = securityContextCodec;
+	}
 }
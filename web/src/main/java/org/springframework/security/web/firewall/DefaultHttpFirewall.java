@@ -35,12 +35,61 @@ import javax.servlet.http.HttpServletResponse;
  * paths before performing the servlet-mapping, but again this is not guaranteed by the
  * servlet spec.
  *
+ * <h3>Pass-through of clean requests</h3>
+ * If {@link #setPassThroughCleanRequests(boolean) passThroughCleanRequests} is enabled,
+ * the {@code servletPath} and {@code pathInfo} are scanned once, without allocating,
+ * before the request is wrapped. If they contain neither path parameters nor sequences
+ * of multiple '/' characters, there is nothing to strip and the request is returned in a
+ * lightweight {@link FirewalledRequest} which only delegates to the original request.
+ * Other requests are wrapped as usual.
+ *
+ * <h3>Request URI checks</h3>
+ * The raw request URI can additionally be checked for encoded slashes, percent-encoded
+ * periods and un-normalized segments, which some containers decode or normalize
+ * differently from the security rules. These checks are disabled by default and share a
+ * single scan of the request URI. See {@link #setAllowUrlEncodedSlash(boolean)},
+ * {@link #setAllowUrlEncodedPeriod(boolean)} and
+ * {@link #setAllowNonNormalizedRequestUri(boolean)}.
+ *
  * @author Luke Taylor
  */
 public class DefaultHttpFirewall implements HttpFirewall {
+	private static final int NEEDS_STRIPPING = 1;
+	private static final int NOT_NORMALIZED = 1 << 1;
+	private static final int ENCODED_SLASH = 1 << 2;
+	private static final int ENCODED_PERIOD = 1 << 3;
+
+	private boolean passThroughCleanRequests;
+
+	private boolean allowUrlEncodedSlash = true;
+
+	private boolean allowUrlEncodedPeriod = true;
+
+	private boolean allowNonNormalizedRequestUri = true;
 
 	public FirewalledRequest getFirewalledRequest(HttpServletRequest request)
 			throws RequestRejectedException {
+		if (!this.allowUrlEncodedSlash || !this.allowUrlEncodedPeriod
+				|| !this.allowNonNormalizedRequestUri) {
+			checkRequestUri(request.getRequestURI());
+		}
+
+		if (this.passThroughCleanRequests) {
+			String servletPath = request.getServletPath();
+			String pathInfo = request.getPathInfo();
+			int flags = scan(servletPath) | scan(pathInfo);
+			// an empty pathInfo is replaced with null by the RequestWrapper
+			if ((flags & NEEDS_STRIPPING) == 0
+					&& (pathInfo == null || pathInfo.length() > 0)) {
+				if ((flags & NOT_NORMALIZED) != 0) {
+					throw new RequestRejectedException(
+							"Un-normalized paths are not supported: " + servletPath
+									+ (pathInfo != null ? pathInfo : ""));
+				}
+				return new PassThroughFirewalledRequest(request);
+			}
+		}
+
 		FirewalledRequest fwr = new RequestWrapper(request);
 
 		if (!isNormalized(fwr.getServletPath()) || !isNormalized(fwr.getPathInfo())) {
@@ -56,6 +105,125 @@ public class DefaultHttpFirewall implements HttpFirewall {
 		return new FirewalledResponse(response);
 	}
 
+	/**
+	 * Sets whether clean requests, whose {@code servletPath} and {@code pathInfo} need no
+	 * stripping, are returned without being wrapped in a path-stripping wrapper. The
+	 * default is {@code false}.
+	 *
+	 * @param passThroughCleanRequests true if clean requests should not be wrapped
+	 * @since 4.2
+	 */
+	public void setPassThroughCleanRequests(boolean passThroughCleanRequests) {
+		this.passThroughCleanRequests = passThroughCleanRequests;
+	}
+
+	/**
+	 * Sets whether an encoded slash ("%2F" or "%2f") is allowed in the request URI. The
+	 * default is {@code true}.
+	 *
+	 * @param allowUrlEncodedSlash false if requests containing an encoded slash should be
+	 * rejected
+	 * @since 4.2
+	 */
+	public void setAllowUrlEncodedSlash(boolean allowUrlEncodedSlash) {
+		this.allowUrlEncodedSlash = allowUrlEncodedSlash;
+	}
+
+	/**
+	 * Sets whether an encoded period ("%2E" or "%2e") is allowed in the request URI. The
+	 * default is {@code true}.
+	 *
+	 * @param allowUrlEncodedPeriod false if requests containing an encoded period should
+	 * be rejected
+	 * @since 4.2
+	 */
+	public void setAllowUrlEncodedPeriod(boolean allowUrlEncodedPeriod) {
+		this.allowUrlEncodedPeriod = allowUrlEncodedPeriod;
+	}
+
+	/**
+	 * Sets whether "." or ".." segments are allowed in the raw request URI. A segment is
+	 * compared without its path parameters, so "..;param" is treated as "..". The
+	 * {@code servletPath} and {@code pathInfo} are always required to be normalized. The
+	 * default is {@code true}.
+	 *
+	 * @param allowNonNormalizedRequestUri false if requests whose URI is not normalized
+	 * should be rejected
+	 * @since 4.2
+	 */
+	public void setAllowNonNormalizedRequestUri(boolean allowNonNormalizedRequestUri) {
+		this.allowNonNormalizedRequestUri = allowNonNormalizedRequestUri;
+	}
+
+	private void checkRequestUri(String requestUri) {
+		int flags = scan(requestUri);
+		if (!this.allowUrlEncodedSlash && (flags & ENCODED_SLASH) != 0) {
+			throw new RequestRejectedException(
+					"The request was rejected because the URL contained an encoded slash: "
+							+ requestUri);
+		}
+		if (!this.allowUrlEncodedPeriod && (flags & ENCODED_PERIOD) != 0) {
+			throw new RequestRejectedException(
+					"The request was rejected because the URL contained an encoded period: "
+							+ requestUri);
+		}
+		if (!this.allowNonNormalizedRequestUri && (flags & NOT_NORMALIZED) != 0) {
+			throw new RequestRejectedException(
+					"The request was rejected because the URL was not normalized: "
+							+ requestUri);
+		}
+	}
+
+	/**
+	 * Scans a path once and reports the features found in it as a combination of the
+	 * flag constants. A segment is checked for "." and ".." up to its first ';'.
+	 *
+	 * @param path the path to scan, may be null
+	 * @return the flags describing the path
+	 */
+	private static int scan(String path) {
+		if (path == null) {
+			return 0;
+		}
+		int flags = 0;
+		int length = path.length();
+		int segmentStart = 0;
+		int parametersStart = -1;
+		for (int i = 0; i <= length; i++) {
+			char c = i < length ? path.charAt(i) : '/';
+			if (c == '/') {
+				int segmentEnd = parametersStart < 0 ? i : parametersStart;
+				int segmentLength = segmentEnd - segmentStart;
+				if ((segmentLength == 1 || segmentLength == 2)
+						&& path.charAt(segmentStart) == '.'
+						&& path.charAt(segmentEnd - 1) == '.') {
+					flags |= NOT_NORMALIZED;
+				}
+				if (i < length && i > 0 && path.charAt(i - 1) == '/') {
+					flags |= NEEDS_STRIPPING;
+				}
+				segmentStart = i + 1;
+				parametersStart = -1;
+			}
+			else if (c == ';') {
+				flags |= NEEDS_STRIPPING;
+				if (parametersStart < 0) {
+					parametersStart = i;
+				}
+			}
+			else if (c == '%' && i + 2 < length && path.charAt(i + 1) == '2') {
+				char encoded = path.charAt(i + 2);
+				if (encoded == 'F' || encoded == 'f') {
+					flags |= ENCODED_SLASH;
+				}
+				else if (encoded == 'E' || encoded == 'e') {
+					flags |= ENCODED_PERIOD;
+				}
+			}
+		}
+		return flags;
+	}
+
 	/**
 	 * Checks whether a path is normalized (doesn't contain path traversal sequences like
 	 * "./", "/../" or "/.")
@@ -86,4 +254,18 @@ public class DefaultHttpFirewall implements HttpFirewall {
 		return true;
 	}
 
+	/**
+	 * {@link FirewalledRequest} for requests which need no stripping. It has no state to
+	 * reset.
+	 */
+	private static final class PassThroughFirewalledRequest extends FirewalledRequest {
+
+		PassThroughFirewalledRequest(HttpServletRequest request) {
+			super(request);
+		}
+
+		@Override
+		public void reset() {
+		}
+	}
 }
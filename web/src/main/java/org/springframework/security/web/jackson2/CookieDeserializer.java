@@ -18,12 +18,9 @@ package org.springframework.security.web.jackson2;
 
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.MissingNode;
-import com.fasterxml.jackson.databind.node.NullNode;
 
 import javax.servlet.http.Cookie;
 import java.io.IOException;
@@ -33,6 +30,9 @@ import java.io.IOException;
  * set {@link Cookie#getDomain()} property. So when jackson deserialize that json {@link Cookie#setDomain(String)}
  * throws {@link NullPointerException}. This is registered with {@link CookieMixin} but you can also use it with
  * your own mixin.
+ * <p>
+ * The properties are read from the token stream as they arrive, in any order. Missing or null text
+ * properties are read as empty strings.
  *
  * @author Jitendra Singh
  * @see CookieMixin
@@ -42,20 +42,54 @@ class CookieDeserializer extends JsonDeserializer<Cookie> {
 
 	@Override
 	public Cookie deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException, JsonProcessingException {
-		ObjectMapper mapper = (ObjectMapper) jp.getCodec();
-		JsonNode jsonNode = mapper.readTree(jp);
-		Cookie cookie = new Cookie(readJsonNode(jsonNode, "name").asText(), readJsonNode(jsonNode, "value").asText());
-		cookie.setComment(readJsonNode(jsonNode, "comment").asText());
-		cookie.setDomain(readJsonNode(jsonNode, "domain").asText());
-		cookie.setMaxAge(readJsonNode(jsonNode, "maxAge").asInt(-1));
-		cookie.setSecure(readJsonNode(jsonNode, "secure").asBoolean());
-		cookie.setVersion(readJsonNode(jsonNode, "version").asInt());
-		cookie.setPath(readJsonNode(jsonNode, "path").asText());
-		cookie.setHttpOnly(readJsonNode(jsonNode, "httpOnly").asBoolean());
-		return cookie;
-	}
+		String name = "";
+		String value = "";
+		String comment = "";
+		String domain = "";
+		int maxAge = -1;
+		boolean secure = false;
+		int version = 0;
+		String path = "";
+		boolean httpOnly = false;
 
-	private JsonNode readJsonNode(JsonNode jsonNode, String field) {
-		return jsonNode.has(field) && !(jsonNode.get(field) instanceof NullNode) ? jsonNode.get(field) : MissingNode.getInstance();
+		JsonToken token = jp.getCurrentToken();
+		if (token == JsonToken.START_OBJECT) {
+			token = jp.nextToken();
+		}
+		for (; token == JsonToken.FIELD_NAME; token = jp.nextToken()) {
+			String field = jp.getCurrentName();
+			jp.nextToken();
+			if ("name".equals(field)) {
+				name = jp.getValueAsString("");
+			} else if ("value".equals(field)) {
+				value = jp.getValueAsString("");
+			} else if ("comment".equals(field)) {
+				comment = jp.getValueAsString("");
+			} else if ("domain".equals(field)) {
+				domain = jp.getValueAsString("");
+			} else if ("maxAge".equals(field)) {
+				maxAge = jp.getValueAsInt(-1);
+			} else if ("secure".equals(field)) {
+				secure = jp.getValueAsBoolean();
+			} else if ("version".equals(field)) {
+				version = jp.getValueAsInt();
+			} else if ("path".equals(field)) {
+				path = jp.getValueAsString("");
+			} else if ("httpOnly".equals(field)) {
+				httpOnly = jp.getValueAsBoolean();
+			} else {
+				jp.skipChildren();
+			}
+		}
+
+		Cookie cookie = new Cookie(name, value);
+		cookie.setComment(comment);
+		cookie.setDomain(domain);
+		cookie.setMaxAge(maxAge);
+		cookie.setSecure(secure);
+		cookie.setVersion(version);
+		cookie.setPath(path);
+		cookie.setHttpOnly(httpOnly);
+		return cookie;
 	}
 }
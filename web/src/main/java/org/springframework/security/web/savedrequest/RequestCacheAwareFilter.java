@@ -23,7 +23,10 @@ import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
 
+import org.springframework.security.web.ConditionalFilter;
+import org.springframework.security.web.util.matcher.RequestMatcher;
 import org.springframework.util.Assert;
 import org.springframework.web.filter.GenericFilterBean;
 
@@ -37,11 +40,16 @@ import org.springframework.web.filter.GenericFilterBean;
  * value (a wrapper of the saved request), it will pass this to the filter chain's
  * <tt>doFilter</tt> method. If null is returned by the cache, the original request is
  * used and the filter has no effect.
+ * <p>
+ * If the cache is a {@link HttpSessionRequestCache} or a {@link NullRequestCache}, the
+ * {@link #getApplicableRequestMatcher() applicable RequestMatcher} only matches requests
+ * for which a saved request may exist.
  *
  * @author Luke Taylor
  * @since 3.0
  */
-public class RequestCacheAwareFilter extends GenericFilterBean {
+public class RequestCacheAwareFilter extends GenericFilterBean implements
+		ConditionalFilter {
 
 	private RequestCache requestCache;
 
@@ -64,4 +72,30 @@ public class RequestCacheAwareFilter extends GenericFilterBean {
 				response);
 	}
 
+	/**
+	 * Returns a {@code RequestMatcher} matching the requests whose session contains a
+	 * saved request if the cache is a {@link HttpSessionRequestCache}, one which matches
+	 * no request if it is a {@link NullRequestCache} and null for any other cache.
+	 *
+	 * @since 4.2
+	 */
+	public RequestMatcher getApplicableRequestMatcher() {
+		if (requestCache.getClass() == HttpSessionRequestCache.class) {
+			return new RequestMatcher() {
+				public boolean matches(HttpServletRequest request) {
+					HttpSession session = request.getSession(false);
+					return session != null
+							&& session.getAttribute(HttpSessionRequestCache.SAVED_REQUEST) != null;
+				}
+			};
+		}
+		if (requestCache.getClass() == NullRequestCache.class) {
+			return new RequestMatcher() {
+				public boolean matches(HttpServletRequest request) {
+					return false;
+				}
+			};
+		}
+		return null;
+	}
 }
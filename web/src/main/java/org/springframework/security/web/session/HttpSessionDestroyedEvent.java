@@ -19,6 +19,7 @@ package org.springframework.security.web.session;
 import javax.servlet.http.HttpSession;
 
 import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextCodec;
 import org.springframework.security.core.session.SessionDestroyedEvent;
 
 import java.util.*;
@@ -32,11 +33,32 @@ import java.util.*;
  * @author Rob Winch
  */
 public class HttpSessionDestroyedEvent extends SessionDestroyedEvent {
+	// ~ Instance fields
+	// ================================================================================================
+
+	private final SecurityContextCodec securityContextCodec;
+
 	// ~ Constructors
 	// ===================================================================================================
 
 	public HttpSessionDestroyedEvent(HttpSession session) {
+		this(session, null);
+	}
+
+	/**
+	 * Creates an event whose {@link #getSecurityContexts()} also include the contexts
+	 * which are stored in the session as bytes encoded by the
+	 * {@code SecurityContextCodec}.
+	 *
+	 * @param session the destroyed session
+	 * @param securityContextCodec the codec used to store contexts, or null
+	 * @since 4.2
+	 * @see org.springframework.security.web.context.HttpSessionSecurityContextRepository#setSecurityContextCodec(SecurityContextCodec)
+	 */
+	public HttpSessionDestroyedEvent(HttpSession session,
+			SecurityContextCodec securityContextCodec) {
 		super(session);
+		this.securityContextCodec = securityContextCodec;
 	}
 
 	public HttpSession getSession() {
@@ -58,6 +80,14 @@ public class HttpSessionDestroyedEvent extends SessionDestroyedEvent {
 			if (attributeValue instanceof SecurityContext) {
 				contexts.add((SecurityContext) attributeValue);
 			}
+			else if (attributeValue instanceof byte[] && securityContextCodec != null) {
+				try {
+					contexts.add(securityContextCodec.decode((byte[]) attributeValue));
+				}
+				catch (IllegalArgumentException notAContext) {
+					// some other attribute stored as bytes
+				}
+			}
 		}
 
 		return contexts;
@@ -20,6 +20,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import org.springframework.context.ApplicationContext;
+import org.springframework.security.core.context.SecurityContextCodec;
 import org.springframework.security.web.context.support.SecurityWebApplicationContextUtils;
 
 
@@ -41,6 +42,10 @@ import javax.servlet.http.HttpSessionListener;
  * {@link HttpSessionCreatedEvent}. Maps
  * javax.servlet.http.HttpSessionListener.sessionDestroyed() to
  * {@link HttpSessionDestroyedEvent}.
+ * <p>
+ * If the application context contains a single {@link SecurityContextCodec} bean, the
+ * published {@code HttpSessionDestroyedEvent} uses it to decode security contexts which
+ * are stored in the session as bytes.
  *
  * @author Ray Krueger
  */
@@ -81,13 +86,21 @@ public class HttpSessionEventPublisher implements HttpSessionListener {
 	 * @param event The HttpSessionEvent pass in by the container
 	 */
 	public void sessionDestroyed(HttpSessionEvent event) {
-		HttpSessionDestroyedEvent e = new HttpSessionDestroyedEvent(event.getSession());
+		ApplicationContext context = getContext(event.getSession().getServletContext());
+		HttpSessionDestroyedEvent e = new HttpSessionDestroyedEvent(event.getSession(),
+				getSecurityContextCodec(context));
 		Log log = LogFactory.getLog(LOGGER_NAME);
 
 		if (log.isDebugEnabled()) {
 			log.debug("Publishing event: " + e);
 		}
 
-		getContext(event.getSession().getServletContext()).publishEvent(e);
+		context.publishEvent(e);
+	}
+
+	private SecurityContextCodec getSecurityContextCodec(ApplicationContext context) {
+		String[] names = context.getBeanNamesForType(SecurityContextCodec.class);
+		return names.length == 1 ? context.getBean(names[0], SecurityContextCodec.class)
+				: null;
 	}
 }
@@ -20,6 +20,8 @@ import java.util.regex.Pattern;
 
 import javax.servlet.http.HttpServletRequest;
 
+import org.springframework.security.web.util.matcher.RequestMatchContext;
+
 /**
  * Provides static methods for composing URLs.
  * <p>
@@ -91,11 +93,18 @@ public final class UrlUtils {
 	 * building the returned value. But this method may also be called using dummy request
 	 * objects which just have the requestURI and contextPatth set, for example, so it
 	 * will fall back to using those.
+	 * <p>
+	 * If a {@link RequestMatchContext} is present on the request, the value is obtained
+	 * from it so that it is only built once per request.
 	 *
 	 * @return the decoded URL, excluding any server name, context path or servlet path
 	 *
 	 */
 	public static String buildRequestUrl(HttpServletRequest r) {
+		RequestMatchContext context = RequestMatchContext.get(r);
+		if (context != null) {
+			return context.getRequestUrl(r);
+		}
 		return buildRequestUrl(r.getServletPath(), r.getRequestURI(), r.getContextPath(),
 				r.getPathInfo(), r.getQueryString());
 	}
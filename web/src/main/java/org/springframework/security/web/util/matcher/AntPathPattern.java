@@ -0,0 +1,452 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.web.util.matcher;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.util.StringUtils;
+
+/**
+ * An ant-style pattern which is compiled once into a sequence of path segments and then
+ * matched against paths without tokenizing them.
+ * <p>
+ * The semantics are those of {@link org.springframework.util.AntPathMatcher} with
+ * {@code trimTokens} disabled, which {@link AntPathRequestMatcher} previously delegated
+ * to: {@code ?} matches one character, {@code *} zero or more characters and
+ * {@code **} zero or more path segments, while {@code {name}} matches like {@code *}
+ * within a segment and captures the matched text. Repeated separators are ignored.
+ * <p>
+ * Literal, wildcard and plain variable segments are matched directly against the
+ * characters of the path, without allocating. Only segments which declare a custom
+ * variable expression ({@code {name:regex}}) are matched with a regular expression.
+ * Variable values are only extracted when
+ * {@link #extractUriTemplateVariables(String)} is invoked.
+ *
+ * @since 4.2
+ */
+final class AntPathPattern {
+	private static final char SEPARATOR = '/';
+
+	private static final String DOUBLE_WILDCARD = "**";
+
+	private static final Pattern GLOB_PATTERN = Pattern
+			.compile("\\?|\\*|\\{((?:\\{[^/]+?\\}|[^/{}]|\\\\[{}])+?)\\}");
+
+	private static final String DEFAULT_VARIABLE_PATTERN = "(.*)";
+
+	private static final char LINE_SEPARATOR = (char) 0x2028;
+
+	private static final char PARAGRAPH_SEPARATOR = (char) 0x2029;
+
+	private final String pattern;
+
+	private final Segment[] segments;
+
+	private final boolean startsWithSeparator;
+
+	private final boolean endsWithSeparator;
+
+	AntPathPattern(String pattern, boolean caseSensitive) {
+		this.pattern = pattern;
+		String[] tokens = StringUtils.tokenizeToStringArray(pattern, "/", false, true);
+		this.segments = new Segment[tokens.length];
+		for (int i = 0; i < tokens.length; i++) {
+			this.segments[i] = new Segment(tokens[i], caseSensitive);
+		}
+		this.startsWithSeparator = pattern.length() > 0
+				&& pattern.charAt(0) == SEPARATOR;
+		this.endsWithSeparator = pattern.length() > 0
+				&& pattern.charAt(pattern.length() - 1) == SEPARATOR;
+	}
+
+	boolean matches(String path) {
+		return doMatch(path, null);
+	}
+
+	Map<String, String> extractUriTemplateVariables(String path) {
+		Map<String, String> variables = new LinkedHashMap<String, String>();
+		if (!doMatch(path, variables)) {
+			throw new IllegalStateException("Pattern \"" + this.pattern
+					+ "\" is not a match for \"" + path + "\"");
+		}
+		return variables;
+	}
+
+	/**
+	 * Matches the path segment by segment. Segments matching the pattern up to the first
+	 * {@code **} are consumed from the start of the path, those after the last
+	 * {@code **} from the end, and the groups in between are searched for in the
+	 * remainder.
+	 */
+	private boolean doMatch(String path, Map<String, String> variables) {
+		boolean pathStartsWithSeparator = path.length() > 0
+				&& path.charAt(0) == SEPARATOR;
+		if (pathStartsWithSeparator != this.startsWithSeparator) {
+			return false;
+		}
+
+		Segment[] segments = this.segments;
+		int patternStart = 0;
+		int patternEnd = segments.length - 1;
+		int pathStart = 0;
+		int pathEnd = path.length();
+
+		// Match all segments up to the first **
+		while (patternStart <= patternEnd) {
+			pathStart = skipSeparators(path, pathStart, pathEnd);
+			if (pathStart == pathEnd || segments[patternStart].doubleWildcard) {
+				break;
+			}
+			int end = segmentEnd(path, pathStart, pathEnd);
+			if (!segments[patternStart].matches(path, pathStart, end, variables)) {
+				return false;
+			}
+			patternStart++;
+			pathStart = end;
+		}
+		pathStart = skipSeparators(path, pathStart, pathEnd);
+
+		if (pathStart == pathEnd) {
+			boolean pathEndsWithSeparator = path.length() > 0
+					&& path.charAt(path.length() - 1) == SEPARATOR;
+			// Path is exhausted, only match if rest of pattern is * or **'s
+			if (patternStart > patternEnd) {
+				return this.endsWithSeparator == pathEndsWithSeparator;
+			}
+			if (patternStart == patternEnd && segments[patternStart].singleWildcard
+					&& pathEndsWithSeparator) {
+				return true;
+			}
+			return onlyDoubleWildcards(patternStart, patternEnd);
+		}
+		else if (patternStart > patternEnd) {
+			// Path is not exhausted, but pattern is
+			return false;
+		}
+
+		// Match all segments after the last **
+		while (patternStart <= patternEnd) {
+			pathEnd = skipSeparatorsBackwards(path, pathStart, pathEnd);
+			if (pathStart == pathEnd || segments[patternEnd].doubleWildcard) {
+				break;
+			}
+			int start = path.lastIndexOf(SEPARATOR, pathEnd - 1) + 1;
+			if (!segments[patternEnd].matches(path, start, pathEnd, variables)) {
+				return false;
+			}
+			patternEnd--;
+			pathEnd = start;
+		}
+		if (skipSeparators(path, pathStart, pathEnd) == pathEnd) {
+			// Path is exhausted
+			return onlyDoubleWildcards(patternStart, patternEnd);
+		}
+
+		// Search for the groups of segments between the remaining **'s
+		while (patternStart != patternEnd) {
+			pathStart = skipSeparators(path, pathStart, pathEnd);
+			if (pathStart == pathEnd) {
+				break;
+			}
+			int nextDoubleWildcard = -1;
+			for (int i = patternStart + 1; i <= patternEnd; i++) {
+				if (segments[i].doubleWildcard) {
+					nextDoubleWildcard = i;
+					break;
+				}
+			}
+			if (nextDoubleWildcard == patternStart + 1) {
+				// '**/**' situation, so skip one
+				patternStart++;
+				continue;
+			}
+
+			int groupLength = nextDoubleWildcard - patternStart - 1;
+			int remaining = countSegments(path, pathStart, pathEnd);
+			int candidate = pathStart;
+			int foundEnd = -1;
+			while (remaining >= groupLength) {
+				int position = candidate;
+				boolean found = true;
+				for (int j = 0; j < groupLength; j++) {
+					position = skipSeparators(path, position, pathEnd);
+					int end = segmentEnd(path, position, pathEnd);
+					if (!segments[patternStart + j + 1].matches(path, position, end,
+							variables)) {
+						found = false;
+						break;
+					}
+					position = end;
+				}
+				if (found) {
+					foundEnd = position;
+					break;
+				}
+				candidate = skipSeparators(path,
+						segmentEnd(path, candidate, pathEnd), pathEnd);
+				remaining--;
+			}
+
+			if (foundEnd == -1) {
+				return false;
+			}
+			patternStart = nextDoubleWildcard;
+			pathStart = foundEnd;
+		}
+
+		return onlyDoubleWildcards(patternStart, patternEnd);
+	}
+
+	private boolean onlyDoubleWildcards(int from, int to) {
+		for (int i = from; i <= to; i++) {
+			if (!this.segments[i].doubleWildcard) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int skipSeparators(String path, int position, int end) {
+		while (position < end && path.charAt(position) == SEPARATOR) {
+			position++;
+		}
+		return position;
+	}
+
+	private static int skipSeparatorsBackwards(String path, int start, int position) {
+		while (position > start && path.charAt(position - 1) == SEPARATOR) {
+			position--;
+		}
+		return position;
+	}
+
+	private static int segmentEnd(String path, int position, int end) {
+		int separator = path.indexOf(SEPARATOR, position);
+		return separator == -1 || separator > end ? end : separator;
+	}
+
+	private static int countSegments(String path, int position, int end) {
+		int count = 0;
+		position = skipSeparators(path, position, end);
+		while (position < end) {
+			count++;
+			position = skipSeparators(path, segmentEnd(path, position, end), end);
+		}
+		return count;
+	}
+
+	/**
+	 * Returns true if {@code .} in a regular expression does not match the character.
+	 */
+	private static boolean isLineTerminator(char c) {
+		return c == '\n' || c == '\r' || c == '\u0085' || c == LINE_SEPARATOR
+				|| c == PARAGRAPH_SEPARATOR;
+	}
+
+	/**
+	 * A single compiled segment of the pattern.
+	 */
+	private static final class Segment {
+		private final boolean doubleWildcard;
+
+		private final boolean singleWildcard;
+
+		private final boolean caseSensitive;
+
+		/**
+		 * The segment with {@code ?} and {@code *} as the only special characters and
+		 * plain variables replaced by {@code *}. Null if the segment must be matched
+		 * using {@link #regex}.
+		 */
+		private final String glob;
+
+		private final boolean literal;
+
+		/**
+		 * The regular expression used by {@code AntPathMatcher}, only present if the
+		 * segment declares variables.
+		 */
+		private final Pattern regex;
+
+		private final List<String> variableNames;
+
+		private Segment(String token, boolean caseSensitive) {
+			this.doubleWildcard = DOUBLE_WILDCARD.equals(token);
+			this.singleWildcard = "*".equals(token);
+			this.caseSensitive = caseSensitive;
+
+			StringBuilder regex = new StringBuilder();
+			StringBuilder glob = new StringBuilder();
+			List<String> variableNames = new ArrayList<String>();
+			boolean customVariablePattern = false;
+			Matcher matcher = GLOB_PATTERN.matcher(token);
+			int end = 0;
+			while (matcher.find()) {
+				appendLiteral(token.substring(end, matcher.start()), regex, glob);
+				String match = matcher.group();
+				if ("?".equals(match)) {
+					regex.append('.');
+					glob.append('?');
+				}
+				else if ("*".equals(match)) {
+					regex.append(".*");
+					glob.append('*');
+				}
+				else {
+					int colon = match.indexOf(':');
+					if (colon == -1) {
+						regex.append(DEFAULT_VARIABLE_PATTERN);
+						variableNames.add(matcher.group(1));
+					}
+					else {
+						regex.append('(');
+						regex.append(match.substring(colon + 1, match.length() - 1));
+						regex.append(')');
+						variableNames.add(match.substring(1, colon));
+						customVariablePattern = true;
+					}
+					glob.append('*');
+				}
+				end = matcher.end();
+			}
+			appendLiteral(token.substring(end), regex, glob);
+
+			boolean terminators = false;
+			for (int i = 0; i < token.length(); i++) {
+				terminators |= isLineTerminator(token.charAt(i));
+			}
+
+			this.glob = customVariablePattern || terminators ? null : glob.toString();
+			this.literal = this.glob != null && this.glob.indexOf('*') == -1
+					&& this.glob.indexOf('?') == -1;
+			this.variableNames = variableNames;
+			if (variableNames.isEmpty() && this.glob != null) {
+				this.regex = null;
+			}
+			else {
+				this.regex = caseSensitive ? Pattern.compile(regex.toString())
+						: Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE);
+			}
+		}
+
+		private static void appendLiteral(String literal, StringBuilder regex,
+				StringBuilder glob) {
+			if (literal.length() > 0) {
+				regex.append(Pattern.quote(literal));
+				glob.append(literal);
+			}
+		}
+
+		private boolean matches(String path, int start, int end,
+				Map<String, String> variables) {
+			if (this.glob != null && (variables == null || this.regex == null)) {
+				return this.literal ? matchLiteral(path, start, end)
+						: matchGlob(path, start, end);
+			}
+			Matcher matcher = this.regex.matcher(path.substring(start, end));
+			if (!matcher.matches()) {
+				return false;
+			}
+			if (variables != null) {
+				if (this.variableNames.size() != matcher.groupCount()) {
+					throw new IllegalArgumentException(
+							"The number of capturing groups in the pattern segment "
+									+ this.regex
+									+ " does not match the number of URI template variables it defines, "
+									+ "which can occur if capturing groups are used in a URI template regex. "
+									+ "Use non-capturing groups instead.");
+				}
+				for (int i = 1; i <= matcher.groupCount(); i++) {
+					variables.put(this.variableNames.get(i - 1), matcher.group(i));
+				}
+			}
+			return true;
+		}
+
+		private boolean matchLiteral(String path, int start, int end) {
+			String glob = this.glob;
+			int length = glob.length();
+			if (end - start != length) {
+				return false;
+			}
+			for (int i = 0; i < length; i++) {
+				if (!charsMatch(glob.charAt(i), path.charAt(start + i))) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Matches the path characters against the glob, backtracking to the most recent
+		 * {@code *} on a mismatch. Wildcards never match line terminators, as in the
+		 * regular expressions used by {@code AntPathMatcher}.
+		 */
+		private boolean matchGlob(String path, int start, int end) {
+			String glob = this.glob;
+			int globLength = glob.length();
+			int g = 0;
+			int p = start;
+			int star = -1;
+			int starPosition = start;
+			while (p < end) {
+				char c = path.charAt(p);
+				if (isLineTerminator(c)) {
+					return false;
+				}
+				if (g < globLength && glob.charAt(g) == '*') {
+					star = g++;
+					starPosition = p;
+				}
+				else if (g < globLength
+						&& (glob.charAt(g) == '?' || charsMatch(glob.charAt(g), c))) {
+					g++;
+					p++;
+				}
+				else if (star != -1) {
+					g = star + 1;
+					p = ++starPosition;
+				}
+				else {
+					return false;
+				}
+			}
+			while (g < globLength && glob.charAt(g) == '*') {
+				g++;
+			}
+			return g == globLength;
+		}
+
+		/**
+		 * Compares characters the way a regular expression does, which only folds the
+		 * case of US-ASCII characters.
+		 */
+		private boolean charsMatch(char patternChar, char pathChar) {
+			if (patternChar == pathChar) {
+				return true;
+			}
+			if (this.caseSensitive || patternChar >= 128 || pathChar >= 128) {
+				return false;
+			}
+			return Character.toLowerCase(patternChar) == Character.toLowerCase(pathChar);
+		}
+	}
+}
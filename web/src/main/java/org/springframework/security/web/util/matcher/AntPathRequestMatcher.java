@@ -41,8 +41,10 @@ import org.springframework.util.StringUtils;
  * {@code /aaa/bbb/ccc}.
  * </p>
  * <p>
- * For all other cases, Spring's {@link AntPathMatcher} is used to perform the match. See
- * the Spring documentation for this class for comprehensive information on the syntax
+ * For all other cases, the pattern is compiled once into a sequence of path segments
+ * which is matched with the same semantics as Spring's {@link AntPathMatcher}, but
+ * without tokenizing the pattern or the path on each request. See the Spring
+ * documentation for {@link AntPathMatcher} for comprehensive information on the syntax
  * used.
  * </p>
  *
@@ -61,6 +63,7 @@ public final class AntPathRequestMatcher
 	private final String pattern;
 	private final HttpMethod httpMethod;
 	private final boolean caseSensitive;
+	private final boolean matchesLowerCasePath;
 
 	/**
 	 * Creates a matcher with the specific pattern which will match all HTTP methods in a
@@ -113,11 +116,13 @@ public final class AntPathRequestMatcher
 						pattern.substring(0, pattern.length() - 3), caseSensitive);
 			}
 			else {
-				this.matcher = new SpringAntMatcher(pattern, caseSensitive);
+				this.matcher = new CompiledAntMatcher(pattern, caseSensitive);
 			}
 		}
 
 		this.pattern = pattern;
+		this.matchesLowerCasePath = !caseSensitive
+				&& this.matcher instanceof SubpathMatcher;
 		this.httpMethod = StringUtils.hasText(httpMethod) ? HttpMethod.valueOf(httpMethod)
 				: null;
 	}
@@ -131,11 +136,24 @@ public final class AntPathRequestMatcher
 	 */
 	@Override
 	public boolean matches(HttpServletRequest request) {
+		RequestMatchContext context = RequestMatchContext.get(request);
+		if (context == null) {
+			return matches(request, null);
+		}
+		Boolean result = context.getMatchResult(this, request);
+		if (result == null) {
+			result = matches(request, context);
+			context.setMatchResult(this, request, result);
+		}
+		return result;
+	}
+
+	private boolean matches(HttpServletRequest request, RequestMatchContext context) {
 		if (this.httpMethod != null && StringUtils.hasText(request.getMethod())
 				&& this.httpMethod != valueOf(request.getMethod())) {
 			if (logger.isDebugEnabled()) {
 				logger.debug("Request '" + request.getMethod() + " "
-						+ getRequestPath(request) + "'" + " doesn't match '"
+						+ getRequestPath(request, context) + "'" + " doesn't match '"
 						+ this.httpMethod + " " + this.pattern);
 			}
 
@@ -144,20 +162,24 @@ public final class AntPathRequestMatcher
 
 		if (this.pattern.equals(MATCH_ALL)) {
 			if (logger.isDebugEnabled()) {
-				logger.debug("Request '" + getRequestPath(request)
+				logger.debug("Request '" + getRequestPath(request, context)
 						+ "' matched by universal pattern '/**'");
 			}
 
 			return true;
 		}
 
-		String url = getRequestPath(request);
+		String url = getRequestPath(request, context);
 
 		if (logger.isDebugEnabled()) {
 			logger.debug("Checking match of request : '" + url + "'; against '"
 					+ this.pattern + "'");
 		}
 
+		if (context != null && this.matchesLowerCasePath) {
+			return this.matcher.matches(context.getLowerCasePath(request));
+		}
+
 		return this.matcher.matches(url);
 	}
 
@@ -166,11 +188,16 @@ public final class AntPathRequestMatcher
 		if (this.matcher == null || !matches(request)) {
 			return Collections.emptyMap();
 		}
-		String url = getRequestPath(request);
+		String url = getRequestPath(request, RequestMatchContext.get(request));
 		return this.matcher.extractUriTemplateVariables(url);
 	}
 
-	private String getRequestPath(HttpServletRequest request) {
+	private String getRequestPath(HttpServletRequest request,
+			RequestMatchContext context) {
+		if (context != null) {
+			return context.getPath(request);
+		}
+
 		String url = request.getServletPath();
 
 		if (request.getPathInfo() != null) {
@@ -184,6 +211,14 @@ public final class AntPathRequestMatcher
 		return this.pattern;
 	}
 
+	HttpMethod getHttpMethod() {
+		return this.httpMethod;
+	}
+
+	boolean isCaseSensitive() {
+		return this.caseSensitive;
+	}
+
 	@Override
 	public boolean equals(Object obj) {
 		if (!(obj instanceof AntPathRequestMatcher)) {
@@ -242,31 +277,21 @@ public final class AntPathRequestMatcher
 		Map<String, String> extractUriTemplateVariables(String path);
 	}
 
-	private static class SpringAntMatcher implements Matcher {
-		private final AntPathMatcher antMatcher;
+	private static class CompiledAntMatcher implements Matcher {
+		private final AntPathPattern pattern;
 
-		private final String pattern;
-
-		private SpringAntMatcher(String pattern, boolean caseSensitive) {
-			this.pattern = pattern;
-			this.antMatcher = createMatcher(caseSensitive);
+		private CompiledAntMatcher(String pattern, boolean caseSensitive) {
+			this.pattern = new AntPathPattern(pattern, caseSensitive);
 		}
 
 		@Override
 		public boolean matches(String path) {
-			return this.antMatcher.match(this.pattern, path);
+			return this.pattern.matches(path);
 		}
 
 		@Override
 		public Map<String, String> extractUriTemplateVariables(String path) {
-			return this.antMatcher.extractUriTemplateVariables(this.pattern, path);
-		}
-
-		private static AntPathMatcher createMatcher(boolean caseSensitive) {
-			AntPathMatcher matcher = new AntPathMatcher();
-			matcher.setTrimTokens(false);
-			matcher.setCaseSensitive(caseSensitive);
-			return matcher;
+			return this.pattern.extractUriTemplateVariables(path);
 		}
 	}
 
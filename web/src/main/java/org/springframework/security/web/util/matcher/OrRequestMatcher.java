@@ -73,6 +73,10 @@ public final class OrRequestMatcher implements RequestMatcher {
 		return false;
 	}
 
+	List<RequestMatcher> getRequestMatchers() {
+		return requestMatchers;
+	}
+
 	@Override
 	public String toString() {
 		return "OrRequestMatcher [requestMatchers=" + requestMatchers + "]";
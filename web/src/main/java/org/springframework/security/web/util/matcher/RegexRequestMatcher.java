@@ -83,26 +83,46 @@ public final class RegexRequestMatcher implements RequestMatcher {
 	 * @return true if the pattern matches the URL, false otherwise.
 	 */
 	public boolean matches(HttpServletRequest request) {
+		RequestMatchContext context = RequestMatchContext.get(request);
+		if (context == null) {
+			return matches(request, null);
+		}
+		Boolean result = context.getMatchResult(this, request);
+		if (result == null) {
+			result = matches(request, context);
+			context.setMatchResult(this, request, result);
+		}
+		return result;
+	}
+
+	private boolean matches(HttpServletRequest request, RequestMatchContext context) {
 		if (httpMethod != null && request.getMethod() != null
 				&& httpMethod != valueOf(request.getMethod())) {
 			return false;
 		}
 
-		String url = request.getServletPath();
-		String pathInfo = request.getPathInfo();
-		String query = request.getQueryString();
+		String url;
+
+		if (context != null) {
+			url = context.getRequestUrl(request);
+		}
+		else {
+			url = request.getServletPath();
+			String pathInfo = request.getPathInfo();
+			String query = request.getQueryString();
 
-		if (pathInfo != null || query != null) {
-			StringBuilder sb = new StringBuilder(url);
+			if (pathInfo != null || query != null) {
+				StringBuilder sb = new StringBuilder(url);
 
-			if (pathInfo != null) {
-				sb.append(pathInfo);
-			}
+				if (pathInfo != null) {
+					sb.append(pathInfo);
+				}
 
-			if (query != null) {
-				sb.append('?').append(query);
+				if (query != null) {
+					sb.append('?').append(query);
+				}
+				url = sb.toString();
 			}
-			url = sb.toString();
 		}
 
 		if (logger.isDebugEnabled()) {
@@ -113,6 +133,14 @@ public final class RegexRequestMatcher implements RequestMatcher {
 		return pattern.matcher(url).matches();
 	}
 
+	Pattern getPattern() {
+		return pattern;
+	}
+
+	HttpMethod getHttpMethod() {
+		return httpMethod;
+	}
+
 	/**
 	 * Provides a save way of obtaining the HttpMethod from a String. If the method is
 	 * invalid, returns null.
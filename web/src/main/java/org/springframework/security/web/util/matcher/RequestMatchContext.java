@@ -0,0 +1,223 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.web.util.matcher;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import javax.servlet.ServletRequest;
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Memoizes values which are needed repeatedly while a request is matched, such as the
+ * request path and the results of {@link RequestMatcher}s, for the duration of a single
+ * request.
+ * <p>
+ * An instance is stored as a request attribute by
+ * {@link org.springframework.security.web.FilterChainProxy} and is used by the built-in
+ * matchers as well as {@link org.springframework.security.web.util.UrlUtils}. Since the
+ * path of a request changes, for example when it is forwarded or when the firewalled
+ * request is reset, every read compares the servlet path, path info, query string and
+ * method of the request with the values the cached entries were computed from and
+ * discards the entries if they differ.
+ * <p>
+ * Instances are not thread-safe and must not be shared between requests.
+ *
+ * @since 4.2
+ */
+public final class RequestMatchContext {
+	private static final String ATTRIBUTE_NAME = RequestMatchContext.class.getName();
+
+	private final Map<RequestMatcher, Boolean> matchResults = new IdentityHashMap<RequestMatcher, Boolean>();
+
+	private String servletPath;
+
+	private String pathInfo;
+
+	private String queryString;
+
+	private String method;
+
+	private String path;
+
+	private String lowerCasePath;
+
+	private String requestUrl;
+
+	private RequestMatchContext() {
+	}
+
+	/**
+	 * Creates a new context and stores it on the request.
+	 *
+	 * @param request the request the context is created for
+	 * @return the new context
+	 */
+	public static RequestMatchContext create(ServletRequest request) {
+		RequestMatchContext context = new RequestMatchContext();
+		request.setAttribute(ATTRIBUTE_NAME, context);
+		return context;
+	}
+
+	/**
+	 * Obtains the context stored on the request.
+	 *
+	 * @param request the request
+	 * @return the context or null if none was created for the request
+	 */
+	public static RequestMatchContext get(ServletRequest request) {
+		Object context = request.getAttribute(ATTRIBUTE_NAME);
+		return context instanceof RequestMatchContext ? (RequestMatchContext) context
+				: null;
+	}
+
+	/**
+	 * Removes the context from the request.
+	 *
+	 * @param request the request
+	 */
+	public static void remove(ServletRequest request) {
+		request.removeAttribute(ATTRIBUTE_NAME);
+	}
+
+	/**
+	 * Returns the {@code servletPath + pathInfo} of the request.
+	 *
+	 * @param request the current request
+	 * @return the request path
+	 */
+	public String getPath(HttpServletRequest request) {
+		syncPath(request);
+		if (this.path == null) {
+			String url = this.servletPath;
+			if (this.pathInfo != null) {
+				url += this.pathInfo;
+			}
+			this.path = url;
+		}
+		return this.path;
+	}
+
+	/**
+	 * Returns the lower case form of {@link #getPath(HttpServletRequest)}.
+	 *
+	 * @param request the current request
+	 * @return the lower case request path
+	 */
+	public String getLowerCasePath(HttpServletRequest request) {
+		String path = getPath(request);
+		if (this.lowerCasePath == null) {
+			this.lowerCasePath = path.toLowerCase();
+		}
+		return this.lowerCasePath;
+	}
+
+	/**
+	 * Returns the web application-specific fragment of the request URL, as described in
+	 * {@link org.springframework.security.web.util.UrlUtils#buildRequestUrl(HttpServletRequest)}
+	 * .
+	 *
+	 * @param request the current request
+	 * @return the request URL, excluding any server name, context path or servlet path
+	 */
+	public String getRequestUrl(HttpServletRequest request) {
+		syncPath(request);
+		syncQueryString(request);
+		if (this.requestUrl == null) {
+			StringBuilder url = new StringBuilder();
+			if (this.servletPath != null) {
+				url.append(this.servletPath);
+				if (this.pathInfo != null) {
+					url.append(this.pathInfo);
+				}
+			}
+			else {
+				url.append(request.getRequestURI().substring(
+						request.getContextPath().length()));
+			}
+			if (this.queryString != null) {
+				url.append("?").append(this.queryString);
+			}
+			this.requestUrl = url.toString();
+		}
+		return this.requestUrl;
+	}
+
+	/**
+	 * Returns the memoized result of the matcher for the current request. Only matchers
+	 * whose result depends solely on the path, query string and method of the request
+	 * should be memoized.
+	 *
+	 * @param matcher the matcher
+	 * @param request the current request
+	 * @return the result which was recorded for the matcher or null if none is available
+	 */
+	public Boolean getMatchResult(RequestMatcher matcher, HttpServletRequest request) {
+		syncPath(request);
+		syncQueryString(request);
+		syncMethod(request);
+		return this.matchResults.get(matcher);
+	}
+
+	/**
+	 * Records the result of the matcher for the current request.
+	 *
+	 * @param matcher the matcher
+	 * @param request the current request
+	 * @param result the result of {@link RequestMatcher#matches(HttpServletRequest)}
+	 */
+	public void setMatchResult(RequestMatcher matcher, HttpServletRequest request,
+			boolean result) {
+		syncPath(request);
+		syncQueryString(request);
+		syncMethod(request);
+		this.matchResults.put(matcher, result);
+	}
+
+	private void syncPath(HttpServletRequest request) {
+		String servletPath = request.getServletPath();
+		String pathInfo = request.getPathInfo();
+		if (!equals(servletPath, this.servletPath) || !equals(pathInfo, this.pathInfo)) {
+			this.servletPath = servletPath;
+			this.pathInfo = pathInfo;
+			this.path = null;
+			this.lowerCasePath = null;
+			this.requestUrl = null;
+			this.matchResults.clear();
+		}
+	}
+
+	private void syncQueryString(HttpServletRequest request) {
+		String queryString = request.getQueryString();
+		if (!equals(queryString, this.queryString)) {
+			this.queryString = queryString;
+			this.requestUrl = null;
+			this.matchResults.clear();
+		}
+	}
+
+	private void syncMethod(HttpServletRequest request) {
+		String method = request.getMethod();
+		if (!equals(method, this.method)) {
+			this.method = method;
+			this.matchResults.clear();
+		}
+	}
+
+	private static boolean equals(String a, String b) {
+		return a == b || (a != null && a.equals(b));
+	}
+}
@@ -0,0 +1,432 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.web.util.matcher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+/**
+ * Locates the first {@link RequestMatcher} of an ordered list which matches a request,
+ * without evaluating every matcher in turn.
+ * <p>
+ * When the index is created, the literal leading path segments and the HTTP method of
+ * each case-sensitive {@link AntPathRequestMatcher} and {@link RegexRequestMatcher}
+ * (also when combined through an {@link OrRequestMatcher}) and of
+ * {@link AnyRequestMatcher} are compiled into a tree keyed by path segment. A lookup walks the request path down the tree once and then only
+ * evaluates the matchers which were registered along that path for the request's HTTP
+ * method. Candidates are always tried in declaration order and each one is confirmed by
+ * calling {@link RequestMatcher#matches(HttpServletRequest)}, so the result is identical
+ * to that of a linear scan.
+ * <p>
+ * Matchers which cannot be indexed, such as custom implementations, are treated as
+ * candidates for every request and are therefore evaluated at their original position.
+ *
+ * @since 4.2
+ */
+public final class RequestMatcherIndex {
+	private static final String MATCH_ALL = "/**";
+
+	private static final String REGEX_META_CHARACTERS = "\\^$.|?*+()[]{}";
+
+	private static final int UNSUPPORTED_REGEX_FLAGS = Pattern.CASE_INSENSITIVE
+			| Pattern.COMMENTS | Pattern.LITERAL;
+
+	private static final Map<String, HttpMethod> METHODS = new HashMap<String, HttpMethod>();
+
+	static {
+		for (HttpMethod method : HttpMethod.values()) {
+			METHODS.put(method.name(), method);
+		}
+	}
+
+	private final RequestMatcher[] matchers;
+
+	private final Node root;
+
+	/**
+	 * Creates a new instance
+	 *
+	 * @param matchers the {@link RequestMatcher} instances in the order in which they
+	 * should be tried. Cannot be null or contain null values.
+	 */
+	public RequestMatcherIndex(List<? extends RequestMatcher> matchers) {
+		Assert.notNull(matchers, "matchers cannot be null");
+		if (matchers.contains(null)) {
+			throw new IllegalArgumentException("matchers cannot contain null values");
+		}
+		this.matchers = matchers.toArray(new RequestMatcher[matchers.size()]);
+
+		BuildNode tree = new BuildNode();
+		for (int i = 0; i < this.matchers.length; i++) {
+			List<Route> routes = new ArrayList<Route>();
+			if (!addRoutes(this.matchers[i], routes)) {
+				routes.clear();
+				routes.add(new Route(new String[0], null));
+			}
+			for (Route route : routes) {
+				tree.add(route, i);
+			}
+		}
+		this.root = tree.compile(new TreeMap<Integer, List<HttpMethod>>());
+	}
+
+	/**
+	 * Returns the position of the first {@link RequestMatcher} which matches the request.
+	 *
+	 * @param request the request to match
+	 * @return the index of the first matching {@link RequestMatcher} or -1 if none
+	 * matches
+	 */
+	public int indexOf(HttpServletRequest request) {
+		int[] candidates = findNode(getRequestPath(request)).candidates(
+				request.getMethod());
+		for (int i = 0; i < candidates.length; i++) {
+			int candidate = candidates[i];
+			if (this.matchers[candidate].matches(request)) {
+				return candidate;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the {@link RequestMatcher}s this index was created with.
+	 *
+	 * @return the {@link RequestMatcher}s in declaration order
+	 */
+	public List<RequestMatcher> getRequestMatchers() {
+		return Arrays.asList(this.matchers);
+	}
+
+	private Node findNode(String path) {
+		Node node = this.root;
+		int length = path.length();
+		int start = 0;
+		while (start < length && node.hasChildren()) {
+			if (path.charAt(start) == '/') {
+				start++;
+				continue;
+			}
+			int end = path.indexOf('/', start);
+			if (end == -1) {
+				end = length;
+			}
+			Node child = node.child(path, start, end);
+			if (child == null) {
+				break;
+			}
+			node = child;
+			start = end;
+		}
+		return node;
+	}
+
+	private static String getRequestPath(HttpServletRequest request) {
+		RequestMatchContext context = RequestMatchContext.get(request);
+		if (context != null && request.getServletPath() != null) {
+			return context.getPath(request);
+		}
+		String url = request.getServletPath();
+		String pathInfo = request.getPathInfo();
+		if (url == null) {
+			url = "";
+		}
+		if (pathInfo != null) {
+			url += pathInfo;
+		}
+		return url;
+	}
+
+	/**
+	 * Collects the routes under which the matcher must be registered. Returns false if
+	 * the matcher cannot be indexed and has to be tried for every request.
+	 */
+	private static boolean addRoutes(RequestMatcher matcher, List<Route> routes) {
+		if (matcher instanceof AnyRequestMatcher) {
+			routes.add(new Route(new String[0], null));
+			return true;
+		}
+		if (matcher instanceof AntPathRequestMatcher) {
+			AntPathRequestMatcher antMatcher = (AntPathRequestMatcher) matcher;
+			String pattern = antMatcher.getPattern();
+			if (MATCH_ALL.equals(pattern)) {
+				routes.add(new Route(new String[0], antMatcher.getHttpMethod()));
+				return true;
+			}
+			if (!antMatcher.isCaseSensitive() || !pattern.startsWith("/")) {
+				return false;
+			}
+			routes.add(new Route(literalSegments(pattern), antMatcher.getHttpMethod()));
+			return true;
+		}
+		if (matcher instanceof RegexRequestMatcher) {
+			RegexRequestMatcher regexMatcher = (RegexRequestMatcher) matcher;
+			String[] segments = literalSegments(regexMatcher.getPattern());
+			if (segments == null) {
+				return false;
+			}
+			routes.add(new Route(segments, regexMatcher.getHttpMethod()));
+			return true;
+		}
+		if (matcher instanceof OrRequestMatcher) {
+			for (RequestMatcher delegate : ((OrRequestMatcher) matcher)
+					.getRequestMatchers()) {
+				if (!addRoutes(delegate, routes)) {
+					return false;
+				}
+			}
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * The leading segments of an ant pattern which contain no wildcards or variables. Any
+	 * path matched by the pattern starts with these segments.
+	 */
+	private static String[] literalSegments(String pattern) {
+		List<String> segments = new ArrayList<String>();
+		for (String segment : StringUtils.tokenizeToStringArray(pattern, "/", false,
+				true)) {
+			if (segment.indexOf('*') != -1 || segment.indexOf('?') != -1
+					|| segment.indexOf('{') != -1) {
+				break;
+			}
+			segments.add(segment);
+		}
+		return segments.toArray(new String[segments.size()]);
+	}
+
+	/**
+	 * The complete path segments at the start of a regular expression which contain no
+	 * meta characters, or null if the expression cannot be indexed. Alternations and
+	 * case-insensitive expressions are never indexed.
+	 */
+	private static String[] literalSegments(Pattern pattern) {
+		String regex = pattern.pattern();
+		if ((pattern.flags() & UNSUPPORTED_REGEX_FLAGS) != 0
+				|| regex.indexOf('|') != -1) {
+			return null;
+		}
+		StringBuilder literal = new StringBuilder();
+		for (int i = regex.startsWith("^") ? 1 : 0; i < regex.length(); i++) {
+			char c = regex.charAt(i);
+			if (REGEX_META_CHARACTERS.indexOf(c) != -1) {
+				// the preceding character may be optional
+				if ((c == '?' || c == '*' || c == '{') && literal.length() > 0) {
+					literal.setLength(literal.length() - 1);
+				}
+				break;
+			}
+			literal.append(c);
+		}
+		return StringUtils.tokenizeToStringArray(
+				literal.substring(0, literal.lastIndexOf("/") + 1), "/", false, true);
+	}
+
+	private static final class Route {
+		private final String[] segments;
+		private final HttpMethod method;
+
+		private Route(String[] segments, HttpMethod method) {
+			this.segments = segments;
+			this.method = method;
+		}
+	}
+
+	/**
+	 * Mutable tree used while the index is created.
+	 */
+	private static final class BuildNode {
+		private final Map<String, BuildNode> children = new TreeMap<String, BuildNode>();
+		private final Map<Integer, List<HttpMethod>> entries = new TreeMap<Integer, List<HttpMethod>>();
+
+		private void add(Route route, int index) {
+			BuildNode node = this;
+			for (String segment : route.segments) {
+				BuildNode child = node.children.get(segment);
+				if (child == null) {
+					child = new BuildNode();
+					node.children.put(segment, child);
+				}
+				node = child;
+			}
+			addEntry(node.entries, index, route.method);
+		}
+
+		private Node compile(Map<Integer, List<HttpMethod>> inherited) {
+			Map<Integer, List<HttpMethod>> merged = new TreeMap<Integer, List<HttpMethod>>();
+			for (Map.Entry<Integer, List<HttpMethod>> entry : inherited.entrySet()) {
+				for (HttpMethod method : entry.getValue()) {
+					addEntry(merged, entry.getKey(), method);
+				}
+			}
+			for (Map.Entry<Integer, List<HttpMethod>> entry : this.entries.entrySet()) {
+				for (HttpMethod method : entry.getValue()) {
+					addEntry(merged, entry.getKey(), method);
+				}
+			}
+
+			String[] names = new String[this.children.size()];
+			Node[] nodes = new Node[names.length];
+			int i = 0;
+			for (Map.Entry<String, BuildNode> child : this.children.entrySet()) {
+				names[i] = child.getKey();
+				nodes[i] = child.getValue().compile(merged);
+				i++;
+			}
+			return new Node(names, nodes, merged);
+		}
+
+		private static void addEntry(Map<Integer, List<HttpMethod>> entries,
+				Integer index, HttpMethod method) {
+			List<HttpMethod> methods = entries.get(index);
+			if (methods == null) {
+				methods = new ArrayList<HttpMethod>(1);
+				entries.put(index, methods);
+			}
+			if (!methods.contains(method)) {
+				methods.add(method);
+			}
+		}
+	}
+
+	/**
+	 * Immutable node of the compiled tree. The children are ordered by the hash code of
+	 * their segment so that a child can be located by binary search without creating a
+	 * substring of the request path.
+	 */
+	private static final class Node {
+		private final int[] hashes;
+		private final String[] names;
+		private final Node[] children;
+
+		/**
+		 * Candidates for requests without a method
+		 */
+		private final int[] allCandidates;
+
+		/**
+		 * Candidates for requests with an unknown method
+		 */
+		private final int[] anyMethodCandidates;
+
+		/**
+		 * Candidates for each {@link HttpMethod}, by ordinal
+		 */
+		private final int[][] methodCandidates;
+
+		private Node(String[] names, Node[] children,
+				Map<Integer, List<HttpMethod>> entries) {
+			Integer[] order = new Integer[names.length];
+			for (int i = 0; i < order.length; i++) {
+				order[i] = i;
+			}
+			final String[] unsorted = names;
+			Arrays.sort(order, new Comparator<Integer>() {
+				public int compare(Integer o1, Integer o2) {
+					int h1 = unsorted[o1].hashCode();
+					int h2 = unsorted[o2].hashCode();
+					return h1 < h2 ? -1 : (h1 == h2 ? 0 : 1);
+				}
+			});
+			this.hashes = new int[names.length];
+			this.names = new String[names.length];
+			this.children = new Node[names.length];
+			for (int i = 0; i < order.length; i++) {
+				this.names[i] = names[order[i]];
+				this.hashes[i] = this.names[i].hashCode();
+				this.children[i] = children[order[i]];
+			}
+
+			this.allCandidates = candidates(entries, null, true);
+			this.anyMethodCandidates = candidates(entries, null, false);
+			HttpMethod[] methods = HttpMethod.values();
+			this.methodCandidates = new int[methods.length][];
+			for (HttpMethod method : methods) {
+				int[] candidates = candidates(entries, method, false);
+				this.methodCandidates[method.ordinal()] = Arrays.equals(candidates,
+						this.anyMethodCandidates) ? this.anyMethodCandidates
+								: candidates;
+			}
+		}
+
+		private boolean hasChildren() {
+			return this.children.length > 0;
+		}
+
+		private int[] candidates(String method) {
+			if (!StringUtils.hasText(method)) {
+				return this.allCandidates;
+			}
+			HttpMethod httpMethod = METHODS.get(method);
+			if (httpMethod == null) {
+				return this.anyMethodCandidates;
+			}
+			return this.methodCandidates[httpMethod.ordinal()];
+		}
+
+		private Node child(String path, int start, int end) {
+			int hash = 0;
+			for (int i = start; i < end; i++) {
+				hash = 31 * hash + path.charAt(i);
+			}
+			int position = Arrays.binarySearch(this.hashes, hash);
+			if (position < 0) {
+				return null;
+			}
+			while (position > 0 && this.hashes[position - 1] == hash) {
+				position--;
+			}
+			int length = end - start;
+			for (; position < this.hashes.length
+					&& this.hashes[position] == hash; position++) {
+				String name = this.names[position];
+				if (name.length() == length
+						&& path.regionMatches(start, name, 0, length)) {
+					return this.children[position];
+				}
+			}
+			return null;
+		}
+
+		private static int[] candidates(Map<Integer, List<HttpMethod>> entries,
+				HttpMethod method, boolean allMethods) {
+			int[] result = new int[entries.size()];
+			int count = 0;
+			for (Map.Entry<Integer, List<HttpMethod>> entry : entries.entrySet()) {
+				List<HttpMethod> methods = entry.getValue();
+				if (allMethods || methods.contains(null)
+						|| (method != null && methods.contains(method))) {
+					result[count++] = entry.getKey();
+				}
+			}
+			return Arrays.copyOf(result, count);
+		}
+	}
+}
@@ -27,8 +27,11 @@ import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.security.authentication.TestingAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.authentication.logout.LogoutFilter;
+import org.springframework.security.web.authentication.logout.SecurityContextLogoutHandler;
 import org.springframework.security.web.firewall.FirewalledRequest;
 import org.springframework.security.web.firewall.HttpFirewall;
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 import org.springframework.security.web.util.matcher.RequestMatcher;
 
 import javax.servlet.Filter;
@@ -254,4 +257,138 @@ public class FilterChainProxyTests {
 				any(HttpServletResponse.class));
 		assertThat(SecurityContextHolder.getContext().getAuthentication()).isNull();
 	}
+
+	@Test
+	public void getFiltersWhenCompiledDispatchThenFirstMatchingChainUsed() {
+		Filter first = mock(Filter.class);
+		Filter second = mock(Filter.class);
+		Filter third = mock(Filter.class);
+		fcp = new FilterChainProxy(Arrays.<SecurityFilterChain> asList(
+				new DefaultSecurityFilterChain(new AntPathRequestMatcher("/api/**"),
+						first),
+				new DefaultSecurityFilterChain(matcher, second),
+				new DefaultSecurityFilterChain(new AntPathRequestMatcher("/**"),
+						third)));
+		fcp.setCompiledDispatch(true);
+		when(matcher.matches(any(HttpServletRequest.class))).thenReturn(false);
+
+		assertThat(fcp.getFilters("/api/users")).containsExactly(first);
+		assertThat(fcp.getFilters("/other")).containsExactly(third);
+		verify(matcher).matches(any(HttpServletRequest.class));
+
+		when(matcher.matches(any(HttpServletRequest.class))).thenReturn(true);
+		assertThat(fcp.getFilters("/other")).containsExactly(second);
+	}
+
+	@Test
+	public void doFilterWhenCompiledDispatchAndNoMatchThenOriginalChainInvoked()
+			throws Exception {
+		fcp = new FilterChainProxy(new DefaultSecurityFilterChain(
+				new AntPathRequestMatcher("/api/**"), filter));
+		fcp.setCompiledDispatch(true);
+
+		fcp.doFilter(request, response, chain);
+
+		verifyZeroInteractions(filter);
+		verify(chain).doFilter(any(HttpServletRequest.class),
+				any(HttpServletResponse.class));
+	}
+
+	@Test
+	public void doFilterWhenSkipInapplicableFiltersThenInapplicableFilterSkipped()
+			throws Exception {
+		ConditionalFilter conditional = mock(ConditionalFilter.class);
+		when(conditional.getApplicableRequestMatcher()).thenReturn(
+				new AntPathRequestMatcher("/logout"));
+		fcp = new FilterChainProxy(new DefaultSecurityFilterChain(
+				new AntPathRequestMatcher("/**"), conditional, filter));
+		fcp.setSkipInapplicableFilters(true);
+
+		fcp.doFilter(request, response, chain);
+
+		verify(conditional, never()).doFilter(any(HttpServletRequest.class),
+				any(HttpServletResponse.class), any(FilterChain.class));
+		verify(filter).doFilter(any(HttpServletRequest.class),
+				any(HttpServletResponse.class), any(FilterChain.class));
+		verify(chain).doFilter(any(HttpServletRequest.class),
+				any(HttpServletResponse.class));
+	}
+
+	@Test
+	public void doFilterWhenSkipInapplicableFiltersThenApplicableFilterInvoked()
+			throws Exception {
+		ConditionalFilter conditional = mock(ConditionalFilter.class);
+		when(conditional.getApplicableRequestMatcher()).thenReturn(
+				new AntPathRequestMatcher("/path"));
+		fcp = new FilterChainProxy(new DefaultSecurityFilterChain(
+				new AntPathRequestMatcher("/**"), conditional, filter));
+		fcp.setSkipInapplicableFilters(true);
+
+		fcp.doFilter(request, response, chain);
+
+		verify(conditional).doFilter(any(HttpServletRequest.class),
+				any(HttpServletResponse.class), any(FilterChain.class));
+		verifyZeroInteractions(filter, chain);
+	}
+
+	@Test
+	public void doFilterWhenSkipInapplicableFiltersDisabledThenAllFiltersInvoked()
+			throws Exception {
+		ConditionalFilter conditional = mock(ConditionalFilter.class);
+		when(conditional.getApplicableRequestMatcher()).thenReturn(
+				new AntPathRequestMatcher("/logout"));
+		fcp = new FilterChainProxy(new DefaultSecurityFilterChain(
+				new AntPathRequestMatcher("/**"), conditional, filter));
+
+		fcp.doFilter(request, response, chain);
+
+		verify(conditional).doFilter(any(HttpServletRequest.class),
+				any(HttpServletResponse.class), any(FilterChain.class));
+	}
+
+	@Test
+	public void doFilterWhenSkipInapplicableFiltersAndAllSkippedThenOriginalChainInvoked()
+			throws Exception {
+		ConditionalFilter conditional = mock(ConditionalFilter.class);
+		when(conditional.getApplicableRequestMatcher()).thenReturn(
+				new AntPathRequestMatcher("/logout"));
+		FirewalledRequest fwr = mock(FirewalledRequest.class);
+		HttpFirewall fw = mock(HttpFirewall.class);
+		when(fw.getFirewalledRequest(request)).thenReturn(fwr);
+		when(fwr.getServletPath()).thenReturn("/path");
+		fcp = new FilterChainProxy(new DefaultSecurityFilterChain(
+				new AntPathRequestMatcher("/**"), conditional));
+		fcp.setFirewall(fw);
+		fcp.setSkipInapplicableFilters(true);
+
+		fcp.doFilter(request, response, chain);
+
+		verify(conditional, never()).doFilter(any(HttpServletRequest.class),
+				any(HttpServletResponse.class), any(FilterChain.class));
+		verify(fwr).reset();
+		verify(chain).doFilter(any(HttpServletRequest.class),
+				any(HttpServletResponse.class));
+	}
+
+	@Test
+	public void doFilterWhenSkipInapplicableFiltersThenFilterOverridingRequiresLogoutInvoked()
+			throws Exception {
+		LogoutFilter logoutFilter = new LogoutFilter("/done",
+				new SecurityContextLogoutHandler()) {
+			@Override
+			protected boolean requiresLogout(HttpServletRequest request,
+					HttpServletResponse response) {
+				return "/path".equals(request.getServletPath());
+			}
+		};
+		fcp = new FilterChainProxy(new DefaultSecurityFilterChain(
+				new AntPathRequestMatcher("/**"), logoutFilter));
+		fcp.setSkipInapplicableFilters(true);
+
+		fcp.doFilter(request, response, chain);
+
+		assertThat(logoutFilter.getApplicableRequestMatcher()).isNull();
+		assertThat(response.getRedirectedUrl()).isEqualTo("/done");
+		verifyZeroInteractions(chain);
+	}
 }
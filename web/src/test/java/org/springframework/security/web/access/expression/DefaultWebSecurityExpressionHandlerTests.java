@@ -31,6 +31,7 @@ import org.springframework.context.support.StaticApplicationContext;
 import org.springframework.expression.EvaluationContext;
 import org.springframework.expression.Expression;
 import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
 import org.springframework.security.access.SecurityConfig;
 import org.springframework.security.authentication.AuthenticationTrustResolver;
 import org.springframework.security.core.Authentication;
@@ -95,4 +96,47 @@ public class DefaultWebSecurityExpressionHandlerTests {
 
 		verify(trustResolver).isAnonymous(authentication);
 	}
+
+	@Test
+	public void createEvaluationContextSharedStateIsReused() {
+		handler.setShareEvaluationContextState(true);
+
+		StandardEvaluationContext first = (StandardEvaluationContext) handler
+				.createEvaluationContext(authentication, invocation);
+		StandardEvaluationContext second = (StandardEvaluationContext) handler
+				.createEvaluationContext(authentication, invocation);
+
+		assertThat(first).isNotSameAs(second);
+		assertThat(first.getPropertyAccessors()).isSameAs(
+				second.getPropertyAccessors());
+		assertThat(first.getMethodResolvers()).isSameAs(second.getMethodResolvers());
+		assertThat(first.getTypeConverter()).isSameAs(second.getTypeConverter());
+		assertThat(first.getRootObject().getValue()).isNotSameAs(
+				second.getRootObject().getValue());
+	}
+
+	@Test
+	public void createEvaluationContextSharedStateEvaluatesExpressions() {
+		handler.setShareEvaluationContextState(true);
+		handler.setTrustResolver(trustResolver);
+
+		Expression expression = handler.getExpressionParser().parseExpression(
+				"anonymous");
+		for (int i = 0; i < 3; i++) {
+			EvaluationContext context = handler.createEvaluationContext(authentication,
+					invocation);
+			assertThat(expression.getValue(context, Boolean.class)).isFalse();
+		}
+	}
+
+	@Test
+	public void createEvaluationContextStateNotSharedByDefault() {
+		StandardEvaluationContext first = (StandardEvaluationContext) handler
+				.createEvaluationContext(authentication, invocation);
+		StandardEvaluationContext second = (StandardEvaluationContext) handler
+				.createEvaluationContext(authentication, invocation);
+
+		assertThat(first.getPropertyAccessors()).isNotSameAs(
+				second.getPropertyAccessors());
+	}
 }
@@ -18,11 +18,16 @@ package org.springframework.security.web.access.expression;
 import static org.assertj.core.api.Assertions.*;
 
 import org.junit.Test;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.standard.SpelExpression;
 import org.springframework.security.access.ConfigAttribute;
 import org.springframework.security.access.SecurityConfig;
+import org.springframework.security.authentication.TestingAuthenticationToken;
 import org.springframework.security.web.FilterInvocation;
 import org.springframework.security.web.util.matcher.AnyRequestMatcher;
 import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.Collection;
 import java.util.LinkedHashMap;
@@ -58,4 +63,54 @@ public class ExpressionBasedFilterInvocationSecurityMetadataSourceTests {
 		ExpressionBasedFilterInvocationSecurityMetadataSource mds = new ExpressionBasedFilterInvocationSecurityMetadataSource(
 				requestMap, new DefaultWebSecurityExpressionHandler());
 	}
+
+	@Test
+	public void compiledExpressionIsEvaluatedConsistently() {
+		SpelExpression expression = evaluateRepeatedly(SpelCompilerMode.IMMEDIATE);
+
+		assertThat(ReflectionTestUtils.getField(expression, "compiledAst")).isNotNull();
+	}
+
+	@Test
+	public void expressionIsInterpretedWhenCompilerModeIsOff() {
+		SpelExpression expression = evaluateRepeatedly(SpelCompilerMode.OFF);
+
+		assertThat(ReflectionTestUtils.getField(expression, "compiledAst")).isNull();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void nullCompilerModeIsRejected() {
+		LinkedHashMap<RequestMatcher, Collection<ConfigAttribute>> requestMap = new LinkedHashMap<RequestMatcher, Collection<ConfigAttribute>>();
+		requestMap.put(AnyRequestMatcher.INSTANCE,
+				SecurityConfig.createList("hasRole('X')"));
+		new ExpressionBasedFilterInvocationSecurityMetadataSource(requestMap,
+				new DefaultWebSecurityExpressionHandler(), null);
+	}
+
+	private SpelExpression evaluateRepeatedly(SpelCompilerMode compilerMode) {
+		final String expression = "hasRole('X') and isAuthenticated()";
+		LinkedHashMap<RequestMatcher, Collection<ConfigAttribute>> requestMap = new LinkedHashMap<RequestMatcher, Collection<ConfigAttribute>>();
+		requestMap.put(AnyRequestMatcher.INSTANCE, SecurityConfig.createList(expression));
+		DefaultWebSecurityExpressionHandler handler = new DefaultWebSecurityExpressionHandler();
+		ExpressionBasedFilterInvocationSecurityMetadataSource mds = new ExpressionBasedFilterInvocationSecurityMetadataSource(
+				requestMap, handler, compilerMode);
+		FilterInvocation fi = new FilterInvocation("/path", "GET");
+		WebExpressionConfigAttribute attribute = (WebExpressionConfigAttribute) mds
+				.getAttributes(fi).toArray()[0];
+		TestingAuthenticationToken x = new TestingAuthenticationToken("user", "pass",
+				"ROLE_X");
+		TestingAuthenticationToken y = new TestingAuthenticationToken("user", "pass",
+				"ROLE_Y");
+
+		for (int i = 0; i < 5; i++) {
+			EvaluationContext ctx = handler.createEvaluationContext(x, fi);
+			assertThat(attribute.getAuthorizeExpression().getValue(ctx, Boolean.class))
+					.isTrue();
+			ctx = handler.createEvaluationContext(y, fi);
+			assertThat(attribute.getAuthorizeExpression().getValue(ctx, Boolean.class))
+					.isFalse();
+		}
+		assertThat(attribute.getAuthorizeExpression()).isInstanceOf(SpelExpression.class);
+		return (SpelExpression) attribute.getAuthorizeExpression();
+	}
 }
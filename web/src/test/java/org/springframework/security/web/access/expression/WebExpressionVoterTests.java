@@ -21,6 +21,8 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 
 import javax.servlet.FilterChain;
 import javax.servlet.ServletRequest;
@@ -32,9 +34,12 @@ import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 import org.springframework.expression.EvaluationContext;
 import org.springframework.expression.Expression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
 import org.springframework.security.access.AccessDecisionVoter;
+import org.springframework.security.access.ConfigAttribute;
 import org.springframework.security.access.SecurityConfig;
 import org.springframework.security.access.expression.SecurityExpressionHandler;
+import org.springframework.security.authentication.AuthenticationTrustResolver;
 import org.springframework.security.authentication.TestingAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.web.FilterInvocation;
@@ -126,4 +131,47 @@ public class WebExpressionVoterTests {
 		WebExpressionVoter voter = new WebExpressionVoter();
 		assertThat(voter.supports(Object.class)).isFalse();
 	}
+
+	@Test
+	public void decisionIsCacheableForAuthorityBasedExpressions() {
+		WebExpressionVoter voter = new WebExpressionVoter();
+
+		assertThat(voter.isDecisionCacheable(attributes("hasRole('A')"))).isTrue();
+		assertThat(voter.isDecisionCacheable(attributes(
+				"hasAnyRole('A','B') and (isFullyAuthenticated() or !anonymous)")))
+				.isTrue();
+		assertThat(voter.isDecisionCacheable(attributes("permitAll"))).isTrue();
+		assertThat(voter.isDecisionCacheable(Collections.<ConfigAttribute> emptyList()))
+				.isTrue();
+	}
+
+	@Test
+	public void decisionIsNotCacheableForRequestOrPrincipalExpressions() {
+		WebExpressionVoter voter = new WebExpressionVoter();
+
+		assertThat(voter.isDecisionCacheable(attributes("hasIpAddress('10.0.0.0/8')")))
+				.isFalse();
+		assertThat(voter.isDecisionCacheable(attributes(
+				"hasRole('A') and principal.username == 'joe'"))).isFalse();
+		assertThat(voter.isDecisionCacheable(attributes("hasRole(#role)"))).isFalse();
+		assertThat(voter.isDecisionCacheable(attributes("@bean.check(request)")))
+				.isFalse();
+	}
+
+	@Test
+	public void decisionIsNotCacheableWithCustomHandlerOrTrustResolver() {
+		WebExpressionVoter voter = new WebExpressionVoter();
+		voter.setExpressionHandler(mock(SecurityExpressionHandler.class));
+		assertThat(voter.isDecisionCacheable(attributes("hasRole('A')"))).isFalse();
+
+		DefaultWebSecurityExpressionHandler handler = new DefaultWebSecurityExpressionHandler();
+		handler.setTrustResolver(mock(AuthenticationTrustResolver.class));
+		voter.setExpressionHandler(handler);
+		assertThat(voter.isDecisionCacheable(attributes("hasRole('A')"))).isFalse();
+	}
+
+	private Collection<ConfigAttribute> attributes(String expression) {
+		return Collections.<ConfigAttribute> singletonList(new WebExpressionConfigAttribute(
+				new SpelExpressionParser().parseExpression(expression), null));
+	}
 }
@@ -29,6 +29,7 @@ import org.springframework.security.access.ConfigAttribute;
 import org.springframework.security.access.SecurityConfig;
 import org.springframework.security.web.FilterInvocation;
 import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.RegexRequestMatcher;
 import org.springframework.security.web.util.matcher.RequestMatcher;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -166,6 +167,43 @@ public class DefaultFilterInvocationSecurityMetadataSourceTests {
 		assertThat(response).isEqualTo(this.def);
 	}
 
+	@Test
+	public void compiledLookupReturnsFirstMatchingEntry() {
+		LinkedHashMap<RequestMatcher, Collection<ConfigAttribute>> requestMap = new LinkedHashMap<RequestMatcher, Collection<ConfigAttribute>>();
+		Collection<ConfigAttribute> adminAttrs = SecurityConfig.createList("A");
+		Collection<ConfigAttribute> postAttrs = SecurityConfig.createList("B");
+		Collection<ConfigAttribute> regexAttrs = SecurityConfig.createList("C");
+		Collection<ConfigAttribute> anyAttrs = SecurityConfig.createList("D");
+		requestMap.put(new AntPathRequestMatcher("/admin/**"), adminAttrs);
+		requestMap.put(new AntPathRequestMatcher("/api/**", "POST"), postAttrs);
+		requestMap.put(new RegexRequestMatcher("/api/v[0-9]+/.*", null), regexAttrs);
+		requestMap.put(new AntPathRequestMatcher("/**"), anyAttrs);
+		this.fids = new DefaultFilterInvocationSecurityMetadataSource(requestMap);
+		this.fids.setCompiledLookup(true);
+
+		assertThat(this.fids.getAttributes(
+				createFilterInvocation("/admin/users", null, null, "GET")))
+						.isSameAs(adminAttrs);
+		assertThat(this.fids.getAttributes(
+				createFilterInvocation("/api/v1/users", null, null, "POST")))
+						.isSameAs(postAttrs);
+		assertThat(this.fids.getAttributes(
+				createFilterInvocation("/api/v1/users", null, null, "GET")))
+						.isSameAs(regexAttrs);
+		assertThat(this.fids.getAttributes(
+				createFilterInvocation("/api/other", null, null, "GET")))
+						.isSameAs(anyAttrs);
+	}
+
+	@Test
+	public void compiledLookupReturnsNullIfNoMatch() {
+		createFids("/somepage**", "GET");
+		this.fids.setCompiledLookup(true);
+
+		FilterInvocation fi = createFilterInvocation("/somepage", null, null, "POST");
+		assertThat(this.fids.getAttributes(fi)).isNull();
+	}
+
 	private FilterInvocation createFilterInvocation(String servletPath, String pathInfo,
 			String queryString, String method) {
 		MockHttpServletRequest request = new MockHttpServletRequest();
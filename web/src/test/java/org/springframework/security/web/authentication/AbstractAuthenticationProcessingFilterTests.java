@@ -427,6 +427,27 @@ public class AbstractAuthenticationProcessingFilterTests {
 		filter.setRememberMeServices(null);
 	}
 
+	@Test
+	public void getApplicableRequestMatcherReturnsRequiresAuthenticationRequestMatcher() {
+		MockAuthenticationFilter filter = new MockAuthenticationFilter(true);
+
+		assertThat(filter.getApplicableRequestMatcher().matches(
+				createMockAuthenticationRequest())).isTrue();
+	}
+
+	@Test
+	public void getApplicableRequestMatcherWhenRequiresAuthenticationOverriddenThenNull() {
+		MockAuthenticationFilter filter = new MockAuthenticationFilter(true) {
+			@Override
+			protected boolean requiresAuthentication(HttpServletRequest request,
+					HttpServletResponse response) {
+				return true;
+			}
+		};
+
+		assertThat(filter.getApplicableRequestMatcher()).isNull();
+	}
+
 	// ~ Inner Classes
 	// ==================================================================================================
 
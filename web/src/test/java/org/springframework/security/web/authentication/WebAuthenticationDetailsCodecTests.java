@@ -0,0 +1,80 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.web.authentication;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Collections;
+
+import org.junit.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.BinarySecurityContextCodec;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+
+/**
+ * @since 4.2
+ */
+public class WebAuthenticationDetailsCodecTests {
+
+	private final BinarySecurityContextCodec codec = new BinarySecurityContextCodec(
+			Collections.singletonList(new WebAuthenticationDetailsCodec()));
+
+	@Test
+	public void detailsRoundTrip() {
+		WebAuthenticationDetails details = new WebAuthenticationDetails("127.0.0.1",
+				"ABC123");
+
+		assertThat(roundTrip(details)).isEqualTo(details);
+	}
+
+	@Test
+	public void detailsWithoutSessionRoundTrip() {
+		WebAuthenticationDetails details = new WebAuthenticationDetails("127.0.0.1",
+				null);
+
+		WebAuthenticationDetails decoded = roundTrip(details);
+
+		assertThat(decoded.getRemoteAddress()).isEqualTo("127.0.0.1");
+		assertThat(decoded.getSessionId()).isNull();
+	}
+
+	@Test
+	public void detailsAreSmallerThanSerialized() {
+		SecurityContext context = context(new WebAuthenticationDetails("127.0.0.1",
+				"ABC123"));
+
+		assertThat(this.codec.encode(context).length).isLessThan(
+				new BinarySecurityContextCodec().encode(context).length);
+	}
+
+	private WebAuthenticationDetails roundTrip(WebAuthenticationDetails details) {
+		Authentication authentication = this.codec.decode(
+				this.codec.encode(context(details))).getAuthentication();
+		return (WebAuthenticationDetails) authentication.getDetails();
+	}
+
+	private static SecurityContext context(WebAuthenticationDetails details) {
+		UsernamePasswordAuthenticationToken token = new UsernamePasswordAuthenticationToken(
+				"rod", null, AuthorityUtils.createAuthorityList("ROLE_USER"));
+		token.setDetails(details);
+		SecurityContext context = new SecurityContextImpl();
+		context.setAuthentication(token);
+		return context;
+	}
+}
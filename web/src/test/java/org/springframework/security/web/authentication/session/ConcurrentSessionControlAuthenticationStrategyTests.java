@@ -19,6 +19,8 @@ package org.springframework.security.web.authentication.session;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.Arrays;
@@ -36,6 +38,7 @@ import org.springframework.mock.web.MockHttpSession;
 import org.springframework.mock.web.MockServletContext;
 import org.springframework.security.authentication.TestingAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.session.CountingSessionRegistry;
 import org.springframework.security.core.session.SessionInformation;
 import org.springframework.security.core.session.SessionRegistry;
 
@@ -48,6 +51,8 @@ import org.springframework.security.core.session.SessionRegistry;
 public class ConcurrentSessionControlAuthenticationStrategyTests {
 	@Mock
 	private SessionRegistry sessionRegistry;
+	@Mock
+	private CountingSessionRegistry countingSessionRegistry;
 
 	private Authentication authentication;
 	private MockHttpServletRequest request;
@@ -134,6 +139,33 @@ public class ConcurrentSessionControlAuthenticationStrategyTests {
 		assertThat(sessionInformation.isExpired()).isTrue();
 	}
 
+	@Test
+	public void countingRegistryBelowMaximumDoesNotObtainSessions() {
+		when(countingSessionRegistry.countSessions(any())).thenReturn(1);
+		strategy = new ConcurrentSessionControlAuthenticationStrategy(
+				countingSessionRegistry);
+		strategy.setMaximumSessions(2);
+		strategy.setExceptionIfMaximumExceeded(true);
+
+		strategy.onAuthentication(authentication, request, response);
+
+		verify(countingSessionRegistry, never()).getAllSessions(any(), anyBoolean());
+	}
+
+	@Test
+	public void countingRegistryAtMaximumExpiresExistingUser() {
+		when(countingSessionRegistry.countSessions(any())).thenReturn(1);
+		when(countingSessionRegistry.getAllSessions(any(), anyBoolean())).thenReturn(
+				Collections.<SessionInformation> singletonList(sessionInformation));
+		strategy = new ConcurrentSessionControlAuthenticationStrategy(
+				countingSessionRegistry);
+		strategy.setMaximumSessions(1);
+
+		strategy.onAuthentication(authentication, request, response);
+
+		assertThat(sessionInformation.isExpired()).isTrue();
+	}
+
 	@Test(expected = IllegalArgumentException.class)
 	public void setMessageSourceNull() {
 		strategy.setMessageSource(null);
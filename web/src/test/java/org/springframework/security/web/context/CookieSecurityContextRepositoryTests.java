@@ -0,0 +1,375 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.web.context;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+
+import javax.servlet.http.Cookie;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.RememberMeAuthenticationToken;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.context.CookieSecurityContextRepository.DecodedContext;
+
+/**
+ * @since 4.2
+ */
+public class CookieSecurityContextRepositoryTests {
+
+	private static final byte[] SIGNING_KEY = key(32, 1);
+
+	private static final byte[] ENCRYPTION_KEY = key(16, 2);
+
+	private final TestingAuthenticationToken testToken = new TestingAuthenticationToken(
+			"someone", "passwd", "ROLE_A", "ROLE_B");
+
+	private CookieSecurityContextRepository repo = new CookieSecurityContextRepository(
+			SIGNING_KEY);
+
+	@After
+	public void tearDown() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	public void emptyContextIsNotStored() {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		HttpRequestResponseHolder holder = new HttpRequestResponseHolder(
+				new MockHttpServletRequest(), response);
+		SecurityContext context = this.repo.loadContext(holder);
+
+		assertThat(context.getAuthentication()).isNull();
+		this.repo.saveContext(context, holder.getRequest(), holder.getResponse());
+		assertThat(response.getCookie(CookieSecurityContextRepository.DEFAULT_COOKIE_NAME))
+				.isNull();
+	}
+
+	@Test
+	public void authenticatedContextIsRestoredFromCookie() {
+		Cookie cookie = saveAuthentication(this.repo, this.testToken);
+
+		assertThat(cookie.getPath()).isEqualTo("/");
+		assertThat(cookie.isHttpOnly()).isTrue();
+		assertThat(cookie.getMaxAge()).isEqualTo(-1);
+
+		Authentication restored = load(this.repo, requestWith(cookie))
+				.getAuthentication();
+		assertThat(restored.getName()).isEqualTo("someone");
+		assertThat(restored.getCredentials()).isNull();
+		assertThat(restored.isAuthenticated()).isTrue();
+		assertThat(AuthorityUtils.authorityListToSet(restored.getAuthorities()))
+				.containsOnly("ROLE_A", "ROLE_B");
+	}
+
+	@Test
+	public void unchangedContextDoesNotRewriteCookie() {
+		Cookie cookie = saveAuthentication(this.repo, this.testToken);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		HttpRequestResponseHolder holder = new HttpRequestResponseHolder(
+				requestWith(cookie), response);
+		SecurityContext context = this.repo.loadContext(holder);
+		this.repo.saveContext(context, holder.getRequest(), holder.getResponse());
+
+		assertThat(response.getCookie(CookieSecurityContextRepository.DEFAULT_COOKIE_NAME))
+				.isNull();
+	}
+
+	@Test
+	public void cookieCloseToExpiryIsRewritten() {
+		String value = this.repo.encode(this.testToken, now(),
+				now() + 60000);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		HttpRequestResponseHolder holder = new HttpRequestResponseHolder(
+				requestWith(cookie(value)), response);
+		SecurityContext context = this.repo.loadContext(holder);
+		assertThat(context.getAuthentication().getName()).isEqualTo("someone");
+		this.repo.saveContext(context, holder.getRequest(), holder.getResponse());
+
+		Cookie rewritten = response
+				.getCookie(CookieSecurityContextRepository.DEFAULT_COOKIE_NAME);
+		assertThat(rewritten).isNotNull();
+		assertThat(rewritten.getValue()).isNotEqualTo(value);
+	}
+
+	@Test
+	public void expiredCookieIsIgnored() {
+		String value = this.repo.encode(this.testToken, now() - 60000,
+				now() - 1);
+
+		SecurityContext context = load(this.repo, requestWith(cookie(value)));
+
+		assertThat(context.getAuthentication()).isNull();
+		assertThat(this.repo.containsContext(requestWith(cookie(value)))).isFalse();
+	}
+
+	@Test
+	public void tamperedCookieIsIgnored() {
+		Cookie cookie = saveAuthentication(this.repo, this.testToken);
+		char[] value = cookie.getValue().toCharArray();
+		int index = value.length / 2;
+		value[index] = value[index] == 'A' ? 'B' : 'A';
+
+		SecurityContext context = load(this.repo,
+				requestWith(cookie(new String(value))));
+
+		assertThat(context.getAuthentication()).isNull();
+	}
+
+	@Test
+	public void cookieSignedWithOtherKeyIsIgnored() {
+		Cookie cookie = saveAuthentication(new CookieSecurityContextRepository(key(32,
+				3)), this.testToken);
+
+		assertThat(this.repo.containsContext(requestWith(cookie))).isFalse();
+	}
+
+	@Test
+	public void malformedCookieIsIgnored() {
+		assertThat(this.repo.containsContext(requestWith(cookie("not*base64"))))
+				.isFalse();
+		assertThat(this.repo.containsContext(requestWith(cookie("AQA")))).isFalse();
+	}
+
+	@Test
+	public void encryptedContextIsRestoredFromCookie() {
+		this.repo.setEncryptionKey(ENCRYPTION_KEY);
+		Cookie cookie = saveAuthentication(this.repo, this.testToken);
+
+		Authentication restored = load(this.repo, requestWith(cookie))
+				.getAuthentication();
+		assertThat(restored.getName()).isEqualTo("someone");
+
+		CookieSecurityContextRepository unencrypted = new CookieSecurityContextRepository(
+				SIGNING_KEY);
+		assertThat(unencrypted.containsContext(requestWith(cookie))).isFalse();
+	}
+
+	@Test
+	public void encryptedCookieDiffersForSameContext() {
+		this.repo.setEncryptionKey(ENCRYPTION_KEY);
+		long expires = now() + 60000;
+
+		assertThat(this.repo.encode(this.testToken, now(), expires)).isNotEqualTo(
+				this.repo.encode(this.testToken, now(), expires));
+	}
+
+	@Test
+	public void knownAuthoritiesAreEncodedByIndex() {
+		long expires = now() + 60000;
+		String unknown = this.repo.encode(this.testToken, now(), expires);
+		this.repo.setKnownAuthorities(Arrays.asList("ROLE_A", "ROLE_B"));
+		String known = this.repo.encode(this.testToken, now(), expires);
+
+		assertThat(known.length()).isLessThan(unknown.length());
+		Authentication restored = load(this.repo, requestWith(cookie(known)))
+				.getAuthentication();
+		assertThat(AuthorityUtils.authorityListToSet(restored.getAuthorities()))
+				.containsOnly("ROLE_A", "ROLE_B");
+		// names of authorities remain readable when the list changes
+		this.repo.setKnownAuthorities(Arrays.asList("ROLE_A"));
+		assertThat(this.repo.containsContext(requestWith(cookie(unknown)))).isTrue();
+		assertThat(this.repo.containsContext(requestWith(cookie(known)))).isFalse();
+	}
+
+	@Test
+	public void rememberMeAuthenticationIsRestored() {
+		Cookie cookie = saveAuthentication(this.repo, new RememberMeAuthenticationToken(
+				"key", "someone", AuthorityUtils.createAuthorityList("ROLE_A")));
+
+		Authentication restored = load(this.repo, requestWith(cookie))
+				.getAuthentication();
+		assertThat(restored).isInstanceOf(RememberMeAuthenticationToken.class);
+		assertThat(restored.getName()).isEqualTo("someone");
+	}
+
+	@Test
+	public void anonymousContextIsNotStored() {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		HttpRequestResponseHolder holder = new HttpRequestResponseHolder(
+				new MockHttpServletRequest(), response);
+		SecurityContext context = this.repo.loadContext(holder);
+		context.setAuthentication(new AnonymousAuthenticationToken("key", "anon",
+				AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS")));
+
+		this.repo.saveContext(context, holder.getRequest(), holder.getResponse());
+
+		assertThat(response.getCookie(CookieSecurityContextRepository.DEFAULT_COOKIE_NAME))
+				.isNull();
+	}
+
+	@Test
+	public void cookieIsRemovedWhenContextIsCleared() {
+		Cookie cookie = saveAuthentication(this.repo, this.testToken);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		HttpRequestResponseHolder holder = new HttpRequestResponseHolder(
+				requestWith(cookie), response);
+		SecurityContext context = this.repo.loadContext(holder);
+
+		this.repo.saveContext(SecurityContextHolder.createEmptyContext(),
+				holder.getRequest(), holder.getResponse());
+
+		Cookie removed = response
+				.getCookie(CookieSecurityContextRepository.DEFAULT_COOKIE_NAME);
+		assertThat(context.getAuthentication()).isNotNull();
+		assertThat(removed.getMaxAge()).isEqualTo(0);
+		assertThat(removed.getValue()).isNull();
+	}
+
+	@Test
+	public void cookieIsRemovedWhenContextDoesNotFit() {
+		Cookie cookie = saveAuthentication(this.repo, this.testToken);
+		String[] roles = new String[500];
+		for (int i = 0; i < roles.length; i++) {
+			roles[i] = "ROLE_AUTHORITY_" + i;
+		}
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		HttpRequestResponseHolder holder = new HttpRequestResponseHolder(
+				requestWith(cookie), response);
+		SecurityContext context = this.repo.loadContext(holder);
+
+		context.setAuthentication(new TestingAuthenticationToken("other", "passwd",
+				roles));
+		this.repo.saveContext(context, holder.getRequest(), holder.getResponse());
+
+		Cookie removed = response
+				.getCookie(CookieSecurityContextRepository.DEFAULT_COOKIE_NAME);
+		assertThat(removed.getMaxAge()).isEqualTo(0);
+		assertThat(removed.getValue()).isNull();
+	}
+
+	@Test
+	public void cookieSettingsAreApplied() {
+		this.repo.setCookieName("ctx");
+		this.repo.setCookieDomain("example.com");
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setContextPath("/app");
+		request.setSecure(true);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		HttpRequestResponseHolder holder = new HttpRequestResponseHolder(request,
+				response);
+		SecurityContext context = this.repo.loadContext(holder);
+		context.setAuthentication(this.testToken);
+
+		this.repo.saveContext(context, holder.getRequest(), holder.getResponse());
+
+		Cookie cookie = response.getCookie("ctx");
+		assertThat(cookie.getPath()).isEqualTo("/app");
+		assertThat(cookie.getDomain()).isEqualTo("example.com");
+		assertThat(cookie.getSecure()).isTrue();
+	}
+
+	@Test
+	public void cookieOlderThanMaxAgeIsIgnored() {
+		this.repo.setMaxAge(3600);
+		String value = this.repo.encode(this.testToken, now() - 3600000, now() + 60000);
+
+		assertThat(this.repo.containsContext(requestWith(cookie(value)))).isFalse();
+	}
+
+	@Test
+	public void rewrittenCookieRetainsIssuedAt() {
+		this.repo.setMaxAge(3600);
+		long issuedAt = now() - 600000;
+		String value = this.repo.encode(this.testToken, issuedAt, now() + 60000);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		HttpRequestResponseHolder holder = new HttpRequestResponseHolder(
+				requestWith(cookie(value)), response);
+		SecurityContext context = this.repo.loadContext(holder);
+		this.repo.saveContext(context, holder.getRequest(), holder.getResponse());
+
+		Cookie rewritten = response
+				.getCookie(CookieSecurityContextRepository.DEFAULT_COOKIE_NAME);
+		DecodedContext decoded = this.repo.decode(rewritten.getValue(), now());
+		assertThat(decoded.issuedAt).isEqualTo(issuedAt);
+		assertThat(decoded.expires).isGreaterThan(now() + 60000);
+	}
+
+	@Test
+	public void cookieIsNotRefreshedBeyondMaxAge() {
+		this.repo.setMaxAge(3600);
+		String value = this.repo.encode(this.testToken, now() - 3590000, now() + 10000);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		HttpRequestResponseHolder holder = new HttpRequestResponseHolder(
+				requestWith(cookie(value)), response);
+		SecurityContext context = this.repo.loadContext(holder);
+		assertThat(context.getAuthentication()).isNotNull();
+		this.repo.saveContext(context, holder.getRequest(), holder.getResponse());
+
+		assertThat(response.getCookie(CookieSecurityContextRepository.DEFAULT_COOKIE_NAME))
+				.isNull();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void shortSigningKeyIsRejected() {
+		new CookieSecurityContextRepository(key(16, 1));
+	}
+
+	private static Cookie saveAuthentication(CookieSecurityContextRepository repo,
+			Authentication authentication) {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		HttpRequestResponseHolder holder = new HttpRequestResponseHolder(
+				new MockHttpServletRequest(), response);
+		SecurityContext context = repo.loadContext(holder);
+		context.setAuthentication(authentication);
+		repo.saveContext(context, holder.getRequest(), holder.getResponse());
+		Cookie cookie = response
+				.getCookie(CookieSecurityContextRepository.DEFAULT_COOKIE_NAME);
+		assertThat(cookie).isNotNull();
+		return cookie;
+	}
+
+	private static SecurityContext load(CookieSecurityContextRepository repo,
+			MockHttpServletRequest request) {
+		return repo.loadContext(new HttpRequestResponseHolder(request,
+				new MockHttpServletResponse()));
+	}
+
+	private static MockHttpServletRequest requestWith(Cookie cookie) {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setCookies(cookie);
+		return request;
+	}
+
+	private static Cookie cookie(String value) {
+		return new Cookie(CookieSecurityContextRepository.DEFAULT_COOKIE_NAME, value);
+	}
+
+	private static long now() {
+		return System.currentTimeMillis();
+	}
+
+	private static byte[] key(int length, int seed) {
+		byte[] key = new byte[length];
+		for (int i = 0; i < length; i++) {
+			key[i] = (byte) (i * 31 + seed);
+		}
+		return key;
+	}
+}
@@ -44,9 +44,12 @@ import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.security.authentication.AnonymousAuthenticationToken;
 import org.springframework.security.authentication.AuthenticationTrustResolver;
 import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.BinarySecurityContextCodec;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.context.SecurityContextImpl;
 import org.springframework.util.ClassUtils;
 
 /**
@@ -633,4 +636,60 @@ public class HttpSessionSecurityContextRepositoryTests {
 
 		repo.saveContext(context, request, response);
 	}
+
+	@Test
+	public void codecStoresEncodedContextInSession() throws Exception {
+		HttpSessionSecurityContextRepository repo = new HttpSessionSecurityContextRepository();
+		repo.setSecurityContextCodec(new BinarySecurityContextCodec());
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		HttpRequestResponseHolder holder = new HttpRequestResponseHolder(request,
+				response);
+		SecurityContext context = repo.loadContext(holder);
+		UsernamePasswordAuthenticationToken token = new UsernamePasswordAuthenticationToken(
+				"someone", null, AuthorityUtils.createAuthorityList("ROLE_A"));
+		context.setAuthentication(token);
+
+		repo.saveContext(context, holder.getRequest(), holder.getResponse());
+
+		Object stored = request.getSession().getAttribute(SPRING_SECURITY_CONTEXT_KEY);
+		assertThat(stored).isInstanceOf(byte[].class);
+		assertThat(repo.containsContext(request)).isTrue();
+		holder = new HttpRequestResponseHolder(request, new MockHttpServletResponse());
+		assertThat(repo.loadContext(holder).getAuthentication()).isEqualTo(token);
+	}
+
+	@Test
+	public void codecEncodesContextStoredAsObject() throws Exception {
+		HttpSessionSecurityContextRepository repo = new HttpSessionSecurityContextRepository();
+		repo.setSecurityContextCodec(new BinarySecurityContextCodec());
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		SecurityContext stored = new SecurityContextImpl();
+		stored.setAuthentication(testToken);
+		request.getSession().setAttribute(SPRING_SECURITY_CONTEXT_KEY, stored);
+		HttpRequestResponseHolder holder = new HttpRequestResponseHolder(request,
+				new MockHttpServletResponse());
+
+		SecurityContext context = repo.loadContext(holder);
+		assertThat(context).isSameAs(stored);
+		repo.saveContext(context, holder.getRequest(), holder.getResponse());
+
+		assertThat(request.getSession().getAttribute(SPRING_SECURITY_CONTEXT_KEY))
+				.isInstanceOf(byte[].class);
+	}
+
+	@Test
+	public void codecIgnoresUndecodableContext() throws Exception {
+		HttpSessionSecurityContextRepository repo = new HttpSessionSecurityContextRepository();
+		repo.setSecurityContextCodec(new BinarySecurityContextCodec());
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.getSession().setAttribute(SPRING_SECURITY_CONTEXT_KEY,
+				new byte[] { 42 });
+		HttpRequestResponseHolder holder = new HttpRequestResponseHolder(request,
+				new MockHttpServletResponse());
+
+		SecurityContext context = repo.loadContext(holder);
+
+		assertThat(context.getAuthentication()).isNull();
+	}
 }
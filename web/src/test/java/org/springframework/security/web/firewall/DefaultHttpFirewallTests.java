@@ -15,6 +15,7 @@
  */
 package org.springframework.security.web.firewall;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.fail;
 
 import org.junit.Test;
@@ -50,4 +51,117 @@ public class DefaultHttpFirewallTests {
 			}
 		}
 	}
+
+	@Test
+	public void unnormalizedPathsAreRejectedWhenPassingThroughCleanRequests()
+			throws Exception {
+		DefaultHttpFirewall fw = new DefaultHttpFirewall();
+		fw.setPassThroughCleanRequests(true);
+
+		MockHttpServletRequest request;
+		for (String path : unnormalizedPaths) {
+			request = new MockHttpServletRequest();
+			request.setServletPath(path);
+			try {
+				fw.getFirewalledRequest(request);
+				fail(path + " is un-normalized");
+			}
+			catch (RequestRejectedException expected) {
+			}
+			request.setServletPath("/");
+			request.setPathInfo(path + ";param");
+			try {
+				fw.getFirewalledRequest(request);
+				fail(path + " is un-normalized");
+			}
+			catch (RequestRejectedException expected) {
+			}
+		}
+	}
+
+	@Test
+	public void cleanRequestIsNotWrappedWhenPassingThroughCleanRequests() {
+		DefaultHttpFirewall fw = new DefaultHttpFirewall();
+		fw.setPassThroughCleanRequests(true);
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setServletPath("/path");
+		request.setPathInfo("/info");
+
+		FirewalledRequest fwr = fw.getFirewalledRequest(request);
+
+		assertThat(fwr).isNotInstanceOf(RequestWrapper.class);
+		assertThat(fwr.getServletPath()).isEqualTo("/path");
+		assertThat(fwr.getPathInfo()).isEqualTo("/info");
+		fwr.reset();
+		assertThat(fwr.getServletPath()).isEqualTo("/path");
+	}
+
+	@Test
+	public void requestNeedingStrippingIsWrappedWhenPassingThroughCleanRequests() {
+		DefaultHttpFirewall fw = new DefaultHttpFirewall();
+		fw.setPassThroughCleanRequests(true);
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setServletPath("/path;param//a");
+
+		FirewalledRequest fwr = fw.getFirewalledRequest(request);
+
+		assertThat(fwr).isInstanceOf(RequestWrapper.class);
+		assertThat(fwr.getServletPath()).isEqualTo("/path/a");
+	}
+
+	@Test
+	public void emptyPathInfoIsNullWhenPassingThroughCleanRequests() {
+		DefaultHttpFirewall fw = new DefaultHttpFirewall();
+		fw.setPassThroughCleanRequests(true);
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setServletPath("/path");
+		request.setPathInfo("");
+
+		assertThat(fw.getFirewalledRequest(request).getPathInfo()).isNull();
+	}
+
+	@Test
+	public void encodedSlashIsAllowedByDefault() {
+		DefaultHttpFirewall fw = new DefaultHttpFirewall();
+		MockHttpServletRequest request = new MockHttpServletRequest("GET",
+				"/a%2Fb/%2e%2e/c");
+
+		fw.getFirewalledRequest(request);
+	}
+
+	@Test(expected = RequestRejectedException.class)
+	public void encodedSlashIsRejectedWhenNotAllowed() {
+		DefaultHttpFirewall fw = new DefaultHttpFirewall();
+		fw.setAllowUrlEncodedSlash(false);
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/a%2fb");
+
+		fw.getFirewalledRequest(request);
+	}
+
+	@Test(expected = RequestRejectedException.class)
+	public void encodedPeriodIsRejectedWhenNotAllowed() {
+		DefaultHttpFirewall fw = new DefaultHttpFirewall();
+		fw.setAllowUrlEncodedPeriod(false);
+		MockHttpServletRequest request = new MockHttpServletRequest("GET",
+				"/a/%2E%2e/b");
+
+		fw.getFirewalledRequest(request);
+	}
+
+	@Test
+	public void nonNormalizedRequestUriIsRejectedWhenNotAllowed() {
+		DefaultHttpFirewall fw = new DefaultHttpFirewall();
+		fw.setAllowNonNormalizedRequestUri(false);
+		String[] uris = { "/a/../b", "/a/..;x/b", "/./a", "/a/." };
+
+		for (String uri : uris) {
+			try {
+				fw.getFirewalledRequest(new MockHttpServletRequest("GET", uri));
+				fail(uri + " is un-normalized");
+			}
+			catch (RequestRejectedException expected) {
+			}
+		}
+		fw.getFirewalledRequest(new MockHttpServletRequest("GET", "/a/..b/.c/"));
+	}
 }
@@ -63,4 +63,15 @@ public class CookieMixinTests extends AbstractMixinTests {
 		assertThat(cookie.getDomain()).isEqualTo("");
 		assertThat(cookie.isHttpOnly()).isEqualTo(false);
 	}
+
+	@Test
+	public void deserializeCookieWithPropertiesInAnyOrder() throws IOException {
+		String json = COOKIE_JSON.replace("\"@class\": \"javax.servlet.http.Cookie\", ", "")
+				.replace("\"domain\": null", "\"domain\": \"example.com\", \"httpOnly\": true, \"@class\": \"javax.servlet.http.Cookie\"");
+		Cookie cookie = mapper.readValue(json, Cookie.class);
+		assertThat(cookie.getName()).isEqualTo("demo");
+		assertThat(cookie.getValue()).isEqualTo("cookie1");
+		assertThat(cookie.getDomain()).isEqualTo("example.com");
+		assertThat(cookie.isHttpOnly()).isTrue();
+	}
 }
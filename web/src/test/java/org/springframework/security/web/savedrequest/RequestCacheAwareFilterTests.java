@@ -21,6 +21,7 @@ import org.junit.Test;
 import org.springframework.mock.web.MockFilterChain;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.web.util.matcher.RequestMatcher;
 
 public class RequestCacheAwareFilterTests {
 
@@ -40,4 +41,29 @@ public class RequestCacheAwareFilterTests {
 		assertThat(request.getSession().getAttribute(
 				HttpSessionRequestCache.SAVED_REQUEST)).isNull();
 	}
+
+	@Test
+	public void applicableRequestMatcherMatchesOnlyWhenRequestSaved() throws Exception {
+		RequestCacheAwareFilter filter = new RequestCacheAwareFilter();
+		RequestMatcher matcher = filter.getApplicableRequestMatcher();
+		MockHttpServletRequest request = new MockHttpServletRequest("GET",
+				"/destination");
+
+		assertThat(matcher.matches(request)).isFalse();
+		new HttpSessionRequestCache().saveRequest(request,
+				new MockHttpServletResponse());
+		assertThat(matcher.matches(request)).isTrue();
+	}
+
+	@Test
+	public void applicableRequestMatcherIsNullForCustomCache() {
+		RequestCacheAwareFilter filter = new RequestCacheAwareFilter(
+				new HttpSessionRequestCache() {
+				});
+
+		assertThat(filter.getApplicableRequestMatcher()).isNull();
+		assertThat(new RequestCacheAwareFilter(new NullRequestCache())
+				.getApplicableRequestMatcher().matches(new MockHttpServletRequest()))
+				.isFalse();
+	}
 }
@@ -22,9 +22,15 @@ import java.util.List;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.mock.web.MockHttpSession;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.BinarySecurityContextCodec;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.web.context.HttpRequestResponseHolder;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
 
 /**
  *
@@ -68,4 +74,31 @@ public class HttpSessionDestroyedEventTests {
 		assertThat(securityContexts).hasSize(1);
 		assertThat(securityContexts.get(0)).isSameAs(session.getAttribute("context"));
 	}
+
+	@Test
+	public void getSecurityContextsDecodesContextStoredByCodec() {
+		BinarySecurityContextCodec codec = new BinarySecurityContextCodec();
+		HttpSessionSecurityContextRepository repo = new HttpSessionSecurityContextRepository();
+		repo.setSecurityContextCodec(codec);
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setSession(session);
+		HttpRequestResponseHolder holder = new HttpRequestResponseHolder(request,
+				new MockHttpServletResponse());
+		SecurityContext context = repo.loadContext(holder);
+		context.setAuthentication(new TestingAuthenticationToken("user", "password",
+				"ROLE_USER"));
+		repo.saveContext(context, holder.getRequest(), holder.getResponse());
+		session.setAttribute("bytes", new byte[] { 1, 2, 3 });
+
+		List<SecurityContext> securityContexts = new HttpSessionDestroyedEvent(session,
+				codec).getSecurityContexts();
+
+		assertThat(session.getAttribute(
+				HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY))
+				.isInstanceOf(byte[].class);
+		assertThat(securityContexts).hasSize(2);
+		assertThat(securityContexts).contains(context,
+				(SecurityContext) session.getAttribute("context"));
+		assertThat(destroyedEvent.getSecurityContexts()).hasSize(1);
+	}
 }
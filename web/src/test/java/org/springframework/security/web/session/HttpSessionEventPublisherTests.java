@@ -23,6 +23,11 @@ import javax.servlet.http.HttpSessionEvent;
 import org.junit.Test;
 import org.springframework.mock.web.MockHttpSession;
 import org.springframework.mock.web.MockServletContext;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.BinarySecurityContextCodec;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
 import org.springframework.security.web.session.HttpSessionEventPublisher;
 import org.springframework.web.context.support.StaticWebApplicationContext;
 
@@ -110,6 +115,41 @@ public class HttpSessionEventPublisherTests {
 		assertThat(listener.getDestroyedEvent().getSession()).isEqualTo(session);
 	}
 
+	@Test
+	public void destroyedEventDecodesContextWithCodecBean() {
+		HttpSessionEventPublisher publisher = new HttpSessionEventPublisher();
+
+		StaticWebApplicationContext context = new StaticWebApplicationContext();
+
+		MockServletContext servletContext = new MockServletContext();
+		servletContext.setAttribute(
+				StaticWebApplicationContext.ROOT_WEB_APPLICATION_CONTEXT_ATTRIBUTE,
+				context);
+
+		context.setServletContext(servletContext);
+		context.registerSingleton("listener", MockApplicationListener.class, null);
+		context.registerSingleton("codec", BinarySecurityContextCodec.class, null);
+		context.refresh();
+
+		BinarySecurityContextCodec codec = context.getBean(BinarySecurityContextCodec.class);
+		SecurityContext securityContext = new SecurityContextImpl();
+		securityContext.setAuthentication(new TestingAuthenticationToken("user",
+				"password", "ROLE_USER"));
+		MockHttpSession session = new MockHttpSession(servletContext);
+		session.setAttribute(
+				HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY,
+				codec.encode(securityContext));
+		MockApplicationListener listener = (MockApplicationListener) context
+				.getBean("listener");
+
+		publisher.sessionDestroyed(new HttpSessionEvent(session));
+
+		assertThat(listener.getDestroyedEvent().getSecurityContexts()).hasSize(1);
+		assertThat(
+				listener.getDestroyedEvent().getSecurityContexts().get(0)
+						.getAuthentication().getName()).isEqualTo("user");
+	}
+
 	// SEC-2599
 	@Test(expected = IllegalStateException.class)
 	public void sessionCreatedNullApplicationContext() {
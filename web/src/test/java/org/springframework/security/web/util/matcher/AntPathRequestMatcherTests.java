@@ -16,6 +16,8 @@
 
 package org.springframework.security.web.util.matcher;
 
+import java.util.Map;
+
 import javax.servlet.http.HttpServletRequest;
 
 import org.junit.Test;
@@ -210,6 +212,49 @@ public class AntPathRequestMatcherTests {
 		assertThat(matcher.matches(request)).isFalse();
 	}
 
+	@Test
+	public void doubleWildcardBetweenSegmentsMatchesCorrectly() {
+		AntPathRequestMatcher matcher = new AntPathRequestMatcher("/a/**/b/*.html");
+
+		assertThat(matcher.matches(createRequest("/a/b/c.html"))).isTrue();
+		assertThat(matcher.matches(createRequest("/a/x/y/b/c.html"))).isTrue();
+		assertThat(matcher.matches(createRequest("/a//x/b/c.html"))).isTrue();
+		assertThat(matcher.matches(createRequest("/a/x/y/b/c.css"))).isFalse();
+		assertThat(matcher.matches(createRequest("/a/x/y/c.html"))).isFalse();
+	}
+
+	@Test
+	public void wildcardsDoNotMatchLineTerminators() {
+		AntPathRequestMatcher matcher = new AntPathRequestMatcher("/admin/*");
+
+		assertThat(matcher.matches(createRequest("/admin/a"))).isTrue();
+		assertThat(matcher.matches(createRequest("/admin/a\nb"))).isFalse();
+	}
+
+	@Test
+	public void caseInsensitiveOnlyFoldsAsciiCharacters() {
+		AntPathRequestMatcher matcher = new AntPathRequestMatcher("/a/\u00e9t\u00e9/*",
+				null, false);
+
+		assertThat(matcher.matches(createRequest("/A/\u00e9t\u00e9/x"))).isTrue();
+		assertThat(matcher.matches(createRequest("/a/\u00c9T\u00c9/x"))).isFalse();
+	}
+
+	@Test
+	public void extractUriTemplateVariablesReturnsVariables() {
+		AntPathRequestMatcher matcher = new AntPathRequestMatcher(
+				"/users/{user}/**/{file}.{ext:[a-z]+}");
+
+		Map<String, String> variables = matcher.extractUriTemplateVariables(
+				createRequest("/users/rob/docs/2016/report.pdf"));
+
+		assertThat(variables).containsEntry("user", "rob")
+				.containsEntry("file", "report").containsEntry("ext", "pdf")
+				.hasSize(3);
+		assertThat(matcher.extractUriTemplateVariables(
+				createRequest("/users/rob/report.PDF"))).isEmpty();
+	}
+
 	private HttpServletRequest createRequestWithNullMethod(String path) {
 		when(this.request.getQueryString()).thenReturn("doesntMatter");
 		when(this.request.getServletPath()).thenReturn(path);
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.web.util.matcher;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.web.util.UrlUtils;
+
+public class RequestMatchContextTests {
+	private MockHttpServletRequest request;
+
+	private RequestMatchContext context;
+
+	@Before
+	public void setup() {
+		this.request = new MockHttpServletRequest("GET", "/app/path/info");
+		this.request.setContextPath("/app");
+		this.request.setServletPath("/path");
+		this.request.setPathInfo("/Info");
+		this.request.setQueryString("a=b");
+		this.context = RequestMatchContext.create(this.request);
+	}
+
+	@Test
+	public void getReturnsCreatedContext() {
+		assertThat(RequestMatchContext.get(this.request)).isSameAs(this.context);
+
+		RequestMatchContext.remove(this.request);
+
+		assertThat(RequestMatchContext.get(this.request)).isNull();
+	}
+
+	@Test
+	public void getPathIsMemoized() {
+		String path = this.context.getPath(this.request);
+
+		assertThat(path).isEqualTo("/path/Info");
+		assertThat(this.context.getPath(this.request)).isSameAs(path);
+		assertThat(this.context.getLowerCasePath(this.request)).isEqualTo("/path/info");
+	}
+
+	@Test
+	public void getPathWhenPathChangesThenRecomputed() {
+		this.context.getPath(this.request);
+
+		this.request.setPathInfo("/other");
+
+		assertThat(this.context.getPath(this.request)).isEqualTo("/path/other");
+	}
+
+	@Test
+	public void getRequestUrlIncludesQueryString() {
+		assertThat(this.context.getRequestUrl(this.request))
+				.isEqualTo("/path/Info?a=b");
+		assertThat(UrlUtils.buildRequestUrl(this.request)).isEqualTo("/path/Info?a=b");
+
+		this.request.setQueryString(null);
+
+		assertThat(this.context.getRequestUrl(this.request)).isEqualTo("/path/Info");
+	}
+
+	@Test
+	public void matchResultIsDiscardedWhenRequestChanges() {
+		RequestMatcher matcher = mock(RequestMatcher.class);
+		this.context.setMatchResult(matcher, this.request, true);
+
+		assertThat(this.context.getMatchResult(matcher, this.request)).isTrue();
+
+		this.request.setMethod("POST");
+
+		assertThat(this.context.getMatchResult(matcher, this.request)).isNull();
+	}
+
+	@Test
+	public void antPathRequestMatcherResultIsMemoized() {
+		AntPathRequestMatcher matcher = new AntPathRequestMatcher("/path/*", "GET");
+
+		assertThat(matcher.matches(this.request)).isTrue();
+		assertThat(this.context.getMatchResult(matcher, this.request)).isTrue();
+
+		this.context.setMatchResult(matcher, this.request, false);
+
+		assertThat(matcher.matches(this.request)).isFalse();
+	}
+
+	@Test
+	public void regexRequestMatcherUsesRequestUrl() {
+		RegexRequestMatcher matcher = new RegexRequestMatcher("/path/Info\\?a=b", null);
+
+		assertThat(matcher.matches(this.request)).isTrue();
+		assertThat(this.context.getMatchResult(matcher, this.request)).isTrue();
+	}
+
+	@Test
+	public void matchersWithoutContextAreNotMemoized() {
+		RequestMatchContext.remove(this.request);
+		RequestMatcher matcher = new AntPathRequestMatcher("/path/*");
+
+		assertThat(matcher.matches(this.request)).isTrue();
+		assertThat(this.context.getMatchResult(matcher, this.request)).isNull();
+	}
+}
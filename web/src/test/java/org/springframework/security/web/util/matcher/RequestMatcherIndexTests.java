@@ -0,0 +1,184 @@
+/*
+ * Copyright 2002-2016 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.security.web.util.matcher;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+public class RequestMatcherIndexTests {
+
+	@Test(expected = IllegalArgumentException.class)
+	public void constructorWhenNullThenException() {
+		new RequestMatcherIndex(null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void constructorWhenContainsNullThenException() {
+		new RequestMatcherIndex(Arrays.<RequestMatcher> asList(
+				new AntPathRequestMatcher("/a/**"), null));
+	}
+
+	@Test
+	public void indexOfReturnsFirstMatchInDeclarationOrder() {
+		RequestMatcherIndex index = new RequestMatcherIndex(
+				Arrays.<RequestMatcher> asList(new AntPathRequestMatcher("/api/v1/**"),
+						new AntPathRequestMatcher("/api/**"),
+						new AntPathRequestMatcher("/api/v1/users"),
+						AnyRequestMatcher.INSTANCE));
+
+		assertThat(index.indexOf(request("GET", "/api/v1/users"))).isEqualTo(0);
+		assertThat(index.indexOf(request("GET", "/api/v1"))).isEqualTo(0);
+		assertThat(index.indexOf(request("GET", "/api/v2"))).isEqualTo(1);
+		assertThat(index.indexOf(request("GET", "/api"))).isEqualTo(1);
+		assertThat(index.indexOf(request("GET", "/apix"))).isEqualTo(3);
+		assertThat(index.indexOf(request("GET", "/"))).isEqualTo(3);
+	}
+
+	@Test
+	public void indexOfWhenNoMatchThenMinusOne() {
+		RequestMatcherIndex index = new RequestMatcherIndex(
+				Arrays.<RequestMatcher> asList(new AntPathRequestMatcher("/a/**"),
+						new AntPathRequestMatcher("/b/*.html")));
+
+		assertThat(index.indexOf(request("GET", "/c"))).isEqualTo(-1);
+		assertThat(index.indexOf(request("GET", "/b/c.css"))).isEqualTo(-1);
+		assertThat(index.indexOf(request("GET", "/b/c.html"))).isEqualTo(1);
+	}
+
+	@Test
+	public void indexOfConsidersHttpMethod() {
+		RequestMatcherIndex index = new RequestMatcherIndex(
+				Arrays.<RequestMatcher> asList(
+						new AntPathRequestMatcher("/users/**", "POST"),
+						new AntPathRequestMatcher("/users/**", "GET"),
+						new AntPathRequestMatcher("/**", "DELETE"),
+						new AntPathRequestMatcher("/users/**")));
+
+		assertThat(index.indexOf(request("POST", "/users/1"))).isEqualTo(0);
+		assertThat(index.indexOf(request("GET", "/users/1"))).isEqualTo(1);
+		assertThat(index.indexOf(request("DELETE", "/users/1"))).isEqualTo(2);
+		assertThat(index.indexOf(request("PUT", "/users/1"))).isEqualTo(3);
+		assertThat(index.indexOf(request("INVALID", "/users/1"))).isEqualTo(3);
+		assertThat(index.indexOf(request("", "/users/1"))).isEqualTo(0);
+	}
+
+	@Test
+	public void indexOfWhenWildcardsThenIndexedByLiteralPrefix() {
+		RequestMatcherIndex index = new RequestMatcherIndex(
+				Arrays.<RequestMatcher> asList(new AntPathRequestMatcher("/a/b*/c"),
+						new AntPathRequestMatcher("/a/{id}/d"),
+						new AntPathRequestMatcher("/**/e"),
+						new AntPathRequestMatcher("/login")));
+
+		assertThat(index.indexOf(request("GET", "/a/bx/c"))).isEqualTo(0);
+		assertThat(index.indexOf(request("GET", "/a/1/d"))).isEqualTo(1);
+		assertThat(index.indexOf(request("GET", "/x/y/e"))).isEqualTo(2);
+		assertThat(index.indexOf(request("GET", "/login"))).isEqualTo(3);
+		assertThat(index.indexOf(request("GET", "/login/x"))).isEqualTo(-1);
+	}
+
+	@Test
+	public void indexOfUsesServletPathAndPathInfo() {
+		RequestMatcherIndex index = new RequestMatcherIndex(
+				Arrays.<RequestMatcher> asList(new AntPathRequestMatcher("/a/b/**")));
+		MockHttpServletRequest request = request("GET", "/a");
+		request.setPathInfo("/b/c");
+
+		assertThat(index.indexOf(request)).isEqualTo(0);
+	}
+
+	@Test
+	public void indexOfWhenRegexThenIndexedByLiteralSegments() {
+		RequestMatcherIndex index = new RequestMatcherIndex(
+				Arrays.<RequestMatcher> asList(new RegexRequestMatcher("^/a/b/.*", null),
+						new RegexRequestMatcher("/a/c?/.*", "POST"),
+						new RegexRequestMatcher("/x/.*|/a/d/.*", null),
+						new RegexRequestMatcher("/A/E/.*", null, true)));
+
+		assertThat(index.indexOf(request("GET", "/a/b/c"))).isEqualTo(0);
+		assertThat(index.indexOf(request("POST", "/a/c/1"))).isEqualTo(1);
+		assertThat(index.indexOf(request("POST", "/a//1"))).isEqualTo(1);
+		assertThat(index.indexOf(request("GET", "/a/c/1"))).isEqualTo(-1);
+		assertThat(index.indexOf(request("GET", "/a/d/1"))).isEqualTo(2);
+		assertThat(index.indexOf(request("GET", "/a/e/1"))).isEqualTo(3);
+	}
+
+	@Test
+	public void indexOfWhenOrRequestMatcherThenEachDelegateIndexed() {
+		RequestMatcherIndex index = new RequestMatcherIndex(
+				Arrays.<RequestMatcher> asList(new AntPathRequestMatcher("/a/**"),
+						new OrRequestMatcher(new AntPathRequestMatcher("/b/**"),
+								new AntPathRequestMatcher("/c/**")),
+						new AntPathRequestMatcher("/c/**")));
+
+		assertThat(index.indexOf(request("GET", "/b/1"))).isEqualTo(1);
+		assertThat(index.indexOf(request("GET", "/c/1"))).isEqualTo(1);
+	}
+
+	@Test
+	public void indexOfWhenCustomMatcherThenTriedInDeclaredPosition() {
+		RequestMatcher custom = mock(RequestMatcher.class);
+		when(custom.matches(any(HttpServletRequest.class))).thenReturn(true);
+		RequestMatcherIndex index = new RequestMatcherIndex(
+				Arrays.<RequestMatcher> asList(new AntPathRequestMatcher("/a/**"),
+						custom, new AntPathRequestMatcher("/b/**")));
+
+		assertThat(index.indexOf(request("GET", "/a/1"))).isEqualTo(0);
+		assertThat(index.indexOf(request("GET", "/b/1"))).isEqualTo(1);
+	}
+
+	@Test
+	public void indexOfWhenCaseInsensitiveThenTriedForEveryRequest() {
+		RequestMatcherIndex index = new RequestMatcherIndex(
+				Arrays.<RequestMatcher> asList(
+						new AntPathRequestMatcher("/admin/**", null, false)));
+
+		assertThat(index.indexOf(request("GET", "/ADMIN/x"))).isEqualTo(0);
+	}
+
+	@Test
+	public void indexOfDoesNotEvaluateUnrelatedMatchers() {
+		RequestMatcher unrelated = mock(RequestMatcher.class);
+		List<RequestMatcher> matchers = new ArrayList<RequestMatcher>();
+		for (int i = 0; i < 50; i++) {
+			matchers.add(new AntPathRequestMatcher("/api" + i + "/**"));
+		}
+		matchers.add(unrelated);
+		RequestMatcherIndex index = new RequestMatcherIndex(matchers);
+
+		assertThat(index.indexOf(request("GET", "/api42/x"))).isEqualTo(42);
+		verify(unrelated, never()).matches(any(HttpServletRequest.class));
+	}
+
+	private MockHttpServletRequest request(String method, String servletPath) {
+		MockHttpServletRequest request = new MockHttpServletRequest(method, servletPath);
+		request.setServletPath(servletPath);
+		return request;
+	}
+}